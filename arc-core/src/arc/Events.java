@@ -1,62 +1,237 @@
 package arc;
 
+import arc.func.*;
+import arc.struct.*;
+import arc.util.*;
 
-import arc.struct.Seq;
-import arc.struct.ObjectMap;
-import arc.func.Cons;
+import java.util.concurrent.*;
 
-/** Simple global event listener system. */
+/**
+ * Simple global event listener system.
+ * Every event key (a class or an enum trigger) is resolved to a stable integer slot the first time it is seen.
+ * Listener lists are copy-on-write arrays indexed by slot, so firing is a plain loop without locks or allocation,
+ * and listeners may be registered or fired from any thread.
+ */
 @SuppressWarnings("unchecked")
 public class Events{
-    private static final ObjectMap<Object, Seq<Cons<?>>> events = new ObjectMap<>();
+    private static final Listener[] empty = {};
+    private static final Object lock = new Object();
+
+    /** Maps event keys to slots. Never mutated after publication; replaced under {@link #lock}. */
+    private static volatile ObjectIntMap<Object> slots = new ObjectIntMap<>();
+    /** Listener arrays indexed by slot, sorted by descending priority. Replaced under {@link #lock}. */
+    private static volatile Listener[][] listeners = {};
+    private static volatile @Nullable Executor executor;
 
     /** Handle an event by class. */
     public static <T> void on(Class<T> type, Cons<T> listener){
-        events.get(type, () -> new Seq<>(Cons.class)).add(listener);
+        on(type, 0, listener);
+    }
+
+    /** Handle an event by class. Listeners with a higher priority are called first. */
+    public static <T> void on(Class<T> type, int priority, Cons<T> listener){
+        add(type, new Listener(listener, null, priority));
     }
 
     /** Handle an event by enum trigger. */
     public static void run(Object type, Runnable listener){
-        events.get(type, () -> new Seq<>(Cons.class)).add(e -> listener.run());
+        run(type, 0, listener);
+    }
+
+    /** Handle an event by enum trigger. Listeners with a higher priority are called first. */
+    public static void run(Object type, int priority, Runnable listener){
+        add(type, new Listener(null, listener, priority));
     }
 
     /** Only use this method if you have the reference to the exact listener object that was used. */
     public static <T> boolean remove(Class<T> type, Cons<T> listener){
-        return events.get(type, () -> new Seq<>(Cons.class)).remove(listener);
+        return removeListener(type, listener);
     }
 
-    /** Fires an enum trigger. */
-    public static <T extends Enum<T>> void fire(Enum<T> type){
-        Seq<Cons<?>> listeners = events.get(type);
+    /** Only use this method if you have the reference to the exact listener object that was used. */
+    public static boolean remove(Object type, Runnable listener){
+        return removeListener(type, listener);
+    }
+
+    /**
+     * Resolves an event key to its listener slot, assigning one if necessary. Slots are never reassigned, not even by {@link #clear()}.
+     * Firing through a slot with {@link #fire(int, Object)} skips the key lookup entirely.
+     */
+    public static int slot(Object type){
+        int slot = slots.get(type, -1);
+        if(slot != -1) return slot;
+
+        synchronized(lock){
+            slot = slots.get(type, -1);
+            if(slot == -1){
+                slot = slots.size;
+
+                Listener[][] next = new Listener[slot + 1][];
+                System.arraycopy(listeners, 0, next, 0, slot);
+                next[slot] = empty;
+                //listeners must be published before the slot, so that readers never see a slot outside the array
+                listeners = next;
 
-        if(listeners != null){
-            int len = listeners.size;
-            Cons[] items = listeners.items;
-            for(int i = 0; i < len; i++){
-                items[i].get(type);
+                ObjectIntMap<Object> map = new ObjectIntMap<>(slots);
+                map.put(type, slot);
+                slots = map;
             }
+            return slot;
         }
     }
 
+    /** Fires an enum trigger. */
+    public static <T extends Enum<T>> void fire(Enum<T> type){
+        fireKey(type, type);
+    }
+
     /** Fires a non-enum event by class. */
     public static <T> void fire(T type){
         fire(type.getClass(), type);
     }
 
     public static <T> void fire(Class<?> ctype, T type){
-        Seq<Cons<?>> listeners = events.get(ctype);
+        fireKey(ctype, type);
+    }
 
-        if(listeners != null){
-            int len = listeners.size;
-            Cons[] items = listeners.items;
-            for(int i = 0; i < len; i++){
-                items[i].get(type);
-            }
+    /** Fires an event to the listeners of a slot obtained through {@link #slot(Object)}. */
+    public static <T> void fire(int slot, T type){
+        Listener[][] all = listeners;
+        if(slot < all.length){
+            dispatch(all[slot], type);
+        }
+    }
+
+    /** Fires a non-enum event by class on the event executor. */
+    public static <T> void fireAsync(T type){
+        fireAsync(type.getClass(), type);
+    }
+
+    /** Fires an event on the event executor. Listeners are resolved when the event is dispatched, not when it is posted. */
+    public static <T> void fireAsync(Class<?> ctype, T type){
+        int slot = slot(ctype);
+        executor().execute(() -> fire(slot, type));
+    }
+
+    /** Fires an enum trigger on the event executor. */
+    public static <T extends Enum<T>> void fireAsync(Enum<T> type){
+        int slot = slot(type);
+        executor().execute(() -> fire(slot, type));
+    }
+
+    /** Sets the executor used by {@link #fireAsync(Object)}. By default, a single daemon thread is used, so async events arrive in order. */
+    public static void setExecutor(Executor executor){
+        synchronized(lock){
+            Events.executor = executor;
         }
     }
 
     /** Don't do this. */
     public static void clear(){
-        events.clear();
+        synchronized(lock){
+            Listener[][] next = new Listener[listeners.length][];
+            java.util.Arrays.fill(next, empty);
+            listeners = next;
+        }
+    }
+
+    private static void fireKey(Object key, Object event){
+        int slot = slots.get(key, -1);
+        if(slot != -1){
+            dispatch(listeners[slot], event);
+        }
+    }
+
+    private static void dispatch(Listener[] items, Object event){
+        int len = items.length;
+        if(len == 0) return;
+
+        Cancellable cancel = event instanceof Cancellable ? (Cancellable)event : null;
+
+        for(int i = 0; i < len; i++){
+            Listener l = items[i];
+            if(l.cons != null){
+                l.cons.get(event);
+            }else{
+                l.run.run();
+            }
+
+            if(cancel != null && cancel.isCancelled()) break;
+        }
+    }
+
+    private static Executor executor(){
+        Executor exec = executor;
+        if(exec == null){
+            synchronized(lock){
+                if(executor == null){
+                    executor = Threads.executor("Events", 1);
+                }
+                exec = executor;
+            }
+        }
+        return exec;
+    }
+
+    private static void add(Object type, Listener listener){
+        int slot = slot(type);
+
+        synchronized(lock){
+            Listener[] old = listeners[slot];
+            //insert after all listeners with an equal or higher priority to keep registration order stable
+            int index = old.length;
+            while(index > 0 && old[index - 1].priority < listener.priority){
+                index--;
+            }
+
+            Listener[] result = new Listener[old.length + 1];
+            System.arraycopy(old, 0, result, 0, index);
+            result[index] = listener;
+            System.arraycopy(old, index, result, index + 1, old.length - index);
+            set(slot, result);
+        }
+    }
+
+    private static boolean removeListener(Object type, Object listener){
+        synchronized(lock){
+            int slot = slots.get(type, -1);
+            if(slot == -1) return false;
+
+            Listener[] old = listeners[slot];
+            for(int i = 0; i < old.length; i++){
+                if(old[i].cons == listener || old[i].run == listener){
+                    Listener[] result = new Listener[old.length - 1];
+                    System.arraycopy(old, 0, result, 0, i);
+                    System.arraycopy(old, i + 1, result, i, old.length - i - 1);
+                    set(slot, result);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** Must be called while holding {@link #lock}. Element writes are not volatile, so the outer array is republished. */
+    private static void set(int slot, Listener[] value){
+        Listener[][] next = listeners.clone();
+        next[slot] = value;
+        listeners = next;
+    }
+
+    /** An event that can stop propagation to listeners with a lower priority. */
+    public interface Cancellable{
+        boolean isCancelled();
+    }
+
+    static class Listener{
+        final @Nullable Cons cons;
+        final @Nullable Runnable run;
+        final int priority;
+
+        Listener(@Nullable Cons cons, @Nullable Runnable run, int priority){
+            this.cons = cons;
+            this.run = run;
+            this.priority = priority;
+        }
     }
 }
@@ -9,13 +9,19 @@ import arc.util.io.*;
 import arc.util.serialization.*;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.zip.*;
 
 public class Settings{
     protected final static byte typeBool = 0, typeInt = 1, typeLong = 2, typeFloat = 3, typeString = 4, typeBinary = 5;
+    /** Journal-only entry types. */
+    protected final static byte typeRemove = 6, typeClear = 7;
     protected final static int maxBackups = 10, minBackupIntervalMs = 1000 * 60 * 2;
+    /** Header of the uncompressed, memory-mappable settings format ("ARCM"), followed by a version byte. */
+    protected final static int mappedMagic = 0x4152434d, mappedVersion = 1;
 
     //general state data
     protected Fi dataDirectory;
@@ -28,9 +34,27 @@ public class Settings{
     protected boolean shouldAutosave = true;
     protected boolean loaded = false;
     protected boolean writeCompressed = false;
+    protected boolean writeMapped = false;
+    /** The memory-mapped settings file that {@link MappedBytes} values refer to, or null. */
+    protected @Nullable ByteBuffer mappedFile;
     private long lastBackupTime;
     protected ExecutorService executor = Threads.executor("Settings Backup", 1);
 
+    //journal state
+    protected boolean journaled = false;
+    /** The journal is compacted into the settings file once it grows past this size or the size of the settings file, whichever is larger. */
+    protected long minCompactSize = 1024 * 64;
+    /** Keys that were put or removed since the last save. */
+    protected ObjectSet<String> changed = new ObjectSet<>();
+    /** Whether {@link #clear()} was called since the last save. */
+    protected boolean cleared;
+    protected long journalLength;
+    /** Incremented whenever the journal is reset, so that a stale background compaction can be discarded. */
+    protected int journalGeneration;
+    protected boolean compacting;
+    protected ByteArrayOutputStream journalBytes = new ByteArrayOutputStream(256);
+    protected CRC32 journalCrc = new CRC32();
+
     //IO utility objects
     protected ByteArrayOutputStream byteStream = new ByteArrayOutputStream(32);
     protected ReusableByteInStream byteInputStream = new ReusableByteInStream();
@@ -45,6 +69,30 @@ public class Settings{
         this.writeCompressed = compressed;
     }
 
+    /**
+     * Sets whether the settings file is written in an uncompressed format that is memory-mapped on load.
+     * Binary values in this format are not read until they are first requested with {@link #getBytes(String)}, {@link #getJson}
+     * or {@link #getBuffer(String)}, which makes startup cost independent of the amount of binary data stored.
+     * Takes precedence over {@link #setCompressed(boolean)}. Files in either format can always be loaded.
+     * Default value: false.
+     */
+    public void setMapped(boolean mapped){
+        this.writeMapped = mapped;
+    }
+
+    /**
+     * Enables journaled saving. Instead of rewriting every value, each save appends only the keys that changed to
+     * {@link #getJournalFile()}; the journal is replayed on load and periodically compacted into the settings file in the background.
+     * Default value: false.
+     */
+    public void setJournaled(boolean journaled){
+        this.journaled = journaled;
+    }
+
+    public boolean isJournaled(){
+        return journaled;
+    }
+
     public String getAppName(){
         return appName;
     }
@@ -92,7 +140,11 @@ public class Settings{
         //never loaded, nothing to save
         if(!loaded) return;
         try{
-            saveValues();
+            if(journaled){
+                saveJournal();
+            }else{
+                saveValues();
+            }
         }catch(Throwable error){
             Log.err("Error writing settings", error);
             if(errorHandler != null){
@@ -122,44 +174,260 @@ public class Settings{
 
     /** Loads a settings file into {@link #values} using the specified appName. */
     public synchronized void loadValues(){
-        //don't load settings files if neither of them exist
-        if(!getSettingsFile().exists() && !getBackupSettingsFile().exists()){
+        //don't load settings files if none of them exist
+        if(!getSettingsFile().exists() && !getBackupSettingsFile().exists() && !getJournalFile().exists() && !getPendingSettingsFile().exists()){
             return;
         }
 
-        try{
-            loadValues(getSettingsFile());
+        //a save that happened while the settings file was mapped could not replace it; nothing is mapped yet, so finish that now
+        if(getPendingSettingsFile().exists()){
+            try{
+                move(getPendingSettingsFile(), getSettingsFile());
+            }catch(IOException e){
+                Log.err("Failed to replace settings file with pending save.", e);
+            }
+        }
+
+        if(!getSettingsFile().exists()){
+            //the journal only holds changes on top of the settings file, so it can't replace it
+            Log.warn("Settings file is missing, attempting to load backup.");
+            loadBackup();
+        }else{
+            try{
+                loadValues(getSettingsFile());
+                //back up the save file, as the values have now been loaded successfully
+                getSettingsFile().copyTo(getBackupSettingsFile());
+            }catch(Throwable e){
+                Log.err("Failed to load base settings file, attempting to load backup.", e);
+                loadBackup();
+            }
+        }
+
+        if(getJournalFile().exists()){
+            loadJournal(getJournalFile());
+        }
+    }
+
+    /** Loads the most recent backup that can be read, and copies it to the settings file. */
+    protected void loadBackup(){
+        Seq<Fi> attempts = getBackupFolder().seq();
+        if(getBackupSettingsFile().exists()) attempts.add(getBackupSettingsFile());
+        //sort with latest modified file first
+        attempts.sort(Structs.comparingLong(f -> -f.lastModified()));
+
+        for(Fi attempt : attempts){
+            try{
+                loadValues(attempt);
+            }catch(Throwable e){
+                Log.err("Failed to load backup settings file.", e);
+                continue;
+            }
+
+            Log.info("Loaded backup settings file successfully!");
+
+            try{
+                //the settings file may have been mapped by the failed load, so it is replaced instead of written to
+                Fi temp = getDataDirectory().child("settings.bin.tmp");
+                attempt.copyTo(temp);
+                replace(temp, getSettingsFile());
+            }catch(Throwable e){
+                Log.err("Failed to restore settings file from backup.", e);
+            }
+
+            //break out of loop, we're done here
+            break;
+        }
+    }
+
+    /**
+     * Replays the changes recorded in a journal file on top of the current values. Each save is stored as one checksummed
+     * record; replay stops at the first truncated or corrupt record, and the journal is then compacted to drop the damaged tail.
+     */
+    public synchronized void loadJournal(Fi file){
+        long valid = 0, length = file.length();
+        boolean damaged = false;
+
+        try(DataInputStream stream = new DataInputStream(file.read(8192))){
+            Seq<Object> entries = new Seq<>();
+            byte[] payload = new byte[256];
+
+            while(valid < length){
+                if(length - valid < 8){
+                    throw new IOException("Truncated journal record header at " + valid);
+                }
+
+                int size = stream.readInt();
+                int crc = stream.readInt();
+                if(size <= 0 || size > length - valid - 8){
+                    throw new IOException("Invalid journal record size at " + valid + ": " + size);
+                }
+
+                if(payload.length < size) payload = new byte[Math.max(size, payload.length * 2)];
+                stream.readFully(payload, 0, size);
+
+                journalCrc.reset();
+                journalCrc.update(payload, 0, size);
+                if((int)journalCrc.getValue() != crc){
+                    throw new IOException("Journal record checksum mismatch at " + valid);
+                }
+
+                //parse the whole record before applying it, so a record is either fully applied or not at all
+                entries.clear();
+                byteInputStream.setBytes(payload, 0, size);
+                DataInputStream record = new DataInputStream(byteInputStream);
+                int amount = record.readInt();
+                if(amount <= 0) throw new IOException("Empty journal record at " + valid);
+
+                for(int i = 0; i < amount; i++){
+                    String key = record.readUTF();
+                    byte type = record.readByte();
+                    entries.add(key, type == typeRemove || type == typeClear ? (Object)type : readValue(record, type));
+                }
+
+                for(int i = 0; i < entries.size; i += 2){
+                    String key = (String)entries.get(i);
+                    Object value = entries.get(i + 1);
+                    if(value instanceof Byte){
+                        if((Byte)value == typeClear){
+                            values.clear();
+                        }else{
+                            values.remove(key);
+                        }
+                    }else{
+                        values.put(key, value);
+                    }
+                }
 
-            //back up the save file, as the values have now been loaded successfully
-            getSettingsFile().copyTo(getBackupSettingsFile());
+                valid += 8 + size;
+            }
         }catch(Throwable e){
-            Log.err("Failed to load base settings file, attempting to load backup.", e);
+            Log.err("Failed to read settings journal; discarding changes after byte " + valid + ".", e);
+            damaged = true;
+        }
+
+        journalLength = valid;
 
-            Seq<Fi> attempts = getBackupFolder().seq().add(getBackupSettingsFile());
-            //sort with latest modified file first
-            attempts.sort(Structs.comparingLong(f -> -f.lastModified()));
+        //rewrite the settings file so the damaged part of the journal is not appended to
+        if(damaged){
+            saveValues();
+        }
+    }
 
-            for(Fi attempt : attempts){
-                try{
+    /**
+     * Loads a settings file written with {@link #setMapped(boolean)}. Keys and small values are read immediately;
+     * binary values are stored as {@link MappedBytes} slices of the mapped file and only copied once requested.
+     */
+    protected void loadMapped(Fi file) throws IOException{
+        ByteBuffer buffer;
+        try{
+            buffer = file.map();
+        }catch(ArcRuntimeException e){
+            //not all file types can be mapped
+            buffer = ByteBuffer.wrap(file.readBytes());
+        }
+        buffer.order(ByteOrder.BIG_ENDIAN);
 
-                    loadValues(attempt);
-                    attempt.copyTo(getSettingsFile());
+        ByteBufferInput input = new ByteBufferInput(buffer);
+        try{
+            input.readInt();
+            int version = input.readUnsignedByte();
+            if(version != mappedVersion) throw new IOException("Unknown settings format version: " + version);
 
-                    Log.info("Loaded backup settings file successfully!");
+            int amount = input.readInt();
+            if(amount <= 0) throw new IOException("0 values are not allowed.");
 
-                    //break out of loop, we're done here
-                    return;
-                }catch(Throwable e3){
-                    Log.err("Failed to load backup settings file.", e3);
+            for(int i = 0; i < amount; i++){
+                String key = input.readUTF();
+                byte type = input.readByte();
+
+                if(type == typeBinary){
+                    int length = input.readInt(), start = buffer.position();
+                    if(length < 0 || length > buffer.remaining()) throw new IOException("Invalid binary value length for key '" + key + "': " + length);
+
+                    ByteBuffer slice = buffer.duplicate();
+                    slice.position(start);
+                    slice.limit(start + length);
+                    values.put(key, new MappedBytes(slice.slice()));
+                    buffer.position(start + length);
+                }else{
+                    values.put(key, readValue(input, type));
                 }
             }
+        }catch(BufferUnderflowException e){
+            throw new IOException("Unexpected end of settings file.", e);
+        }
+
+        if(buffer.hasRemaining()){
+            throw new IOException("Trailing settings data; expected EOF, but got " + buffer.remaining() + " bytes.");
+        }
+
+        mappedFile = buffer;
+    }
+
+    /**
+     * Atomically replaces a file with a newly written temporary file. A mapped file is never written to, so mapped values
+     * stay valid: on most platforms, the mapping keeps referring to the replaced file. Windows does not allow replacing a
+     * mapped file at all, in which case the settings file is left alone and the data is moved to
+     * {@link #getPendingSettingsFile()} instead, which takes its place on the next load.
+     * @return the file that now contains the data.
+     */
+    protected Fi replace(Fi temp, Fi file) throws IOException{
+        boolean settings = file.equals(getSettingsFile());
+        //the pending file is newer than the settings file, so it must be gone before the settings file is updated
+        if(settings) getPendingSettingsFile().delete();
+
+        try{
+            move(temp, file);
+            return file;
+        }catch(IOException e){
+            if(!settings) throw e;
+
+            Log.warn("Failed to replace the settings file, most likely because it is still mapped; saving to @ instead.", getPendingSettingsFile().name());
+            move(temp, getPendingSettingsFile());
+            return getPendingSettingsFile();
+        }
+    }
+
+    protected static void move(Fi from, Fi to) throws IOException{
+        //java.nio.file is not available on older Android versions, where renaming atomically replaces the target anyway
+        if(OS.isAndroid){
+            if(!from.file().renameTo(to.file())) throw new IOException("Failed to rename " + from + " to " + to);
+            return;
+        }
+
+        try{
+            java.nio.file.Files.move(from.file().toPath(), to.file().toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }catch(AtomicMoveNotSupportedException e){
+            java.nio.file.Files.move(from.file().toPath(), to.file().toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    protected Object readValue(DataInput stream, byte type) throws IOException{
+        switch(type){
+            case typeBool: return stream.readBoolean();
+            case typeInt: return stream.readInt();
+            case typeLong: return stream.readLong();
+            case typeFloat: return stream.readFloat();
+            case typeString: return stream.readUTF();
+            case typeBinary:
+                int length = stream.readInt();
+                byte[] bytes = new byte[length];
+                stream.readFully(bytes);
+                return bytes;
+            default:
+                throw new IOException("Unknown key type: " + type);
         }
     }
 
     public synchronized void loadValues(Fi file) throws IOException{
         //read the first few bytes to check if it is compressed.
-        byte[] header = new byte[2];
-        file.readBytes(header, 0, 2);
+        byte[] header = new byte[4];
+        file.readBytes(header, 0, 4);
+        if(((header[0] & 0xff) << 24 | (header[1] & 0xff) << 16 | (header[2] & 0xff) << 8 | (header[3] & 0xff)) == mappedMagic){
+            loadMapped(file);
+            return;
+        }
+
         boolean compressed = header[0] == (byte)0x78 && (header[1] == (byte)0x01 || header[1] == (byte)0x5E || header[1] == (byte)0x9c || header[1] == (byte)0xda);
 
         try(DataInputStream stream = new DataInputStream(compressed ? new InflaterInputStream(file.read(8192)) : file.read(8192))){
@@ -172,31 +440,7 @@ public class Settings{
 
                 byte type = stream.readByte();
 
-                switch(type){
-                    case typeBool:
-                        values.put(key, stream.readBoolean());
-                        break;
-                    case typeInt:
-                        values.put(key, stream.readInt());
-                        break;
-                    case typeLong:
-                        values.put(key, stream.readLong());
-                        break;
-                    case typeFloat:
-                        values.put(key, stream.readFloat());
-                        break;
-                    case typeString:
-                        values.put(key, stream.readUTF());
-                        break;
-                    case typeBinary:
-                        int length = stream.readInt();
-                        byte[] bytes = new byte[length];
-                        stream.readFully(bytes);
-                        values.put(key, bytes);
-                        break;
-                    default:
-                        throw new IOException("Unknown key type: " + type);
-                }
+                values.put(key, readValue(stream, type));
             }
             //make sure all data was read - this helps with potential corruption
             int end = stream.read();
@@ -206,46 +450,214 @@ public class Settings{
         }
     }
 
-    /** Saves all entries from {@link #values} into the correct location. */
+    /** Saves all entries from {@link #values} into the correct location. This also resets the journal, if there is one. */
     public synchronized void saveValues(){
         Fi file = getSettingsFile();
+        //values may still be read from the mapped file, so it must not be overwritten in place
+        Fi target = mappedFile != null ? getDataDirectory().child("settings.bin.tmp") : file;
 
-        try(DataOutputStream stream = new DataOutputStream(writeCompressed ? new FastDeflaterOutputStream(file.write(false, 8192)) : file.write(false, 8192))){
-            stream.writeInt(values.size());
+        try{
+            if(target == file){
+                getPendingSettingsFile().delete();
+                writeValues(target, values);
+            }else{
+                writeValues(target, values);
+                file = replace(target, file);
+            }
+        }catch(Throwable e){
+            //file is now corrupt, delete it
+            target.delete();
+            throw new RuntimeException("Error writing preferences: " + file, e);
+        }
 
-            for(Map.Entry<String, Object> entry : values.entrySet()){
-                stream.writeUTF(entry.getKey());
+        //everything in the journal is now part of the settings file
+        resetJournal();
+
+        backup(file);
+    }
+
+    /**
+     * Appends the keys that changed since the last save to the journal as a single checksummed record.
+     * Falls back to a full {@link #saveValues()} if there is no settings file yet, and schedules a background compaction
+     * once the journal grows too large.
+     */
+    public synchronized void saveJournal(){
+        Fi file = getJournalFile();
+
+        if(!getSettingsFile().exists()){
+            saveValues();
+            return;
+        }
+
+        if(changed.isEmpty() && !cleared) return;
+
+        try{
+            journalBytes.reset();
+            DataOutputStream stream = new DataOutputStream(journalBytes);
+            stream.writeInt(changed.size + (cleared ? 1 : 0));
 
-                Object value = entry.getValue();
-
-                if(value instanceof Boolean){
-                    stream.writeByte(typeBool);
-                    stream.writeBoolean((Boolean)value);
-                }else if(value instanceof Integer){
-                    stream.writeByte(typeInt);
-                    stream.writeInt((Integer)value);
-                }else if(value instanceof Long){
-                    stream.writeByte(typeLong);
-                    stream.writeLong((Long)value);
-                }else if(value instanceof Float){
-                    stream.writeByte(typeFloat);
-                    stream.writeFloat((Float)value);
-                }else if(value instanceof String){
-                    stream.writeByte(typeString);
-                    stream.writeUTF((String)value);
-                }else if(value instanceof byte[]){
-                    stream.writeByte(typeBinary);
-                    stream.writeInt(((byte[])value).length);
-                    stream.write((byte[])value);
+            if(cleared){
+                stream.writeUTF("");
+                stream.writeByte(typeClear);
+            }
+
+            for(String key : changed){
+                stream.writeUTF(key);
+                Object value = values.get(key);
+                if(value == null){
+                    stream.writeByte(typeRemove);
+                }else{
+                    writeValue(stream, value);
                 }
             }
 
+            byte[] payload = journalBytes.toByteArray();
+            journalCrc.reset();
+            journalCrc.update(payload, 0, payload.length);
+
+            try(DataOutputStream out = new DataOutputStream(file.write(true, payload.length + 8))){
+                out.writeInt(payload.length);
+                out.writeInt((int)journalCrc.getValue());
+                out.write(payload);
+            }
+
+            journalLength += payload.length + 8;
         }catch(Throwable e){
-            //file is now corrupt, delete it
-            file.delete();
-            throw new RuntimeException("Error writing preferences: " + file, e);
+            //a partially written record is discarded on load; rewrite everything to get rid of it
+            Log.err("Error writing settings journal, saving all values instead.", e);
+            saveValues();
+            return;
         }
 
+        changed.clear();
+        cleared = false;
+
+        if(journalLength > Math.max(minCompactSize, getSettingsFile().length())){
+            compact();
+        }
+    }
+
+    /**
+     * Merges the journal into the settings file on the executor. Values are written from a snapshot, so saves can continue
+     * while the settings file is rewritten; records appended to the journal in the meantime are kept.
+     */
+    protected synchronized void compact(){
+        if(compacting) return;
+        compacting = true;
+
+        HashMap<String, Object> snapshot = new HashMap<>(values);
+        long mark = journalLength;
+        int generation = journalGeneration;
+
+        executor.submit(() -> {
+            //written outside the lock, so it must not share a temporary file with saveValues()
+            Fi temp = getDataDirectory().child("settings.bin.compact");
+            try{
+                writeValues(temp, snapshot);
+
+                synchronized(this){
+                    //a full save happened in the meantime, so this snapshot is outdated
+                    if(generation != journalGeneration){
+                        temp.delete();
+                        return;
+                    }
+
+                    Fi file = replace(temp, getSettingsFile()), journal = getJournalFile();
+
+                    //if the process dies here, replaying the whole journal over the new settings file yields the same values
+                    if(journalLength > mark){
+                        Fi tail = getDataDirectory().child("settings.journal.tmp");
+                        try(InputStream in = journal.read(8192); OutputStream out = tail.write(false, 8192)){
+                            long skipped = 0;
+                            while(skipped < mark){
+                                long amount = in.skip(mark - skipped);
+                                if(amount <= 0) throw new EOFException("Settings journal is shorter than expected.");
+                                skipped += amount;
+                            }
+                            Streams.copy(in, out);
+                        }
+                        tail.moveTo(journal);
+                    }else{
+                        journal.delete();
+                    }
+                    journalLength -= mark;
+                    journalGeneration++;
+
+                    backup(file);
+                }
+            }catch(Throwable e){
+                temp.delete();
+                Log.err("Error compacting settings journal", e);
+            }finally{
+                synchronized(this){
+                    compacting = false;
+                }
+            }
+        });
+    }
+
+    protected void resetJournal(){
+        Fi journal = getJournalFile();
+        if(journal.exists()){
+            journal.delete();
+        }
+        journalLength = 0;
+        journalGeneration++;
+        changed.clear();
+        cleared = false;
+    }
+
+    protected void writeValues(Fi file, Map<String, Object> values) throws IOException{
+        try(DataOutputStream stream = new DataOutputStream(writeCompressed && !writeMapped ? new FastDeflaterOutputStream(file.write(false, 8192)) : file.write(false, 8192))){
+            if(writeMapped){
+                stream.writeInt(mappedMagic);
+                stream.writeByte(mappedVersion);
+            }
+            stream.writeInt(values.size());
+
+            for(Map.Entry<String, Object> entry : values.entrySet()){
+                stream.writeUTF(entry.getKey());
+                writeValue(stream, entry.getValue());
+            }
+        }
+    }
+
+    protected void writeValue(DataOutputStream stream, Object value) throws IOException{
+        if(value instanceof Boolean){
+            stream.writeByte(typeBool);
+            stream.writeBoolean((Boolean)value);
+        }else if(value instanceof Integer){
+            stream.writeByte(typeInt);
+            stream.writeInt((Integer)value);
+        }else if(value instanceof Long){
+            stream.writeByte(typeLong);
+            stream.writeLong((Long)value);
+        }else if(value instanceof Float){
+            stream.writeByte(typeFloat);
+            stream.writeFloat((Float)value);
+        }else if(value instanceof String){
+            stream.writeByte(typeString);
+            stream.writeUTF((String)value);
+        }else if(value instanceof byte[]){
+            stream.writeByte(typeBinary);
+            stream.writeInt(((byte[])value).length);
+            stream.write((byte[])value);
+        }else if(value instanceof MappedBytes){
+            ByteBuffer buffer = ((MappedBytes)value).buffer.duplicate();
+            byte[] chunk = new byte[Math.min(buffer.remaining(), 8192)];
+
+            stream.writeByte(typeBinary);
+            stream.writeInt(buffer.remaining());
+            while(buffer.hasRemaining()){
+                int amount = Math.min(chunk.length, buffer.remaining());
+                buffer.get(chunk, 0, amount);
+                stream.write(chunk, 0, amount);
+            }
+        }
+    }
+
+    /** Copies the settings file into the backup folder, at most once every {@link #minBackupIntervalMs}. */
+    protected void backup(Fi file){
         if(Time.timeSinceMillis(lastBackupTime) > minBackupIntervalMs){
             lastBackupTime = Time.millis();
 
@@ -275,6 +687,16 @@ public class Settings{
         return getDataDirectory().child("settings.bin");
     }
 
+    /** Returns the file that changes are appended to in {@link #setJournaled(boolean) journaled} mode. */
+    public Fi getJournalFile(){
+        return getDataDirectory().child("settings.journal");
+    }
+
+    /** Returns the file that a save is moved to if the settings file could not be replaced because it was memory-mapped. */
+    public Fi getPendingSettingsFile(){
+        return getDataDirectory().child("settings.bin.pending");
+    }
+
     public Fi getBackupFolder(){
         return getDataDirectory().child("settings_backups");
     }
@@ -306,6 +728,8 @@ public class Settings{
     /** Clears all preference values. */
     public synchronized void clear(){
         values.clear();
+        changed.clear();
+        cleared = true;
     }
 
     public synchronized Object getDefault(String name){
@@ -317,7 +741,27 @@ public class Settings{
     }
 
     public synchronized Object get(String name, Object def){
-        return values.containsKey(name) ? values.get(name) : def;
+        if(!values.containsKey(name)) return def;
+
+        Object value = values.get(name);
+        if(value instanceof MappedBytes){
+            value = ((MappedBytes)value).read();
+            values.put(name, value);
+        }
+        return value;
+    }
+
+    /**
+     * @return a read-only view of a binary value, or null if there is none. Values that have not been read from a
+     * {@link #setMapped(boolean) memory-mapped} settings file yet are returned without copying them. The view stays valid
+     * after saves, as the mapped file is never written to, but does not reflect later changes to the value.
+     */
+    public synchronized @Nullable ByteBuffer getBuffer(String name){
+        Object value = values.get(name);
+        if(value instanceof MappedBytes){
+            return ((MappedBytes)value).buffer.asReadOnlyBuffer();
+        }
+        return value instanceof byte[] ? ByteBuffer.wrap((byte[])value).asReadOnlyBuffer() : null;
     }
 
     public boolean isModified(){
@@ -342,6 +786,11 @@ public class Settings{
     public synchronized <T> T getJson(String name, Class<T> type, Class elementType, Prov<T> def){
         try{
             if(!has(name)) return def.get();
+            Object value = values.get(name);
+            if(value instanceof MappedBytes){
+                //parse straight from the mapped file instead of copying the value onto the heap
+                return json.readValue(type, elementType, ureader.parse(new ByteBufferInStream(((MappedBytes)value).buffer.duplicate())));
+            }
             byteInputStream.setBytes(getBytes(name));
             return json.readValue(type, elementType, ureader.parse(byteInputStream));
         }catch(Throwable e){
@@ -427,6 +876,7 @@ public class Settings{
         if(object instanceof Float || object instanceof Integer || object instanceof Boolean || object instanceof Long
         || object instanceof String || object instanceof byte[]){
             values.put(name, object);
+            changed.add(name);
             modified = true;
         }else{
             throw new IllegalArgumentException("Invalid object stored: " + (object == null ? null : object.getClass()) + ".");
@@ -435,6 +885,7 @@ public class Settings{
 
     public synchronized void remove(String name){
         values.remove(name);
+        changed.add(name);
         modified = true;
     }
 
@@ -445,4 +896,19 @@ public class Settings{
     public synchronized int keySize(){
         return values.size();
     }
+
+    /** A binary value that is still stored in the memory-mapped settings file. */
+    protected static class MappedBytes{
+        public final ByteBuffer buffer;
+
+        public MappedBytes(ByteBuffer buffer){
+            this.buffer = buffer;
+        }
+
+        public byte[] read(){
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return bytes;
+        }
+    }
 }
@@ -53,6 +53,23 @@ public class Mesh implements Disposable{
      * @param maxIndices the maximum number of indices this mesh can hold
      */
     public Mesh(boolean useVertexArray, boolean isStatic, int maxVertices, int maxIndices, VertexAttribute... attributes){
+        this(useVertexArray, isStatic, 0, maxVertices, maxIndices, attributes);
+    }
+
+    /**
+     * Creates a new Mesh for vertices that are rewritten before every draw. The vertices are uploaded through a
+     * {@link StreamingVertexBuffer} with the given number of regions. With fewer than 2 regions, or if useVertexArray is set and
+     * GL30 is not available, this falls back to the same vertex data as {@link #Mesh(boolean, boolean, int, int, VertexAttribute...)}.
+     * @param useVertexArray whether to keep the vertices in client memory on GL20 instead of streaming them.
+     * @param regions how many uploads fit into the vertex buffer before it is orphaned.
+     * @param maxVertices the maximum number of vertices this mesh can hold
+     * @param maxIndices the maximum number of indices this mesh can hold
+     */
+    public Mesh(boolean useVertexArray, int regions, int maxVertices, int maxIndices, VertexAttribute... attributes){
+        this(useVertexArray, false, regions, maxVertices, maxIndices, attributes);
+    }
+
+    private Mesh(boolean useVertexArray, boolean isStatic, int regions, int maxVertices, int maxIndices, VertexAttribute... attributes){
         int count = 0;
         for(VertexAttribute attribute : attributes){
             count += attribute.size;
@@ -64,6 +81,9 @@ public class Mesh implements Disposable{
         if(useVertexArray && Core.gl30 == null){
             vertices = new VertexArray(maxVertices, this);
             indices = new IndexArray(maxIndices);
+        }else if(regions > 1){
+            vertices = new StreamingVertexBuffer(maxVertices, regions, this);
+            indices = new IndexBufferObject(isStatic, maxIndices);
         }else if(Core.gl30 != null){
             vertices = new VertexBufferObjectWithVAO(isStatic, maxVertices, this);
             indices = new IndexBufferObject(isStatic, maxIndices);
@@ -0,0 +1,288 @@
+package arc.graphics.g2d;
+
+import arc.*;
+import arc.func.*;
+import arc.graphics.*;
+import arc.graphics.gl.*;
+import arc.math.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import arc.util.*;
+
+/**
+ * Retains static geometry, such as a floor layer, in square chunks of {@link #chunkSize} world units starting at the origin.
+ * Each chunk is cached in its own {@link SpriteCache}, so a change only rebuilds the chunks it touches instead of the whole layer.
+ * <p>
+ * Chunks are rebuilt by calling the renderer with their chunk coordinates while {@link Core#batch} records into the chunk's
+ * cache; the renderer draws the contents of the chunk with the usual {@link Draw} methods, starting with a white color.
+ * Changes are registered with {@link #markDirty(float, float, float, float)} and rebuilt by {@link #update()}, which only
+ * rebuilds a limited number of chunks per call, preferring ones that were visible in the last {@link #draw(Camera)}.
+ * Until then, dirty chunks keep drawing their previous contents.
+ */
+public class ChunkCache implements Disposable{
+    /** Number of chunks on each axis. */
+    public final int chunksX, chunksY;
+    /** Size of a chunk in world units. */
+    public final float chunkSize;
+    /** Maximum number of sprites in a chunk. */
+    public final int chunkSprites;
+
+    /** Maximum number of chunks rebuilt in one {@link #update()}. */
+    public int maxRebuilds = 8;
+    /** Time budget of {@link #update()} in nanoseconds. At least one chunk is rebuilt per call regardless of this. */
+    public long rebuildTime = Time.millisToNanos(2);
+    /** World units added around the camera when culling, for sprites that extend past the bounds of their chunk. */
+    public float margin;
+    /** Blending applied before drawing the chunks. */
+    public Blending blending = Blending.normal;
+
+    /** Number of chunks rebuilt in the last {@link #update()}. */
+    public int rebuilt;
+    /** Number of chunks drawn in the last {@link #draw(Camera)}. */
+    public int drawn;
+
+    protected final Intc2 renderer;
+    /** Caches by chunk index; null for chunks that were never built or are empty. */
+    protected final SpriteCache[] caches;
+    protected final boolean[] dirty;
+    protected final IntQueue queue = new IntQueue();
+    protected final ChunkBatch batch = new ChunkBatch();
+    protected final Shader shader;
+    protected final Rect viewport = new Rect();
+
+    /** Cache of a chunk that turned out to be empty, reused for the next build. */
+    protected SpriteCache spare;
+    protected int dirtyCount;
+    /** Chunk range of the last draw call, inclusive. */
+    protected int minX, minY, maxX = -1, maxY = -1;
+
+    /**
+     * Creates a cache with all chunks marked as dirty.
+     * @param chunkSprites The maximum number of sprites drawn into a single chunk. Max of 8191.
+     * @param renderer Draws the contents of the chunk at the given chunk coordinates.
+     */
+    public ChunkCache(int chunksX, int chunksY, float chunkSize, int chunkSprites, Intc2 renderer){
+        if(chunkSprites > 8191) throw new IllegalArgumentException("Can't have more than 8191 sprites per chunk: " + chunkSprites);
+        if(chunksX <= 0 || chunksY <= 0) throw new IllegalArgumentException("Chunk counts must be positive: " + chunksX + "x" + chunksY);
+
+        this.chunksX = chunksX;
+        this.chunksY = chunksY;
+        this.chunkSize = chunkSize;
+        this.chunkSprites = chunkSprites;
+        this.renderer = renderer;
+
+        caches = new SpriteCache[chunksX * chunksY];
+        dirty = new boolean[chunksX * chunksY];
+        shader = SpriteCache.createDefaultShader();
+
+        markAll();
+    }
+
+    /** Marks the chunk containing this world position as dirty. */
+    public void markDirty(float x, float y){
+        markChunk(Mathf.floor(x / chunkSize), Mathf.floor(y / chunkSize));
+    }
+
+    /** Marks all chunks overlapping this world rectangle as dirty. */
+    public void markDirty(float x, float y, float width, float height){
+        int x1 = Math.max(Mathf.floor(x / chunkSize), 0), y1 = Math.max(Mathf.floor(y / chunkSize), 0);
+        int x2 = Math.min(Mathf.floor((x + width) / chunkSize), chunksX - 1), y2 = Math.min(Mathf.floor((y + height) / chunkSize), chunksY - 1);
+
+        for(int cy = y1; cy <= y2; cy++){
+            for(int cx = x1; cx <= x2; cx++){
+                markChunk(cx, cy);
+            }
+        }
+    }
+
+    /** Marks the chunk at these chunk coordinates as dirty. Coordinates outside the grid are ignored. */
+    public void markChunk(int cx, int cy){
+        if(cx < 0 || cy < 0 || cx >= chunksX || cy >= chunksY) return;
+
+        int index = cx + cy * chunksX;
+        if(!dirty[index]){
+            dirty[index] = true;
+            dirtyCount++;
+            queue.addLast(index);
+        }
+    }
+
+    public void markAll(){
+        for(int i = 0; i < dirty.length; i++){
+            markChunk(i % chunksX, i / chunksX);
+        }
+    }
+
+    public boolean isDirty(int cx, int cy){
+        return dirty[cx + cy * chunksX];
+    }
+
+    /** @return the number of chunks waiting to be rebuilt. */
+    public int dirtyChunks(){
+        return dirtyCount;
+    }
+
+    /**
+     * Rebuilds dirty chunks until {@link #maxRebuilds} or {@link #rebuildTime} is exceeded. Chunks visible in the last
+     * {@link #draw(Camera)} are rebuilt first, the rest in the order they were marked.
+     */
+    public void update(){
+        rebuilt = 0;
+        if(dirtyCount == 0) return;
+
+        long start = Time.nanos();
+
+        for(int cy = minY; cy <= maxY; cy++){
+            for(int cx = minX; cx <= maxX; cx++){
+                int index = cx + cy * chunksX;
+                if(dirty[index]){
+                    if(!canRebuild(start)) return;
+                    rebuild(index);
+                }
+            }
+        }
+
+        //chunks rebuilt above leave stale entries in the queue, which are skipped
+        while(dirtyCount > 0 && canRebuild(start)){
+            int index = queue.removeFirst();
+            if(dirty[index]) rebuild(index);
+        }
+    }
+
+    /** Rebuilds all dirty chunks, regardless of the budget. Useful when a layer is first loaded. */
+    public void rebuildAll(){
+        while(dirtyCount > 0){
+            int index = queue.removeFirst();
+            if(dirty[index]) rebuild(index);
+        }
+        queue.clear();
+    }
+
+    /** Draws all non-empty chunks within the camera bounds, using the camera's projection. */
+    public void draw(Camera camera){
+        camera.bounds(viewport).grow(margin * 2f);
+        minX = Math.max(Mathf.floor(viewport.x / chunkSize), 0);
+        minY = Math.max(Mathf.floor(viewport.y / chunkSize), 0);
+        maxX = Math.min(Mathf.floor((viewport.x + viewport.width) / chunkSize), chunksX - 1);
+        maxY = Math.min(Mathf.floor((viewport.y + viewport.height) / chunkSize), chunksY - 1);
+
+        drawn = 0;
+        boolean applied = false;
+
+        for(int cy = minY; cy <= maxY; cy++){
+            for(int cx = minX; cx <= maxX; cx++){
+                SpriteCache cache = caches[cx + cy * chunksX];
+                if(cache == null) continue;
+
+                if(!applied){
+                    blending.apply();
+                    applied = true;
+                }
+
+                cache.setProjectionMatrix(camera.mat);
+                cache.begin();
+                cache.draw(0);
+                cache.end();
+                drawn++;
+            }
+        }
+    }
+
+    protected boolean canRebuild(long start){
+        return rebuilt == 0 || (rebuilt < maxRebuilds && Time.timeSinceNanos(start) < rebuildTime);
+    }
+
+    protected void rebuild(int index){
+        SpriteCache cache = caches[index];
+        if(cache == null){
+            if(spare != null){
+                cache = spare;
+                spare = null;
+            }else{
+                cache = new SpriteCache(chunkSprites, 1, shader, true);
+                cache.ownsShader = false;
+            }
+        }
+
+        cache.clear();
+        cache.setPackedColor(Color.whiteFloatBits);
+        batch.cache = cache;
+        batch.sprites = 0;
+
+        Batch prev = Core.batch;
+        Core.batch = batch;
+        boolean built = false;
+        cache.beginCache();
+        try{
+            renderer.get(index % chunksX, index / chunksX);
+            built = true;
+        }finally{
+            //the cache can't be built again until it is ended, even if the renderer threw
+            cache.endCache();
+            Core.batch = prev;
+
+            if(!built){
+                //drop the partial contents; the chunk stays dirty and is retried later
+                release(index, cache);
+                queue.addLast(index);
+            }
+        }
+
+        if(batch.sprites == 0){
+            //empty chunks are skipped entirely when drawing
+            release(index, cache);
+        }else{
+            caches[index] = cache;
+        }
+
+        dirty[index] = false;
+        dirtyCount--;
+        rebuilt++;
+    }
+
+    /** Removes the cache of a chunk, keeping it as the spare if there is none yet. */
+    protected void release(int index, SpriteCache cache){
+        if(spare == null){
+            spare = cache;
+        }else{
+            cache.dispose();
+        }
+        caches[index] = null;
+    }
+
+    @Override
+    public void dispose(){
+        for(int i = 0; i < caches.length; i++){
+            if(caches[i] != null){
+                caches[i].dispose();
+                caches[i] = null;
+            }
+        }
+        if(spare != null){
+            spare.dispose();
+            spare = null;
+        }
+        shader.dispose();
+    }
+
+    /** Records into the cache of the chunk being built, counting its sprites. */
+    protected static class ChunkBatch extends CacheBatch{
+        int sprites;
+
+        ChunkBatch(){
+            super((SpriteCache)null);
+        }
+
+        @Override
+        protected void draw(Texture texture, float[] spriteVertices, int offset, int count){
+            sprites += count / SpriteBatch.SPRITE_SIZE;
+            super.draw(texture, spriteVertices, offset, count);
+        }
+
+        @Override
+        protected void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float rotation){
+            sprites++;
+            super.draw(region, x, y, originX, originY, width, height, rotation);
+        }
+    }
+}
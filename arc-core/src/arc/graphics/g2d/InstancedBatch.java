@@ -0,0 +1,339 @@
+package arc.graphics.g2d;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.gl.*;
+import arc.math.*;
+import arc.util.*;
+
+import java.nio.*;
+
+/**
+ * A {@link SpriteBatch} that draws texture regions with GL30 instancing. Instead of 4 vertices and 6 indices, every sprite uploads a
+ * single {@link #INSTANCE_SIZE} float record, and the vertex shader builds the quad from it.
+ * <p>
+ * Instance records hold, in order: x, y, originX, originY, width, height, rotation, color, mix color, u, v, u2, v2;
+ * where (u, v) belongs to the bottom left corner and (u2, v2) to the top right corner. {@link #expand(float[], int, float[], int)}
+ * turns a record into the same vertices the shader produces.
+ * <p>
+ * Raw vertices, such as those drawn by {@link Fill}, and drawing with a custom shader use the regular vertex path; the order of draws is kept.
+ * Without GL30, records are expanded on the CPU, so this batch can be used everywhere.
+ */
+public class InstancedBatch extends SpriteBatch{
+    //xy + origin + size + rotation + color + mix_color + uv + uv2
+    public static final int INSTANCE_SIZE = SPRITE_DATA;
+
+    static final VertexAttribute[] instanceAttributes = {
+    new VertexAttribute(4, "a_position"),
+    new VertexAttribute(3, "a_size"),
+    VertexAttribute.color,
+    VertexAttribute.mixColor,
+    new VertexAttribute(4, "a_region")
+    };
+    static final VertexAttribute cornerAttribute = new VertexAttribute(2, "a_corner");
+
+    /** Whether instances are drawn by the GPU. If false, they are expanded into vertices. */
+    protected final boolean instanced;
+    protected final float[] instances;
+    protected final int maxInstances;
+    protected int numInstances;
+    protected Texture instanceTexture;
+
+    protected Shader instanceShader;
+    protected ByteBuffer instanceBuffer;
+    protected int vaoHandle = -1, cornerHandle, indexHandle, instanceHandle;
+    /** Byte offset of the next upload in the instance buffer, which is orphaned when full. */
+    protected int instanceOffset, instanceCapacity;
+    protected boolean allocated;
+
+    /** Constructs a new InstancedBatch with a size of 4096. */
+    public InstancedBatch(){
+        this(4096);
+    }
+
+    /** @param size The max number of sprites in a single batch. Max of 8191 for raw vertices; instances are not limited by indices. */
+    public InstancedBatch(int size){
+        super(size);
+
+        maxInstances = size;
+        instances = new float[size * INSTANCE_SIZE];
+        instanced = Core.gl30 != null;
+
+        if(instanced){
+            instanceShader = createInstanceShader();
+            instanceBuffer = Buffers.newUnsafeByteBuffer(size * INSTANCE_SIZE * 4);
+            //room for several flushes before orphaning, like StreamingVertexBuffer
+            instanceCapacity = instanceBuffer.capacity() * Math.max(streamRegions, 1);
+        }
+    }
+
+    @Override
+    public void dispose(){
+        super.dispose();
+        if(instanced){
+            instanceShader.dispose();
+            Buffers.disposeUnsafeByteBuffer(instanceBuffer);
+            if(vaoHandle != -1){
+                Gl.deleteBuffer(cornerHandle);
+                Gl.deleteBuffer(indexHandle);
+                Gl.deleteBuffer(instanceHandle);
+                IntBuffer handle = Buffers.newIntBuffer(1);
+                handle.put(vaoHandle).flip();
+                Core.gl30.glDeleteVertexArrays(1, handle);
+                vaoHandle = -1;
+            }
+        }
+    }
+
+    @Override
+    protected void discard(){
+        super.discard();
+        numInstances = 0;
+    }
+
+    @Override
+    protected void flush(){
+        if(!flushing){
+            flushing = true;
+            flushRequests();
+            flushing = false;
+        }
+
+        flushInstances();
+        super.flush();
+    }
+
+    @Override
+    protected boolean generateVertices(DrawRequest[] requests, int num){
+        //transform data is uploaded as-is, so there is nothing to generate
+        return false;
+    }
+
+    @Override
+    protected void drawSuper(Texture texture, float[] spriteVertices, int offset, int count){
+        flushInstances();
+        super.drawSuper(texture, spriteVertices, offset, count);
+    }
+
+    @Override
+    protected void drawSuper(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float rotation){
+        if(customShader != null){
+            flushInstances();
+            super.drawSuper(region, x, y, originX, originY, width, height, rotation);
+            return;
+        }
+
+        int pos = prepareInstance(region.texture);
+        float[] data = instances;
+        data[pos] = x;
+        data[pos + 1] = y;
+        data[pos + 2] = originX;
+        data[pos + 3] = originY;
+        data[pos + 4] = width;
+        data[pos + 5] = height;
+        data[pos + 6] = rotation;
+        data[pos + 7] = colorPacked;
+        data[pos + 8] = mixColorPacked;
+        data[pos + 9] = region.u;
+        data[pos + 10] = region.v2;
+        data[pos + 11] = region.u2;
+        data[pos + 12] = region.v;
+    }
+
+    @Override
+    protected void drawTransformed(Texture texture, float[] data, int offset, int sprites){
+        if(customShader != null){
+            flushInstances();
+            super.drawTransformed(texture, data, offset, sprites);
+            return;
+        }
+
+        //sorted transform data has the same layout as instances
+        for(int i = 0; i < sprites; i++){
+            System.arraycopy(data, offset + i * INSTANCE_SIZE, instances, prepareInstance(texture), INSTANCE_SIZE);
+        }
+    }
+
+    /** @return the offset of a new instance record, after flushing whatever cannot be drawn together with it. */
+    protected int prepareInstance(Texture texture){
+        //raw vertices drawn before this sprite must stay below it
+        if(idx > 0) super.flush();
+        if(numInstances > 0 && (texture != instanceTexture || numInstances == maxInstances)) flushInstances();
+
+        instanceTexture = lastTexture = texture;
+        return numInstances++ * INSTANCE_SIZE;
+    }
+
+    /** Draws all pending instances. */
+    protected void flushInstances(){
+        if(numInstances == 0) return;
+
+        if(instanced){
+            renderInstances();
+        }else{
+            //expand into vertices in chunks that fit the vertex buffer
+            int chunk = Math.min(numInstances, buffer.capacity() / SPRITE_SIZE);
+            if(generatedVerts.length < chunk * SPRITE_SIZE) generatedVerts = new float[chunk * SPRITE_SIZE];
+            int count = numInstances;
+            numInstances = 0;
+            for(int i = 0; i < count; i += chunk){
+                int n = Math.min(chunk, count - i);
+                for(int j = 0; j < n; j++){
+                    expand(instances, (i + j) * INSTANCE_SIZE, generatedVerts, j * SPRITE_SIZE);
+                }
+                super.drawSuper(instanceTexture, generatedVerts, 0, n * SPRITE_SIZE);
+            }
+        }
+
+        numInstances = 0;
+    }
+
+    protected void renderInstances(){
+        GL30 gl = Core.gl30;
+        Shader shader = instanceShader;
+
+        if(vaoHandle == -1) createBuffers(shader);
+
+        shader.bind();
+        combinedMatrix.set(projectionMatrix).mul(transformMatrix);
+        shader.setUniformMatrix4("u_projTrans", combinedMatrix);
+
+        Gl.depthMask(false);
+        blending.apply();
+        instanceTexture.bind();
+
+        gl.glBindVertexArray(vaoHandle);
+        Gl.bindBuffer(Gl.arrayBuffer, instanceHandle);
+
+        int bytes = numInstances * INSTANCE_SIZE * 4;
+        if(!allocated || instanceOffset + bytes > instanceCapacity){
+            Gl.bufferData(Gl.arrayBuffer, instanceCapacity, null, Gl.streamDraw);
+            instanceOffset = 0;
+            allocated = true;
+        }
+        Buffers.copy(instances, instanceBuffer, numInstances * INSTANCE_SIZE, 0);
+        instanceBuffer.position(0);
+        Gl.bufferSubData(Gl.arrayBuffer, instanceOffset, bytes, instanceBuffer);
+
+        //point the per-instance attributes at this upload
+        int offset = instanceOffset;
+        for(VertexAttribute attribute : instanceAttributes){
+            int location = shader.getAttributeLocation(attribute.alias);
+            if(location >= 0){
+                Gl.vertexAttribPointer(location, attribute.components, attribute.type, attribute.normalized, INSTANCE_SIZE * 4, offset);
+            }
+            offset += attribute.size;
+        }
+        instanceOffset += bytes;
+
+        gl.glDrawElementsInstanced(Gl.triangles, 6, Gl.unsignedShort, 0, numInstances);
+
+        gl.glBindVertexArray(0);
+        Gl.bindBuffer(Gl.arrayBuffer, 0);
+    }
+
+    /** Creates the vertex array with the shared quad and the per-instance attribute state. */
+    protected void createBuffers(Shader shader){
+        GL30 gl = Core.gl30;
+        IntBuffer handle = Buffers.newIntBuffer(1);
+        gl.glGenVertexArrays(1, handle);
+        vaoHandle = handle.get(0);
+        gl.glBindVertexArray(vaoHandle);
+
+        cornerHandle = Gl.genBuffer();
+        Gl.bindBuffer(Gl.arrayBuffer, cornerHandle);
+        ByteBuffer corners = Buffers.newByteBuffer(8 * 4);
+        corners.asFloatBuffer().put(new float[]{0f, 0f, 0f, 1f, 1f, 1f, 1f, 0f});
+        Gl.bufferData(Gl.arrayBuffer, 8 * 4, corners, Gl.staticDraw);
+        int corner = shader.getAttributeLocation(cornerAttribute.alias);
+        if(corner >= 0){
+            Gl.enableVertexAttribArray(corner);
+            Gl.vertexAttribPointer(corner, 2, Gl.floatV, false, 0, 0);
+        }
+
+        indexHandle = Gl.genBuffer();
+        Gl.bindBuffer(Gl.elementArrayBuffer, indexHandle);
+        ByteBuffer indices = Buffers.newByteBuffer(6 * 2);
+        indices.asShortBuffer().put(new short[]{0, 1, 2, 2, 3, 0});
+        Gl.bufferData(Gl.elementArrayBuffer, 6 * 2, indices, Gl.staticDraw);
+
+        instanceHandle = Gl.genBuffer();
+        for(VertexAttribute attribute : instanceAttributes){
+            int location = shader.getAttributeLocation(attribute.alias);
+            if(location < 0) continue;
+            Gl.enableVertexAttribArray(location);
+            gl.glVertexAttribDivisor(location, 1);
+        }
+
+        gl.glBindVertexArray(0);
+        Gl.bindBuffer(Gl.arrayBuffer, 0);
+    }
+
+    /**
+     * Writes the 4 vertices of an instance record in the {@link SpriteBatch} vertex format. This is what the instancing shader computes,
+     * and is used to draw instances without GL30.
+     */
+    public static void expand(float[] instance, int offset, float[] vertices, int idx){
+        float x = instance[offset], y = instance[offset + 1];
+        float originX = instance[offset + 2], originY = instance[offset + 3];
+        float width = instance[offset + 4], height = instance[offset + 5];
+        float rotation = instance[offset + 6] * Mathf.degRad;
+        float color = instance[offset + 7], mixColor = instance[offset + 8];
+        float u = instance[offset + 9], v = instance[offset + 10], u2 = instance[offset + 11], v2 = instance[offset + 12];
+
+        float cos = (float)Math.cos(rotation), sin = (float)Math.sin(rotation);
+        float worldOriginX = x + originX, worldOriginY = y + originY;
+
+        //corners in the same order as SpriteBatch: bottom left, top left, top right, bottom right
+        for(int i = 0; i < 4; i++, idx += VERTEX_SIZE){
+            int cx = i >> 1, cy = (i == 1 || i == 2) ? 1 : 0;
+            float lx = cx * width - originX, ly = cy * height - originY;
+
+            vertices[idx] = cos * lx - sin * ly + worldOriginX;
+            vertices[idx + 1] = sin * lx + cos * ly + worldOriginY;
+            vertices[idx + 2] = color;
+            vertices[idx + 3] = cx == 0 ? u : u2;
+            vertices[idx + 4] = cy == 0 ? v : v2;
+            vertices[idx + 5] = mixColor;
+        }
+    }
+
+    public static Shader createInstanceShader(){
+        return new Shader(
+        "attribute vec2 a_corner;\n" +
+        "attribute vec4 a_position;\n" +
+        "attribute vec3 a_size;\n" +
+        "attribute vec4 a_color;\n" +
+        "attribute vec4 a_mix_color;\n" +
+        "attribute vec4 a_region;\n" +
+        "uniform mat4 u_projTrans;\n" +
+        "varying vec4 v_color;\n" +
+        "varying vec4 v_mix_color;\n" +
+        "varying vec2 v_texCoords;\n" +
+        "\n" +
+        "void main(){\n" +
+        "   vec2 local = a_corner * a_size.xy - a_position.zw;\n" +
+        "   float r = radians(a_size.z);\n" +
+        "   float c = cos(r), s = sin(r);\n" +
+        "   vec2 world = vec2(c * local.x - s * local.y, s * local.x + c * local.y) + a_position.xy + a_position.zw;\n" +
+        "   v_color = a_color;\n" +
+        "   v_color.a = v_color.a * (255.0/254.0);\n" +
+        "   v_mix_color = a_mix_color;\n" +
+        "   v_mix_color.a *= (255.0/254.0);\n" +
+        "   v_texCoords = mix(a_region.xy, a_region.zw, a_corner);\n" +
+        "   gl_Position = u_projTrans * vec4(world, 0.0, 1.0);\n" +
+        "}",
+
+        "\n" +
+        "varying lowp vec4 v_color;\n" +
+        "varying lowp vec4 v_mix_color;\n" +
+        "varying highp vec2 v_texCoords;\n" +
+        "uniform highp sampler2D u_texture;\n" +
+        "\n" +
+        "void main(){\n" +
+        "  vec4 c = texture2D(u_texture, v_texCoords);\n" +
+        "  gl_FragColor = v_color * mix(c, vec4(v_mix_color.rgb, c.a), v_mix_color.a);\n" +
+        "}"
+        );
+    }
+}
@@ -0,0 +1,246 @@
+package arc.graphics.g2d;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.gl.*;
+
+import java.util.*;
+
+/**
+ * A {@link SpriteBatch} that binds up to 16 textures at once. Every vertex stores the index of its texture unit, and the
+ * default shader selects the matching sampler, so the batch is only flushed when a texture does not fit into any free unit.
+ * Interleaved draws from a few atlas pages or font textures are rendered with a single draw call instead of one per switch.
+ * <p>
+ * Custom shaders set through {@link Draw#shader(Shader)} only know about a single texture, so while one is set the batch
+ * falls back to flushing on every texture change.
+ */
+public class MultiTextureBatch extends SpriteBatch{
+    //xy + color + uv + mix_color + texture index
+    public static final int VERTEX_SIZE = SpriteBatch.VERTEX_SIZE + 1;
+    public static final int SPRITE_SIZE = 4 * VERTEX_SIZE;
+    /** Maximum number of texture units used at once. */
+    public static final int maxTextures = 16;
+
+    private static final String[] samplerNames = new String[maxTextures];
+
+    static{
+        for(int i = 0; i < maxTextures; i++){
+            samplerNames[i] = "u_texture" + i;
+        }
+    }
+
+    protected final Texture[] textures;
+    protected int usedTextures;
+
+    /**
+     * Constructs a new MultiTextureBatch with a size of 4096, 8 texture units, and the default shader.
+     * @see #MultiTextureBatch(int, int, Shader)
+     */
+    public MultiTextureBatch(){
+        this(4096, 8, null);
+    }
+
+    /**
+     * @param size The max number of sprites in a single batch. Max of 8191.
+     * @param textures The number of textures bound at once. Limited by {@link #maxTextures} and by the texture units of the device.
+     * @param defaultShader The default shader to use, which must read the texture index attribute like {@link #createShader(int)}.
+     * This is not owned by the batch and must be disposed separately.
+     */
+    public MultiTextureBatch(int size, int textures, Shader defaultShader){
+        super(0, null);
+
+        // 32767 is max vertex index, so 32767 / 4 vertices per sprite = 8191 sprites max.
+        if(size > 8191) throw new IllegalArgumentException("Can't have more than 8191 sprites per batch: " + size);
+        if(size <= 0) throw new IllegalArgumentException("size must be positive: " + size);
+
+        int units = Gl.getInt(Gl.maxTextureImageUnits);
+        textures = Math.min(textures, maxTextures);
+        if(units > 0) textures = Math.min(textures, units);
+        this.textures = new Texture[Math.max(textures, 1)];
+
+        projectionMatrix.setOrtho(0, 0, Core.graphics.getWidth(), Core.graphics.getHeight());
+
+        mesh = new Mesh(true, streamRegions, size * 4, size * 6,
+        VertexAttribute.position,
+        VertexAttribute.color,
+        VertexAttribute.texCoords,
+        VertexAttribute.mixColor,
+        new VertexAttribute(1, "a_texIndex")
+        );
+
+        int len = size * 6;
+        short[] indices = new short[len];
+        short j = 0;
+        for(int i = 0; i < len; i += 6, j += 4){
+            indices[i] = j;
+            indices[i + 1] = (short)(j + 1);
+            indices[i + 2] = (short)(j + 2);
+            indices[i + 3] = (short)(j + 2);
+            indices[i + 4] = (short)(j + 3);
+            indices[i + 5] = j;
+        }
+        mesh.setIndices(indices);
+        mesh.getVerticesBuffer().position(0);
+        mesh.getVerticesBuffer().limit(mesh.getVerticesBuffer().capacity());
+
+        if(defaultShader == null){
+            shader = createShader(this.textures.length);
+            ownsShader = true;
+        }else{
+            shader = defaultShader;
+        }
+
+        //mark indices as dirty once for GL30
+        mesh.getIndicesBuffer();
+        buffer = mesh.getVerticesBuffer();
+    }
+
+    /** @return the number of textures that can be bound at once. */
+    public int getMaxTextures(){
+        return textures.length;
+    }
+
+    @Override
+    protected void flush(){
+        if(!flushing){
+            flushing = true;
+            flushRequests();
+            flushing = false;
+        }
+
+        if(idx == 0) return;
+
+        Shader shader = getShader();
+        shader.bind();
+        setupMatrices();
+
+        if(customShader != null && apply){
+            customShader.apply();
+        }else if(customShader == null){
+            for(int i = 0; i < usedTextures; i++){
+                shader.setUniformi(samplerNames[i], i);
+            }
+        }
+
+        Gl.depthMask(false);
+        int count = idx / SPRITE_SIZE * 6;
+
+        blending.apply();
+
+        //bind in reverse, so that unit 0 is left active for code that assumes it
+        for(int i = usedTextures - 1; i >= 0; i--){
+            textures[i].bind(i);
+        }
+
+        Mesh mesh = this.mesh;
+        //calling buffer() marks it as dirty, so it gets reuploaded upon render
+        mesh.getVerticesBuffer();
+
+        buffer.position(0);
+        buffer.limit(idx);
+
+        mesh.render(shader, Gl.triangles, 0, count);
+
+        buffer.limit(buffer.capacity());
+        buffer.position(0);
+
+        idx = 0;
+        Arrays.fill(textures, 0, usedTextures, null);
+        usedTextures = 0;
+    }
+
+    @Override
+    protected void switchTexture(Texture texture){
+        slot(texture);
+    }
+
+    @Override
+    protected void drawSuper(Texture texture, float[] spriteVertices, int offset, int count){
+        int slot = slot(texture);
+        int capacity = buffer.capacity();
+
+        for(int end = offset + count; offset + SpriteBatch.SPRITE_SIZE <= end; offset += SpriteBatch.SPRITE_SIZE){
+            if(idx + SPRITE_SIZE > capacity){
+                flush();
+                slot = slot(texture);
+            }
+            for(int i = 0; i < SpriteBatch.SPRITE_SIZE; i += SpriteBatch.VERTEX_SIZE){
+                buffer.put(spriteVertices, offset + i, SpriteBatch.VERTEX_SIZE);
+                buffer.put(slot);
+            }
+            idx += SPRITE_SIZE;
+        }
+    }
+
+    @Override
+    protected void drawSuper(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float rotation){
+        constructVertices(tmpVertices, 0, region, x, y, originX, originY, width, height, rotation);
+        drawSuper(region.texture, tmpVertices, 0, SpriteBatch.SPRITE_SIZE);
+    }
+
+    /** @return the unit the texture is bound to in the current batch, flushing if all units are taken. */
+    protected int slot(Texture texture){
+        lastTexture = texture;
+        Texture[] textures = this.textures;
+        for(int i = 0; i < usedTextures; i++){
+            if(textures[i] == texture) return i;
+        }
+
+        //custom shaders only sample a single texture
+        int limit = customShader == null ? textures.length : 1;
+        if(usedTextures >= limit){
+            flush();
+        }
+        textures[usedTextures] = texture;
+        return usedTextures++;
+    }
+
+    /** @return a shader that samples u_texture0 to u_texture[textures - 1], selected by the a_texIndex attribute. */
+    public static Shader createShader(int textures){
+        StringBuilder samplers = new StringBuilder(), select = new StringBuilder();
+        for(int i = 0; i < textures; i++){
+            samplers.append("uniform highp sampler2D u_texture").append(i).append(";\n");
+            if(i < textures - 1){
+                select.append(i == 0 ? "  if" : "  else if").append("(v_texIndex < ").append(i).append(".5) c = texture2D(u_texture").append(i).append(", v_texCoords);\n");
+            }else{
+                select.append(i == 0 ? "  " : "  else ").append("c = texture2D(u_texture").append(i).append(", v_texCoords);\n");
+            }
+        }
+
+        return new Shader(
+        "attribute vec4 a_position;\n" +
+        "attribute vec4 a_color;\n" +
+        "attribute vec2 a_texCoord0;\n" +
+        "attribute vec4 a_mix_color;\n" +
+        "attribute float a_texIndex;\n" +
+        "uniform mat4 u_projTrans;\n" +
+        "varying vec4 v_color;\n" +
+        "varying vec4 v_mix_color;\n" +
+        "varying vec2 v_texCoords;\n" +
+        "varying float v_texIndex;\n" +
+        "\n" +
+        "void main(){\n" +
+        "   v_color = a_color;\n" +
+        "   v_color.a = v_color.a * (255.0/254.0);\n" +
+        "   v_mix_color = a_mix_color;\n" +
+        "   v_mix_color.a *= (255.0/254.0);\n" +
+        "   v_texCoords = a_texCoord0;\n" +
+        "   v_texIndex = a_texIndex;\n" +
+        "   gl_Position = u_projTrans * a_position;\n" +
+        "}",
+
+        "\n" +
+        "varying lowp vec4 v_color;\n" +
+        "varying lowp vec4 v_mix_color;\n" +
+        "varying highp vec2 v_texCoords;\n" +
+        "varying mediump float v_texIndex;\n" +
+        samplers +
+        "\n" +
+        "void main(){\n" +
+        "  vec4 c;\n" +
+        select +
+        "  gl_FragColor = v_color * mix(c, vec4(v_mix_color.rgb, c.a), v_mix_color.a);\n" +
+        "}"
+        );
+    }
+}
@@ -23,9 +23,18 @@ public class SpriteBatch extends Batch{
     //xy + color + uv + mix_color
     public static final int VERTEX_SIZE = 2 + 1 + 2 + 1;
     public static final int SPRITE_SIZE = 4 * VERTEX_SIZE;
+    //xy + origin + size + rotation + color + mix_color + uv + uv2
+    static final int SPRITE_DATA = 2 + 2 + 2 + 1 + 1 + 1 + 4;
+
+    /**
+     * Number of draws that fit into the vertex buffer before it is orphaned, see {@link StreamingVertexBuffer}.
+     * Only used with GL30, as GL20 batches keep their vertices in client memory. Values below 2 disable streaming.
+     */
+    public static int streamRegions = 4;
 
     private static final int initialSize = 10000;
-    private static final float[] emptyVertices = new float[0];
+    /** Minimum number of sorted sprites for vertices to be generated in parallel, and the number of sprites per task. */
+    private static final int parallelSprites = 4096, generateChunk = 1024;
 
     static ForkJoinHolder commonPool;
     boolean multithreaded = Core.app != null && ((Core.app.getVersion() >= 21 && !Core.app.isIOS()) || Core.app.isDesktop());
@@ -43,9 +52,15 @@ public class SpriteBatch extends Batch{
     protected int[] requestZ = new int[initialSize];
     protected int numRequests = 0;
     protected int[] contiguous = new int[2048], contiguousCopy = new int[2048];
+    /** Vertices of sorted sprites, generated from their transform data. */
+    protected float[] generatedVerts = new float[0];
+    /** Index of the first generated sprite of every sorted request. */
+    protected int[] generateLocs = new int[0];
     protected int intZ = Float.floatToRawIntBits(z + 16f);
 
     protected static class DrawRequest{
+        /** Whether the request holds {@link SpriteBatch#SPRITE_DATA} floats of transform data per sprite instead of vertices. */
+        boolean transform;
         int verticesOffset, verticesLength;
         Texture texture;
         Blending blending;
@@ -85,7 +100,7 @@ public class SpriteBatch extends Batch{
         if(size > 0){
             projectionMatrix.setOrtho(0, 0, Core.graphics.getWidth(), Core.graphics.getHeight());
 
-            mesh = new Mesh(true, false, size * 4, size * 6,
+            mesh = new Mesh(true, streamRegions, size * 4, size * 6,
             VertexAttribute.position,
             VertexAttribute.color,
             VertexAttribute.texCoords,
@@ -183,27 +198,22 @@ public class SpriteBatch extends Batch{
             int num = numRequests;
             if(num > 0){
                 final DrawRequest last = requests[num - 1];
-                if(last.run == null && last.texture == texture && last.blending == blending && requestZ[num - 1] == intZ){
-                    if(spriteVertices != emptyVertices){
-                        prepare(count);
-                        System.arraycopy(spriteVertices, offset, requestVerts, requestVertOffset, count);
-                        requestVertOffset += count;
-                    }
+                if(last.run == null && !last.transform && last.texture == texture && last.blending == blending && requestZ[num - 1] == intZ){
+                    prepare(count);
+                    System.arraycopy(spriteVertices, offset, requestVerts, requestVertOffset, count);
+                    requestVertOffset += count;
                     last.verticesLength += count;
                     return;
                 }
             }
             if(num >= this.requests.length) expandRequests();
             final DrawRequest req = requests[num];
-            if(spriteVertices != emptyVertices){
-                req.verticesOffset = requestVertOffset;
-                prepare(count);
-                System.arraycopy(spriteVertices, offset, requestVerts, requestVertOffset, count);
-                requestVertOffset += count;
-            }else{
-                req.verticesOffset = offset;
-            }
+            req.verticesOffset = requestVertOffset;
+            prepare(count);
+            System.arraycopy(spriteVertices, offset, requestVerts, requestVertOffset, count);
+            requestVertOffset += count;
             req.verticesLength = count;
+            req.transform = false;
             requestZ[num] = intZ;
             req.texture = texture;
             req.blending = blending;
@@ -220,11 +230,45 @@ public class SpriteBatch extends Batch{
             drawSuper(region, x, y, originX, originY, width, height, rotation);
             return;
         }
-        int pos = this.requestVertOffset;
-        this.requestVertOffset += 24;
-        prepare(24);
-        constructVertices(this.requestVerts, pos, region, x, y, originX, originY, width, height, rotation);
-        draw(region.texture, emptyVertices, pos, SPRITE_SIZE);
+
+        //only record the transform; vertices are generated after sorting, possibly in parallel
+        prepare(SPRITE_DATA);
+        final float[] data = this.requestVerts;
+        final int pos = this.requestVertOffset;
+        this.requestVertOffset += SPRITE_DATA;
+        data[pos] = x;
+        data[pos + 1] = y;
+        data[pos + 2] = originX;
+        data[pos + 3] = originY;
+        data[pos + 4] = width;
+        data[pos + 5] = height;
+        data[pos + 6] = rotation;
+        data[pos + 7] = colorPacked;
+        data[pos + 8] = mixColorPacked;
+        data[pos + 9] = region.u;
+        data[pos + 10] = region.v2;
+        data[pos + 11] = region.u2;
+        data[pos + 12] = region.v;
+
+        final Texture texture = region.texture;
+        final int num = numRequests;
+        if(num > 0){
+            final DrawRequest last = requests[num - 1];
+            if(last.run == null && last.transform && last.texture == texture && last.blending == blending && requestZ[num - 1] == intZ){
+                last.verticesLength += SPRITE_SIZE;
+                return;
+            }
+        }
+        if(num >= this.requests.length) expandRequests();
+        final DrawRequest req = requests[num];
+        req.verticesOffset = pos;
+        req.verticesLength = SPRITE_SIZE;
+        req.transform = true;
+        requestZ[num] = intZ;
+        req.texture = texture;
+        req.blending = blending;
+        req.run = null;
+        numRequests++;
     }
 
     @Override
@@ -233,6 +277,7 @@ public class SpriteBatch extends Batch{
             if(numRequests >= requests.length) expandRequests();
             final DrawRequest req = requests[numRequests];
             req.run = request;
+            req.transform = false;
             req.blending = blending;
             requestZ[numRequests] = intZ;
             req.texture = null;
@@ -302,6 +347,7 @@ public class SpriteBatch extends Batch{
         float[] vertices = this.requestVerts;
         DrawRequest[] r = copy;
         int num = numRequests;
+        boolean generated = generateVertices(r, num);
         for(int j = 0; j < num; j++){
             final DrawRequest req = r[j];
 
@@ -311,7 +357,13 @@ public class SpriteBatch extends Batch{
                 req.run.run();
                 req.run = null;
             }else if(req.texture != null){
-                drawSuper(req.texture, vertices, req.verticesOffset, req.verticesLength);
+                if(!req.transform){
+                    drawSuper(req.texture, vertices, req.verticesOffset, req.verticesLength);
+                }else if(generated){
+                    drawSuper(req.texture, generatedVerts, generateLocs[j] * SPRITE_SIZE, req.verticesLength);
+                }else{
+                    drawTransformed(req.texture, vertices, req.verticesOffset, req.verticesLength / SPRITE_SIZE);
+                }
             } // the request is invalid, but crashing wouldn't be very nice, so it is simply ignored
         }
 
@@ -323,6 +375,40 @@ public class SpriteBatch extends Batch{
         requestVertOffset = 0;
     }
 
+    /**
+     * Generates the vertices of all sorted transform requests in parallel, if there are enough of them.
+     * @return whether the vertices were generated into {@link #generatedVerts}, at the offsets in {@link #generateLocs}.
+     */
+    protected boolean generateVertices(DrawRequest[] requests, int num){
+        if(!multithreaded || commonPool == null) return false;
+
+        if(generateLocs.length < num + 1) generateLocs = new int[num + 1 + (num >> 3)];
+        final int[] locs = generateLocs;
+        int total = 0;
+        for(int i = 0; i < num; i++){
+            final DrawRequest req = requests[i];
+            locs[i] = total;
+            if(req.transform && req.run == null && req.texture != null) total += req.verticesLength / SPRITE_SIZE;
+        }
+        locs[num] = total;
+
+        if(total < parallelSprites) return false;
+
+        if(generatedVerts.length < total * SPRITE_SIZE) generatedVerts = new float[total * SPRITE_SIZE + (total >> 3) * SPRITE_SIZE];
+        commonPool.pool.invoke(new GenerateTask(requests, num, locs, requestVerts, generatedVerts, 0, total));
+        return true;
+    }
+
+    /** Draws sprites from {@link #SPRITE_DATA} floats of transform data each, which were recorded while sorting. */
+    protected void drawTransformed(Texture texture, float[] data, int offset, int sprites){
+        int length = sprites * SPRITE_SIZE;
+        if(generatedVerts.length < length) generatedVerts = new float[length];
+        for(int i = 0; i < sprites; i++){
+            constructVertices(generatedVerts, i * SPRITE_SIZE, data, offset + i * SPRITE_DATA);
+        }
+        drawSuper(texture, generatedVerts, 0, length);
+    }
+
     protected void drawSuper(Texture texture, float[] spriteVertices, int offset, int count){
 
         int verticesLength = buffer.capacity();
@@ -367,14 +453,17 @@ public class SpriteBatch extends Batch{
     }
 
     protected final void constructVertices(float[] vertices, int idx, TextureRegion region, float x, float y, float originX, float originY, float width, float height, float rotation){
-        float u = region.u;
-        float v = region.v2;
-        float u2 = region.u2;
-        float v2 = region.v;
+        constructVertices(vertices, idx, x, y, originX, originY, width, height, rotation, colorPacked, mixColorPacked, region.u, region.v2, region.u2, region.v);
+    }
 
-        float color = this.colorPacked;
-        float mixColor = this.mixColorPacked;
+    /** Constructs the vertices of a sprite from {@link #SPRITE_DATA} floats of transform data. */
+    static void constructVertices(float[] vertices, int idx, float[] data, int offset){
+        constructVertices(vertices, idx, data[offset], data[offset + 1], data[offset + 2], data[offset + 3], data[offset + 4], data[offset + 5],
+        data[offset + 6], data[offset + 7], data[offset + 8], data[offset + 9], data[offset + 10], data[offset + 11], data[offset + 12]);
+    }
 
+    static void constructVertices(float[] vertices, int idx, float x, float y, float originX, float originY, float width, float height, float rotation,
+                                  float color, float mixColor, float u, float v, float u2, float v2){
         if(!Mathf.zero(rotation)){
             //bottom left and top right corner points relative to origin
             float worldOriginX = x + originX;
@@ -860,5 +949,49 @@ public class SpriteBatch extends Batch{
         }
     }
 
+    /** Generates the vertices of a range of sorted sprites, splitting it into chunks that are generated in parallel. */
+    static class GenerateTask extends RecursiveAction{
+        final DrawRequest[] requests;
+        final int[] locs;
+        final float[] data, vertices;
+        final int num, from, to;
+
+        GenerateTask(DrawRequest[] requests, int num, int[] locs, float[] data, float[] vertices, int from, int to){
+            this.requests = requests;
+            this.num = num;
+            this.locs = locs;
+            this.data = data;
+            this.vertices = vertices;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from > generateChunk){
+                final int mid = (from + to) >>> 1;
+                invokeAll(new GenerateTask(requests, num, locs, data, vertices, from, mid), new GenerateTask(requests, num, locs, data, vertices, mid, to));
+                return;
+            }
+
+            //find the last request starting at or before the first sprite
+            int lo = 0, hi = num - 1;
+            while(lo < hi){
+                final int m = (lo + hi + 1) >>> 1;
+                if(locs[m] <= from) lo = m;
+                else hi = m - 1;
+            }
+
+            for(int i = lo, pos = from; pos < to; i++){
+                final int start = locs[i], end = Math.min(locs[i + 1], to);
+                if(end <= pos) continue;
+                final int offset = requests[i].verticesOffset;
+                for(; pos < end; pos++){
+                    constructVertices(vertices, pos * SPRITE_SIZE, data, offset + (pos - start) * SPRITE_DATA);
+                }
+            }
+        }
+    }
+
     //endregion
 }
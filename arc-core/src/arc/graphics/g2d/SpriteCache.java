@@ -63,6 +63,8 @@ public class SpriteCache implements Disposable{
     private Cache currentCache;
     private float colorPacked = Color.whiteFloatBits;
     private Shader customShader = null;
+    /** Whether the shader passed to the constructor is disposed with this cache. */
+    boolean ownsShader = true;
 
     /** Creates a cache that uses indexed geometry and can contain up to 1000 images. */
     public SpriteCache(){
@@ -283,7 +285,7 @@ public class SpriteCache implements Disposable{
      */
     public void add(Texture texture, float[] vertices, int offset, int length){
         if(currentCache == null) throw new IllegalStateException("beginCache must be called before add.");
-        if(mesh.getVerticesBuffer().position() + length >= mesh.getVerticesBuffer().limit())
+        if(mesh.getVerticesBuffer().position() + length > mesh.getVerticesBuffer().limit())
             throw new IllegalStateException("Out of vertex space! Size: " + mesh.getVerticesBuffer().capacity() + " Required: " + (mesh.getVerticesBuffer().position() + length));
 
         int verticesPerImage = mesh.getNumIndices() > 0 ? 4 : 6;
@@ -572,7 +574,7 @@ public class SpriteCache implements Disposable{
     @Override
     public void dispose(){
         mesh.dispose();
-        if(shader != null) shader.dispose();
+        if(ownsShader && shader != null) shader.dispose();
     }
 
     public Mat getProjectionMatrix(){
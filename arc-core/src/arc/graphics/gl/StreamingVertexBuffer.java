@@ -0,0 +1,175 @@
+package arc.graphics.gl;
+
+import arc.*;
+import arc.graphics.*;
+import arc.util.*;
+
+import java.nio.*;
+
+/**
+ * <p>
+ * A {@link VertexData} implementation for vertices that are rewritten before every draw, such as the contents of a batch.
+ * <p>
+ * {@link VertexBufferObject} re-uploads its data into the same storage, which stalls when the GPU is still reading the previous
+ * contents. This buffer allocates room for several uploads instead, and appends each upload after the previous one with
+ * glBufferSubData, pointing the vertex attributes at its offset. Only once all regions are used is the storage orphaned
+ * with a glBufferData call without data, which lets the driver hand out fresh memory instead of waiting for pending draws.
+ * <p>
+ * Works with GL20; with GL30, a vertex array object is used as required by core profiles.
+ */
+public class StreamingVertexBuffer implements VertexData{
+    final static IntBuffer tmpHandle = Buffers.newIntBuffer(1);
+
+    final Mesh mesh;
+    final FloatBuffer buffer;
+    final ByteBuffer byteBuffer;
+    /** Size of the GPU storage in bytes. */
+    final int capacity;
+
+    int bufferHandle, vaoHandle = -1;
+    int writeOffset, drawOffset;
+    boolean dirty, bound, created, allocated;
+    Shader boundShader;
+
+    /** Number of times the storage was orphaned. */
+    public int orphans;
+
+    /**
+     * @param numVertices the maximum number of vertices per draw
+     * @param regions how many uploads of the maximum size fit into the storage before it is orphaned
+     */
+    public StreamingVertexBuffer(int numVertices, int regions, Mesh mesh){
+        if(regions < 1) throw new IllegalArgumentException("regions must be at least 1: " + regions);
+        this.mesh = mesh;
+        byteBuffer = Buffers.newUnsafeByteBuffer(mesh.vertexSize * numVertices);
+        buffer = byteBuffer.asFloatBuffer();
+        buffer.flip();
+        byteBuffer.flip();
+        capacity = mesh.vertexSize * numVertices * regions;
+    }
+
+    @Override
+    public int size(){
+        return buffer.limit() * 4 / mesh.vertexSize;
+    }
+
+    @Override
+    public int max(){
+        return byteBuffer.capacity() / mesh.vertexSize;
+    }
+
+    @Override
+    public FloatBuffer buffer(){
+        dirty = true;
+        return buffer;
+    }
+
+    @Override
+    public void set(float[] vertices, int offset, int count){
+        dirty = true;
+        Buffers.copy(vertices, byteBuffer, count, offset);
+        buffer.position(0);
+        buffer.limit(count);
+        bufferChanged();
+    }
+
+    @Override
+    public void update(int targetOffset, float[] vertices, int sourceOffset, int count){
+        dirty = true;
+        final int pos = byteBuffer.position();
+        byteBuffer.position(targetOffset * 4);
+        Buffers.copy(vertices, sourceOffset, count, byteBuffer);
+        byteBuffer.position(pos);
+        buffer.position(0);
+        bufferChanged();
+    }
+
+    private void bufferChanged(){
+        if(bound){
+            upload();
+            bindAttributes(boundShader);
+        }
+    }
+
+    /** Appends the used part of the buffer to the storage, orphaning it if there is no room left. */
+    private void upload(){
+        int bytes = buffer.limit() * 4;
+        dirty = false;
+        if(bytes == 0) return;
+
+        if(!allocated || writeOffset + bytes > capacity){
+            Gl.bufferData(Gl.arrayBuffer, capacity, null, Gl.streamDraw);
+            writeOffset = 0;
+            allocated = true;
+            orphans++;
+        }
+
+        byteBuffer.position(0);
+        byteBuffer.limit(bytes);
+        Gl.bufferSubData(Gl.arrayBuffer, writeOffset, bytes, byteBuffer);
+        drawOffset = writeOffset;
+        writeOffset += bytes;
+    }
+
+    @Override
+    public void bind(Shader shader){
+        if(!created){
+            bufferHandle = Gl.genBuffer();
+            if(Core.gl30 != null){
+                tmpHandle.clear();
+                Core.gl30.glGenVertexArrays(1, tmpHandle);
+                vaoHandle = tmpHandle.get();
+            }
+            created = true;
+        }
+
+        if(vaoHandle != -1) Core.gl30.glBindVertexArray(vaoHandle);
+        Gl.bindBuffer(Gl.arrayBuffer, bufferHandle);
+        if(dirty) upload();
+        bindAttributes(shader);
+
+        boundShader = shader;
+        bound = true;
+    }
+
+    /** Points the attributes at the last upload. This has to be done for every draw, as the offset changes. */
+    private void bindAttributes(Shader shader){
+        int offset = drawOffset;
+        for(VertexAttribute attribute : mesh.attributes){
+            int location = shader.getAttributeLocation(attribute.alias);
+            int aoffset = offset;
+            offset += attribute.size;
+            if(location < 0) continue;
+
+            Gl.enableVertexAttribArray(location);
+            Gl.vertexAttribPointer(location, attribute.components, attribute.type, attribute.normalized, mesh.vertexSize, aoffset);
+        }
+    }
+
+    @Override
+    public void unbind(Shader shader){
+        for(VertexAttribute attribute : mesh.attributes){
+            shader.disableVertexAttribute(attribute.alias);
+        }
+        if(vaoHandle != -1) Core.gl30.glBindVertexArray(0);
+        Gl.bindBuffer(Gl.arrayBuffer, 0);
+        boundShader = null;
+        bound = false;
+    }
+
+    /** Disposes of all resources this StreamingVertexBuffer uses. */
+    @Override
+    public void dispose(){
+        Gl.bindBuffer(Gl.arrayBuffer, 0);
+        Gl.deleteBuffer(bufferHandle);
+        bufferHandle = 0;
+        Buffers.disposeUnsafeByteBuffer(byteBuffer);
+        if(vaoHandle != -1){
+            tmpHandle.clear();
+            tmpHandle.put(vaoHandle);
+            tmpHandle.flip();
+            Core.gl30.glDeleteVertexArrays(1, tmpHandle);
+            vaoHandle = -1;
+        }
+    }
+}
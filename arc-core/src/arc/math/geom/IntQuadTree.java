@@ -2,6 +2,9 @@ package arc.math.geom;
 
 import arc.func.*;
 import arc.struct.*;
+import arc.util.*;
+
+import java.util.concurrent.*;
 
 public class IntQuadTree{
         protected final Rect tmp = new Rect();
@@ -14,6 +17,9 @@ public class IntQuadTree{
         public boolean leaf = true;
         public int totalObjects;
 
+        /** Lazily created search state for the nearest-neighbour methods of the root node; one per thread of a batch query. */
+        protected @Nullable Seq<IntNearestQuery> queries;
+
         public IntQuadTree(Rect bounds, IntQuadTreeProvider prov){
             this.bounds = bounds;
             this.prov = prov;
@@ -258,6 +264,75 @@ public class IntQuadTree{
             }
         }
 
+        /**
+         * @return the object with the hitbox center closest to the position, or -1 if there is none within maxDistance.
+         * Not thread-safe; use a separate {@link IntNearestQuery} per thread for concurrent searches.
+         */
+        public int nearest(float x, float y, float maxDistance){
+            IntNearestQuery query = query(0);
+            query.shared = false;
+            return query.find(this, x, y, 1, maxDistance, query.result, 0) == 0 ? -1 : query.result[0];
+        }
+
+        /**
+         * Finds the k objects with hitbox centers closest to a position, searching nodes best-first.
+         * @param out receives up to k objects, closest first. It is not cleared beforehand.
+         * @return the number of objects found.
+         */
+        public int nearest(float x, float y, int k, float maxDistance, IntSeq out){
+            if(k <= 0) return 0;
+            IntNearestQuery query = query(0);
+            query.shared = false;
+            int start = out.size;
+            out.setSize(start + k);
+            int found = query.find(this, x, y, k, maxDistance, out.items, start);
+            out.size = start + found;
+            return found;
+        }
+
+        /**
+         * Answers many k-nearest queries at once. Results are written to {@code out} in blocks of k per query, closest first;
+         * slots without a result are -1. {@code out} is resized to {@code count * k} and any previous contents are discarded.
+         * @param positions query positions as interleaved x and y coordinates
+         * @param parallel whether to split the batch across the {@link ForkJoinPool#commonPool() common pool}.
+         * The {@link #prov provider} must then be safe to call from multiple threads.
+         */
+        public void nearest(float[] positions, int count, int k, float maxDistance, boolean parallel, IntSeq out){
+            out.clear();
+            out.setSize(count * k);
+            int[] items = out.items;
+
+            int chunks = parallel ? Math.min(Runtime.getRuntime().availableProcessors(), count / 64) : 1;
+            if(chunks <= 1){
+                IntNearestQuery query = query(0);
+                query.shared = false;
+                for(int i = 0; i < count; i++){
+                    query.find(this, positions[i * 2], positions[i * 2 + 1], k, maxDistance, items, i * k);
+                }
+                return;
+            }
+
+            ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunks];
+            int chunkSize = (count + chunks - 1) / chunks;
+            for(int c = 0; c < chunks; c++){
+                IntNearestQuery query = query(c);
+                query.shared = true;
+                int from = c * chunkSize, to = Math.min(from + chunkSize, count);
+                tasks[c] = ForkJoinPool.commonPool().submit(() -> {
+                    for(int i = from; i < to; i++){
+                        query.find(this, positions[i * 2], positions[i * 2 + 1], k, maxDistance, items, i * k);
+                    }
+                });
+            }
+            for(ForkJoinTask<?> task : tasks) task.join();
+        }
+
+        protected IntNearestQuery query(int index){
+            if(queries == null) queries = new Seq<>();
+            while(queries.size <= index) queries.add(new IntNearestQuery());
+            return queries.get(index);
+        }
+
         protected IntQuadTree newChild(Rect rect){
             return new IntQuadTree(rect, prov);
         }
@@ -266,6 +341,110 @@ public class IntQuadTree{
             prov.hitbox(t, tmp);
         }
 
+        /** Reusable state for best-first nearest-neighbour searches. See {@link QuadTree.NearestQuery}. */
+        public static class IntNearestQuery{
+            private final BinaryHeap<Entry> frontier = new BinaryHeap<>(16, false), best = new BinaryHeap<>(16, true);
+            private final Seq<Entry> free = new Seq<>(false, 16, Entry.class);
+            private final Rect rect = new Rect();
+            final int[] result = new int[1];
+            /** Whether other queries search the same tree at the same time, so that the hitbox of each node must be read under its lock. */
+            boolean shared;
+
+            /**
+             * Writes up to k objects closest to a position into {@code out}, starting at {@code offset}, closest first.
+             * Unused slots up to {@code offset + k} are set to -1.
+             * @return the number of objects found.
+             */
+            public int find(IntQuadTree tree, float x, float y, int k, float maxDistance, int[] out, int offset){
+                if(k <= 0) return 0;
+                float limit = maxDistance * maxDistance;
+                frontier.add(obtain(tree, -1), 0f);
+
+                while(!frontier.isEmpty()){
+                    Entry entry = frontier.pop();
+                    IntQuadTree node = entry.tree;
+                    free.add(entry);
+
+                    if(entry.getValue() > bound(k, limit)) break;
+
+                    IntSeq objects = node.objects;
+                    for(int i = 0; i < objects.size; i++){
+                        int item = objects.items[i];
+                        Rect box = hitbox(node, item);
+                        float dx = box.x + box.width / 2f - x, dy = box.y + box.height / 2f - y, dst = dx * dx + dy * dy;
+
+                        if(dst <= bound(k, limit)){
+                            if(best.size == k) free.add(best.pop());
+                            best.add(obtain(null, item), dst);
+                        }
+                    }
+
+                    if(!node.leaf){
+                        visit(node.topLeft, x, y, k, limit);
+                        visit(node.topRight, x, y, k, limit);
+                        visit(node.botLeft, x, y, k, limit);
+                        visit(node.botRight, x, y, k, limit);
+                    }
+                }
+
+                while(!frontier.isEmpty()){
+                    free.add(frontier.pop());
+                }
+
+                int found = best.size;
+                for(int i = found - 1; i >= 0; i--){
+                    Entry entry = best.pop();
+                    out[offset + i] = entry.item;
+                    free.add(entry);
+                }
+                for(int i = found; i < k; i++){
+                    out[offset + i] = -1;
+                }
+                return found;
+            }
+
+            /** @return the hitbox of an item, as given by the {@link IntQuadTree#hitbox(int)} hook of its node. */
+            private Rect hitbox(IntQuadTree node, int item){
+                if(!shared){
+                    node.hitbox(item);
+                    return node.tmp;
+                }
+                synchronized(node){
+                    node.hitbox(item);
+                    return rect.set(node.tmp);
+                }
+            }
+
+            private void visit(IntQuadTree child, float x, float y, int k, float limit){
+                if(child.totalObjects == 0) return;
+
+                float dst = QuadTree.dst2(child.bounds, x, y);
+                if(dst <= bound(k, limit)){
+                    frontier.add(obtain(child, -1), dst);
+                }
+            }
+
+            private float bound(int k, float limit){
+                return best.size == k ? Math.min(best.peek().getValue(), limit) : limit;
+            }
+
+            private Entry obtain(@Nullable IntQuadTree tree, int item){
+                Entry entry = free.isEmpty() ? new Entry() : free.pop();
+                entry.tree = tree;
+                entry.item = item;
+                return entry;
+            }
+
+            static class Entry extends BinaryHeap.Node{
+                @Nullable IntQuadTree tree;
+                int item;
+
+                Entry(){
+                    super(0f);
+                }
+            }
+        }
+
         /**Represents an object in a QuadTree.*/
         public interface IntQuadTreeProvider{
             /**Fills the out parameter with this element's rough bounding box. This should never be smaller than the actual object, but may be larger.*/
@@ -0,0 +1,402 @@
+package arc.math.geom;
+
+import arc.func.*;
+import arc.struct.*;
+
+import java.util.*;
+
+/**
+ * A loose quad tree of integer IDs, intended for large numbers of moving objects.
+ * <p>
+ * Each node has loose bounds, which are its cell expanded by half its size on each side. Objects are stored in the
+ * deepest existing node whose loose bounds contain them, so an object only has to be relocated by
+ * {@link #update(int, float, float, float, float)} once it leaves these bounds. Leaves split once they hold more than
+ * {@link #maxObjectsPerNode} objects, and subtrees are merged back once they hold at most half of that.
+ * <p>
+ * Nodes and objects are stored in flat arrays; child nodes are allocated in blocks of four from a free list.
+ * IDs index directly into the object arrays, so they should be small and dense (e.g. entity indices).
+ * Objects must not be inserted, updated or removed from within query callbacks. This class is not thread-safe.
+ */
+public class LooseQuadTree{
+    protected static final int maxObjectsPerNode = 8;
+    private static final int maxDepthLimit = 16;
+
+    public final Rect bounds = new Rect();
+    private final int maxDepth;
+    private final float rootSize;
+
+    //node storage; children of a node are the four consecutive nodes starting at nodeChild[node], or -1 for a leaf
+    private float[] nodeX = new float[4], nodeY = new float[4], nodeSize = new float[4];
+    private int[] nodeChild = new int[4], nodeParent = new int[4], nodeDepth = new int[4], nodeHead = new int[4], nodeCount = new int[4];
+    private int nodeCapacity = 4, nodesUsed;
+    /** Free list of released child blocks, linked through {@link #nodeChild} of the first node in each block. */
+    private int freeBlock = -1;
+
+    //object storage, indexed by ID
+    private float[] objBounds = new float[64];
+    private int[] objNode = new int[16], objNext = new int[16], objPrev = new int[16];
+    private int size;
+
+    /**
+     * @param bounds the area covered by the tree. Objects outside of it are still stored, but always checked by queries.
+     * @param maxDepth the maximum depth of the tree. The smallest cells have a size of the bounds divided by 2^maxDepth.
+     */
+    public LooseQuadTree(Rect bounds, int maxDepth){
+        this.bounds.set(bounds);
+        this.maxDepth = Math.min(maxDepth, maxDepthLimit);
+        this.rootSize = Math.max(bounds.width, bounds.height);
+
+        Arrays.fill(objNode, -1);
+        nodesUsed = 1;
+        initNode(0, -1, bounds.x, bounds.y, rootSize);
+    }
+
+    public LooseQuadTree(Rect bounds){
+        this(bounds, 8);
+    }
+
+    /** Inserts an object. If the ID is already present, this is equivalent to {@link #update(int, float, float, float, float)}. */
+    public void insert(int id, float x, float y, float width, float height){
+        ensureObjects(id + 1);
+
+        if(objNode[id] != -1){
+            update(id, x, y, width, height);
+            return;
+        }
+
+        setBounds(id, x, y, width, height);
+        int node = findNode(id);
+        addToList(id, node);
+        for(int n = node; n != -1; n = nodeParent[n]){
+            nodeCount[n]++;
+        }
+        size++;
+
+        trySplit(node);
+    }
+
+    /**
+     * Updates the bounds of an object. The object is only moved to another node if it no longer fits in its current node's
+     * loose bounds. Objects that are not in the tree are inserted.
+     */
+    public void update(int id, float x, float y, float width, float height){
+        if(id >= objNode.length || objNode[id] == -1){
+            insert(id, x, y, width, height);
+            return;
+        }
+
+        setBounds(id, x, y, width, height);
+
+        int node = objNode[id];
+        if(fits(node, id)) return;
+
+        int target = findNode(id);
+        if(target == node) return;
+
+        removeFromList(id);
+        addToList(id, target);
+
+        //objects usually move to a nearby node, so only adjust counts up to the common ancestor
+        int from = node, to = target, merge = -1;
+        while(from != to){
+            if(nodeDepth[from] >= nodeDepth[to]){
+                if(--nodeCount[from] <= maxObjectsPerNode / 2 && nodeChild[from] != -1) merge = from;
+                from = nodeParent[from];
+            }else{
+                nodeCount[to]++;
+                to = nodeParent[to];
+            }
+        }
+
+        if(merge != -1){
+            merge(merge);
+        }
+        trySplit(target);
+    }
+
+    /** @return whether the object was present and has been removed. */
+    public boolean remove(int id){
+        if(id >= objNode.length || objNode[id] == -1) return false;
+
+        int node = objNode[id], merge = -1;
+        removeFromList(id);
+        for(int n = node; n != -1; n = nodeParent[n]){
+            if(--nodeCount[n] <= maxObjectsPerNode / 2 && nodeChild[n] != -1) merge = n;
+        }
+        if(merge != -1){
+            merge(merge);
+        }
+
+        size--;
+        return true;
+    }
+
+    /** @return whether an object with this ID is in the tree. */
+    public boolean contains(int id){
+        return id < objNode.length && objNode[id] != -1;
+    }
+
+    /** @return the number of objects in the tree. */
+    public int size(){
+        return size;
+    }
+
+    /** Removes all objects and releases all nodes. */
+    public void clear(){
+        Arrays.fill(objNode, -1);
+        size = 0;
+        nodesUsed = 1;
+        freeBlock = -1;
+        initNode(0, -1, bounds.x, bounds.y, rootSize);
+    }
+
+    /** Processes objects that intersect the given rectangle. */
+    public void intersect(float x, float y, float width, float height, Intc out){
+        intersect(0, x, y, width, height, out);
+    }
+
+    /** Fills the out parameter with objects that intersect the given rectangle. */
+    public void intersect(float x, float y, float width, float height, IntSeq out){
+        intersect(0, x, y, width, height, out);
+    }
+
+    public void intersect(Rect rect, Intc out){
+        intersect(rect.x, rect.y, rect.width, rect.height, out);
+    }
+
+    /** @return whether any object intersects the given rectangle. */
+    public boolean any(float x, float y, float width, float height){
+        return any(0, x, y, width, height);
+    }
+
+    /** Fills the out rectangle with the last known bounds of an object. */
+    public Rect getBounds(int id, Rect out){
+        int i = id * 4;
+        return out.set(objBounds[i], objBounds[i + 1], objBounds[i + 2], objBounds[i + 3]);
+    }
+
+    /** Adds the IDs of all objects to the specified sequence. */
+    public void getObjects(IntSeq out){
+        for(int id = 0; id < objNode.length; id++){
+            if(objNode[id] != -1) out.add(id);
+        }
+    }
+
+    /** @return the number of nodes currently in use, including the root. */
+    public int nodes(){
+        int free = 0;
+        for(int block = freeBlock; block != -1; block = nodeChild[block]){
+            free += 4;
+        }
+        return nodesUsed - free;
+    }
+
+    private boolean overlaps(int id, float x, float y, float width, float height){
+        int i = id * 4;
+        float[] b = objBounds;
+        return b[i] < x + width && b[i] + b[i + 2] > x && b[i + 1] < y + height && b[i + 1] + b[i + 3] > y;
+    }
+
+    private void intersect(int node, float x, float y, float width, float height, Intc out){
+        for(int id = nodeHead[node]; id != -1; id = objNext[id]){
+            if(overlaps(id, x, y, width, height)){
+                out.get(id);
+            }
+        }
+
+        int child = nodeChild[node];
+        if(child != -1){
+            for(int c = child; c < child + 4; c++){
+                if(looseOverlaps(c, x, y, width, height)) intersect(c, x, y, width, height, out);
+            }
+        }
+    }
+
+    private void intersect(int node, float x, float y, float width, float height, IntSeq out){
+        for(int id = nodeHead[node]; id != -1; id = objNext[id]){
+            if(overlaps(id, x, y, width, height)){
+                out.add(id);
+            }
+        }
+
+        int child = nodeChild[node];
+        if(child != -1){
+            for(int c = child; c < child + 4; c++){
+                if(looseOverlaps(c, x, y, width, height)) intersect(c, x, y, width, height, out);
+            }
+        }
+    }
+
+    private boolean any(int node, float x, float y, float width, float height){
+        for(int id = nodeHead[node]; id != -1; id = objNext[id]){
+            if(overlaps(id, x, y, width, height)){
+                return true;
+            }
+        }
+
+        int child = nodeChild[node];
+        if(child != -1){
+            for(int c = child; c < child + 4; c++){
+                if(looseOverlaps(c, x, y, width, height) && any(c, x, y, width, height)) return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return whether a node has objects in its subtree and its loose bounds overlap the rectangle. */
+    private boolean looseOverlaps(int node, float x, float y, float width, float height){
+        if(nodeCount[node] == 0) return false;
+
+        float size = nodeSize[node], half = size / 2f, lx = nodeX[node] - half, ly = nodeY[node] - half;
+        return lx < x + width && lx + size * 2f > x && ly < y + height && ly + size * 2f > y;
+    }
+
+    /** @return whether an object is completely inside the loose bounds of a node. */
+    private boolean fits(int node, int id){
+        int i = id * 4;
+        float size = nodeSize[node], half = size / 2f, lx = nodeX[node] - half, ly = nodeY[node] - half;
+        float[] b = objBounds;
+        return b[i] >= lx && b[i + 1] >= ly && b[i] + b[i + 2] <= lx + size * 2f && b[i + 1] + b[i + 3] <= ly + size * 2f;
+    }
+
+    /** @return the child of a node that contains the center of an object, clamped to the node's cell. */
+    private int childFor(int node, int id){
+        int i = id * 4, child = nodeChild[node];
+        float half = nodeSize[node] / 2f;
+        if(objBounds[i] + objBounds[i + 2] / 2f >= nodeX[node] + half) child += 1;
+        if(objBounds[i + 1] + objBounds[i + 3] / 2f >= nodeY[node] + half) child += 2;
+        return child;
+    }
+
+    /** Finds the deepest existing node whose loose bounds contain an object. Objects that do not fit anywhere go in the root. */
+    private int findNode(int id){
+        int node = 0;
+        while(nodeChild[node] != -1){
+            int child = childFor(node, id);
+            if(!fits(child, id)) break;
+            node = child;
+        }
+        return node;
+    }
+
+    /** Splits a leaf with too many objects, and pushes its objects down into the children they fit in. */
+    private void trySplit(int node){
+        if(nodeChild[node] != -1 || nodeCount[node] <= maxObjectsPerNode || nodeDepth[node] >= maxDepth) return;
+
+        int block;
+        if(freeBlock != -1){
+            block = freeBlock;
+            freeBlock = nodeChild[block];
+        }else{
+            block = nodesUsed;
+            nodesUsed += 4;
+            ensureNodes(nodesUsed);
+        }
+
+        float half = nodeSize[node] / 2f, x = nodeX[node], y = nodeY[node];
+        initNode(block, node, x, y, half);
+        initNode(block + 1, node, x + half, y, half);
+        initNode(block + 2, node, x, y + half, half);
+        initNode(block + 3, node, x + half, y + half, half);
+        nodeChild[node] = block;
+
+        for(int id = nodeHead[node]; id != -1;){
+            int next = objNext[id], child = childFor(node, id);
+            if(fits(child, id)){
+                removeFromList(id);
+                addToList(id, child);
+                nodeCount[child]++;
+            }
+            id = next;
+        }
+
+        for(int c = block; c < block + 4; c++){
+            trySplit(c);
+        }
+    }
+
+    /** Moves every object in the subtree of a node into the node itself, and releases its child blocks. */
+    private void merge(int node){
+        int block = nodeChild[node];
+        if(block == -1) return;
+
+        for(int c = block; c < block + 4; c++){
+            merge(c);
+
+            for(int id = nodeHead[c]; id != -1;){
+                int next = objNext[id];
+                addToList(id, node);
+                id = next;
+            }
+        }
+
+        nodeChild[node] = -1;
+        nodeChild[block] = freeBlock;
+        freeBlock = block;
+    }
+
+    private void initNode(int node, int parent, float x, float y, float size){
+        nodeX[node] = x;
+        nodeY[node] = y;
+        nodeSize[node] = size;
+        nodeParent[node] = parent;
+        nodeDepth[node] = parent == -1 ? 0 : nodeDepth[parent] + 1;
+        nodeChild[node] = -1;
+        nodeHead[node] = -1;
+        nodeCount[node] = 0;
+    }
+
+    private void addToList(int id, int node){
+        int head = nodeHead[node];
+        objNode[id] = node;
+        objPrev[id] = -1;
+        objNext[id] = head;
+        if(head != -1) objPrev[head] = id;
+        nodeHead[node] = id;
+    }
+
+    private void removeFromList(int id){
+        int node = objNode[id], prev = objPrev[id], next = objNext[id];
+        if(prev != -1){
+            objNext[prev] = next;
+        }else{
+            nodeHead[node] = next;
+        }
+        if(next != -1) objPrev[next] = prev;
+        objNode[id] = -1;
+    }
+
+    private void setBounds(int id, float x, float y, float width, float height){
+        int i = id * 4;
+        objBounds[i] = x;
+        objBounds[i + 1] = y;
+        objBounds[i + 2] = width;
+        objBounds[i + 3] = height;
+    }
+
+    private void ensureObjects(int count){
+        if(count <= objNode.length) return;
+
+        int old = objNode.length, capacity = Math.max(count, old * 7 / 4);
+        objNode = Arrays.copyOf(objNode, capacity);
+        objNext = Arrays.copyOf(objNext, capacity);
+        objPrev = Arrays.copyOf(objPrev, capacity);
+        objBounds = Arrays.copyOf(objBounds, capacity * 4);
+        Arrays.fill(objNode, old, capacity, -1);
+    }
+
+    private void ensureNodes(int count){
+        if(count <= nodeCapacity) return;
+
+        int capacity = Math.max(count, nodeCapacity * 7 / 4);
+        nodeX = Arrays.copyOf(nodeX, capacity);
+        nodeY = Arrays.copyOf(nodeY, capacity);
+        nodeSize = Arrays.copyOf(nodeSize, capacity);
+        nodeChild = Arrays.copyOf(nodeChild, capacity);
+        nodeParent = Arrays.copyOf(nodeParent, capacity);
+        nodeDepth = Arrays.copyOf(nodeDepth, capacity);
+        nodeHead = Arrays.copyOf(nodeHead, capacity);
+        nodeCount = Arrays.copyOf(nodeCount, capacity);
+        nodeCapacity = capacity;
+    }
+}
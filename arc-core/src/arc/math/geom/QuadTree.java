@@ -3,8 +3,10 @@ package arc.math.geom;
 import arc.func.*;
 import arc.math.geom.QuadTree.*;
 import arc.struct.*;
+import arc.util.*;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * A basic quad tree.
@@ -25,6 +27,9 @@ public class QuadTree<T extends QuadTreeObject>{
     public boolean leaf = true;
     public int totalObjects;
 
+    /** Lazily created search state for the nearest-neighbour methods of the root node; one per thread of a batch query. */
+    protected @Nullable Seq<NearestQuery<T>> queries;
+
     public QuadTree(Rect bounds){
         this.bounds = bounds;
     }
@@ -292,6 +297,82 @@ public class QuadTree<T extends QuadTreeObject>{
         }
     }
 
+    /**
+     * @return the object with the hitbox center closest to the position, or null if there is none within maxDistance.
+     * Not thread-safe; use a separate {@link NearestQuery} per thread for concurrent searches.
+     */
+    public @Nullable T nearest(float x, float y, float maxDistance){
+        NearestQuery<T> query = query(0);
+        query.shared = false;
+        return query.find(this, x, y, 1, maxDistance, query.result, 0) == 0 ? null : (T)query.result[0];
+    }
+
+    /**
+     * Finds the k objects with hitbox centers closest to a position, searching nodes best-first.
+     * @param out receives up to k objects, closest first. It is not cleared beforehand.
+     * @return the number of objects found.
+     */
+    public int nearest(float x, float y, int k, float maxDistance, Seq<T> out){
+        if(k <= 0) return 0;
+        NearestQuery<T> query = query(0);
+        query.shared = false;
+        int start = out.size;
+        out.setSize(start + k);
+        int found = query.find(this, x, y, k, maxDistance, ((Seq<?>)out).items, start);
+        out.size = start + found;
+        return found;
+    }
+
+    /**
+     * Answers many k-nearest queries at once. Results are written to {@code out} in blocks of k per query, closest first;
+     * slots without a result are null. {@code out} is resized to {@code count * k} and any previous contents are discarded.
+     * @param positions query positions as interleaved x and y coordinates
+     * @param parallel whether to split the batch across the {@link ForkJoinPool#commonPool() common pool}.
+     * Object hitboxes must then be safe to read from multiple threads.
+     */
+    public void nearest(float[] positions, int count, int k, float maxDistance, boolean parallel, Seq<T> out){
+        out.clear();
+        out.setSize(count * k);
+        Object[] items = ((Seq<?>)out).items;
+
+        int chunks = parallel ? Math.min(Runtime.getRuntime().availableProcessors(), count / 64) : 1;
+        if(chunks <= 1){
+            NearestQuery<T> query = query(0);
+            query.shared = false;
+            for(int i = 0; i < count; i++){
+                query.find(this, positions[i * 2], positions[i * 2 + 1], k, maxDistance, items, i * k);
+            }
+            return;
+        }
+
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunks];
+        int chunkSize = (count + chunks - 1) / chunks;
+        for(int c = 0; c < chunks; c++){
+            NearestQuery<T> query = query(c);
+            query.shared = true;
+            int from = c * chunkSize, to = Math.min(from + chunkSize, count);
+            tasks[c] = ForkJoinPool.commonPool().submit(() -> {
+                for(int i = from; i < to; i++){
+                    query.find(this, positions[i * 2], positions[i * 2 + 1], k, maxDistance, items, i * k);
+                }
+            });
+        }
+        for(ForkJoinTask<?> task : tasks) task.join();
+    }
+
+    protected NearestQuery<T> query(int index){
+        if(queries == null) queries = new Seq<>();
+        while(queries.size <= index) queries.add(new NearestQuery<>());
+        return queries.get(index);
+    }
+
+    /** @return the squared distance from a position to the closest point of a rectangle. */
+    static float dst2(Rect rect, float x, float y){
+        float dx = Math.max(Math.max(rect.x - x, x - (rect.x + rect.width)), 0f);
+        float dy = Math.max(Math.max(rect.y - y, y - (rect.y + rect.height)), 0f);
+        return dx * dx + dy * dy;
+    }
+
     protected QuadTree<T> newChild(Rect rect){
         return new QuadTree<>(rect);
     }
@@ -300,6 +381,115 @@ public class QuadTree<T extends QuadTreeObject>{
         t.hitbox(tmp);
     }
 
+    /**
+     * Reusable state for best-first nearest-neighbour searches. Nodes to visit are kept in a min-heap by their distance,
+     * and the best candidates so far in a max-heap bounded to k, so that the search stops as soon as the closest
+     * unvisited node is further away than the k-th candidate. Heap entries are pooled; searching does not allocate.
+     */
+    public static class NearestQuery<T extends QuadTreeObject>{
+        private final BinaryHeap<Entry> frontier = new BinaryHeap<>(16, false), best = new BinaryHeap<>(16, true);
+        private final Seq<Entry> free = new Seq<>(false, 16, Entry.class);
+        private final Rect rect = new Rect();
+        final Object[] result = new Object[1];
+        /** Whether other queries search the same tree at the same time, so that the hitbox of each node must be read under its lock. */
+        boolean shared;
+
+        /**
+         * Writes up to k objects closest to a position into {@code out}, starting at {@code offset}, closest first.
+         * Unused slots up to {@code offset + k} are set to null.
+         * @return the number of objects found.
+         */
+        public int find(QuadTree<T> tree, float x, float y, int k, float maxDistance, Object[] out, int offset){
+            if(k <= 0) return 0;
+            float limit = maxDistance * maxDistance;
+            frontier.add(obtain(tree, null), 0f);
+
+            while(!frontier.isEmpty()){
+                Entry entry = frontier.pop();
+                QuadTree<T> node = entry.tree;
+                free.add(entry);
+
+                if(entry.getValue() > bound(k, limit)) break;
+
+                Seq<?> objects = node.objects;
+                for(int i = 0; i < objects.size; i++){
+                    T item = (T)objects.items[i];
+                    Rect box = hitbox(node, item);
+                    float dx = box.x + box.width / 2f - x, dy = box.y + box.height / 2f - y, dst = dx * dx + dy * dy;
+
+                    if(dst <= bound(k, limit)){
+                        if(best.size == k) free.add(best.pop());
+                        best.add(obtain(null, item), dst);
+                    }
+                }
+
+                if(!node.leaf){
+                    visit(node.topLeft, x, y, k, limit);
+                    visit(node.topRight, x, y, k, limit);
+                    visit(node.botLeft, x, y, k, limit);
+                    visit(node.botRight, x, y, k, limit);
+                }
+            }
+
+            while(!frontier.isEmpty()){
+                free.add(frontier.pop());
+            }
+
+            int found = best.size;
+            for(int i = found - 1; i >= 0; i--){
+                Entry entry = best.pop();
+                out[offset + i] = entry.item;
+                entry.item = null;
+                free.add(entry);
+            }
+            for(int i = found; i < k; i++){
+                out[offset + i] = null;
+            }
+            return found;
+        }
+
+        /** @return the hitbox of an item, as given by the {@link QuadTree#hitbox(QuadTreeObject)} hook of its node. */
+        private Rect hitbox(QuadTree<T> node, T item){
+            if(!shared){
+                node.hitbox(item);
+                return node.tmp;
+            }
+            synchronized(node){
+                node.hitbox(item);
+                return rect.set(node.tmp);
+            }
+        }
+
+        private void visit(QuadTree<T> child, float x, float y, int k, float limit){
+            if(child.totalObjects == 0) return;
+
+            float dst = dst2(child.bounds, x, y);
+            if(dst <= bound(k, limit)){
+                frontier.add(obtain(child, null), dst);
+            }
+        }
+
+        private float bound(int k, float limit){
+            return best.size == k ? Math.min(best.peek().getValue(), limit) : limit;
+        }
+
+        private Entry obtain(@Nullable QuadTree<T> tree, @Nullable T item){
+            Entry entry = free.isEmpty() ? new Entry() : free.pop();
+            entry.tree = tree;
+            entry.item = item;
+            return entry;
+        }
+
+        class Entry extends BinaryHeap.Node{
+            @Nullable QuadTree<T> tree;
+            @Nullable T item;
+
+            Entry(){
+                super(0f);
+            }
+        }
+    }
+
     /**Represents an object in a QuadTree.*/
     public interface QuadTreeObject{
         /**Fills the out parameter with this element's rough bounding box. This should never be smaller than the actual object, but may be larger.*/
@@ -0,0 +1,340 @@
+package arc.math.geom;
+
+import arc.func.*;
+import arc.math.*;
+import arc.struct.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A uniform grid of points, rebuilt from scratch each frame with a counting sort.
+ * <p>
+ * Points are stored in compressed sparse row layout: after {@link #build(int, int[], float[], float[])}, the points of each
+ * cell are contiguous in flat arrays, and {@code cellStart[cell]} to {@code cellStart[cell + 1]} is their range. Building is
+ * O(n + cells), and queries do not allocate. Points outside of the grid bounds are stored in the nearest border cell.
+ * <p>
+ * For uniformly dense data this is considerably faster than a {@link QuadTree}. Queries may be run from multiple threads
+ * at once, except for {@link #nearest(float, float, int, IntSeq)}, which uses internal buffers.
+ */
+public class SpatialGrid{
+    /** Minimum number of points per thread in {@link #buildParallel(int, int[], float[], float[])}. */
+    private static final int parallelChunk = 16384;
+
+    public final float x, y, cellSize;
+    public final int width, height;
+
+    private final int[] cellStart;
+    private int[] cellOf = {}, ids = {};
+    private float[] px = {}, py = {};
+    private int size;
+
+    //parallel build state; counts per chunk, laid out as [chunk * cells + cell]
+    private int[] chunkCounts = {};
+
+    //k-nearest heap, a max-heap by distance so that the furthest candidate can be replaced
+    private float[] heapDst = new float[16];
+    private int[] heapIds = new int[16];
+
+    /**
+     * @param x left edge of the grid
+     * @param y bottom edge of the grid
+     * @param worldWidth width of the covered area
+     * @param worldHeight height of the covered area
+     * @param cellSize size of each square cell. Ideally close to the typical query size.
+     */
+    public SpatialGrid(float x, float y, float worldWidth, float worldHeight, float cellSize){
+        this.x = x;
+        this.y = y;
+        this.cellSize = cellSize;
+        this.width = Math.max((int)Math.ceil(worldWidth / cellSize), 1);
+        this.height = Math.max((int)Math.ceil(worldHeight / cellSize), 1);
+        this.cellStart = new int[width * height + 1];
+    }
+
+    /**
+     * Rebuilds the grid from the first {@code count} points.
+     * @param ids the ID of each point, or null to use the point index as its ID.
+     */
+    public void build(int count, int[] ids, float[] xs, float[] ys){
+        prepare(count);
+        int[] cellStart = this.cellStart, cellOf = this.cellOf;
+        Arrays.fill(cellStart, 0);
+
+        for(int i = 0; i < count; i++){
+            int cell = cell(xs[i], ys[i]);
+            cellOf[i] = cell;
+            cellStart[cell + 1]++;
+        }
+
+        for(int i = 1; i < cellStart.length; i++){
+            cellStart[i] += cellStart[i - 1];
+        }
+
+        //use the end of each cell as an insertion pointer, moving backwards to keep points in their original order
+        for(int i = count - 1; i >= 0; i--){
+            place(--cellStart[cellOf[i] + 1], i, ids, xs, ys);
+        }
+
+        //cellStart[c + 1] now holds the start of cell c; shift back into place
+        System.arraycopy(cellStart, 1, cellStart, 0, cellStart.length - 1);
+        cellStart[cellStart.length - 1] = count;
+    }
+
+    /**
+     * Rebuilds the grid like {@link #build(int, int[], float[], float[])}, but counts and scatters points on the
+     * {@link ForkJoinPool#commonPool() common pool}. Falls back to a serial build for small inputs.
+     */
+    public void buildParallel(int count, int[] ids, float[] xs, float[] ys){
+        int chunks = Math.min(Runtime.getRuntime().availableProcessors(), count / parallelChunk);
+        if(chunks <= 1){
+            build(count, ids, xs, ys);
+            return;
+        }
+
+        prepare(count);
+        int cells = width * height, chunkSize = (count + chunks - 1) / chunks;
+        if(chunkCounts.length < cells * chunks) chunkCounts = new int[cells * chunks];
+        int[] counts = chunkCounts, cellStart = this.cellStart, cellOf = this.cellOf;
+        Arrays.fill(counts, 0, cells * chunks, 0);
+
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunks];
+
+        for(int c = 0; c < chunks; c++){
+            int from = c * chunkSize, to = Math.min(from + chunkSize, count), offset = c * cells;
+            tasks[c] = ForkJoinPool.commonPool().submit(() -> {
+                for(int i = from; i < to; i++){
+                    int cell = cell(xs[i], ys[i]);
+                    cellOf[i] = cell;
+                    counts[offset + cell]++;
+                }
+            });
+        }
+        for(ForkJoinTask<?> task : tasks) task.join();
+
+        //exclusive prefix sum over (cell, chunk), so each chunk writes its points of a cell into its own range
+        int total = 0;
+        for(int cell = 0; cell < cells; cell++){
+            cellStart[cell] = total;
+            for(int c = 0; c < chunks; c++){
+                int index = c * cells + cell, amount = counts[index];
+                counts[index] = total;
+                total += amount;
+            }
+        }
+        cellStart[cells] = total;
+
+        for(int c = 0; c < chunks; c++){
+            int from = c * chunkSize, to = Math.min(from + chunkSize, count), offset = c * cells;
+            tasks[c] = ForkJoinPool.commonPool().submit(() -> {
+                for(int i = from; i < to; i++){
+                    place(counts[offset + cellOf[i]]++, i, ids, xs, ys);
+                }
+            });
+        }
+        for(ForkJoinTask<?> task : tasks) task.join();
+    }
+
+    /** @return the number of points in the grid. */
+    public int size(){
+        return size;
+    }
+
+    /** Processes the IDs of all points inside the given rectangle, edges included. */
+    public void intersect(float x, float y, float width, float height, Intc out){
+        int minx = cellX(x), miny = cellY(y), maxx = cellX(x + width), maxy = cellY(y + height);
+        float x2 = x + width, y2 = y + height;
+
+        for(int cy = miny; cy <= maxy; cy++){
+            int row = cy * this.width;
+            for(int i = cellStart[row + minx], end = cellStart[row + maxx + 1]; i < end; i++){
+                float px = this.px[i], py = this.py[i];
+                if(px >= x && px <= x2 && py >= y && py <= y2){
+                    out.get(ids[i]);
+                }
+            }
+        }
+    }
+
+    /** Fills the out parameter with the IDs of all points inside the given rectangle, edges included. */
+    public void intersect(float x, float y, float width, float height, IntSeq out){
+        int minx = cellX(x), miny = cellY(y), maxx = cellX(x + width), maxy = cellY(y + height);
+        float x2 = x + width, y2 = y + height;
+
+        for(int cy = miny; cy <= maxy; cy++){
+            int row = cy * this.width;
+            for(int i = cellStart[row + minx], end = cellStart[row + maxx + 1]; i < end; i++){
+                float px = this.px[i], py = this.py[i];
+                if(px >= x && px <= x2 && py >= y && py <= y2){
+                    out.add(ids[i]);
+                }
+            }
+        }
+    }
+
+    /** Processes the IDs of all points within a radius of a position. */
+    public void within(float x, float y, float radius, Intc out){
+        int minx = cellX(x - radius), miny = cellY(y - radius), maxx = cellX(x + radius), maxy = cellY(y + radius);
+        float r2 = radius * radius;
+
+        for(int cy = miny; cy <= maxy; cy++){
+            int row = cy * this.width;
+            for(int i = cellStart[row + minx], end = cellStart[row + maxx + 1]; i < end; i++){
+                float dx = px[i] - x, dy = py[i] - y;
+                if(dx * dx + dy * dy <= r2){
+                    out.get(ids[i]);
+                }
+            }
+        }
+    }
+
+    /** Fills the out parameter with the IDs of all points within a radius of a position. */
+    public void within(float x, float y, float radius, IntSeq out){
+        int minx = cellX(x - radius), miny = cellY(y - radius), maxx = cellX(x + radius), maxy = cellY(y + radius);
+        float r2 = radius * radius;
+
+        for(int cy = miny; cy <= maxy; cy++){
+            int row = cy * this.width;
+            for(int i = cellStart[row + minx], end = cellStart[row + maxx + 1]; i < end; i++){
+                float dx = px[i] - x, dy = py[i] - y;
+                if(dx * dx + dy * dy <= r2){
+                    out.add(ids[i]);
+                }
+            }
+        }
+    }
+
+    /** @return the ID of the closest point, or -1 if the grid is empty. */
+    public int nearest(float x, float y){
+        int count = search(x, y, 1);
+        return count == 0 ? -1 : heapIds[0];
+    }
+
+    /**
+     * Finds the k closest points to a position. Cells are searched in rings around the position until no unsearched cell
+     * can contain a closer point.
+     * @param out receives the IDs of up to k points, closest first. It is not cleared beforehand.
+     * @return the number of points found.
+     */
+    public int nearest(float x, float y, int k, IntSeq out){
+        int count = search(x, y, k);
+
+        //heap sort in place; popping the max repeatedly leaves the closest points at the front
+        for(int end = count - 1; end > 0; end--){
+            swap(0, end);
+            siftDown(0, end);
+        }
+
+        out.ensureCapacity(count);
+        for(int i = 0; i < count; i++){
+            out.add(heapIds[i]);
+        }
+        return count;
+    }
+
+    /** Fills the k-nearest heap, and returns its size. */
+    private int search(float x, float y, int k){
+        if(k <= 0 || size == 0) return 0;
+
+        if(heapDst.length < k){
+            heapDst = new float[k];
+            heapIds = new int[k];
+        }
+
+        int cx = cellX(x), cy = cellY(y), count = 0;
+        //distance from the position to its clamped cell, for positions outside of the grid
+        float clampDst = Mathf.dst(x, y, Mathf.clamp(x, this.x, this.x + width * cellSize), Mathf.clamp(y, this.y, this.y + height * cellSize));
+        int maxRing = Math.max(Math.max(cx, width - 1 - cx), Math.max(cy, height - 1 - cy));
+
+        for(int ring = 0; ring <= maxRing; ring++){
+            if(count == k){
+                float bound = Math.max((ring - 1) * cellSize - clampDst, 0f);
+                if(bound * bound > heapDst[0]) break;
+            }
+
+            int minx = cx - ring, maxx = cx + ring, miny = cy - ring, maxy = cy + ring;
+            for(int gy = Math.max(miny, 0); gy <= Math.min(maxy, height - 1); gy++){
+                boolean edgeRow = gy == miny || gy == maxy;
+                //rows in the middle of the ring only have their two edge cells in it
+                int step = edgeRow ? 1 : Math.max(maxx - minx, 1);
+                for(int gx = minx; gx <= maxx; gx += step){
+                    if(gx < 0 || gx >= width) continue;
+
+                    int cell = gy * width + gx;
+                    for(int i = cellStart[cell], end = cellStart[cell + 1]; i < end; i++){
+                        float dx = px[i] - x, dy = py[i] - y, dst = dx * dx + dy * dy;
+                        if(count < k){
+                            heapDst[count] = dst;
+                            heapIds[count] = ids[i];
+                            siftUp(count++);
+                        }else if(dst < heapDst[0]){
+                            heapDst[0] = dst;
+                            heapIds[0] = ids[i];
+                            siftDown(0, count);
+                        }
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private void siftUp(int index){
+        while(index > 0){
+            int parent = (index - 1) >> 1;
+            if(heapDst[parent] >= heapDst[index]) break;
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int size){
+        while(true){
+            int left = index * 2 + 1, right = left + 1, largest = index;
+            if(left < size && heapDst[left] > heapDst[largest]) largest = left;
+            if(right < size && heapDst[right] > heapDst[largest]) largest = right;
+            if(largest == index) break;
+            swap(index, largest);
+            index = largest;
+        }
+    }
+
+    private void swap(int a, int b){
+        float dst = heapDst[a];
+        heapDst[a] = heapDst[b];
+        heapDst[b] = dst;
+        int id = heapIds[a];
+        heapIds[a] = heapIds[b];
+        heapIds[b] = id;
+    }
+
+    private void place(int dest, int index, int[] ids, float[] xs, float[] ys){
+        this.ids[dest] = ids == null ? index : ids[index];
+        px[dest] = xs[index];
+        py[dest] = ys[index];
+    }
+
+    private void prepare(int count){
+        if(cellOf.length < count){
+            int capacity = Math.max(count, cellOf.length * 7 / 4);
+            cellOf = new int[capacity];
+            ids = new int[capacity];
+            px = new float[capacity];
+            py = new float[capacity];
+        }
+        size = count;
+    }
+
+    private int cell(float x, float y){
+        return cellY(y) * width + cellX(x);
+    }
+
+    private int cellX(float x){
+        return Mathf.clamp((int)Math.floor((x - this.x) / cellSize), 0, width - 1);
+    }
+
+    private int cellY(float y){
+        return Mathf.clamp((int)Math.floor((y - this.y) / cellSize), 0, height - 1);
+    }
+}
@@ -0,0 +1,167 @@
+package arc.struct;
+
+/**
+ * A 2-dimensional map that stores objects in dense square chunks of {@link #chunkSize} cells, indexed by chunk coordinate.
+ * Compared to {@link GridMap}, lookups with good locality only hash once per chunk, and iterating over a rectangle touches
+ * each chunk's backing array directly. Chunks are allocated on first put and freed once they are empty.
+ * <p>
+ * Null values are not stored: putting null removes the cell.
+ */
+@SuppressWarnings("unchecked")
+public class ChunkedGridMap<T>{
+    public static final int chunkShift = 5, chunkSize = 1 << chunkShift, chunkMask = chunkSize - 1;
+
+    protected LongMap<Chunk> chunks = new LongMap<>();
+    protected int size;
+
+    private long lastKey;
+    private Chunk lastChunk;
+
+    static long chunkKey(int cx, int cy){
+        return (((long)cx) << 32) | (cy & 0xffffffffL);
+    }
+
+    static int index(int x, int y){
+        return (x & chunkMask) | ((y & chunkMask) << chunkShift);
+    }
+
+    public T get(int x, int y){
+        Chunk chunk = chunk(x >> chunkShift, y >> chunkShift);
+        return chunk == null ? null : (T)chunk.values[index(x, y)];
+    }
+
+    public T get(int x, int y, T defaultValue){
+        T value = get(x, y);
+        return value == null ? defaultValue : value;
+    }
+
+    public boolean containsKey(int x, int y){
+        return get(x, y) != null;
+    }
+
+    public void put(int x, int y, T t){
+        if(t == null){
+            remove(x, y);
+            return;
+        }
+
+        int cx = x >> chunkShift, cy = y >> chunkShift;
+        Chunk chunk = chunk(cx, cy);
+        if(chunk == null){
+            chunk = new Chunk(cx, cy);
+            chunks.put(chunkKey(cx, cy), chunk);
+            lastKey = chunkKey(cx, cy);
+            lastChunk = chunk;
+        }
+
+        int index = index(x, y);
+        if(chunk.values[index] == null){
+            chunk.count++;
+            size++;
+        }
+        chunk.values[index] = t;
+    }
+
+    /** @return the removed value, or null if there was none. */
+    public T remove(int x, int y){
+        int cx = x >> chunkShift, cy = y >> chunkShift;
+        Chunk chunk = chunk(cx, cy);
+        if(chunk == null) return null;
+
+        int index = index(x, y);
+        T value = (T)chunk.values[index];
+        if(value != null){
+            chunk.values[index] = null;
+            size--;
+            if(--chunk.count == 0){
+                removeChunk(cx, cy);
+            }
+        }
+        return value;
+    }
+
+    /** Calls the consumer for every value in the rectangle, chunk by chunk. The map must not be modified during iteration. */
+    public void each(int x, int y, int width, int height, GridCons<T> cons){
+        if(width <= 0 || height <= 0) return;
+        int x2 = x + width - 1, y2 = y + height - 1;
+
+        for(int cy = y >> chunkShift; cy <= y2 >> chunkShift; cy++){
+            for(int cx = x >> chunkShift; cx <= x2 >> chunkShift; cx++){
+                Chunk chunk = chunk(cx, cy);
+                if(chunk == null) continue;
+
+                int ox = cx << chunkShift, oy = cy << chunkShift;
+                int fromX = Math.max(x, ox), toX = Math.min(x2, ox + chunkMask);
+                int fromY = Math.max(y, oy), toY = Math.min(y2, oy + chunkMask);
+                Object[] values = chunk.values;
+
+                for(int wy = fromY; wy <= toY; wy++){
+                    int row = (wy - oy) << chunkShift;
+                    for(int wx = fromX; wx <= toX; wx++){
+                        Object value = values[row + wx - ox];
+                        if(value != null) cons.get(wx, wy, (T)value);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Calls the consumer for every value in the map, in no particular chunk order. The map must not be modified during iteration. */
+    public void each(GridCons<T> cons){
+        for(Chunk chunk : chunks.values()){
+            int ox = chunk.x << chunkShift, oy = chunk.y << chunkShift;
+            Object[] values = chunk.values;
+            for(int i = 0; i < values.length; i++){
+                if(values[i] != null) cons.get(ox + (i & chunkMask), oy + (i >>> chunkShift), (T)values[i]);
+            }
+        }
+    }
+
+    /** @return the number of allocated chunks. */
+    public int chunks(){
+        return chunks.size;
+    }
+
+    public void clear(){
+        chunks.clear();
+        lastChunk = null;
+        size = 0;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    protected Chunk chunk(int cx, int cy){
+        long key = chunkKey(cx, cy);
+        if(lastChunk != null && lastKey == key) return lastChunk;
+
+        Chunk chunk = chunks.get(key);
+        if(chunk != null){
+            lastKey = key;
+            lastChunk = chunk;
+        }
+        return chunk;
+    }
+
+    protected void removeChunk(int cx, int cy){
+        long key = chunkKey(cx, cy);
+        chunks.remove(key);
+        if(lastKey == key) lastChunk = null;
+    }
+
+    protected static class Chunk{
+        final int x, y;
+        final Object[] values = new Object[chunkSize * chunkSize];
+        int count;
+
+        Chunk(int x, int y){
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    public interface GridCons<T>{
+        void get(int x, int y, T value);
+    }
+}
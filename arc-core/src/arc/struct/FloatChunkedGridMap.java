@@ -0,0 +1,192 @@
+package arc.struct;
+
+import static arc.struct.ChunkedGridMap.*;
+
+/**
+ * A 2-dimensional map of float values, stored in dense square chunks like {@link ChunkedGridMap}.
+ * Presence is tracked with a bit per cell, so any value, including 0, can be stored.
+ */
+public class FloatChunkedGridMap{
+    protected LongMap<Chunk> chunks = new LongMap<>();
+    protected int size;
+
+    private long lastKey;
+    private Chunk lastChunk;
+
+    public float get(int x, int y){
+        return get(x, y, 0f);
+    }
+
+    public float get(int x, int y, float defaultValue){
+        Chunk chunk = chunk(x >> chunkShift, y >> chunkShift);
+        if(chunk == null) return defaultValue;
+        int index = index(x, y);
+        return chunk.has(index) ? chunk.values[index] : defaultValue;
+    }
+
+    public boolean containsKey(int x, int y){
+        Chunk chunk = chunk(x >> chunkShift, y >> chunkShift);
+        return chunk != null && chunk.has(index(x, y));
+    }
+
+    public void put(int x, int y, float value){
+        int cx = x >> chunkShift, cy = y >> chunkShift;
+        Chunk chunk = chunk(cx, cy);
+        if(chunk == null){
+            chunk = new Chunk(cx, cy);
+            chunks.put(chunkKey(cx, cy), chunk);
+            lastKey = chunkKey(cx, cy);
+            lastChunk = chunk;
+        }
+
+        int index = index(x, y);
+        if(!chunk.has(index)){
+            chunk.present[index >>> 6] |= 1L << index;
+            chunk.count++;
+            size++;
+        }
+        chunk.values[index] = value;
+    }
+
+    /** Adds to the value at a cell, treating missing cells as 0. */
+    public void increment(int x, int y, float amount){
+        put(x, y, get(x, y) + amount);
+    }
+
+    /** @return the removed value, or the default value if there was none. */
+    public float remove(int x, int y, float defaultValue){
+        int cx = x >> chunkShift, cy = y >> chunkShift;
+        Chunk chunk = chunk(cx, cy);
+        if(chunk == null) return defaultValue;
+
+        int index = index(x, y);
+        if(!chunk.has(index)) return defaultValue;
+
+        float value = chunk.values[index];
+        chunk.present[index >>> 6] &= ~(1L << index);
+        chunk.values[index] = 0f;
+        size--;
+        if(--chunk.count == 0){
+            removeChunk(cx, cy);
+        }
+        return value;
+    }
+
+    public void remove(int x, int y){
+        remove(x, y, 0f);
+    }
+
+    /**
+     * Copies a rectangle of values into a row-major array, using the default value for missing cells.
+     * @param out array of at least {@code width * height} elements
+     */
+    public void read(int x, int y, int width, int height, float defaultValue, float[] out){
+        if(width <= 0 || height <= 0) return;
+        int x2 = x + width - 1, y2 = y + height - 1;
+
+        for(int cy = y >> chunkShift; cy <= y2 >> chunkShift; cy++){
+            for(int cx = x >> chunkShift; cx <= x2 >> chunkShift; cx++){
+                Chunk chunk = chunk(cx, cy);
+                int ox = cx << chunkShift, oy = cy << chunkShift;
+                int fromX = Math.max(x, ox), toX = Math.min(x2, ox + chunkMask);
+                int fromY = Math.max(y, oy), toY = Math.min(y2, oy + chunkMask);
+
+                for(int wy = fromY; wy <= toY; wy++){
+                    int row = (wy - oy) << chunkShift, dst = (wy - y) * width - x;
+                    for(int wx = fromX; wx <= toX; wx++){
+                        int index = row + wx - ox;
+                        out[dst + wx] = chunk != null && chunk.has(index) ? chunk.values[index] : defaultValue;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Calls the consumer for every value in the rectangle, chunk by chunk. The map must not be modified during iteration. */
+    public void each(int x, int y, int width, int height, FloatGridCons cons){
+        if(width <= 0 || height <= 0) return;
+        int x2 = x + width - 1, y2 = y + height - 1;
+
+        for(int cy = y >> chunkShift; cy <= y2 >> chunkShift; cy++){
+            for(int cx = x >> chunkShift; cx <= x2 >> chunkShift; cx++){
+                Chunk chunk = chunk(cx, cy);
+                if(chunk == null) continue;
+
+                int ox = cx << chunkShift, oy = cy << chunkShift;
+                int fromX = Math.max(x, ox), toX = Math.min(x2, ox + chunkMask);
+                int fromY = Math.max(y, oy), toY = Math.min(y2, oy + chunkMask);
+
+                for(int wy = fromY; wy <= toY; wy++){
+                    int row = (wy - oy) << chunkShift;
+                    for(int wx = fromX; wx <= toX; wx++){
+                        int index = row + wx - ox;
+                        if(chunk.has(index)) cons.get(wx, wy, chunk.values[index]);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Calls the consumer for every value in the map, in no particular chunk order. The map must not be modified during iteration. */
+    public void each(FloatGridCons cons){
+        for(Chunk chunk : chunks.values()){
+            int ox = chunk.x << chunkShift, oy = chunk.y << chunkShift;
+            for(int i = 0; i < chunk.values.length; i++){
+                if(chunk.has(i)) cons.get(ox + (i & chunkMask), oy + (i >>> chunkShift), chunk.values[i]);
+            }
+        }
+    }
+
+    /** @return the number of allocated chunks. */
+    public int chunks(){
+        return chunks.size;
+    }
+
+    public void clear(){
+        chunks.clear();
+        lastChunk = null;
+        size = 0;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    protected Chunk chunk(int cx, int cy){
+        long key = chunkKey(cx, cy);
+        if(lastChunk != null && lastKey == key) return lastChunk;
+
+        Chunk chunk = chunks.get(key);
+        if(chunk != null){
+            lastKey = key;
+            lastChunk = chunk;
+        }
+        return chunk;
+    }
+
+    protected void removeChunk(int cx, int cy){
+        long key = chunkKey(cx, cy);
+        chunks.remove(key);
+        if(lastKey == key) lastChunk = null;
+    }
+
+    protected static class Chunk{
+        final int x, y;
+        final float[] values = new float[chunkSize * chunkSize];
+        final long[] present = new long[chunkSize * chunkSize / 64];
+        int count;
+
+        Chunk(int x, int y){
+            this.x = x;
+            this.y = y;
+        }
+
+        boolean has(int index){
+            return (present[index >>> 6] & (1L << index)) != 0;
+        }
+    }
+
+    public interface FloatGridCons{
+        void get(int x, int y, float value);
+    }
+}
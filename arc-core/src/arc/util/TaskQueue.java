@@ -1,36 +1,129 @@
 package arc.util;
 
-import arc.struct.*;
+import java.util.concurrent.atomic.*;
 
+/**
+ * A multi-producer, single-consumer queue of tasks.
+ * {@link #post(Runnable)} is lock-free and may be called from any thread; {@link #run()} and {@link #clear()} must only
+ * be called from the consuming thread.
+ */
 public class TaskQueue{
-    private final Seq<Runnable> runnables = new Seq<>();
-    private final Seq<Runnable> executedRunnables = new Seq<>();
+    /** Most recently posted node. Producers swap themselves in here. */
+    private final AtomicReference<Node> tail;
+    private final AtomicInteger size = new AtomicInteger();
+    /** Last consumed node. Only accessed by the consumer. */
+    private Node head;
 
+    private long budget;
+    private volatile int peakSize, lastRunCount;
+    private volatile long lastRunNanos, totalRunCount;
+
+    public TaskQueue(){
+        head = new Node(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * Runs all tasks that were posted before this call. Tasks posted while running are deferred to the next call.
+     * If a time budget is set and exceeded, the remaining tasks are deferred as well.
+     */
     public void run(){
-        synchronized(runnables){
-            executedRunnables.clear();
-            executedRunnables.addAll(runnables);
-            runnables.clear();
-        }
+        Node end = tail.get();
+        if(end == head) return;
+
+        long start = Time.nanos();
+        int count = 0;
+
+        try{
+            while(head != end){
+                Node next = head.next;
+                //a producer has claimed its spot but not linked it yet; pick it up next time
+                if(next == null) break;
+
+                Runnable task = next.task;
+                next.task = null;
+                head = next;
+                size.decrementAndGet();
+                count++;
 
-        for(Runnable runnable : executedRunnables){
-            runnable.run();
+                task.run();
+
+                if(budget > 0 && Time.timeSinceNanos(start) >= budget) break;
+            }
+        }finally{
+            lastRunCount = count;
+            lastRunNanos = Time.timeSinceNanos(start);
+            totalRunCount += count;
         }
     }
 
+    /**
+     * Sets the maximum time that a single {@link #run()} may take before deferring the remaining tasks.
+     * The task that exceeds the budget is not interrupted. 0 (the default) disables the budget.
+     */
+    public void setBudget(long nanos){
+        budget = nanos;
+    }
+
+    /** @return the number of tasks waiting to be run. */
     public int size(){
-        return runnables.size;
+        return size.get();
+    }
+
+    /** @return the highest number of waiting tasks observed since the last {@link #resetPeak()}. */
+    public int peakSize(){
+        return peakSize;
+    }
+
+    public void resetPeak(){
+        peakSize = size.get();
+    }
+
+    /** @return the number of tasks run by the last {@link #run()}. */
+    public int lastRunCount(){
+        return lastRunCount;
+    }
+
+    /** @return the time the last {@link #run()} took, in nanoseconds. */
+    public long lastRunNanos(){
+        return lastRunNanos;
+    }
+
+    /** @return the number of tasks that have been run in total. */
+    public long totalRunCount(){
+        return totalRunCount;
     }
 
     public void clear(){
-        synchronized(runnables){
-            runnables.clear();
+        Node end = tail.get();
+        while(head != end){
+            Node next = head.next;
+            if(next == null) break;
+            next.task = null;
+            head = next;
+            size.decrementAndGet();
         }
     }
 
     public void post(Runnable runnable){
-        synchronized(runnables){
-            runnables.add(runnable);
+        //counted before linking, so that the consumer never sees a negative size
+        int current = size.incrementAndGet();
+        //not atomic; concurrent posts may occasionally under-report the peak
+        if(current > peakSize){
+            peakSize = current;
+        }
+
+        Node node = new Node(runnable);
+        Node prev = tail.getAndSet(node);
+        prev.next = node;
+    }
+
+    static class Node{
+        volatile Node next;
+        Runnable task;
+
+        Node(Runnable task){
+            this.task = task;
         }
     }
 }
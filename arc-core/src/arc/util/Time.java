@@ -4,8 +4,6 @@ import arc.*;
 import arc.struct.*;
 import arc.func.*;
 import arc.util.Timer.*;
-import arc.util.pooling.Pool.*;
-import arc.util.pooling.*;
 
 public class Time{
     /** Conversion factors for ticks to other unit values. */
@@ -20,17 +18,24 @@ public class Time{
 
     private static double timeRaw, globalTimeRaw;
 
-    private static Seq<DelayRun> runs = new Seq<>();
-    private static Seq<DelayRun> removal = new Seq<>();
+    private static final TimingWheel runs = new TimingWheel();
     private static LongSeq marks = new LongSeq();
     private static Floatp deltaimpl = () -> Math.min(Core.graphics.getDeltaTime() * 60f, 3f);
 
-    /** Runs a task with a delay of several ticks. If Time.clear() is called, this task will be cancelled. */
+    /**
+     * Runs a task with a delay of several ticks. If Time.clear() is called, this task will be cancelled.
+     * May be called from any thread; the task is always run on the thread calling {@link #update()}.
+     */
     public static void run(float delay, Runnable r){
-        DelayRun run = Pools.obtain(DelayRun.class, DelayRun::new);
-        run.finish = r;
-        run.delay = delay;
-        runs.add(run);
+        runs.schedule(delay, r);
+    }
+
+    /**
+     * Same as {@link #run(float, Runnable)}, but returns the scheduled task.
+     * @return a handle that can be used to cancel the task before it runs.
+     */
+    public static DelayRun schedule(float delay, Runnable r){
+        return runs.schedule(delay, r);
     }
 
     /** Runs a task with a delay of several ticks. Unless the application is closed, this task will always complete. */
@@ -66,7 +71,6 @@ public class Time{
     /** Use normal delta time (e. g. delta * 60) */
     public static void update(){
         timeRaw += delta;
-        removal.clear();
 
         if(Double.isInfinite(timeRaw) || Double.isNaN(timeRaw)){
             timeRaw = 0;
@@ -75,17 +79,7 @@ public class Time{
         time = (float)timeRaw;
         globalTime = (float)globalTimeRaw;
 
-        for(DelayRun run : runs){
-            run.delay -= delta;
-
-            if(run.delay <= 0){
-                run.finish.run();
-                removal.add(run);
-                Pools.free(run);
-            }
-        }
-
-        runs.removeAll(removal);
+        runs.update(delta);
     }
 
     public static void clear(){
@@ -143,14 +137,26 @@ public class Time{
         return millis() - prevTime;
     }
 
-    public static class DelayRun implements Poolable{
+    /** A task scheduled with {@link #run(float, Runnable)}. Not pooled, as the handle may outlive the task. */
+    public static class DelayRun{
         float delay;
         Runnable finish;
 
-        @Override
-        public void reset(){
-            delay = 0;
-            finish = null;
+        double deadline;
+        long tick;
+        /** Index of the {@link TimingWheel} list this run is in, or -1 if it is not scheduled. */
+        int list = -1;
+        @Nullable DelayRun prev, next;
+        @Nullable TimingWheel wheel;
+
+        /** @return whether this task was still scheduled and has now been cancelled. */
+        public boolean cancel(){
+            return wheel != null && wheel.cancel(this);
+        }
+
+        /** @return whether this task is still waiting to be run. */
+        public boolean scheduled(){
+            return list != -1;
         }
     }
 }
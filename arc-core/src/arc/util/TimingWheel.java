@@ -0,0 +1,203 @@
+package arc.util;
+
+import arc.util.Time.*;
+
+/**
+ * A hierarchical timing wheel for tick-based delays.
+ * Scheduling and cancelling are O(1); each update only touches runs that are about to expire, plus an occasional cascade
+ * of a coarse slot into finer ones. All methods may be called from any thread; runs are always executed by the thread
+ * calling {@link #update(float)}, outside the internal lock.
+ */
+public class TimingWheel{
+    static final int bits = 6, slots = 1 << bits, mask = slots - 1, levels = 4;
+    /** List index of runs whose tick has been reached, but whose fractional deadline may still be in the future. */
+    static final int near = levels * slots;
+    /** List index of runs that are due and waiting to be executed. */
+    static final int expired = near + 1;
+
+    private final DelayRun[] heads = new DelayRun[expired + 1], tails = new DelayRun[expired + 1];
+    /** Current time, in ticks. */
+    private double now;
+    /** Last tick that was processed. */
+    private long tick;
+    /** Total amount of scheduled runs, and amount of runs in the wheel slots specifically. */
+    private int size, wheelSize;
+
+    /** Schedules a runnable to be executed after a delay in ticks. */
+    public DelayRun schedule(float delay, Runnable runnable){
+        DelayRun run = new DelayRun();
+        run.finish = runnable;
+        run.delay = delay;
+        schedule(run);
+        return run;
+    }
+
+    /** Schedules a run that is not currently scheduled. */
+    public void schedule(DelayRun run){
+        synchronized(this){
+            if(run.list != -1){
+                throw new IllegalArgumentException("Run is already scheduled.");
+            }
+
+            run.wheel = this;
+            run.deadline = now + run.delay;
+            run.tick = (long)Math.floor(run.deadline);
+            size++;
+            insert(run);
+        }
+    }
+
+    /** @return whether the run was scheduled and has now been cancelled. Runs that are already executing cannot be cancelled. */
+    public boolean cancel(DelayRun run){
+        synchronized(this){
+            if(run.wheel != this || run.list == -1) return false;
+
+            unlink(run);
+            size--;
+            return true;
+        }
+    }
+
+    /** Advances time and executes every run whose deadline has been reached. */
+    public void update(float delta){
+        synchronized(this){
+            now += delta;
+            long target = (long)Math.floor(now);
+
+            while(tick < target){
+                if(wheelSize == 0){
+                    //nothing left to cascade or expire in the slots, skip directly to the target tick
+                    tick = target;
+                    break;
+                }
+
+                tick++;
+
+                //cascade coarser levels into finer ones whenever a finer level wraps around
+                long t = tick;
+                for(int level = 1; level < levels && (t & mask) == 0; level++){
+                    t >>>= bits;
+                    cascade(level * slots + (int)(t & mask));
+                }
+
+                //runs in the current level 0 slot have reached their tick, so this moves them to the near list
+                cascade((int)(tick & mask));
+            }
+
+            DelayRun run = heads[near];
+            while(run != null){
+                DelayRun next = run.next;
+                if(run.deadline <= now){
+                    unlink(run);
+                    link(run, expired);
+                }
+                run = next;
+            }
+        }
+
+        while(true){
+            DelayRun run;
+            synchronized(this){
+                run = heads[expired];
+                if(run == null) break;
+                unlink(run);
+                size--;
+            }
+            run.finish.run();
+        }
+    }
+
+    /** Cancels every scheduled run. */
+    public void clear(){
+        synchronized(this){
+            for(int i = 0; i < heads.length; i++){
+                DelayRun run = heads[i];
+                while(run != null){
+                    DelayRun next = run.next;
+                    run.next = run.prev = null;
+                    run.list = -1;
+                    run = next;
+                }
+                heads[i] = tails[i] = null;
+            }
+            size = wheelSize = 0;
+        }
+    }
+
+    /** @return the number of runs that are scheduled and have not yet been executed. */
+    public int size(){
+        return size;
+    }
+
+    /** Removes every run in a list and inserts it again relative to the current tick. */
+    private void cascade(int list){
+        DelayRun run = heads[list];
+        heads[list] = tails[list] = null;
+
+        while(run != null){
+            DelayRun next = run.next;
+            run.next = run.prev = null;
+            run.list = -1;
+            wheelSize--;
+            insert(run);
+            run = next;
+        }
+    }
+
+    private void insert(DelayRun run){
+        long diff = run.tick - tick;
+
+        if(diff <= 0){
+            link(run, near);
+            return;
+        }
+
+        int level = 0;
+        while(level < levels - 1 && diff >= (1L << (bits * (level + 1)))){
+            level++;
+        }
+
+        int slot;
+        if(diff >= (1L << (bits * levels))){
+            //beyond the range of the wheel; park in the furthest top-level slot and re-evaluate when it cascades
+            slot = (int)(((tick >>> (bits * level)) + mask) & mask);
+        }else{
+            slot = (int)((run.tick >>> (bits * level)) & mask);
+        }
+
+        link(run, level * slots + slot);
+        wheelSize++;
+    }
+
+    /** Appends to the end of a list, so that runs with equal deadlines execute in the order they were scheduled. */
+    private void link(DelayRun run, int list){
+        DelayRun tail = tails[list];
+        run.list = list;
+        run.next = null;
+        run.prev = tail;
+        if(tail != null){
+            tail.next = run;
+        }else{
+            heads[list] = run;
+        }
+        tails[list] = run;
+    }
+
+    private void unlink(DelayRun run){
+        if(run.prev != null){
+            run.prev.next = run.next;
+        }else{
+            heads[run.list] = run.next;
+        }
+        if(run.next != null){
+            run.next.prev = run.prev;
+        }else{
+            tails[run.list] = run.prev;
+        }
+        if(run.list < near){
+            wheelSize--;
+        }
+        run.next = run.prev = null;
+        run.list = -1;
+    }
+}
@@ -0,0 +1,48 @@
+package arc.util.io;
+
+import java.io.*;
+import java.nio.*;
+
+/** An {@link InputStream} that reads the remaining bytes of a {@link ByteBuffer}, advancing its position. */
+public class ByteBufferInStream extends InputStream{
+    public ByteBuffer buffer;
+
+    public ByteBufferInStream(ByteBuffer buffer){
+        this.buffer = buffer;
+    }
+
+    /** {@link #setBuffer} must be called before this stream can be used. */
+    public ByteBufferInStream(){
+    }
+
+    public void setBuffer(ByteBuffer buffer){
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read(){
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length){
+        if(length == 0) return 0;
+        if(!buffer.hasRemaining()) return -1;
+
+        length = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, length);
+        return length;
+    }
+
+    @Override
+    public long skip(long n){
+        int amount = (int)Math.max(Math.min(n, buffer.remaining()), 0);
+        buffer.position(buffer.position() + amount);
+        return amount;
+    }
+
+    @Override
+    public int available(){
+        return buffer.remaining();
+    }
+}
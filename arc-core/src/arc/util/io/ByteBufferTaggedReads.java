@@ -0,0 +1,133 @@
+package arc.util.io;
+
+import arc.util.*;
+
+import java.nio.*;
+
+/** {@link TaggedReads} that gets values directly from a ByteBuffer instead of going through a DataInput. */
+public class ByteBufferTaggedReads extends TaggedReads{
+    public ByteBuffer buffer;
+
+    public ByteBufferTaggedReads(ByteBuffer buffer){
+        super(new ByteBufferInput(buffer));
+        this.buffer = buffer;
+    }
+
+    /** Replaces the buffer that is read from. The string table is not reset. */
+    public void setBuffer(ByteBuffer buffer){
+        this.buffer = buffer;
+        ((ByteBufferInput)input).buffer = buffer;
+    }
+
+    @Override
+    public int uv(){
+        int result = 0;
+        for(int shift = 0; shift < 35; shift += 7){
+            byte b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if(b >= 0) return result;
+        }
+        throw new ArcRuntimeException("Malformed varint.");
+    }
+
+    @Override
+    public long uvl(){
+        long result = 0;
+        for(int shift = 0; shift < 70; shift += 7){
+            byte b = buffer.get();
+            result |= (long)(b & 0x7F) << shift;
+            if(b >= 0) return result;
+        }
+        throw new ArcRuntimeException("Malformed varint.");
+    }
+
+    @Override
+    public @Nullable String utf(){
+        int length = uv() - 1;
+        if(length < 0) return null;
+        if(buffer.hasArray()){
+            //decode in place without copying to the scratch buffer
+            int position = buffer.position();
+            if(length > buffer.remaining()) throw new BufferUnderflowException();
+            buffer.position(position + length);
+            return new String(buffer.array(), buffer.arrayOffset() + position, length, Strings.utf8);
+        }
+        if(scratch.length < length) scratch = new byte[Math.max(length, scratch.length * 2)];
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, Strings.utf8);
+    }
+
+    @Override
+    public int checkEOF(){
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public long l(){
+        return buffer.getLong();
+    }
+
+    @Override
+    public int i(){
+        return buffer.getInt();
+    }
+
+    @Override
+    public short s(){
+        return buffer.getShort();
+    }
+
+    @Override
+    public int us(){
+        return buffer.getShort() & 0xFFFF;
+    }
+
+    @Override
+    public byte b(){
+        return buffer.get();
+    }
+
+    @Override
+    public byte[] b(int length){
+        byte[] array = new byte[length];
+        buffer.get(array);
+        return array;
+    }
+
+    @Override
+    public byte[] b(byte[] array){
+        buffer.get(array);
+        return array;
+    }
+
+    @Override
+    public byte[] b(byte[] array, int offset, int length){
+        buffer.get(array, offset, length);
+        return array;
+    }
+
+    @Override
+    public int ub(){
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public boolean bool(){
+        return buffer.get() != 0;
+    }
+
+    @Override
+    public float f(){
+        return buffer.getFloat();
+    }
+
+    @Override
+    public double d(){
+        return buffer.getDouble();
+    }
+
+    @Override
+    public void skip(int amount){
+        buffer.position(buffer.position() + amount);
+    }
+}
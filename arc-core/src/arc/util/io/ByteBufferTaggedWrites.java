@@ -0,0 +1,127 @@
+package arc.util.io;
+
+import arc.util.*;
+
+import java.nio.*;
+
+/** {@link TaggedWrites} that puts values directly into a ByteBuffer instead of going through a DataOutput. */
+public class ByteBufferTaggedWrites extends TaggedWrites{
+    public ByteBuffer buffer;
+    /** Whether the buffer is replaced with a larger copy when it runs out of space. Otherwise, a BufferOverflowException is thrown. */
+    public boolean growable;
+
+    /** Creates a growable writer with a heap buffer of the specified initial capacity. */
+    public ByteBufferTaggedWrites(int capacity){
+        this(ByteBuffer.allocate(capacity), true);
+    }
+
+    public ByteBufferTaggedWrites(ByteBuffer buffer){
+        this(buffer, false);
+    }
+
+    public ByteBufferTaggedWrites(ByteBuffer buffer, boolean growable){
+        super(new ByteBufferOutput(buffer));
+        this.buffer = buffer;
+        this.growable = growable;
+    }
+
+    /** Makes sure that at least the specified amount of bytes can be written. */
+    public void ensure(int bytes){
+        if(growable && buffer.remaining() < bytes){
+            ByteBuffer next = buffer.isDirect() ?
+                ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + bytes)) :
+                ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            next.order(buffer.order());
+            buffer.flip();
+            next.put(buffer);
+            buffer = next;
+            ((ByteBufferOutput)output).buffer = next;
+        }
+    }
+
+    @Override
+    public void uv(int value){
+        ensure(5);
+        while((value & ~0x7F) != 0){
+            buffer.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+
+    @Override
+    public void uvl(long value){
+        ensure(10);
+        while((value & ~0x7FL) != 0){
+            buffer.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+
+    @Override
+    public void utf(@Nullable String str){
+        if(str == null){
+            uv(0);
+            return;
+        }
+        int length = encode(str);
+        uv(length + 1);
+        ensure(length);
+        buffer.put(scratch, 0, length);
+    }
+
+    @Override
+    public void l(long i){
+        ensure(8);
+        buffer.putLong(i);
+    }
+
+    @Override
+    public void i(int i){
+        ensure(4);
+        buffer.putInt(i);
+    }
+
+    @Override
+    public void b(int i){
+        ensure(1);
+        buffer.put((byte)i);
+    }
+
+    @Override
+    public void b(byte[] array, int offset, int length){
+        ensure(length);
+        buffer.put(array, offset, length);
+    }
+
+    @Override
+    public void bool(boolean b){
+        ensure(1);
+        buffer.put(b ? (byte)1 : 0);
+    }
+
+    @Override
+    public void s(int i){
+        ensure(2);
+        buffer.putShort((short)i);
+    }
+
+    @Override
+    public void f(float f){
+        ensure(4);
+        buffer.putFloat(f);
+    }
+
+    @Override
+    public void d(double d){
+        ensure(8);
+        buffer.putDouble(d);
+    }
+
+    @Override
+    public void str(String str){
+        ensure(str.length() * 3 + 2);
+        super.str(str);
+    }
+}
@@ -0,0 +1,129 @@
+package arc.util.io;
+
+import arc.struct.*;
+import arc.util.*;
+
+import java.io.*;
+
+import static arc.util.io.TaggedWrites.*;
+
+/**
+ * Reads data written by {@link TaggedWrites}. Fields of a struct are read in a loop until {@link #tag()} returns 0;
+ * unknown tags should be passed to {@link #skipField()}:
+ * <pre>
+ * for(int tag; (tag = read.tag()) != 0;){
+ *     switch(tag){
+ *         case 1: id = read.v(); break;
+ *         case 2: name = read.istr(); break;
+ *         default: read.skipField();
+ *     }
+ * }
+ * </pre>
+ */
+public class TaggedReads extends Reads{
+    /** Strings of the string table, in order of appearance. */
+    protected Seq<String> strings = new Seq<>();
+    /** Scratch buffer for UTF-8 decoding. */
+    protected byte[] scratch = new byte[64];
+    /** Wire type of the last tag that was read. */
+    public int wire;
+
+    public TaggedReads(DataInput input){
+        super(input);
+    }
+
+    /** read unsigned varint */
+    public int uv(){
+        int result = 0;
+        for(int shift = 0; shift < 35; shift += 7){
+            int b = b();
+            result |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) return result;
+        }
+        throw new ArcRuntimeException("Malformed varint.");
+    }
+
+    /** read unsigned varint long */
+    public long uvl(){
+        long result = 0;
+        for(int shift = 0; shift < 70; shift += 7){
+            int b = b();
+            result |= (long)(b & 0x7F) << shift;
+            if((b & 0x80) == 0) return result;
+        }
+        throw new ArcRuntimeException("Malformed varint.");
+    }
+
+    /** read zig-zag varint */
+    public int v(){
+        int value = uv();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** read zig-zag varint long */
+    public long vl(){
+        long value = uvl();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** read length-prefixed UTF-8 string */
+    public @Nullable String utf(){
+        int length = uv() - 1;
+        if(length < 0) return null;
+        if(scratch.length < length) scratch = new byte[Math.max(length, scratch.length * 2)];
+        b(scratch, 0, length);
+        return new String(scratch, 0, length, Strings.utf8);
+    }
+
+    /** read string written with {@link TaggedWrites#istr(String)} */
+    public @Nullable String istr(){
+        int index = uv();
+        if(index == 0) return null;
+        if(index == 1){
+            String str = utf();
+            strings.add(str);
+            return str;
+        }
+        if(index - 2 >= strings.size) throw new ArcRuntimeException("String table index out of bounds: " + (index - 2));
+        return strings.get(index - 2);
+    }
+
+    /** Clears the string table. */
+    public void resetStrings(){
+        strings.clear();
+    }
+
+    /** @return the next field tag, or 0 at the end of a struct. The wire type is stored in {@link #wire}. */
+    public int tag(){
+        int key = uv();
+        wire = key & 7;
+        return key >>> 3;
+    }
+
+    /** Skips the value of the field whose tag was just read. */
+    public void skipField(){
+        switch(wire){
+            case wireVarint: uvl(); break;
+            case wireFixed32: skip(4); break;
+            case wireFixed64: skip(8); break;
+            case wireBytes: skip(Math.max(uv() - 1, 0)); break;
+            //interned strings must still be added to the table
+            case wireString: istr(); break;
+            case wireStruct: skipStruct(); break;
+            default: throw new ArcRuntimeException("Unknown wire type: " + wire);
+        }
+    }
+
+    /** Skips the remaining fields of the current struct, including its end marker. */
+    public void skipStruct(){
+        while(tag() != 0){
+            skipField();
+        }
+    }
+
+    /** read byte array written with {@link TaggedWrites#bytes(int, byte[])} */
+    public @Nullable byte[] bytes(){
+        int length = uv() - 1;
+        return length < 0 ? null : b(length);
+    }
+}
@@ -0,0 +1,223 @@
+package arc.util.io;
+
+import arc.struct.*;
+import arc.util.*;
+
+import java.io.*;
+
+/**
+ * Compact binary writer on top of {@link Writes}. Adds zig-zag varints, length-prefixed UTF-8 strings, an interned string table
+ * and tagged fields. A tagged field is prefixed with <code>(tag << 3) | wire type</code>, which lets {@link TaggedReads#skipField()}
+ * skip fields that an older reader does not know about. Structs are terminated by a zero tag.
+ * <p>
+ * Typical usage:
+ * <pre>
+ * write.v(1, id);
+ * write.istr(2, name);
+ * write.begin(3);
+ * write.f(1, x);
+ * write.end();
+ * write.end();
+ * </pre>
+ */
+public class TaggedWrites extends Writes{
+    public static final int
+        wireVarint = 0,
+        wireFixed32 = 1,
+        wireFixed64 = 2,
+        wireBytes = 3,
+        wireStruct = 4,
+        wireString = 5;
+
+    /** Interned strings that were already written, mapped to their table index. */
+    protected ObjectIntMap<String> strings = new ObjectIntMap<>();
+    /** Scratch buffer for UTF-8 encoding. */
+    protected byte[] scratch = new byte[64];
+
+    public TaggedWrites(DataOutput output){
+        super(output);
+    }
+
+    /** write unsigned varint */
+    public void uv(int value){
+        while((value & ~0x7F) != 0){
+            b((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        b(value);
+    }
+
+    /** write unsigned varint long */
+    public void uvl(long value){
+        while((value & ~0x7FL) != 0){
+            b((int)(value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        b((int)value);
+    }
+
+    /** write zig-zag varint; small negative numbers take as few bytes as small positive ones */
+    public void v(int value){
+        uv((value << 1) ^ (value >> 31));
+    }
+
+    /** write zig-zag varint long */
+    public void vl(long value){
+        uvl((value << 1) ^ (value >> 63));
+    }
+
+    /** write length-prefixed UTF-8 string. Null is allowed. */
+    public void utf(@Nullable String str){
+        if(str == null){
+            uv(0);
+            return;
+        }
+        int length = encode(str);
+        uv(length + 1);
+        b(scratch, 0, length);
+    }
+
+    /**
+     * Writes a string through the string table: the first occurrence is written in full, later ones only as an index.
+     * The reader must see the same sequence of {@link #istr} calls, and both sides have to call resetStrings() at the same points.
+     */
+    public void istr(@Nullable String str){
+        if(str == null){
+            uv(0);
+            return;
+        }
+        int index = strings.get(str, -1);
+        if(index != -1){
+            uv(index + 2);
+        }else{
+            strings.put(str, strings.size);
+            uv(1);
+            utf(str);
+        }
+    }
+
+    /** Clears the string table. */
+    public void resetStrings(){
+        strings.clear();
+    }
+
+    /** write field header */
+    public void tag(int tag, int wire){
+        if(tag <= 0) throw new IllegalArgumentException("Tags must be positive: " + tag);
+        uv((tag << 3) | wire);
+    }
+
+    /** write tagged zig-zag varint */
+    public void v(int tag, int value){
+        tag(tag, wireVarint);
+        v(value);
+    }
+
+    /** write tagged zig-zag varint long */
+    public void vl(int tag, long value){
+        tag(tag, wireVarint);
+        vl(value);
+    }
+
+    /** write tagged boolean */
+    public void bool(int tag, boolean value){
+        tag(tag, wireVarint);
+        b(value ? 1 : 0);
+    }
+
+    /** write tagged fixed int */
+    public void i(int tag, int value){
+        tag(tag, wireFixed32);
+        i(value);
+    }
+
+    /** write tagged fixed long */
+    public void l(int tag, long value){
+        tag(tag, wireFixed64);
+        l(value);
+    }
+
+    /** write tagged float */
+    public void f(int tag, float value){
+        tag(tag, wireFixed32);
+        f(value);
+    }
+
+    /** write tagged double */
+    public void d(int tag, double value){
+        tag(tag, wireFixed64);
+        d(value);
+    }
+
+    /** write tagged byte array. Like strings, the length is stored as length + 1, with 0 meaning null. */
+    public void bytes(int tag, byte[] array, int offset, int length){
+        tag(tag, wireBytes);
+        uv(length + 1);
+        b(array, offset, length);
+    }
+
+    /** write tagged byte array. Null is allowed. */
+    public void bytes(int tag, @Nullable byte[] array){
+        if(array == null){
+            tag(tag, wireBytes);
+            uv(0);
+        }else{
+            bytes(tag, array, 0, array.length);
+        }
+    }
+
+    /** write tagged UTF-8 string */
+    public void utf(int tag, @Nullable String str){
+        tag(tag, wireBytes);
+        utf(str);
+    }
+
+    /** write tagged string through the string table */
+    public void istr(int tag, @Nullable String str){
+        tag(tag, wireString);
+        istr(str);
+    }
+
+    /** Begins a nested struct. Must be closed with {@link #end()}. */
+    public void begin(int tag){
+        tag(tag, wireStruct);
+    }
+
+    /** Ends the current struct, or the top-level message. */
+    public void end(){
+        b(0);
+    }
+
+    /** Encodes a string into {@link #scratch}. Unpaired surrogates are replaced with '?', like {@link String#getBytes}. */
+    protected int encode(String str){
+        int length = str.length();
+        if(scratch.length < length * 3) scratch = new byte[Math.max(length * 3, scratch.length * 2)];
+        byte[] out = scratch;
+        int count = 0;
+
+        for(int i = 0; i < length; i++){
+            char c = str.charAt(i);
+            if(c < 0x80){
+                out[count++] = (byte)c;
+            }else if(c < 0x800){
+                out[count++] = (byte)(0xC0 | (c >> 6));
+                out[count++] = (byte)(0x80 | (c & 0x3F));
+            }else if(Character.isSurrogate(c)){
+                if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(str.charAt(i + 1))){
+                    int code = Character.toCodePoint(c, str.charAt(++i));
+                    out[count++] = (byte)(0xF0 | (code >> 18));
+                    out[count++] = (byte)(0x80 | ((code >> 12) & 0x3F));
+                    out[count++] = (byte)(0x80 | ((code >> 6) & 0x3F));
+                    out[count++] = (byte)(0x80 | (code & 0x3F));
+                }else{
+                    out[count++] = '?';
+                }
+            }else{
+                out[count++] = (byte)(0xE0 | (c >> 12));
+                out[count++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                out[count++] = (byte)(0x80 | (c & 0x3F));
+            }
+        }
+        return count;
+    }
+}
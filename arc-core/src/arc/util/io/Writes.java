@@ -47,7 +47,7 @@ public class Writes implements Closeable{
     /** write bytes */
     public void b(byte[] array, int offset, int length){
         try{
-            output.write(array, 0, length);
+            output.write(array, offset, length);
         }catch(IOException e){
             throw new RuntimeException(e);
         }
@@ -0,0 +1,283 @@
+package arc.util.pooling;
+
+import arc.struct.*;
+
+import java.lang.ref.*;
+
+/**
+ * A thread-safe pool that keeps a small cache of free objects (a magazine) per thread, backed by a shared overflow stack.
+ * Most obtain and free calls only touch the calling thread's magazine; the shared stack is locked once per half magazine
+ * when a thread runs out of objects or has too many.
+ * <p>
+ * {@link #max} limits the size of the shared stack; each thread may additionally hold up to one magazine of objects.
+ * Statistics are aggregated from all threads when read, and are therefore approximate while other threads are active.
+ * <p>
+ * Magazines of threads that have terminated are pruned whenever the shared stack is used, returning their objects to it.
+ * @see Pools
+ */
+@SuppressWarnings("unchecked")
+abstract public class ConcurrentPool<T> extends Pool<T>{
+    /** Default number of free objects cached per thread. */
+    public static final int defaultMagazineSize = 64;
+
+    private final int magazineSize;
+    private final Object lock = new Object();
+    /** Shared overflow stack. Guarded by {@link #lock}. */
+    private Object[] shared = new Object[16];
+    private int sharedSize;
+    /** Magazines of every live thread that has used this pool. Guarded by {@link #lock}. */
+    private final Seq<Magazine> magazines = new Seq<>(false, 4, Magazine.class);
+    /** Statistics of pruned magazines. Guarded by {@link #lock}. */
+    private final Magazine retired = new Magazine(null, 0, 0);
+    /** Incremented by {@link #clear()}; magazines with an older generation are emptied on their next use. */
+    private volatile int generation;
+
+    private final ThreadLocal<Magazine> local = new ThreadLocal<Magazine>(){
+        @Override
+        protected Magazine initialValue(){
+            Magazine mag = new Magazine(Thread.currentThread(), magazineSize, generation);
+            synchronized(lock){
+                magazines.add(mag);
+            }
+            return mag;
+        }
+    };
+    /** The magazine of the first thread to use this pool, which is usually the main thread. Avoids the ThreadLocal lookup. */
+    private volatile Magazine first;
+
+    public ConcurrentPool(){
+        this(Integer.MAX_VALUE);
+    }
+
+    /** @param max The maximum number of free objects to store in the shared stack of this pool. */
+    public ConcurrentPool(int max){
+        this(max, defaultMagazineSize);
+    }
+
+    /**
+     * @param max The maximum number of free objects to store in the shared stack of this pool.
+     * @param magazineSize The maximum number of free objects cached by each thread.
+     */
+    public ConcurrentPool(int max, int magazineSize){
+        super(0, max);
+        this.magazineSize = Math.max(Math.min(magazineSize, max), 2);
+    }
+
+    @Override
+    public T obtain(){
+        Magazine mag = magazine();
+        mag.obtained++;
+
+        if(mag.size == 0){
+            refill(mag);
+            if(mag.size == 0){
+                mag.missed++;
+                return newObject();
+            }
+        }
+
+        T item = (T)mag.items[--mag.size];
+        mag.items[mag.size] = null;
+        return item;
+    }
+
+    @Override
+    public void free(T object){
+        if(object == null) throw new IllegalArgumentException("object cannot be null.");
+        Magazine mag = magazine();
+        mag.freed++;
+        reset(object);
+
+        if(mag.size == mag.items.length){
+            spill(mag);
+        }
+        mag.items[mag.size++] = object;
+    }
+
+    @Override
+    public void freeAll(Seq<T> objects){
+        if(objects == null) throw new IllegalArgumentException("objects cannot be null.");
+        for(int i = 0; i < objects.size; i++){
+            T object = objects.get(i);
+            if(object != null) free(object);
+        }
+    }
+
+    /** Removes all free objects from this pool. Magazines of other threads are emptied the next time they are used. */
+    @Override
+    public void clear(){
+        synchronized(lock){
+            generation++;
+            for(int i = 0; i < sharedSize; i++){
+                shared[i] = null;
+            }
+            sharedSize = 0;
+            prune();
+        }
+        magazine();
+    }
+
+    @Override
+    public int getFree(){
+        synchronized(lock){
+            int total = sharedSize;
+            for(Magazine mag : magazines){
+                if(mag.generation == generation) total += mag.size;
+            }
+            return total;
+        }
+    }
+
+    @Override
+    public long getObtained(){
+        synchronized(lock){
+            long total = retired.obtained;
+            for(Magazine mag : magazines) total += mag.obtained;
+            return total;
+        }
+    }
+
+    @Override
+    public long getFreed(){
+        synchronized(lock){
+            long total = retired.freed;
+            for(Magazine mag : magazines) total += mag.freed;
+            return total;
+        }
+    }
+
+    @Override
+    public long getMissed(){
+        synchronized(lock){
+            long total = retired.missed;
+            for(Magazine mag : magazines) total += mag.missed;
+            return total;
+        }
+    }
+
+    @Override
+    public long getDropped(){
+        synchronized(lock){
+            long total = retired.dropped;
+            for(Magazine mag : magazines) total += mag.dropped;
+            return total;
+        }
+    }
+
+    /** Resets the statistics of every thread. Counts from threads that are using this pool concurrently may be lost. */
+    @Override
+    public void resetStats(){
+        synchronized(lock){
+            for(Magazine mag : magazines){
+                mag.obtained = mag.freed = mag.missed = mag.dropped = 0;
+            }
+            retired.obtained = retired.freed = retired.missed = retired.dropped = 0;
+            peak = 0;
+        }
+    }
+
+    private Magazine magazine(){
+        Magazine mag = first;
+        if(mag == null || mag.thread.get() != Thread.currentThread()){
+            mag = local.get();
+            if(first == null){
+                first = mag;
+            }
+        }
+
+        if(mag.generation != generation){
+            for(int i = 0; i < mag.size; i++){
+                mag.items[i] = null;
+            }
+            mag.size = 0;
+            mag.generation = generation;
+        }
+        return mag;
+    }
+
+    /** Moves up to half a magazine of objects from the shared stack into an empty magazine. */
+    private void refill(Magazine mag){
+        synchronized(lock){
+            prune();
+            int amount = Math.min(sharedSize, mag.items.length / 2);
+            sharedSize -= amount;
+            System.arraycopy(shared, sharedSize, mag.items, 0, amount);
+            for(int i = sharedSize; i < sharedSize + amount; i++){
+                shared[i] = null;
+            }
+            mag.size = amount;
+        }
+    }
+
+    /** Moves the older half of a full magazine into the shared stack, dropping whatever does not fit. */
+    private void spill(Magazine mag){
+        int amount = mag.items.length / 2;
+
+        synchronized(lock){
+            prune();
+            push(mag, 0, amount);
+        }
+
+        System.arraycopy(mag.items, amount, mag.items, 0, mag.size - amount);
+        for(int i = mag.size - amount; i < mag.size; i++){
+            mag.items[i] = null;
+        }
+        mag.size -= amount;
+    }
+
+    /** Moves objects from a magazine into the shared stack, counting the ones that do not fit as dropped. Requires {@link #lock}. */
+    private void push(Magazine mag, int offset, int amount){
+        int accepted = (int)Math.min(amount, (long)max - sharedSize);
+        if(sharedSize + accepted > shared.length){
+            Object[] next = new Object[Math.max(sharedSize + accepted, shared.length * 2)];
+            System.arraycopy(shared, 0, next, 0, sharedSize);
+            shared = next;
+        }
+
+        System.arraycopy(mag.items, offset, shared, sharedSize, accepted);
+        sharedSize += accepted;
+        mag.dropped += amount - accepted;
+        peak = Math.max(peak, sharedSize);
+    }
+
+    /**
+     * Removes the magazines of terminated threads, returning their objects to the shared stack and keeping their statistics.
+     * A terminated thread can no longer touch its magazine, so it is safe to read here. Requires {@link #lock}.
+     */
+    private void prune(){
+        for(int i = magazines.size - 1; i >= 0; i--){
+            Magazine mag = magazines.items[i];
+            Thread thread = mag.thread.get();
+            if(thread != null && thread.isAlive()) continue;
+
+            if(mag.generation == generation){
+                push(mag, 0, mag.size);
+            }
+            for(int j = 0; j < mag.size; j++){
+                mag.items[j] = null;
+            }
+            mag.size = 0;
+
+            retired.obtained += mag.obtained;
+            retired.freed += mag.freed;
+            retired.missed += mag.missed;
+            retired.dropped += mag.dropped;
+            magazines.remove(i);
+            if(first == mag) first = null;
+        }
+    }
+
+    static class Magazine{
+        /** Held weakly, so that a terminated thread is not kept alive by pools it has used. */
+        final WeakReference<Thread> thread;
+        final Object[] items;
+        int size, generation;
+        long obtained, freed, missed, dropped;
+
+        Magazine(Thread thread, int capacity, int generation){
+            this.thread = new WeakReference<>(thread);
+            this.items = new Object[capacity];
+            this.generation = generation;
+        }
+    }
+}
@@ -14,6 +14,8 @@ abstract public class Pool<T>{
     /** The highest number of free objects. Can be reset any time. */
     public int peak;
 
+    private long obtained, freed, missed, dropped;
+
     /** Creates a pool with an initial capacity of 16 and no maximum. */
     public Pool(){
         this(16, Integer.MAX_VALUE);
@@ -37,7 +39,12 @@ abstract public class Pool<T>{
      * {@link #free(Object) freed}).
      */
     public T obtain(){
-        return freeObjects.size == 0 ? newObject() : freeObjects.pop();
+        obtained++;
+        if(freeObjects.size == 0){
+            missed++;
+            return newObject();
+        }
+        return freeObjects.pop();
     }
 
     /**
@@ -48,9 +55,12 @@ abstract public class Pool<T>{
      */
     public void free(T object){
         if(object == null) throw new IllegalArgumentException("object cannot be null.");
+        freed++;
         if(freeObjects.size < max){
             freeObjects.add(object);
             peak = Math.max(peak, freeObjects.size);
+        }else{
+            dropped++;
         }
         reset(object);
     }
@@ -76,7 +86,12 @@ abstract public class Pool<T>{
         for(int i = 0; i < objects.size; i++){
             T object = objects.get(i);
             if(object == null) continue;
-            if(freeObjects.size < max) freeObjects.add(object);
+            freed++;
+            if(freeObjects.size < max){
+                freeObjects.add(object);
+            }else{
+                dropped++;
+            }
             reset(object);
         }
         peak = Math.max(peak, freeObjects.size);
@@ -92,6 +107,32 @@ abstract public class Pool<T>{
         return freeObjects.size;
     }
 
+    /** @return the number of times {@link #obtain()} was called. */
+    public long getObtained(){
+        return obtained;
+    }
+
+    /** @return the number of objects passed to {@link #free(Object)} or {@link #freeAll(Seq)}. */
+    public long getFreed(){
+        return freed;
+    }
+
+    /** @return the number of times {@link #obtain()} had to create a new object. */
+    public long getMissed(){
+        return missed;
+    }
+
+    /** @return the number of freed objects that were discarded because the pool already held {@link #max} objects. */
+    public long getDropped(){
+        return dropped;
+    }
+
+    /** Resets the obtained, freed, missed and dropped counters, as well as {@link #peak}. */
+    public void resetStats(){
+        obtained = freed = missed = dropped = 0;
+        peak = 0;
+    }
+
     /** Objects implementing this interface will have {@link #reset()} called when passed to {@link Pool#free(Object)}. */
     public interface Poolable{
         /** Resets the object for reuse. Object references should be nulled and fields may be set to default values. */
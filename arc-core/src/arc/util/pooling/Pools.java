@@ -2,15 +2,19 @@ package arc.util.pooling;
 
 import arc.struct.Seq;
 import arc.struct.ObjectMap;
+import arc.func.Cons2;
 import arc.func.Prov;
 
 /**
  * Stores a map of {@link Pool}s by type for convenient static access.
+ * All methods are thread-safe. Pools created by this class are {@link ConcurrentPool}s; pools of other types
+ * registered through {@link #set(Class, Pool)} are locked on every obtain and free.
  * @author Nathan Sweet
  */
 @SuppressWarnings("unchecked")
 public class Pools{
-    private static final ObjectMap<Class, Pool> typePools = new ObjectMap<>();
+    /** Copy-on-write map of pools, replaced while synchronized on {@link Pools}. */
+    private static volatile ObjectMap<Class, Pool> typePools = new ObjectMap<>();
 
     private Pools(){
     }
@@ -22,13 +26,18 @@ public class Pools{
     public static <T> Pool<T> get(Class<T> type, Prov<T> supplier, int max){
         Pool<T> pool = typePools.get(type);
         if(pool == null){
-            pool = new Pool<T>(4, max){
-                @Override
-                protected T newObject(){
-                    return supplier.get();
+            synchronized(Pools.class){
+                pool = typePools.get(type);
+                if(pool == null){
+                    pool = new ConcurrentPool<T>(max){
+                        @Override
+                        protected T newObject(){
+                            return supplier.get();
+                        }
+                    };
+                    put(type, pool);
                 }
-            };
-            typePools.put(type, pool);
+            }
         }
         return pool;
     }
@@ -43,20 +52,34 @@ public class Pools{
 
     /** Sets an existing pool for the specified type, stored in a Class to {@link Pool} map. */
     public static <T> void set(Class<T> type, Pool<T> pool){
-        typePools.put(type, pool);
+        synchronized(Pools.class){
+            put(type, pool);
+        }
+    }
+
+    /** Iterates over every registered pool, e.g. to log its statistics. */
+    public static void each(Cons2<Class, Pool> cons){
+        for(ObjectMap.Entry<Class, Pool> entry : new ObjectMap.Entries<>(typePools)){
+            cons.get(entry.key, entry.value);
+        }
     }
 
     /** Obtains an object from the {@link #get(Class, Prov) pool}. */
-    public static synchronized <T> T obtain(Class<T> type, Prov<T> supplier){
-        return get(type, supplier).obtain();
+    public static <T> T obtain(Class<T> type, Prov<T> supplier){
+        Pool<T> pool = get(type, supplier);
+        if(pool instanceof ConcurrentPool) return pool.obtain();
+
+        synchronized(pool){
+            return pool.obtain();
+        }
     }
 
     /** Frees an object from the {@link #get(Class, Prov) pool}. */
-    public static synchronized void free(Object object){
+    public static void free(Object object){
         if(object == null) throw new IllegalArgumentException("Object cannot be null.");
         Pool pool = typePools.get(object.getClass());
         if(pool == null) return; // Ignore freeing an object that was never retained.
-        pool.free(object);
+        free(pool, object);
     }
 
     /**
@@ -81,8 +104,24 @@ public class Pools{
                 pool = typePools.get(object.getClass());
                 if(pool == null) continue; // Ignore freeing an object that was never retained.
             }
-            pool.free(object);
+            free(pool, object);
             if(!samePool) pool = null;
         }
     }
+
+    private static void free(Pool pool, Object object){
+        if(pool instanceof ConcurrentPool){
+            pool.free(object);
+        }else{
+            synchronized(pool){
+                pool.free(object);
+            }
+        }
+    }
+
+    private static void put(Class type, Pool pool){
+        ObjectMap<Class, Pool> map = new ObjectMap<>(typePools);
+        map.put(type, pool);
+        typePools = map;
+    }
 }
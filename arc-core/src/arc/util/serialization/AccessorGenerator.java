@@ -0,0 +1,238 @@
+package arc.util.serialization;
+
+import arc.struct.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+
+/**
+ * Creates a {@link FieldAccessor} class per field, which reads and writes the field with plain field instructions instead of reflection.
+ * Only public, non-final fields of public classes can be accessed that way. Other fields, and all fields on platforms that can't
+ * define classes from bytecode (Android), get a {@link FieldAccessor#reflection} accessor instead.
+ */
+class AccessorGenerator implements FieldAccessor.Factory{
+    private static final String superName = "arc/util/serialization/FieldAccessor";
+    private static final Class[] primitives = {int.class, long.class, float.class, double.class, boolean.class, byte.class, short.class, char.class};
+    private static final String[] names = {"int", "long", "float", "double", "boolean", "byte", "short", "char"};
+    private static final String[] descriptors = {"I", "J", "F", "D", "Z", "B", "S", "C"};
+    private static final String[] wrappers = {"java/lang/Integer", "java/lang/Long", "java/lang/Float", "java/lang/Double", "java/lang/Boolean", "java/lang/Byte", "java/lang/Short", "java/lang/Character"};
+    /** Opcodes of xload_2 and xreturn for each primitive type. */
+    private static final int[] loads = {0x1c, 0x20, 0x24, 0x28, 0x1c, 0x1c, 0x1c, 0x1c}, returns = {0xac, 0xad, 0xae, 0xaf, 0xac, 0xac, 0xac, 0xac};
+    /** Primitive types that have typed getters and setters in {@link FieldAccessor}. */
+    private static final int typedCount = 5;
+
+    private final ObjectMap<ClassLoader, Loader> loaders = new ObjectMap<>();
+    private boolean unsupported;
+    private int lastId;
+
+    @Override
+    public synchronized FieldAccessor create(Field field){
+        if(unsupported || !canGenerate(field)) return FieldAccessor.reflection.create(field);
+
+        try{
+            ClassLoader parent = field.getDeclaringClass().getClassLoader();
+            Loader loader = loaders.get(parent);
+            if(loader == null) loaders.put(parent, loader = new Loader(parent));
+
+            String name = "arc/util/serialization/GeneratedAccessor" + (++lastId);
+            byte[] bytes = write(name, field);
+            return (FieldAccessor)loader.define(name.replace('/', '.'), bytes).getConstructor(Field.class).newInstance(field);
+        }catch(UnsupportedOperationException e){
+            //Android class loaders don't accept JVM bytecode
+            unsupported = true;
+            return FieldAccessor.reflection.create(field);
+        }catch(Exception | LinkageError e){
+            return FieldAccessor.reflection.create(field);
+        }
+    }
+
+    /** @return whether generated code can access this field, without relying on {@link Field#setAccessible(boolean)}. */
+    static boolean canGenerate(Field field){
+        Class owner = field.getDeclaringClass(), type = field.getType();
+        while(type.isArray()) type = type.getComponentType();
+        int modifiers = field.getModifiers();
+
+        //classes of the bootstrap loader can't be linked against from another loader reliably, and aren't worth it
+        return owner.getClassLoader() != null && Modifier.isPublic(owner.getModifiers())
+        && Modifier.isPublic(modifiers) && !Modifier.isFinal(modifiers) && !Modifier.isStatic(modifiers)
+        && (type.isPrimitive() || Modifier.isPublic(type.getModifiers()));
+    }
+
+    static byte[] write(String name, Field field) throws IOException{
+        Pool pool = new Pool();
+        String owner = internalName(field.getDeclaringClass());
+        Class type = field.getType();
+        int primitive = -1;
+        for(int i = 0; i < primitives.length; i++){
+            if(primitives[i] == type) primitive = i;
+        }
+        String descriptor = primitive >= 0 ? descriptors[primitive] : type.isArray() ? internalName(type) : "L" + internalName(type) + ";";
+        int fieldRef = pool.member(9, owner, field.getName(), descriptor), ownerRef = pool.type(owner);
+
+        ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+        DataOutputStream methods = new DataOutputStream(methodBytes);
+        int methodCount = 0;
+
+        Code code = new Code();
+        code.op(0x2a).op(0x2b).op(0xb7, pool.member(10, superName, "<init>", "(Ljava/lang/reflect/Field;)V")).op(0xb1);
+        method(methods, pool, "<init>", "(Ljava/lang/reflect/Field;)V", code);
+        methodCount++;
+
+        //get: box primitives with valueOf
+        code = new Code();
+        code.op(0x2b).op(0xc0, ownerRef).op(0xb4, fieldRef);
+        if(primitive >= 0){
+            code.op(0xb8, pool.member(10, wrappers[primitive], "valueOf", "(" + descriptor + ")L" + wrappers[primitive] + ";"));
+        }
+        code.op(0xb0);
+        method(methods, pool, "get", "(Ljava/lang/Object;)Ljava/lang/Object;", code);
+        methodCount++;
+
+        //set: unbox primitives through Number, Boolean or Character, so that any boxed number can be set
+        code = new Code();
+        code.op(0x2b).op(0xc0, ownerRef).op(0x2c);
+        if(primitive >= 0){
+            String unboxed = type == boolean.class ? "java/lang/Boolean" : type == char.class ? "java/lang/Character" : "java/lang/Number";
+            code.op(0xc0, pool.type(unboxed)).op(0xb6, pool.member(10, unboxed, names[primitive] + "Value", "()" + descriptor));
+        }else if(type != Object.class){
+            code.op(0xc0, pool.type(internalName(type)));
+        }
+        code.op(0xb5, fieldRef).op(0xb1);
+        method(methods, pool, "set", "(Ljava/lang/Object;Ljava/lang/Object;)V", code);
+        methodCount++;
+
+        if(primitive >= 0 && primitive < typedCount){
+            String suffix = Character.toUpperCase(names[primitive].charAt(0)) + names[primitive].substring(1);
+
+            code = new Code();
+            code.op(0x2b).op(0xc0, ownerRef).op(0xb4, fieldRef).op(returns[primitive]);
+            method(methods, pool, "get" + suffix, "(Ljava/lang/Object;)" + descriptor, code);
+
+            code = new Code();
+            code.op(0x2b).op(0xc0, ownerRef).op(loads[primitive]).op(0xb5, fieldRef).op(0xb1);
+            method(methods, pool, "set" + suffix, "(Ljava/lang/Object;" + descriptor + ")V", code);
+            methodCount += 2;
+        }
+
+        int thisRef = pool.type(name), superRef = pool.type(superName);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        //Java 8; no method branches, so no stack map frames are needed
+        out.writeShort(0);
+        out.writeShort(52);
+        out.writeShort(pool.size);
+        pool.bytes.writeTo(out);
+        //public final super
+        out.writeShort(0x0031);
+        out.writeShort(thisRef);
+        out.writeShort(superRef);
+        out.writeShort(0);
+        out.writeShort(0);
+        out.writeShort(methodCount);
+        methodBytes.writeTo(out);
+        out.writeShort(0);
+        return bytes.toByteArray();
+    }
+
+    static void method(DataOutputStream out, Pool pool, String name, String descriptor, Code code) throws IOException{
+        out.writeShort(0x0001);
+        out.writeShort(pool.utf(name));
+        out.writeShort(pool.utf(descriptor));
+        out.writeShort(1);
+        out.writeShort(pool.utf("Code"));
+        out.writeInt(12 + code.bytes.size());
+        //the largest method is setLong/setDouble: this, object and a two slot value
+        out.writeShort(4);
+        out.writeShort(4);
+        out.writeInt(code.bytes.size());
+        code.bytes.writeTo(out);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    static String internalName(Class type){
+        return type.getName().replace('.', '/');
+    }
+
+    /** The constant pool of a class file. */
+    static class Pool{
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final ObjectIntMap<String> indices = new ObjectIntMap<>();
+        int size = 1;
+
+        int utf(String value) throws IOException{
+            String key = "u" + value;
+            int index = indices.get(key, -1);
+            if(index != -1) return index;
+            out.writeByte(1);
+            out.writeUTF(value);
+            indices.put(key, size);
+            return size++;
+        }
+
+        int type(String internalName) throws IOException{
+            String key = "c" + internalName;
+            int index = indices.get(key, -1);
+            if(index != -1) return index;
+            int nameIndex = utf(internalName);
+            out.writeByte(7);
+            out.writeShort(nameIndex);
+            indices.put(key, size);
+            return size++;
+        }
+
+        /** @param tag 9 for a field, 10 for a method. */
+        int member(int tag, String owner, String name, String descriptor) throws IOException{
+            String key = tag + owner + "." + name + ":" + descriptor;
+            int index = indices.get(key, -1);
+            if(index != -1) return index;
+            int ownerIndex = type(owner), nameIndex = utf(name), descriptorIndex = utf(descriptor);
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            int nameType = size++;
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameType);
+            indices.put(key, size);
+            return size++;
+        }
+    }
+
+    static class Code{
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Code op(int opcode){
+            bytes.write(opcode);
+            return this;
+        }
+
+        /** Writes an opcode with a constant pool index. */
+        Code op(int opcode, int index){
+            bytes.write(opcode);
+            bytes.write(index >> 8);
+            bytes.write(index);
+            return this;
+        }
+    }
+
+    static class Loader extends ClassLoader{
+        Loader(ClassLoader parent){
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException{
+            //the loader of the serialized class may not see Arc itself
+            if(name.equals(FieldAccessor.class.getName())) return FieldAccessor.class;
+            return super.loadClass(name, resolve);
+        }
+
+        Class<?> define(String name, byte[] bytes){
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
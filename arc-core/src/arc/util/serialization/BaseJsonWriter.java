@@ -17,6 +17,27 @@ public interface BaseJsonWriter extends Closeable{
 
     BaseJsonWriter value(Object value) throws IOException;
 
+    /** Writes a primitive value. The defaults box it and call {@link #value(Object)}; writers override them to avoid that. */
+    default BaseJsonWriter value(int value) throws IOException{
+        return value((Object)value);
+    }
+
+    default BaseJsonWriter value(long value) throws IOException{
+        return value((Object)value);
+    }
+
+    default BaseJsonWriter value(float value) throws IOException{
+        return value((Object)value);
+    }
+
+    default BaseJsonWriter value(double value) throws IOException{
+        return value((Object)value);
+    }
+
+    default BaseJsonWriter value(boolean value) throws IOException{
+        return value((Object)value);
+    }
+
     BaseJsonWriter object(String name) throws IOException;
 
     BaseJsonWriter array(String name) throws IOException;
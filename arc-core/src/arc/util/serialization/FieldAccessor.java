@@ -0,0 +1,201 @@
+package arc.util.serialization;
+
+import java.lang.reflect.*;
+
+/**
+ * Reads and writes one field of a class. {@link Json} creates one accessor per serialized field through a {@link Factory}.
+ * The primitive getters and setters avoid boxing when the field has that exact type; otherwise they convert through {@link #get}
+ * and {@link #set}.
+ * <p>
+ * {@link #reflection} is used by default, as it works on every platform. Desktop and headless backends install {@link #generated}
+ * as {@link Json#defaultAccessorFactory}; other accessors can be plugged in with {@link Json#setAccessorFactory(Factory)}.
+ */
+public abstract class FieldAccessor{
+    /** Accessors that use {@link Field#get} and {@link Field#set}, and the typed variants of those for primitive fields. */
+    public static final Factory reflection = ReflectAccessor::new;
+    /**
+     * Accessors of generated classes that access public fields directly, without reflection or boxing. Falls back to {@link #reflection}
+     * for other fields and on platforms that can't load generated classes.
+     */
+    public static final Factory generated = new AccessorGenerator();
+
+    public final Field field;
+    /** The declared type of the field. */
+    public final Class type;
+
+    protected FieldAccessor(Field field){
+        this.field = field;
+        this.type = field.getType();
+    }
+
+    public abstract Object get(Object object);
+
+    public abstract void set(Object object, Object value);
+
+    public int getInt(Object object){
+        return ((Number)get(object)).intValue();
+    }
+
+    public void setInt(Object object, int value){
+        set(object, value);
+    }
+
+    public long getLong(Object object){
+        return ((Number)get(object)).longValue();
+    }
+
+    public void setLong(Object object, long value){
+        set(object, value);
+    }
+
+    public float getFloat(Object object){
+        return ((Number)get(object)).floatValue();
+    }
+
+    public void setFloat(Object object, float value){
+        set(object, value);
+    }
+
+    public double getDouble(Object object){
+        return ((Number)get(object)).doubleValue();
+    }
+
+    public void setDouble(Object object, double value){
+        set(object, value);
+    }
+
+    public boolean getBoolean(Object object){
+        return (Boolean)get(object);
+    }
+
+    public void setBoolean(Object object, boolean value){
+        set(object, value);
+    }
+
+    protected SerializationException error(Throwable cause){
+        return new SerializationException("Error accessing field: " + field.getName() + " (" + field.getDeclaringClass().getName() + ")", cause);
+    }
+
+    public interface Factory{
+        FieldAccessor create(Field field);
+    }
+
+    static class ReflectAccessor extends FieldAccessor{
+        ReflectAccessor(Field field){
+            super(field);
+        }
+
+        @Override
+        public Object get(Object object){
+            try{
+                return field.get(object);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public void set(Object object, Object value){
+            try{
+                field.set(object, value);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public int getInt(Object object){
+            try{
+                return type == int.class ? field.getInt(object) : super.getInt(object);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public void setInt(Object object, int value){
+            try{
+                if(type == int.class) field.setInt(object, value);
+                else super.setInt(object, value);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public float getFloat(Object object){
+            try{
+                return type == float.class ? field.getFloat(object) : super.getFloat(object);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public void setFloat(Object object, float value){
+            try{
+                if(type == float.class) field.setFloat(object, value);
+                else super.setFloat(object, value);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public long getLong(Object object){
+            try{
+                return type == long.class ? field.getLong(object) : super.getLong(object);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public void setLong(Object object, long value){
+            try{
+                if(type == long.class) field.setLong(object, value);
+                else super.setLong(object, value);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public double getDouble(Object object){
+            try{
+                return type == double.class ? field.getDouble(object) : super.getDouble(object);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public void setDouble(Object object, double value){
+            try{
+                if(type == double.class) field.setDouble(object, value);
+                else super.setDouble(object, value);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public boolean getBoolean(Object object){
+            try{
+                return type == boolean.class ? field.getBoolean(object) : super.getBoolean(object);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public void setBoolean(Object object, boolean value){
+            try{
+                if(type == boolean.class) field.setBoolean(object, value);
+                else super.setBoolean(object, value);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+    }
+}
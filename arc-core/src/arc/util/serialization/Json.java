@@ -24,6 +24,9 @@ import java.util.*;
 @SuppressWarnings("unchecked")
 public class Json{
     private static final boolean debug = false;
+
+    /** Creates the field accessors of Json instances that don't set their own. Default is {@link FieldAccessor#reflection}. */
+    public static FieldAccessor.Factory defaultAccessorFactory = FieldAccessor.reflection;
     private final ObjectMap<Class, OrderedMap<String, FieldMetadata>> typeToFields = new ObjectMap();
     private final ObjectMap<String, Class> tagToClass = new ObjectMap();
     private final ObjectMap<Class, String> classToTag = new ObjectMap();
@@ -40,6 +43,8 @@ public class Json{
     private boolean readDeprecated;
     private boolean enumNames = true;
     private Serializer defaultSerializer;
+    private boolean streamReads;
+    private @Nullable FieldAccessor.Factory accessorFactory;
 
     public Json(){
         outputType = OutputType.minimal;
@@ -49,6 +54,25 @@ public class Json{
         this.outputType = outputType;
     }
 
+    /**
+     * When true, the fromJson methods deserialize directly from a {@link JsonPullParser} instead of parsing a {@link JsonValue}
+     * tree first. Values handled by {@link Serializer}s, {@link JsonSerializable}s or untyped objects are still read as trees.
+     * <p>
+     * Streaming reads only honor the {@link #setTypeName(String) type name} when it is the first key of an object, as written
+     * by Json; a type tag for a different class anywhere else is an error. Hand-written JSON that may place it elsewhere must
+     * use tree reads. Subclasses that override the {@link JsonValue} read methods must also use tree reads, as streaming bypasses them.
+     * Default is false.
+     */
+    public void setStreamReads(boolean streamReads){
+        this.streamReads = streamReads;
+    }
+
+    /** Sets how fields are read and written. Default is {@link #defaultAccessorFactory}, when null. Clears cached field data. */
+    public void setAccessorFactory(FieldAccessor.Factory accessorFactory){
+        this.accessorFactory = accessorFactory;
+        typeToFields.clear();
+    }
+
     public boolean getIgnoreUnknownFields(){
         return ignoreUnknownFields;
     }
@@ -185,7 +209,7 @@ public class Json{
             }
 
             if(ignoreDeprecated && !readDeprecated && field.isAnnotationPresent(Deprecated.class)) continue;
-            FieldMetadata data = new FieldMetadata(field);
+            FieldMetadata data = new FieldMetadata(field, (accessorFactory == null ? defaultAccessorFactory : accessorFactory).create(field));
 
             nameToField.put(field.getName(), data);
         }
@@ -289,9 +313,11 @@ public class Json{
             Field field = metadata.field;
             if(readDeprecated && ignoreDeprecated && field.isAnnotationPresent(Deprecated.class)) continue;
             try{
-                Object value = field.get(object);
+                Object defaultValue = defaultValues != null ? defaultValues[i++] : null;
+                if(writePrimitive(object, metadata.accessor, field.getName(), defaultValue)) continue;
+
+                Object value = metadata.accessor.get(object);
                 if(defaultValues != null){
-                    Object defaultValue = defaultValues[i++];
                     if(value == null && defaultValue == null) continue;
                     if(value != null && defaultValue != null){
                         if(value.equals(defaultValue)) continue;
@@ -306,8 +332,6 @@ public class Json{
                 if(debug) System.out.println("Writing field: " + field.getName() + " (" + type.getName() + ")");
                 writer.name(field.getName());
                 writeValue(value, field.getType(), metadata.elementType);
-            }catch(IllegalAccessException ex){
-                throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
             }catch(SerializationException ex){
                 ex.addTrace(field + " (" + type.getName() + ")");
                 throw ex;
@@ -339,9 +363,7 @@ public class Json{
             Field field = metadata.field;
             if(readDeprecated && ignoreDeprecated && field.isAnnotationPresent(Deprecated.class)) continue;
             try{
-                values[i++] = field.get(object);
-            }catch(IllegalAccessException ex){
-                throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
+                values[i++] = metadata.accessor.get(object);
             }catch(SerializationException ex){
                 ex.addTrace(field + " (" + type.getName() + ")");
                 throw ex;
@@ -354,6 +376,35 @@ public class Json{
         return values;
     }
 
+    /**
+     * Writes a primitive field without boxing it. Produces the same output as {@link #writeValue(Object, Class, Class)}.
+     * @param defaultValue The boxed value of the field in a new instance, which is not written; null to always write it.
+     * @return false if the field has to be written with writeValue instead.
+     */
+    private boolean writePrimitive(Object object, FieldAccessor accessor, String name, Object defaultValue) throws IOException{
+        Class type = accessor.type;
+        if(type == int.class){
+            int value = accessor.getInt(object);
+            if(defaultValue == null || value != (Integer)defaultValue) writer.name(name).value(value);
+        }else if(type == float.class){
+            float value = accessor.getFloat(object);
+            //compared like Float.equals, as the boxed values were
+            if(defaultValue == null || Float.floatToIntBits(value) != Float.floatToIntBits((Float)defaultValue)) writer.name(name).value(value);
+        }else if(type == long.class){
+            long value = accessor.getLong(object);
+            if(defaultValue == null || value != (Long)defaultValue) writer.name(name).value(value);
+        }else if(type == double.class){
+            double value = accessor.getDouble(object);
+            if(defaultValue == null || Double.doubleToLongBits(value) != Double.doubleToLongBits((Double)defaultValue)) writer.name(name).value(value);
+        }else if(type == boolean.class){
+            boolean value = accessor.getBoolean(object);
+            if(defaultValue == null || value != (Boolean)defaultValue) writer.name(name).value(value);
+        }else{
+            return false;
+        }
+        return true;
+    }
+
     /** @see #writeField(Object, String, String, Class) */
     public void writeField(Object object, String name){
         writeField(object, name, name, null);
@@ -386,10 +437,9 @@ public class Json{
         if(elementType == null) elementType = metadata.elementType;
         try{
             if(debug) System.out.println("Writing field: " + field.getName() + " (" + type.getName() + ")");
+            if(writePrimitive(object, metadata.accessor, jsonName, null)) return;
             writer.name(jsonName);
-            writeValue(field.get(object), field.getType(), elementType);
-        }catch(IllegalAccessException ex){
-            throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
+            writeValue(metadata.accessor.get(object), field.getType(), elementType);
         }catch(SerializationException ex){
             ex.addTrace(field + " (" + type.getName() + ")");
             throw ex;
@@ -770,7 +820,7 @@ public class Json{
      * @return May be null.
      */
     public <T> T fromJson(Class<T> type, Reader reader){
-        return readValue(type, null, new JsonReader().parse(reader));
+        return fromJson(type, null, reader);
     }
 
     /**
@@ -779,7 +829,12 @@ public class Json{
      * @return May be null.
      */
     public <T> T fromJson(Class<T> type, Class elementType, Reader reader){
-        return readValue(type, elementType, new JsonReader().parse(reader));
+        if(!streamReads) return readValue(type, elementType, new JsonReader().parse(reader));
+        try{
+            return readValue(type, elementType, new JsonPullParser(reader));
+        }finally{
+            Streams.close(reader);
+        }
     }
 
     /**
@@ -787,7 +842,7 @@ public class Json{
      * @return May be null.
      */
     public <T> T fromJson(Class<T> type, InputStream input){
-        return readValue(type, null, new JsonReader().parse(input));
+        return fromJson(type, null, input);
     }
 
     /**
@@ -796,7 +851,12 @@ public class Json{
      * @return May be null.
      */
     public <T> T fromJson(Class<T> type, Class elementType, InputStream input){
-        return readValue(type, elementType, new JsonReader().parse(input));
+        if(!streamReads) return readValue(type, elementType, new JsonReader().parse(input));
+        try{
+            return readValue(type, elementType, new JsonPullParser(input));
+        }finally{
+            Streams.close(input);
+        }
     }
 
     /**
@@ -804,11 +864,7 @@ public class Json{
      * @return May be null.
      */
     public <T> T fromJson(Class<T> type, Fi file){
-        try{
-            return readValue(type, null, new JsonReader().parse(file));
-        }catch(Exception ex){
-            throw new SerializationException("Error reading file: " + file, ex);
-        }
+        return fromJson(type, null, file);
     }
 
     /**
@@ -818,7 +874,8 @@ public class Json{
      */
     public <T> T fromJson(Class<T> type, Class elementType, Fi file){
         try{
-            return readValue(type, elementType, new JsonReader().parse(file));
+            if(!streamReads) return readValue(type, elementType, new JsonReader().parse(file));
+            return fromJson(type, elementType, file.reader("UTF-8"));
         }catch(Exception ex){
             throw new SerializationException("Error reading file: " + file, ex);
         }
@@ -829,7 +886,7 @@ public class Json{
      * @return May be null.
      */
     public <T> T fromJson(Class<T> type, char[] data, int offset, int length){
-        return readValue(type, null, new JsonReader().parse(data, offset, length));
+        return fromJson(type, null, data, offset, length);
     }
 
     /**
@@ -838,7 +895,8 @@ public class Json{
      * @return May be null.
      */
     public <T> T fromJson(Class<T> type, Class elementType, char[] data, int offset, int length){
-        return readValue(type, elementType, new JsonReader().parse(data, offset, length));
+        if(!streamReads) return readValue(type, elementType, new JsonReader().parse(data, offset, length));
+        return readValue(type, elementType, new JsonPullParser(data, offset, length));
     }
 
     /**
@@ -846,7 +904,7 @@ public class Json{
      * @return May be null.
      */
     public <T> T fromJson(Class<T> type, String json){
-        return readValue(type, null, new JsonReader().parse(json));
+        return fromJson(type, null, json);
     }
 
     /**
@@ -854,7 +912,8 @@ public class Json{
      * @return May be null.
      */
     public <T> T fromJson(Class<T> type, Class elementType, String json){
-        return readValue(type, elementType, new JsonReader().parse(json));
+        if(!streamReads) return readValue(type, elementType, new JsonReader().parse(json));
+        return readValue(type, elementType, new JsonPullParser(json));
     }
 
     public void readField(Object object, String name, JsonValue jsonData){
@@ -922,9 +981,9 @@ public class Json{
             }
             Field field = metadata.field;
             try{
-                field.set(object, readValue(field.getType(), metadata.elementType, child, metadata.keyType));
-            }catch(IllegalAccessException ex){
-                throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
+                if(!readPrimitive(object, metadata.accessor, child)){
+                    metadata.accessor.set(object, readValue(field.getType(), metadata.elementType, child, metadata.keyType));
+                }
             }catch(SerializationException ex){
                 ex.addTrace(field.getName() + " (" + type.getName() + ")");
                 throw ex;
@@ -937,6 +996,48 @@ public class Json{
         }
     }
 
+    /**
+     * Sets a primitive field from a number or boolean without boxing it. Produces the same values as {@link #readValue(Class, Class, JsonValue)}.
+     * @return false if the value has to be read with readValue instead.
+     */
+    private boolean readPrimitive(Object object, FieldAccessor accessor, JsonValue value){
+        Class type = accessor.type;
+        if(!type.isPrimitive() || (classToSerializer.size > 0 && classToSerializer.containsKey(type))) return false;
+
+        if(value.isNumber()){
+            if(type == int.class) accessor.setInt(object, value.asInt());
+            else if(type == float.class) accessor.setFloat(object, value.asFloat());
+            else if(type == long.class) accessor.setLong(object, value.asLong());
+            else if(type == double.class) accessor.setDouble(object, value.asDouble());
+            else return false;
+            return true;
+        }else if(value.isBoolean() && type == boolean.class){
+            accessor.setBoolean(object, value.asBoolean());
+            return true;
+        }
+        return false;
+    }
+
+    /** Streaming equivalent of {@link #readPrimitive(Object, FieldAccessor, JsonValue)}. */
+    private boolean readPrimitive(Object object, FieldAccessor accessor, JsonPullParser parser){
+        Class type = accessor.type;
+        if(!type.isPrimitive() || (classToSerializer.size > 0 && classToSerializer.containsKey(type))) return false;
+
+        JsonPullParser.Token token = parser.peek();
+        if(token == JsonPullParser.Token.number){
+            if(type == int.class) accessor.setInt(object, parser.nextInt());
+            else if(type == float.class) accessor.setFloat(object, parser.nextFloat());
+            else if(type == long.class) accessor.setLong(object, parser.nextLong());
+            else if(type == double.class) accessor.setDouble(object, parser.nextDouble());
+            else return false;
+            return true;
+        }else if(token == JsonPullParser.Token.bool && type == boolean.class){
+            accessor.setBoolean(object, parser.nextBoolean());
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Called for each unknown field name encountered by {@link #readFields(Object, JsonValue)} when {@link #ignoreUnknownFields}
      * is false to determine whether the unknown field name should be ignored.
@@ -1211,31 +1312,290 @@ public class Json{
         }
 
         if(jsonData.isString()){
-            String string = jsonData.asString();
-            if(type == null || type == String.class) return (T)string;
-            try{
-                if(type == int.class || type == Integer.class) return (T)Integer.valueOf(string);
-                if(type == float.class || type == Float.class) return string.endsWith("f") ? (T)Float.valueOf(string.substring(0, string.length() - 1)) : string.endsWith("f,") ? (T)Float.valueOf(string.substring(0, string.length() - 2)) : (T)Float.valueOf(string);
-                if(type == long.class || type == Long.class) return (T)Long.valueOf(string);
-                if(type == double.class || type == Double.class) return (T)Double.valueOf(string);
-                if(type == short.class || type == Short.class) return (T)Short.valueOf(string);
-                if(type == byte.class || type == Byte.class) return (T)Byte.valueOf(string);
-            }catch(NumberFormatException ignored){
+            return readString(type, jsonData.asString(), jsonData);
+        }
+
+        return null;
+    }
+
+    /** Converts a string value to the required type. The source value is only used for error messages and may be null. */
+    private <T> T readString(Class<T> type, String string, @Nullable Object source){
+        if(type == null || type == String.class) return (T)string;
+        try{
+            if(type == int.class || type == Integer.class) return (T)Integer.valueOf(string);
+            if(type == float.class || type == Float.class) return string.endsWith("f") ? (T)Float.valueOf(string.substring(0, string.length() - 1)) : string.endsWith("f,") ? (T)Float.valueOf(string.substring(0, string.length() - 2)) : (T)Float.valueOf(string);
+            if(type == long.class || type == Long.class) return (T)Long.valueOf(string);
+            if(type == double.class || type == Double.class) return (T)Double.valueOf(string);
+            if(type == short.class || type == Short.class) return (T)Short.valueOf(string);
+            if(type == byte.class || type == Byte.class) return (T)Byte.valueOf(string);
+        }catch(NumberFormatException ignored){
+        }
+        if(type == boolean.class || type == Boolean.class) return (T)Boolean.valueOf(string);
+        if(type == char.class || type == Character.class) return (T)(Character)string.charAt(0);
+        if(Enum.class.isAssignableFrom(type)){
+            Enum[] constants = (Enum[])type.getEnumConstants();
+            for(int i = 0, n = constants.length; i < n; i++){
+                Enum e = constants[i];
+                if(string.equals(convertToString(e))) return (T)e;
+            }
+        }
+        if(type == CharSequence.class) return (T)string;
+        throw new SerializationException("Unable to convert value to required type: " + (source == null ? string : source) + " (" + type.getName() + ")");
+    }
+
+    /**
+     * Reads the next value from a pull parser, without building a {@link JsonValue} tree where possible.
+     * @param type May be null if the type is unknown.
+     * @return May be null.
+     */
+    public <T> T readValue(Class<T> type, JsonPullParser parser){
+        return readValue(type, null, parser);
+    }
+
+    /**
+     * @param type May be null if the type is unknown.
+     * @param elementType May be null if the type is unknown.
+     * @return May be null.
+     */
+    public <T> T readValue(Class<T> type, Class elementType, JsonPullParser parser){
+        return readValue(type, elementType, parser, null);
+    }
+
+    /**
+     * Streaming equivalent of {@link #readValue(Class, Class, JsonValue, Class)}. Values that need a {@link JsonValue} are read
+     * into a tree with {@link JsonPullParser#readTree()} and passed to the tree-based method.
+     * @param type May be null if the type is unknown.
+     * @param elementType May be null if the type is unknown.
+     * @return May be null.
+     */
+    public <T> T readValue(Class<T> type, Class elementType, JsonPullParser parser, Class keytype){
+        JsonPullParser.Token token = parser.peek();
+
+        if(token == JsonPullParser.Token.beginObject){
+            return readObject(type, elementType, parser, keytype);
+        }
+
+        if(type != null && (classToSerializer.get(type) != null || JsonSerializable.class.isAssignableFrom(type))){
+            return readValue(type, elementType, parser.readTree(), keytype);
+        }
+
+        switch(parser.nextToken()){
+            case beginArray:
+                return readArray(type, elementType, parser);
+            case number:{
+                try{
+                    if(type == null || type == float.class || type == Float.class) return (T)(Float)parser.floatValue();
+                    if(type == int.class || type == Integer.class) return (T)(Integer)parser.intValue();
+                    if(type == long.class || type == Long.class) return (T)(Long)parser.longValue();
+                    if(type == double.class || type == Double.class) return (T)(Double)parser.doubleValue();
+                    if(type == short.class || type == Short.class) return (T)(Short)(short)parser.longValue();
+                    if(type == byte.class || type == Byte.class) return (T)(Byte)(byte)parser.longValue();
+                }catch(NumberFormatException ignored){
+                }
+                return readString(type, parser.string(), null);
             }
-            if(type == boolean.class || type == Boolean.class) return (T)Boolean.valueOf(string);
-            if(type == char.class || type == Character.class) return (T)(Character)string.charAt(0);
-            if(Enum.class.isAssignableFrom(type)){
-                Enum[] constants = (Enum[])type.getEnumConstants();
-                for(int i = 0, n = constants.length; i < n; i++){
-                    Enum e = constants[i];
-                    if(string.equals(convertToString(e))) return (T)e;
+            case bool:
+                if(type == null || type == boolean.class || type == Boolean.class) return (T)(Boolean)parser.booleanValue();
+                return readString(type, parser.string(), null);
+            case string:
+                return readString(type, parser.string(), null);
+            case nul:
+                return null;
+            default:
+                throw new SerializationException("Unexpected token: " + token + " (line " + parser.line() + ")");
+        }
+    }
+
+    private <T> T readObject(Class<T> type, Class elementType, JsonPullParser parser, Class keytype){
+        Class<T> declared = type;
+        parser.beginObject();
+
+        //the type tag is always written first; readFields rejects it anywhere else
+        String first = parser.peek() == JsonPullParser.Token.name ? parser.nextName() : null;
+        String className = null;
+        if(first != null && typeName != null && first.equals(typeName)){
+            className = parser.nextString();
+            first = null;
+            if(className != null){
+                type = getClass(className);
+                if(type == null){
+                    try{
+                        type = (Class<T>)Class.forName(className);
+                        if(Timer.class.isAssignableFrom(type)) throw new RuntimeException("Invalid class type.");
+                    }catch(Throwable ex){
+                        throw new SerializationException(ex);
+                    }
                 }
             }
-            if(type == CharSequence.class) return (T)string;
-            throw new SerializationException("Unable to convert value to required type: " + jsonData + " (" + type.getName() + ")");
         }
 
-        return null;
+        if(type == null || (typeName != null && Collection.class.isAssignableFrom(type)) || classToSerializer.get(type) != null
+        || type == String.class || Reflect.isWrapper(type) || Enum.class.isAssignableFrom(type) || JsonSerializable.class.isAssignableFrom(type)
+        || ObjectSet.class.isAssignableFrom(type) || IntSet.class.isAssignableFrom(type) || IntSeq.class.isAssignableFrom(type)){
+            //these need the whole object as a tree; rebuild it from what has been read so far
+            JsonValue object = new JsonValue(ValueType.object);
+            if(className != null) object.addChild(typeName, new JsonValue(className));
+            if(first != null) object.addChild(first, parser.readTree());
+            object.size = (className != null ? 1 : 0) + (first != null ? 1 : 0);
+            parser.readMembers(object);
+            return readValue(declared, elementType, object, keytype);
+        }
+
+        Object object = newInstance(type);
+
+        if(object instanceof ObjectMap){
+            ObjectMap result = (ObjectMap)object;
+            for(String name = first; name != null || parser.hasNext(); name = null){
+                if(name == null) name = parser.nextName();
+                result.put(keytype != null ? readValue(keytype, null, new JsonValue(name)) : name, readValue(elementType, null, parser));
+            }
+        }else if(object instanceof ObjectIntMap){
+            ObjectIntMap result = (ObjectIntMap)object;
+            for(String name = first; name != null || parser.hasNext(); name = null){
+                if(name == null) name = parser.nextName();
+                result.put(elementType != null ? readValue(elementType, null, new JsonValue(name)) : name, parser.nextInt());
+            }
+        }else if(object instanceof ObjectFloatMap){
+            ObjectFloatMap result = (ObjectFloatMap)object;
+            for(String name = first; name != null || parser.hasNext(); name = null){
+                if(name == null) name = parser.nextName();
+                result.put(elementType != null ? readValue(elementType, null, new JsonValue(name)) : name, parser.nextFloat());
+            }
+        }else if(object instanceof IntMap){
+            IntMap result = (IntMap)object;
+            for(String name = first; name != null || parser.hasNext(); name = null){
+                if(name == null) name = parser.nextName();
+                result.put(Integer.parseInt(name), readValue(elementType, null, parser));
+            }
+        }else if(object instanceof ArrayMap){
+            ArrayMap result = (ArrayMap)object;
+            for(String name = first; name != null || parser.hasNext(); name = null){
+                if(name == null) name = parser.nextName();
+                result.put(name, readValue(elementType, null, parser));
+            }
+        }else if(object instanceof Map){
+            Map result = (Map)object;
+            for(String name = first; name != null || parser.hasNext(); name = null){
+                if(name == null) name = parser.nextName();
+                if(name.equals(typeName)){
+                    parser.skipValue();
+                    continue;
+                }
+                result.put(name, readValue(elementType, null, parser));
+            }
+        }else{
+            readFields(object, first, parser);
+        }
+
+        parser.endObject();
+        return (T)object;
+    }
+
+    /** Reads the remaining fields of an object whose opening brace and, optionally, first name were already consumed. */
+    private void readFields(Object object, @Nullable String first, JsonPullParser parser){
+        Class type = object.getClass();
+        ObjectMap<String, FieldMetadata> fields = getFields(type);
+
+        for(String name = first; name != null || parser.hasNext(); name = null){
+            if(name == null) name = parser.nextName();
+
+            FieldMetadata metadata = fields.get(name.indexOf(' ') != -1 ? name.replace(" ", "_") : name);
+            if(metadata == null && name.equals(typeName)){
+                //the object has already been created, so a type tag after other fields can't be honored
+                String className = parser.nextString();
+                if(className != null && getClass(className) != type && !type.getName().equals(className)){
+                    throw new SerializationException("Type tag '" + typeName + "' must be the first key of an object to be read with streaming reads: "
+                    + className + " (" + type.getName() + ", line " + parser.line() + ")");
+                }
+                continue;
+            }
+            if(metadata == null){
+                if(!ignoreUnknownFields && !ignoreUnknownField(type, name)){
+                    throw new SerializationException("Field not found: " + name + " (" + type.getName() + ", line " + parser.line() + ")");
+                }
+                if(debug) Log.warn("Ignoring unknown field: " + name + " (" + type.getName() + ")");
+                parser.skipValue();
+                continue;
+            }
+
+            Field field = metadata.field;
+            try{
+                if(!readPrimitive(object, metadata.accessor, parser)){
+                    metadata.accessor.set(object, readValue(field.getType(), metadata.elementType, parser, metadata.keyType));
+                }
+            }catch(SerializationException ex){
+                ex.addTrace(field.getName() + " (" + type.getName() + ")");
+                throw ex;
+            }catch(RuntimeException runtimeEx){
+                SerializationException ex = new SerializationException(runtimeEx);
+                ex.addTrace("line " + parser.line());
+                ex.addTrace(field.getName() + " (" + type.getName() + ")");
+                throw ex;
+            }
+        }
+    }
+
+    /** Reads the elements of an array whose opening bracket was already consumed. */
+    private <T> T readArray(Class<T> type, Class elementType, JsonPullParser parser){
+        if(type == null || type == Object.class) type = (Class<T>)Seq.class;
+
+        if(Seq.class.isAssignableFrom(type)){
+            Seq result = type == Seq.class ? new Seq() : (Seq)newInstance(type);
+            while(parser.hasNext()) result.add(readValue(elementType, null, parser));
+            parser.endArray();
+            return (T)result;
+        }
+        if(IntSeq.class.isAssignableFrom(type)){
+            IntSeq result = type == IntSeq.class ? new IntSeq() : (IntSeq)newInstance(type);
+            while(parser.hasNext()) result.add(parser.nextInt());
+            parser.endArray();
+            return (T)result;
+        }
+        if(ObjectSet.class.isAssignableFrom(type)){
+            ObjectSet result = type == ObjectSet.class ? new ObjectSet() : (ObjectSet)newInstance(type);
+            while(parser.hasNext()) result.add(readValue(elementType, null, parser));
+            parser.endArray();
+            return (T)result;
+        }
+        if(arc.struct.Queue.class.isAssignableFrom(type)){
+            arc.struct.Queue result = type == arc.struct.Queue.class ? new arc.struct.Queue() : (Queue)newInstance(type);
+            while(parser.hasNext()) result.addLast(readValue(elementType, null, parser));
+            parser.endArray();
+            return (T)result;
+        }
+        if(Collection.class.isAssignableFrom(type)){
+            Collection result = type.isInterface() ? new ArrayList() : (Collection)newInstance(type);
+            while(parser.hasNext()) result.add(readValue(elementType, null, parser));
+            parser.endArray();
+            return (T)result;
+        }
+        if(type.isArray()){
+            Class componentType = type.getComponentType();
+            if(componentType == int.class){
+                IntSeq result = new IntSeq();
+                while(parser.hasNext()) result.add(parser.nextInt());
+                parser.endArray();
+                return (T)result.toArray();
+            }
+            if(componentType == float.class){
+                FloatSeq result = new FloatSeq();
+                while(parser.hasNext()) result.add(parser.nextFloat());
+                parser.endArray();
+                return (T)result.toArray();
+            }
+
+            if(elementType == null) elementType = componentType;
+            Seq values = new Seq();
+            while(parser.hasNext()) values.add(readValue(elementType, null, parser));
+            parser.endArray();
+
+            Object result = java.lang.reflect.Array.newInstance(componentType, values.size);
+            for(int i = 0; i < values.size; i++){
+                java.lang.reflect.Array.set(result, i, values.get(i));
+            }
+            return (T)result;
+        }
+        throw new SerializationException("Unable to convert array to required type: " + type.getName() + " (line " + parser.line() + ")");
     }
 
     /**
@@ -1337,10 +1697,16 @@ public class Json{
 
     public static class FieldMetadata{
         public final Field field;
+        public final FieldAccessor accessor;
         public @Nullable Class elementType;
         public @Nullable Class keyType;
 
         public FieldMetadata(Field field){
+            this(field, FieldAccessor.reflection.create(field));
+        }
+
+        public FieldMetadata(Field field, FieldAccessor accessor){
+            this.accessor = accessor;
             boolean isMap = ObjectMap.class.isAssignableFrom(field.getType())
             || Map.class.isAssignableFrom(field.getType());
 
@@ -0,0 +1,590 @@
+package arc.util.serialization;
+
+import arc.util.io.*;
+import arc.util.serialization.JsonValue.*;
+
+import java.io.*;
+import java.nio.charset.*;
+
+/**
+ * Streaming pull parser for the same relaxed JSON syntax accepted by {@link JsonReader}: comments, unquoted names and values, and
+ * optional commas are allowed. Values are read one token at a time, without building a {@link JsonValue} tree.
+ * <pre>
+ * parser.beginObject();
+ * while(parser.hasNext()){
+ *     String name = parser.nextName();
+ *     if(name.equals("size")) size = parser.nextInt();
+ *     else parser.skipValue();
+ * }
+ * parser.endObject();
+ * </pre>
+ * The value accessors ({@link #string()}, {@link #longValue()}, ...) refer to the token last returned by {@link #nextToken()}.
+ */
+public class JsonPullParser{
+    private static final byte scopeDocument = 0, scopeArray = 1, scopeName = 2, scopeValue = 3;
+    private static final int nameCacheSize = 512;
+
+    private final Reader reader;
+    private char[] buffer;
+    private int pos, limit;
+
+    private byte[] scopes = new byte[32];
+    private int depth = 1;
+    private boolean done;
+    private int line = 1;
+
+    private Token peeked;
+    private char[] text = new char[64];
+    private int textLength;
+    private boolean isLong, boolValue;
+    private long longValue;
+    private double doubleValue;
+
+    /** Recently read names, so that repeated keys do not allocate a new string each time. */
+    private final String[] names = new String[nameCacheSize];
+
+    public JsonPullParser(String json){
+        this(json.toCharArray(), 0, json.length());
+    }
+
+    public JsonPullParser(char[] data, int offset, int length){
+        this.reader = null;
+        this.buffer = data;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    /** Decodes the bytes as UTF-8. */
+    public JsonPullParser(byte[] data, int offset, int length){
+        this(new InputStreamReader(new ByteArrayInputStream(data, offset, length), StandardCharsets.UTF_8));
+    }
+
+    /** Decodes the stream as UTF-8. The stream is not closed. */
+    public JsonPullParser(InputStream input){
+        this(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    /** The reader is not closed. */
+    public JsonPullParser(Reader reader){
+        this.reader = reader;
+        this.buffer = new char[Streams.defaultBufferSize];
+    }
+
+    /** @return the type of the next token, without consuming it. */
+    public Token peek(){
+        if(peeked == null) peeked = lex();
+        return peeked;
+    }
+
+    /** Consumes the next token. Its value can then be read with {@link #string()} and the other accessors. */
+    public Token nextToken(){
+        Token token = peek();
+        peeked = null;
+        return token;
+    }
+
+    /** @return whether the current object or array has more elements. */
+    public boolean hasNext(){
+        Token token = peek();
+        return token != Token.endObject && token != Token.endArray && token != Token.end;
+    }
+
+    public void beginObject(){
+        expect(Token.beginObject);
+    }
+
+    public void endObject(){
+        expect(Token.endObject);
+    }
+
+    public void beginArray(){
+        expect(Token.beginArray);
+    }
+
+    public void endArray(){
+        expect(Token.endArray);
+    }
+
+    public String nextName(){
+        expect(Token.name);
+        return name();
+    }
+
+    /** @return the next string, number or boolean as text, or null for a null value. */
+    public String nextString(){
+        Token token = nextToken();
+        if(token == Token.nul) return null;
+        if(token != Token.string && token != Token.number && token != Token.bool) throw error("Expected a value, but got " + token);
+        return string();
+    }
+
+    public int nextInt(){
+        Token token = nextToken();
+        if(token == Token.number) return intValue();
+        if(token == Token.string) return Integer.parseInt(string());
+        throw error("Expected a number, but got " + token);
+    }
+
+    public long nextLong(){
+        Token token = nextToken();
+        if(token == Token.number) return longValue();
+        if(token == Token.string) return Long.parseLong(string());
+        throw error("Expected a number, but got " + token);
+    }
+
+    public float nextFloat(){
+        Token token = nextToken();
+        if(token == Token.number) return floatValue();
+        if(token == Token.string) return Float.parseFloat(string());
+        throw error("Expected a number, but got " + token);
+    }
+
+    public double nextDouble(){
+        Token token = nextToken();
+        if(token == Token.number) return doubleValue();
+        if(token == Token.string) return Double.parseDouble(string());
+        throw error("Expected a number, but got " + token);
+    }
+
+    public boolean nextBoolean(){
+        Token token = nextToken();
+        if(token == Token.bool) return boolValue;
+        if(token == Token.string) return string().equalsIgnoreCase("true");
+        throw error("Expected a boolean, but got " + token);
+    }
+
+    public void nextNull(){
+        expect(Token.nul);
+    }
+
+    /** Skips the next value, including all of its children. */
+    public void skipValue(){
+        int level = 0;
+        do{
+            switch(nextToken()){
+                case beginObject:
+                case beginArray:
+                    level++;
+                    break;
+                case endObject:
+                case endArray:
+                    level--;
+                    break;
+                case end:
+                    return;
+            }
+        }while(level > 0);
+    }
+
+    /** Reads the next value into a tree. Used where a {@link JsonValue} is still required, such as for custom serializers. */
+    public JsonValue readTree(){
+        Token token = nextToken();
+        switch(token){
+            case beginObject:{
+                JsonValue object = new JsonValue(ValueType.object);
+                readMembers(object);
+                return object;
+            }
+            case beginArray:{
+                JsonValue array = new JsonValue(ValueType.array);
+                JsonValue last = null;
+                while(peek() != Token.endArray){
+                    last = append(array, last, readTree());
+                }
+                nextToken();
+                return array;
+            }
+            case string: return new JsonValue(string());
+            case number: return isLong ? new JsonValue(longValue, string()) : new JsonValue(doubleValue, string());
+            case bool: return new JsonValue(boolValue);
+            case nul: return new JsonValue(ValueType.nullValue);
+            default: throw error("Expected a value, but got " + token);
+        }
+    }
+
+    /** Reads the remaining members of the current object into a tree, including the closing brace. */
+    public void readMembers(JsonValue object){
+        JsonValue last = object.child;
+        while(last != null && last.next != null) last = last.next;
+
+        while(peek() != Token.endObject){
+            String name = nextName();
+            last = append(object, last, readTree());
+            last.name = name;
+        }
+        nextToken();
+    }
+
+    private JsonValue append(JsonValue parent, JsonValue last, JsonValue child){
+        child.parent = parent;
+        if(last == null){
+            parent.child = child;
+        }else{
+            last.next = child;
+            child.prev = last;
+        }
+        parent.size++;
+        return child;
+    }
+
+    /** @return the text of the last string, name, number or boolean token. */
+    public String string(){
+        return new String(text, 0, textLength);
+    }
+
+    /** @return whether the text of the last token equals the given string, without allocating. */
+    public boolean textEquals(String value){
+        if(value.length() != textLength) return false;
+        for(int i = 0; i < textLength; i++){
+            if(text[i] != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /** @return whether the last number token was an integer. */
+    public boolean isLong(){
+        return isLong;
+    }
+
+    public int intValue(){
+        return isLong ? (int)longValue : (int)doubleValue;
+    }
+
+    public float floatValue(){
+        return isLong ? (float)longValue : (float)doubleValue;
+    }
+
+    public long longValue(){
+        return isLong ? longValue : (long)doubleValue;
+    }
+
+    public double doubleValue(){
+        return isLong ? (double)longValue : doubleValue;
+    }
+
+    public boolean booleanValue(){
+        return boolValue;
+    }
+
+    /** @return the line of the input the parser is currently at, for error messages. */
+    public int line(){
+        return line;
+    }
+
+    private void expect(Token expected){
+        Token token = nextToken();
+        if(token != expected) throw error("Expected " + expected + ", but got " + token);
+    }
+
+    private String name(){
+        int hash = 0;
+        for(int i = 0; i < textLength; i++){
+            hash = 31 * hash + text[i];
+        }
+
+        int index = (hash ^ (hash >>> 16)) & (nameCacheSize - 1);
+        String cached = names[index];
+        if(cached != null && cached.hashCode() == hash && textEquals(cached)){
+            return cached;
+        }
+        return names[index] = string();
+    }
+
+    private SerializationException error(String message){
+        return new SerializationException(message + " (line " + line + ")");
+    }
+
+    private Token lex(){
+        if(done) return Token.end;
+
+        skipSeparators();
+        int c = peekChar(0);
+        byte scope = scopes[depth - 1];
+
+        if(c == -1){
+            if(depth > 1) throw error("Unexpected end of input");
+            done = true;
+            return Token.end;
+        }
+
+        if(scope == scopeName){
+            if(c == '}'){
+                pos++;
+                depth--;
+                endValue();
+                return Token.endObject;
+            }
+
+            if(c == '"'){
+                pos++;
+                readQuoted();
+            }else{
+                readUnquoted(true);
+            }
+
+            skipSeparators();
+            if(peekChar(0) != ':') throw error("Expected ':' after name '" + string() + "'");
+            pos++;
+            scopes[depth - 1] = scopeValue;
+            return Token.name;
+        }
+
+        switch(c){
+            case '{':
+                pos++;
+                startValue();
+                push(scopeName);
+                return Token.beginObject;
+            case '[':
+                pos++;
+                startValue();
+                push(scopeArray);
+                return Token.beginArray;
+            case ']':
+                if(scope != scopeArray) throw error("Unexpected ']'");
+                pos++;
+                depth--;
+                endValue();
+                return Token.endArray;
+            case '"':
+                pos++;
+                readQuoted();
+                endValue();
+                return Token.string;
+        }
+
+        readUnquoted(false);
+        endValue();
+        return classify();
+    }
+
+    /** Called when a value starts: the enclosing object expects a name after it. */
+    private void startValue(){
+        if(scopes[depth - 1] == scopeValue){
+            scopes[depth - 1] = scopeName;
+        }
+    }
+
+    /** Called after a complete value. Anything after the root value is ignored. */
+    private void endValue(){
+        startValue();
+        if(scopes[depth - 1] == scopeDocument){
+            done = true;
+        }
+    }
+
+    private void push(byte scope){
+        if(depth == scopes.length){
+            byte[] next = new byte[depth * 2];
+            System.arraycopy(scopes, 0, next, 0, depth);
+            scopes = next;
+        }
+        scopes[depth++] = scope;
+    }
+
+    private Token classify(){
+        if(textEquals("true")){
+            boolValue = true;
+            return Token.bool;
+        }
+        if(textEquals("false")){
+            boolValue = false;
+            return Token.bool;
+        }
+        if(textEquals("null")){
+            return Token.nul;
+        }
+
+        //same rules as JsonReader: only digits and signs can be a long, and '.', 'e' or 'E' make a double
+        boolean couldBeDouble = false, couldBeLong = true;
+        for(int i = 0; i < textLength; i++){
+            char c = text[i];
+            if((c >= '0' && c <= '9') || c == '-' || c == '+') continue;
+            if(c == '.' || c == 'e' || c == 'E'){
+                couldBeDouble = true;
+                couldBeLong = false;
+            }else{
+                couldBeDouble = false;
+                couldBeLong = false;
+                break;
+            }
+        }
+
+        try{
+            if(couldBeDouble){
+                doubleValue = Double.parseDouble(string());
+                isLong = false;
+                return Token.number;
+            }else if(couldBeLong){
+                longValue = parseLong();
+                isLong = true;
+                return Token.number;
+            }
+        }catch(NumberFormatException ignored){
+        }
+        return Token.string;
+    }
+
+    private long parseLong(){
+        int i = 0;
+        boolean negative = false;
+        if(textLength > 0 && (text[0] == '-' || text[0] == '+')){
+            negative = text[0] == '-';
+            i = 1;
+        }
+        //fall back for values that may overflow and for malformed input
+        if(i == textLength || textLength - i > 18) return Long.parseLong(string());
+
+        long value = 0;
+        for(; i < textLength; i++){
+            char c = text[i];
+            if(c < '0' || c > '9') throw new NumberFormatException();
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private void skipSeparators(){
+        while(true){
+            int c = peekChar(0);
+            switch(c){
+                case '\n':
+                    line++;
+                case ' ':
+                case '\t':
+                case '\r':
+                case ',':
+                    pos++;
+                    break;
+                case '/':{
+                    int next = peekChar(1);
+                    if(next == '/'){
+                        pos += 2;
+                        while((c = peekChar(0)) != -1 && c != '\n') pos++;
+                    }else if(next == '*'){
+                        pos += 2;
+                        while((c = peekChar(0)) != -1 && !(c == '*' && peekChar(1) == '/')){
+                            if(c == '\n') line++;
+                            pos++;
+                        }
+                        if(c == -1) throw error("Unclosed comment");
+                        pos += 2;
+                    }else{
+                        return;
+                    }
+                    break;
+                }
+                default:
+                    return;
+            }
+        }
+    }
+
+    private void readQuoted(){
+        textLength = 0;
+        while(true){
+            int c = peekChar(0);
+            if(c == -1) throw error("Unclosed string");
+            pos++;
+            if(c == '"') return;
+            if(c == '\n') line++;
+            if(c == '\\'){
+                append(readEscape());
+            }else{
+                append((char)c);
+            }
+        }
+    }
+
+    private void readUnquoted(boolean name){
+        textLength = 0;
+        while(true){
+            int c = peekChar(0);
+            if(c == -1 || c == '\r' || c == '\n') break;
+            if(name ? c == ':' : (c == '}' || c == ']' || c == ',')) break;
+            if(c == '/'){
+                int next = peekChar(1);
+                if(next == '/' || next == '*') break;
+            }
+
+            pos++;
+            if(c == '\\'){
+                append(readEscape());
+            }else{
+                append((char)c);
+            }
+        }
+
+        while(textLength > 0 && Character.isWhitespace(text[textLength - 1])) textLength--;
+        if(textLength == 0) throw error("Unexpected character: '" + (char)peekChar(0) + "'");
+    }
+
+    private char readEscape(){
+        int c = peekChar(0);
+        if(c == -1) throw error("Unclosed string");
+        pos++;
+        switch(c){
+            case 'u':
+                int value = 0;
+                for(int i = 0; i < 4; i++){
+                    int digit = Character.digit(peekChar(0), 16);
+                    if(digit < 0) throw error("Invalid unicode escape");
+                    pos++;
+                    value = value * 16 + digit;
+                }
+                return (char)value;
+            case '"':
+            case '\\':
+            case '/':
+                return (char)c;
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            default: throw error("Illegal escaped character: \\" + (char)c);
+        }
+    }
+
+    private void append(char c){
+        if(textLength == text.length){
+            char[] next = new char[text.length * 2];
+            System.arraycopy(text, 0, next, 0, textLength);
+            text = next;
+        }
+        text[textLength++] = c;
+    }
+
+    /** @return the character at the given offset from the current position, or -1 at the end of the input. */
+    private int peekChar(int offset){
+        if(pos + offset >= limit && !fill(offset + 1)) return -1;
+        return buffer[pos + offset];
+    }
+
+    /** Reads more characters from the reader, keeping at least the unread part of the buffer. */
+    private boolean fill(int minimum){
+        if(reader == null) return false;
+
+        int remaining = limit - pos;
+        System.arraycopy(buffer, pos, buffer, 0, remaining);
+        pos = 0;
+        limit = remaining;
+
+        try{
+            while(limit < minimum){
+                int read = reader.read(buffer, limit, buffer.length - limit);
+                if(read == -1) return false;
+                limit += read;
+            }
+        }catch(IOException e){
+            throw new SerializationException("Error reading JSON input", e);
+        }
+        return true;
+    }
+
+    public enum Token{
+        beginObject, endObject, beginArray, endArray, name, string, number, bool, nul,
+        /** The end of the document. */
+        end
+    }
+}
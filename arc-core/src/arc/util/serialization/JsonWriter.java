@@ -86,6 +86,46 @@ public class JsonWriter extends Writer implements BaseJsonWriter{
         return this;
     }
 
+    /** Writes the same text as {@link #value(Object)} with a boxed int. */
+    @Override
+    public BaseJsonWriter value(int value) throws IOException{
+        requireCommaOrName();
+        writer.write(Integer.toString(value));
+        return this;
+    }
+
+    @Override
+    public BaseJsonWriter value(long value) throws IOException{
+        if(quoteLongValues) return value((Object)value);
+        requireCommaOrName();
+        writer.write(Long.toString(value));
+        return this;
+    }
+
+    @Override
+    public BaseJsonWriter value(float value) throws IOException{
+        long longValue = (long)value;
+        requireCommaOrName();
+        writer.write((double)value == longValue ? Long.toString(longValue) : Float.toString(value));
+        return this;
+    }
+
+    @Override
+    public BaseJsonWriter value(double value) throws IOException{
+        if(quoteLongValues) return value((Object)value);
+        long longValue = (long)value;
+        requireCommaOrName();
+        writer.write(value == longValue ? Long.toString(longValue) : Double.toString(value));
+        return this;
+    }
+
+    @Override
+    public BaseJsonWriter value(boolean value) throws IOException{
+        requireCommaOrName();
+        writer.write(value ? "true" : "false");
+        return this;
+    }
+
     private void requireCommaOrName() throws IOException{
         if(current == null) return;
         if(current.array){
@@ -16,6 +16,12 @@ public class Jval{
 
     /** Internal value. May be a string, number, boolean, JsonArray, JsonMap or null. */
     private @Nullable Object value;
+    /**
+     * Index this value is lazily read from. Null once the value has been materialized.
+     * Volatile, as it publishes {@link #value}: lazily read values can be shared between threads like eagerly read ones.
+     */
+    private volatile @Nullable Jindex index;
+    private int node;
 
     Jval(Object value){
         this.value = value;
@@ -23,6 +29,11 @@ public class Jval{
         if(getType() == null) throw new IllegalArgumentException("Invalid JSON value: " + value);
     }
 
+    Jval(Jindex index, int node){
+        this.index = index;
+        this.node = node;
+    }
+
     public static Jval newObject(){
         return new Jval(new JsonMap());
     }
@@ -71,7 +82,33 @@ public class Jval{
         }
     }
 
+    /**
+     * Reads a Hjson value lazily. The text is only scanned once to build a compact index of value offsets;
+     * objects, arrays, strings and numbers are parsed the first time they are accessed.
+     * This is considerably faster for large documents where most values are never read.
+     * Structural errors are reported here, while malformed escapes are reported when the string is accessed.
+     * The result may be read from several threads at once, as long as it is not modified.
+     */
+    public static Jval readLazy(String text){
+        return new Jindex(text).parse();
+    }
+
+    /** @see #readLazy(String) */
+    public static Jval readLazy(Reader reader){
+        try{
+            return readLazy(Hparser.readToEnd(reader));
+        }catch(IOException e){
+            throw new ArcRuntimeException(e);
+        }
+    }
+
+    /** @see #readLazy(String) */
+    public static Jval readLazy(byte[] bytes){
+        return readLazy(new InputStreamReader(new ByteArrayInputStream(bytes)));
+    }
+
     public Jtype getType(){
+        Object value = value();
         return value == null ? Jtype.nil :
                 value instanceof Number ? Jtype.number :
                 value instanceof String ? Jtype.string :
@@ -87,24 +124,24 @@ public class Jval{
     public static Jval valueOf(String string){ return string == null ? NULL : new Jval(string); }
     public static Jval valueOf(boolean value){ return value ? TRUE : FALSE; }
 
-    public boolean isObject(){ return value instanceof JsonMap; }
-    public boolean isArray(){ return value instanceof JsonArray; }
-    public boolean isNumber(){ return value instanceof Number; }
-    public boolean isString(){ return value instanceof String; }
-    public boolean isBoolean(){ return value instanceof Boolean; }
-    public boolean isTrue(){ return value == Boolean.TRUE; }
-    public boolean isFalse(){ return value == Boolean.FALSE; }
-    public boolean isNull(){ return value == null; }
-
-    public JsonMap asObject(){ if(!(value instanceof JsonMap)) throw new UnsupportedOperationException("Not an object: " + this); return (JsonMap)value; }
-    public JsonArray asArray(){ if(!(value instanceof JsonArray)) throw new UnsupportedOperationException("Not an array: " + this); return (JsonArray)value; }
+    public boolean isObject(){ return value() instanceof JsonMap; }
+    public boolean isArray(){ return value() instanceof JsonArray; }
+    public boolean isNumber(){ return value() instanceof Number; }
+    public boolean isString(){ return value() instanceof String; }
+    public boolean isBoolean(){ return value() instanceof Boolean; }
+    public boolean isTrue(){ return value() == Boolean.TRUE; }
+    public boolean isFalse(){ return value() == Boolean.FALSE; }
+    public boolean isNull(){ return value() == null; }
+
+    public JsonMap asObject(){ if(!(value() instanceof JsonMap)) throw new UnsupportedOperationException("Not an object: " + this); return (JsonMap)value(); }
+    public JsonArray asArray(){ if(!(value() instanceof JsonArray)) throw new UnsupportedOperationException("Not an array: " + this); return (JsonArray)value(); }
     public int asInt(){ return asNumber().intValue(); }
     public long asLong(){ return asNumber().longValue(); }
     public float asFloat(){ return asNumber().floatValue(); }
     public double asDouble(){ return asNumber().doubleValue(); }
-    public String asString(){ if(!(value instanceof String) && !(value instanceof Number)) throw new UnsupportedOperationException("Not a string: " + this); return String.valueOf(value); }
-    public boolean asBool(){ if(!(value instanceof Boolean)) throw new UnsupportedOperationException("Not a bool: " + this); return (Boolean)value; }
-    public Number asNumber(){ if(!(value instanceof Number)) throw new UnsupportedOperationException("Not a number: " + this); return ((Number)value); }
+    public String asString(){ if(!(value() instanceof String) && !(value() instanceof Number)) throw new UnsupportedOperationException("Not a string: " + this); return String.valueOf(value()); }
+    public boolean asBool(){ if(!(value() instanceof Boolean)) throw new UnsupportedOperationException("Not a bool: " + this); return (Boolean)value(); }
+    public Number asNumber(){ if(!(value() instanceof Number)) throw new UnsupportedOperationException("Not a number: " + this); return ((Number)value()); }
 
     public Jval get(String name){
         if(name == null) throw new NullPointerException("name is null");
@@ -274,9 +311,24 @@ public class Jval{
 
     @Override
     public boolean equals(Object object){
-        return object != null && object.getClass() == getClass() &&
-            ((value == null && ((Jval)object).value == null)
-            || (((Jval)object).value != null && value != null && value.equals(((Jval)object).value)));
+        if(object == null || object.getClass() != getClass()) return false;
+        Object value = value(), other = ((Jval)object).value();
+        return value == null ? other == null : value.equals(other);
+    }
+
+    /** @return the internal value, reading it from the lazy index first if needed. */
+    private @Nullable Object value(){
+        if(index != null){
+            //materialize once, so that every thread sees the same container instance
+            synchronized(this){
+                Jindex index = this.index;
+                if(index != null){
+                    value = index.materialize(node);
+                    this.index = null;
+                }
+            }
+        }
+        return value;
     }
 
     /** Alias class of whatever is used to store json maps (objects). */
@@ -389,6 +441,17 @@ public class Jval{
             this(readToEnd(reader));
         }
 
+        /** Creates a parser positioned at an offset of the string, as recorded by a {@link Jindex}. */
+        Hparser(String string, int offset, int line, int lineOffset, boolean isArray) throws IOException{
+            this(string);
+            reader.skip(offset);
+            read();
+            this.index = Math.min(offset + 1, string.length());
+            this.line = line;
+            this.lineOffset = lineOffset;
+            this.isArray = isArray;
+        }
+
         static String readToEnd(Reader reader) throws IOException{
             // read everything into a buffer
             int n;
@@ -858,6 +921,398 @@ public class Jval{
         }
     }
 
+    /**
+     * A structural index of a Hjson document, used for lazy reading. The document is scanned once with the same rules as {@link Hparser};
+     * every value and key becomes a node of {@link #stride} ints in a flat array. Values are parsed from their offsets on demand.
+     */
+    static class Jindex{
+        /** Node layout: source offset, end (next sibling node for containers, end offset for strings and names), line, line offset, flags. */
+        static final int stride = 5;
+        static final int
+            kindObject = 0,
+            kindArray = 1,
+            kindString = 2,
+            kindQuoteless = 3,
+            kindName = 4,
+            kindMask = 7,
+            /** The string or name contains no escapes and can be copied directly from the source. */
+            flagSimple = 8,
+            /** The parser was inside an array, which makes commas end quoteless strings. */
+            flagArray = 16;
+
+        final String buffer;
+        final int length;
+        int[] nodes = new int[stride * 64];
+        int size;
+
+        private int pos, line = 1, lineStart;
+        private boolean isArray;
+
+        Jindex(String buffer){
+            this.buffer = buffer;
+            this.length = buffer.length();
+        }
+
+        Jval parse(){
+            //braces for the root object are optional, same as Hparser
+            skipWhiteSpace();
+            int c = current();
+
+            if(c == '[' || c == '{'){
+                readValue();
+                checkTrailing();
+            }else{
+                try{
+                    readObject(true);
+                    checkTrailing();
+                }catch(JsonParseException exception){
+                    pos = lineStart = size = 0;
+                    line = 1;
+                    isArray = false;
+                    skipWhiteSpace();
+                    try{
+                        readValue();
+                        checkTrailing();
+                    }catch(JsonParseException ignored){
+                        throw exception;
+                    }
+                }
+            }
+            return new Jval(this, 0);
+        }
+
+        Object materialize(int node){
+            int i = node * stride, flags = nodes[i + 4];
+
+            switch(flags & kindMask){
+                case kindObject:{
+                    JsonMap map = new JsonMap();
+                    int end = nodes[i + 1], count = 0;
+                    for(int child = node + 1; child < end; child = next(child + 1)) count++;
+
+                    if(count <= 16){
+                        for(int child = node + 1; child < end; child = next(child + 1)){
+                            map.put(name(child), new Jval(this, child + 1));
+                        }
+                    }else{
+                        //ArrayMap#put searches linearly, which is quadratic for large objects; deduplicate keys with a hash map instead
+                        map.ensureCapacity(count);
+                        ObjectIntMap<String> indices = new ObjectIntMap<>(count);
+                        for(int child = node + 1; child < end; child = next(child + 1)){
+                            String name = name(child);
+                            int index = indices.get(name, -1);
+                            if(index == -1){
+                                indices.put(name, index = map.size++);
+                                map.setKey(index, name);
+                            }
+                            map.setValue(index, new Jval(this, child + 1));
+                        }
+                    }
+                    return map;
+                }
+                case kindArray:{
+                    JsonArray array = new JsonArray();
+                    for(int child = node + 1, end = nodes[i + 1]; child < end; child = next(child)){
+                        array.add(new Jval(this, child));
+                    }
+                    return array;
+                }
+                case kindString:
+                    if((flags & flagSimple) != 0) return buffer.substring(nodes[i] + 1, nodes[i + 1]);
+                default:
+                    try{
+                        return parser(node).readValue().value;
+                    }catch(IOException e){
+                        throw new ArcRuntimeException(e);
+                    }
+            }
+        }
+
+        String name(int node){
+            int i = node * stride;
+            if((nodes[i + 4] & flagSimple) != 0){
+                int start = nodes[i];
+                char c = buffer.charAt(start);
+                return buffer.substring(c == '"' || c == '\'' ? start + 1 : start, nodes[i + 1]);
+            }
+            try{
+                return parser(node).readName();
+            }catch(IOException e){
+                throw new ArcRuntimeException(e);
+            }
+        }
+
+        /** @return the node after this node and all of its children. */
+        int next(int node){
+            int i = node * stride, kind = nodes[i + 4] & kindMask;
+            return kind == kindObject || kind == kindArray ? nodes[i + 1] : node + 1;
+        }
+
+        Hparser parser(int node) throws IOException{
+            int i = node * stride;
+            return new Hparser(buffer, nodes[i], nodes[i + 2], nodes[i + 3], (nodes[i + 4] & flagArray) != 0);
+        }
+
+        private int add(int flags){
+            if((size + 1) * stride > nodes.length){
+                int[] copy = new int[nodes.length * 2];
+                System.arraycopy(nodes, 0, copy, 0, size * stride);
+                nodes = copy;
+            }
+            int i = size * stride;
+            nodes[i] = pos;
+            nodes[i + 2] = line;
+            nodes[i + 3] = lineStart;
+            nodes[i + 4] = flags;
+            return size++;
+        }
+
+        private void readValue(){
+            switch(current()){
+                case '\'':
+                case '"':
+                    readString();
+                    break;
+                case '[':
+                    readArray();
+                    break;
+                case '{':
+                    readObject(false);
+                    break;
+                default:
+                    readQuoteless();
+            }
+        }
+
+        private void readQuoteless(){
+            int start = pos, first = current();
+            if(Hwriter.isPunctuatorChar(first))
+                throw error("Found a punctuator character '" + (char)first + "' when expecting a quoteless string (check your syntax)");
+            add(kindQuoteless | (isArray ? flagArray : 0));
+            advance();
+
+            while(true){
+                int c = current();
+                boolean isEol = c < 0 || c == '\r' || c == '\n' || (c == ',' && isArray) || c == ']';
+                if(isEol || c == ',' || c == '}' || c == '#' || c == '/' && (peek() == '/' || peek() == '*')){
+                    if(first == 'f' || first == 'n' || first == 't'){
+                        if(isKeyword(start, pos)) return;
+                    }else if(first == '-' || first >= '0' && first <= '9'){
+                        if(isNumber(start, pos)) return;
+                    }
+                    if(isEol) return;
+                }
+                advance();
+            }
+        }
+
+        private void readString(){
+            int start = pos, exit = current(), node = add(kindString);
+            boolean simple = true;
+            advance();
+            while(pos < length && buffer.charAt(pos) != exit){
+                if(buffer.charAt(pos) == '\\'){
+                    simple = false;
+                    advance();
+                }
+                advance();
+            }
+            int end = pos;
+            advance();
+
+            if(exit == '\'' && end == start + 1 && current() == '\''){
+                // ''' indicates a multiline string
+                simple = false;
+                advance();
+                while(pos < length && !(buffer.charAt(pos) == '\'' && peek() == '\'' && peek(2) == '\'')) advance();
+                if(pos >= length) throw error("Bad multiline string");
+                pos += 3;
+            }
+
+            nodes[node * stride + 1] = end;
+            if(simple) nodes[node * stride + 4] |= flagSimple;
+        }
+
+        private void readArray(){
+            int node = add(kindArray);
+            isArray = true;
+            advance();
+            skipWhiteSpace();
+            if(current() == ']'){
+                advance();
+            }else{
+                while(true){
+                    skipWhiteSpace();
+                    readValue();
+                    skipWhiteSpace();
+                    if(current() == ','){ // , is optional
+                        advance();
+                        skipWhiteSpace();
+                    }
+                    if(current() == ']'){
+                        advance();
+                        break;
+                    }else if(pos >= length) throw error("End of input while parsing an array (did you forget a closing ']'?)");
+                }
+                isArray = false;
+            }
+            nodes[node * stride + 1] = size;
+        }
+
+        private void readObject(boolean objectWithoutBraces){
+            int node = add(kindObject);
+            if(!objectWithoutBraces) advance();
+            skipWhiteSpace();
+            while(true){
+                if(objectWithoutBraces){
+                    if(pos >= length) break;
+                }else{
+                    if(pos >= length) throw error("End of input while parsing an object (did you forget a closing '}'?)");
+                    if(current() == '}'){
+                        advance();
+                        break;
+                    }
+                }
+                readName();
+                skipWhiteSpace();
+                if(current() != ':') throw expected("':'");
+                advance();
+                skipWhiteSpace();
+                readValue();
+                skipWhiteSpace();
+                if(current() == ','){ // , is optional
+                    advance();
+                    skipWhiteSpace();
+                }
+            }
+            nodes[node * stride + 1] = size;
+        }
+
+        private void readName(){
+            int start = pos, c = current(), node = add(kindName | flagSimple);
+
+            if(c == '"' || c == '\''){
+                advance();
+                while(pos < length && buffer.charAt(pos) != c){
+                    if(buffer.charAt(pos) == '\\'){
+                        nodes[node * stride + 4] &= ~flagSimple;
+                        advance();
+                    }
+                    advance();
+                }
+                nodes[node * stride + 1] = pos;
+                advance();
+                return;
+            }
+
+            int space = -1, end = start;
+            boolean spaced = false;
+            while(true){
+                c = current();
+                if(c == ':'){
+                    if(end == start) throw error("Found ':' but no key name (for an empty key name use quotes)");
+                    else if(spaced){
+                        pos = space;
+                        throw error("Found whitespace in your key name (use quotes to include)");
+                    }
+                    nodes[node * stride + 1] = end;
+                    return;
+                }else if(Hparser.isWhiteSpace(c)){
+                    if(space < 0) space = pos;
+                }else if(c < ' '){
+                    throw error("Name is not closed");
+                }else if(Hwriter.isPunctuatorChar(c)){
+                    throw error("Found '" + (char)c + "' where a key name was expected (check your syntax or use quotes if the key name includes {}[],: or whitespace)");
+                }else{
+                    spaced |= space >= 0;
+                    end = pos + 1;
+                }
+                advance();
+            }
+        }
+
+        private boolean isKeyword(int start, int end){
+            while(start < end && buffer.charAt(start) <= ' ') start++;
+            while(end > start && buffer.charAt(end - 1) <= ' ') end--;
+            int len = end - start;
+            return (len == 4 && (buffer.startsWith("true", start) || buffer.startsWith("null", start))) || (len == 5 && buffer.startsWith("false", start));
+        }
+
+        /** Same grammar as {@link Hparser#tryParseNumber(StringBuilder, boolean)}, without parsing the value. */
+        private boolean isNumber(int idx, int end){
+            if(idx < end && buffer.charAt(idx) == '-') idx++;
+            if(idx >= end) return false;
+
+            char first = buffer.charAt(idx++);
+            if(!isDigit(first) || (first == '0' && idx < end && isDigit(buffer.charAt(idx)))) return false;
+            while(idx < end && isDigit(buffer.charAt(idx))) idx++;
+
+            if(idx < end && buffer.charAt(idx) == '.'){
+                idx++;
+                if(idx >= end || !isDigit(buffer.charAt(idx++))) return false;
+                while(idx < end && isDigit(buffer.charAt(idx))) idx++;
+            }
+
+            while(idx < end && Hparser.isWhiteSpace(buffer.charAt(idx))) idx++;
+            return idx >= end;
+        }
+
+        private static boolean isDigit(char c){
+            return c >= '0' && c <= '9';
+        }
+
+        private void skipWhiteSpace(){
+            while(pos < length){
+                char c = buffer.charAt(pos);
+                if(Hparser.isWhiteSpace(c)){
+                    advance();
+                }else if(c == '#' || c == '/' && peek() == '/'){
+                    while(pos < length && buffer.charAt(pos) != '\n') advance();
+                }else if(c == '/' && peek() == '*'){
+                    pos += 2;
+                    while(pos < length && !(buffer.charAt(pos) == '*' && peek() == '/')) advance();
+                    pos = Math.min(pos + 2, length);
+                }else break;
+            }
+        }
+
+        private void checkTrailing(){
+            skipWhiteSpace();
+            if(pos < length) throw error("Extra characters in input: " + current());
+        }
+
+        private int current(){
+            return pos < length ? buffer.charAt(pos) : -1;
+        }
+
+        private int peek(){
+            return peek(1);
+        }
+
+        private int peek(int offset){
+            return pos + offset < length ? buffer.charAt(pos + offset) : -1;
+        }
+
+        private void advance(){
+            if(pos < length){
+                if(buffer.charAt(pos) == '\n'){
+                    line++;
+                    lineStart = pos + 1;
+                }
+                pos++;
+            }
+        }
+
+        private JsonParseException expected(String expected){
+            return pos >= length ? error("Unexpected end of input") : error("Expected " + expected);
+        }
+
+        private JsonParseException error(String message){
+            int index = Math.min(pos + 1, length);
+            return new JsonParseException(message, pos < length ? index - 1 : index, line, index - lineStart - 1);
+        }
+    }
+
     /** An unchecked exception to indicate that an input does not qualify as valid JSON.*/
     public static class JsonParseException extends RuntimeException{
         public final int offset;
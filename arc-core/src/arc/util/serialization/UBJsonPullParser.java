@@ -0,0 +1,635 @@
+package arc.util.serialization;
+
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+import arc.util.serialization.JsonPullParser.*;
+import arc.util.serialization.JsonValue.*;
+
+import java.io.*;
+import java.nio.*;
+
+/**
+ * Streaming pull parser for UBJSON, with the same token API as {@link JsonPullParser}. Strongly typed containers
+ * (<code>[$d#</code>, <code>[$l#</code>, ...) can be read directly into primitive arrays with {@link #nextFloatArray()},
+ * {@link #nextIntArray()}, {@link #nextFloats(FloatSeq)} and {@link #nextInts(IntSeq)}, which decode the elements in bulk
+ * instead of one token at a time.
+ */
+public class UBJsonPullParser{
+    private static final byte scopeDocument = 0, scopeArray = 1, scopeName = 2, scopeValue = 3;
+
+    private final @Nullable InputStream input;
+    private byte[] buffer;
+    private int pos, limit;
+
+    private byte[] scopes = new byte[32];
+    /** Element type of strongly typed containers, or 0. */
+    private byte[] types = new byte[32];
+    /** Remaining elements of counted containers, or -1. */
+    private long[] counts = new long[32];
+    private int depth = 1;
+    private boolean done;
+
+    private Token peeked;
+    private String stringValue;
+    private boolean isLong, boolValue;
+    private long longValue;
+    private double doubleValue;
+
+    /** The stream is not closed. For best performance, it should not be buffered, as the parser buffers internally. */
+    public UBJsonPullParser(InputStream input){
+        this.input = input;
+        this.buffer = new byte[Streams.defaultBufferSize];
+    }
+
+    public UBJsonPullParser(byte[] data){
+        this(data, 0, data.length);
+    }
+
+    public UBJsonPullParser(byte[] data, int offset, int length){
+        this.input = null;
+        this.buffer = data;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    /** @return the type of the next token, without consuming it. */
+    public Token peek(){
+        if(peeked == null) peeked = lex();
+        return peeked;
+    }
+
+    /** Consumes the next token. Its value can then be read with {@link #string()} and the other accessors. */
+    public Token nextToken(){
+        Token token = peek();
+        peeked = null;
+        return token;
+    }
+
+    /** @return whether the current object or array has more elements. */
+    public boolean hasNext(){
+        Token token = peek();
+        return token != Token.endObject && token != Token.endArray && token != Token.end;
+    }
+
+    public void beginObject(){
+        expect(Token.beginObject);
+    }
+
+    public void endObject(){
+        expect(Token.endObject);
+    }
+
+    public void beginArray(){
+        expect(Token.beginArray);
+    }
+
+    public void endArray(){
+        expect(Token.endArray);
+    }
+
+    public String nextName(){
+        expect(Token.name);
+        return stringValue;
+    }
+
+    /** @return the next string, number or boolean as text, or null for a null value. */
+    public @Nullable String nextString(){
+        Token token = nextToken();
+        if(token == Token.nul) return null;
+        if(token != Token.string && token != Token.number && token != Token.bool) throw error("Expected a value, but got " + token);
+        return string();
+    }
+
+    public int nextInt(){
+        return (int)nextLong();
+    }
+
+    public long nextLong(){
+        Token token = nextToken();
+        if(token == Token.number) return longValue();
+        if(token == Token.string) return Long.parseLong(stringValue);
+        throw error("Expected a number, but got " + token);
+    }
+
+    public float nextFloat(){
+        return (float)nextDouble();
+    }
+
+    public double nextDouble(){
+        Token token = nextToken();
+        if(token == Token.number) return doubleValue();
+        if(token == Token.string) return Double.parseDouble(stringValue);
+        throw error("Expected a number, but got " + token);
+    }
+
+    public boolean nextBoolean(){
+        Token token = nextToken();
+        if(token == Token.bool) return boolValue;
+        if(token == Token.string) return stringValue.equalsIgnoreCase("true");
+        throw error("Expected a boolean, but got " + token);
+    }
+
+    public void nextNull(){
+        expect(Token.nul);
+    }
+
+    /** Reads the next array as floats. Strongly typed numeric arrays are decoded in bulk. */
+    public float[] nextFloatArray(){
+        beginArray();
+        long count = counts[depth - 1];
+        if(count >= 0 && isNumeric(types[depth - 1])){
+            float[] result = new float[checkSize(count)];
+            readFloats(result, 0, result.length);
+            endArray();
+            return result;
+        }
+
+        FloatSeq seq = new FloatSeq();
+        while(hasNext()) seq.add(nextFloat());
+        endArray();
+        return seq.toArray();
+    }
+
+    /** Reads the next array as ints. Strongly typed numeric arrays are decoded in bulk. */
+    public int[] nextIntArray(){
+        beginArray();
+        long count = counts[depth - 1];
+        if(count >= 0 && isNumeric(types[depth - 1])){
+            int[] result = new int[checkSize(count)];
+            readInts(result, 0, result.length);
+            endArray();
+            return result;
+        }
+
+        IntSeq seq = new IntSeq();
+        while(hasNext()) seq.add(nextInt());
+        endArray();
+        return seq.toArray();
+    }
+
+    /**
+     * Appends the elements of the next array to the sequence. Strongly typed numeric arrays are decoded in bulk.
+     * @return the number of elements that were read.
+     */
+    public int nextFloats(FloatSeq out){
+        beginArray();
+        long count = counts[depth - 1];
+        int start = out.size;
+        if(count >= 0 && isNumeric(types[depth - 1])){
+            int size = checkSize(count);
+            out.ensureCapacity(size);
+            readFloats(out.items, out.size, size);
+            out.size += size;
+        }else{
+            while(hasNext()) out.add(nextFloat());
+        }
+        endArray();
+        return out.size - start;
+    }
+
+    /**
+     * Appends the elements of the next array to the sequence. Strongly typed numeric arrays are decoded in bulk.
+     * @return the number of elements that were read.
+     */
+    public int nextInts(IntSeq out){
+        beginArray();
+        long count = counts[depth - 1];
+        int start = out.size;
+        if(count >= 0 && isNumeric(types[depth - 1])){
+            int size = checkSize(count);
+            out.ensureCapacity(size);
+            readInts(out.items, out.size, size);
+            out.size += size;
+        }else{
+            while(hasNext()) out.add(nextInt());
+        }
+        endArray();
+        return out.size - start;
+    }
+
+    /** Skips the next value, including all of its children. Strongly typed numeric arrays are skipped without reading their elements. */
+    public void skipValue(){
+        int level = 0;
+        do{
+            switch(nextToken()){
+                case beginObject:
+                    level++;
+                    break;
+                case beginArray:
+                    level++;
+                    long count = counts[depth - 1];
+                    int size = elementSize(types[depth - 1]);
+                    if(count > 0 && size > 0){
+                        skip(count * size);
+                        counts[depth - 1] = 0;
+                    }
+                    break;
+                case endObject:
+                case endArray:
+                    level--;
+                    break;
+                case end:
+                    return;
+            }
+        }while(level > 0);
+    }
+
+    /** Reads the next value into a tree, in the same form that {@link UBJsonReader} produces. */
+    public JsonValue readTree(){
+        Token token = nextToken();
+        switch(token){
+            case beginObject:
+            case beginArray:{
+                JsonValue parent = new JsonValue(token == Token.beginObject ? ValueType.object : ValueType.array);
+                JsonValue last = null;
+                while(hasNext()){
+                    String name = token == Token.beginObject ? nextName() : null;
+                    JsonValue child = readTree();
+                    child.name = name;
+                    child.parent = parent;
+                    if(last == null){
+                        parent.child = child;
+                    }else{
+                        last.next = child;
+                        child.prev = last;
+                    }
+                    parent.size++;
+                    last = child;
+                }
+                nextToken();
+                return parent;
+            }
+            case string: return new JsonValue(stringValue);
+            case number: return isLong ? new JsonValue(longValue) : new JsonValue(doubleValue);
+            case bool: return new JsonValue(boolValue);
+            case nul: return new JsonValue(ValueType.nullValue);
+            default: throw error("Expected a value, but got " + token);
+        }
+    }
+
+    /** @return the text of the last string, name, number or boolean token. */
+    public String string(){
+        if(stringValue != null) return stringValue;
+        return isLong ? String.valueOf(longValue) : String.valueOf(doubleValue);
+    }
+
+    /** @return whether the last number token was an integer. */
+    public boolean isLong(){
+        return isLong;
+    }
+
+    public int intValue(){
+        return isLong ? (int)longValue : (int)doubleValue;
+    }
+
+    public float floatValue(){
+        return isLong ? (float)longValue : (float)doubleValue;
+    }
+
+    public long longValue(){
+        return isLong ? longValue : (long)doubleValue;
+    }
+
+    public double doubleValue(){
+        return isLong ? (double)longValue : doubleValue;
+    }
+
+    public boolean booleanValue(){
+        return boolValue;
+    }
+
+    private void expect(Token expected){
+        Token token = nextToken();
+        if(token != expected) throw error("Expected " + expected + ", but got " + token);
+    }
+
+    private SerializationException error(String message){
+        return new SerializationException(message);
+    }
+
+    private Token lex(){
+        if(done) return Token.end;
+
+        int top = depth - 1;
+        byte scope = scopes[top];
+        int marker;
+
+        if(scope == scopeName){
+            if(counts[top] == 0){
+                depth--;
+                endValue();
+                return Token.endObject;
+            }
+            int size = readByte();
+            if(size == '}' && counts[top] < 0){
+                depth--;
+                endValue();
+                return Token.endObject;
+            }
+            if(counts[top] > 0) counts[top]--;
+            stringValue = readString(readSize(size));
+            scopes[top] = scopeValue;
+            return Token.name;
+        }else if(scope == scopeArray){
+            if(counts[top] == 0){
+                depth--;
+                endValue();
+                return Token.endArray;
+            }
+            if(counts[top] > 0) counts[top]--;
+            marker = types[top] != 0 ? types[top] : readByte();
+            if(marker == ']' && counts[top] < 0){
+                depth--;
+                endValue();
+                return Token.endArray;
+            }
+        }else if(scope == scopeValue){
+            marker = types[top] != 0 ? types[top] : readByte();
+        }else{
+            if(!ensure(1)){
+                done = true;
+                return Token.end;
+            }
+            marker = readByte();
+        }
+
+        stringValue = null;
+        switch(marker){
+            case '{':
+                beginContainer(scopeName);
+                return Token.beginObject;
+            case '[':
+                beginContainer(scopeArray);
+                return Token.beginArray;
+            case 'a':
+            case 'A':{
+                //legacy data block, see UBJsonReader#parseData
+                byte type = (byte)readByte();
+                long count = marker == 'A' ? readInt() : readByte() & 0xFF;
+                startValue();
+                push(scopeArray, type, count);
+                return Token.beginArray;
+            }
+            case 'Z':
+                endValue();
+                return Token.nul;
+            case 'T':
+            case 'F':
+                boolValue = marker == 'T';
+                stringValue = boolValue ? "true" : "false";
+                endValue();
+                return Token.bool;
+            case 'N':
+                throw error("No-op values are not supported");
+            case 's':
+                stringValue = readString(readByte() & 0xFF);
+                endValue();
+                return Token.string;
+            case 'S':
+                stringValue = readString(readSize(readByte()));
+                endValue();
+                return Token.string;
+            case 'C':
+                //UBJsonReader reads chars as their numeric value
+                require(2);
+                longValue = ((buffer[pos++] & 0xFF) << 8) | (buffer[pos++] & 0xFF);
+                isLong = true;
+                endValue();
+                return Token.number;
+            case 'd':
+            case 'D':
+                doubleValue = marker == 'd' ? Float.intBitsToFloat(readInt()) : Double.longBitsToDouble(readLong());
+                isLong = false;
+                endValue();
+                return Token.number;
+            default:
+                if(!isNumeric(marker)) throw error("Unrecognized data type: " + (char)marker);
+                longValue = readInteger(marker);
+                isLong = true;
+                endValue();
+                return Token.number;
+        }
+    }
+
+    /** Reads the optional <code>$type</code> and <code>#count</code> header of a container. */
+    private void beginContainer(byte scope){
+        byte type = 0;
+        long count = -1;
+        int next = peekByte();
+        if(next == '$'){
+            pos++;
+            type = (byte)readByte();
+            next = peekByte();
+            if(next != '#') throw error("Strongly typed containers must have a count");
+        }
+        if(next == '#'){
+            pos++;
+            count = readSize(readByte());
+        }
+        startValue();
+        push(scope, type, count);
+    }
+
+    /** Called when a value starts: the enclosing object expects a name after it. */
+    private void startValue(){
+        if(scopes[depth - 1] == scopeValue){
+            scopes[depth - 1] = scopeName;
+        }
+    }
+
+    /** Called after a complete value. Anything after the root value is ignored. */
+    private void endValue(){
+        startValue();
+        if(scopes[depth - 1] == scopeDocument){
+            done = true;
+        }
+    }
+
+    private void push(byte scope, byte type, long count){
+        if(depth == scopes.length){
+            int size = depth * 2;
+            byte[] nextScopes = new byte[size], nextTypes = new byte[size];
+            long[] nextCounts = new long[size];
+            System.arraycopy(scopes, 0, nextScopes, 0, depth);
+            System.arraycopy(types, 0, nextTypes, 0, depth);
+            System.arraycopy(counts, 0, nextCounts, 0, depth);
+            scopes = nextScopes;
+            types = nextTypes;
+            counts = nextCounts;
+        }
+        scopes[depth] = scope;
+        types[depth] = type;
+        counts[depth] = count;
+        depth++;
+    }
+
+    private static boolean isNumeric(int type){
+        return type == 'i' || type == 'U' || type == 'B' || type == 'I' || type == 'l' || type == 'L' || type == 'd' || type == 'D';
+    }
+
+    /** @return the size of a strongly typed element in bytes, or 0 if elements have a variable size. */
+    private static int elementSize(int type){
+        switch(type){
+            case 'i': case 'U': case 'B': return 1;
+            case 'I': case 'C': return 2;
+            case 'l': case 'd': return 4;
+            case 'L': case 'D': return 8;
+            default: return 0;
+        }
+    }
+
+    private int checkSize(long count){
+        if(count > Integer.MAX_VALUE - 8) throw error("Array too large: " + count);
+        return (int)count;
+    }
+
+    /** Reads the remaining elements of the current strongly typed array. */
+    private void readFloats(float[] out, int offset, int count){
+        byte type = types[depth - 1];
+        int size = elementSize(type);
+        counts[depth - 1] = 0;
+
+        while(count > 0){
+            int amount = Math.min(count, Math.max(buffer.length / size, 1));
+            require(amount * size);
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, pos, amount * size);
+            switch(type){
+                case 'd': bytes.asFloatBuffer().get(out, offset, amount); break;
+                case 'D': for(int i = 0; i < amount; i++) out[offset + i] = (float)bytes.getDouble(); break;
+                case 'l': for(int i = 0; i < amount; i++) out[offset + i] = bytes.getInt(); break;
+                case 'L': for(int i = 0; i < amount; i++) out[offset + i] = bytes.getLong(); break;
+                case 'I': for(int i = 0; i < amount; i++) out[offset + i] = bytes.getShort(); break;
+                case 'i': for(int i = 0; i < amount; i++) out[offset + i] = bytes.get(); break;
+                default: for(int i = 0; i < amount; i++) out[offset + i] = bytes.get() & 0xFF; break;
+            }
+            pos += amount * size;
+            offset += amount;
+            count -= amount;
+        }
+    }
+
+    /** Reads the remaining elements of the current strongly typed array. */
+    private void readInts(int[] out, int offset, int count){
+        byte type = types[depth - 1];
+        int size = elementSize(type);
+        counts[depth - 1] = 0;
+
+        while(count > 0){
+            int amount = Math.min(count, Math.max(buffer.length / size, 1));
+            require(amount * size);
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, pos, amount * size);
+            switch(type){
+                case 'l': bytes.asIntBuffer().get(out, offset, amount); break;
+                case 'L': for(int i = 0; i < amount; i++) out[offset + i] = (int)bytes.getLong(); break;
+                case 'd': for(int i = 0; i < amount; i++) out[offset + i] = (int)bytes.getFloat(); break;
+                case 'D': for(int i = 0; i < amount; i++) out[offset + i] = (int)bytes.getDouble(); break;
+                case 'I': for(int i = 0; i < amount; i++) out[offset + i] = bytes.getShort(); break;
+                case 'i': for(int i = 0; i < amount; i++) out[offset + i] = bytes.get(); break;
+                default: for(int i = 0; i < amount; i++) out[offset + i] = bytes.get() & 0xFF; break;
+            }
+            pos += amount * size;
+            offset += amount;
+            count -= amount;
+        }
+    }
+
+    private long readInteger(int type){
+        switch(type){
+            case 'i': return (byte)readByte();
+            case 'U':
+            case 'B': return readByte() & 0xFF;
+            case 'I':
+                require(2);
+                return (short)(((buffer[pos++] & 0xFF) << 8) | (buffer[pos++] & 0xFF));
+            case 'l': return readInt();
+            default: return readLong();
+        }
+    }
+
+    /** Same rules as {@link UBJsonReader}: 'i' sizes are unsigned. */
+    private int readSize(int type){
+        long size;
+        switch(type){
+            case 'i':
+            case 'U': size = readByte() & 0xFF; break;
+            case 'I': size = readInteger('I') & 0xFFFF; break;
+            case 'l': size = readInt(); break;
+            case 'L': size = readLong(); break;
+            default: throw error("Unrecognized size type: " + (char)type);
+        }
+        if(size < 0) throw error("Negative size: " + size);
+        return checkSize(size);
+    }
+
+    private String readString(int length){
+        if(length == 0) return "";
+        require(length);
+        String result = new String(buffer, pos, length, Strings.utf8);
+        pos += length;
+        return result;
+    }
+
+    private int readByte(){
+        require(1);
+        return buffer[pos++];
+    }
+
+    private int peekByte(){
+        require(1);
+        return buffer[pos];
+    }
+
+    private int readInt(){
+        require(4);
+        byte[] b = buffer;
+        int p = pos;
+        pos += 4;
+        return ((b[p] & 0xFF) << 24) | ((b[p + 1] & 0xFF) << 16) | ((b[p + 2] & 0xFF) << 8) | (b[p + 3] & 0xFF);
+    }
+
+    private long readLong(){
+        return ((long)readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    private void skip(long amount){
+        while(amount > 0){
+            if(pos >= limit) require(1);
+            int step = (int)Math.min(amount, limit - pos);
+            pos += step;
+            amount -= step;
+        }
+    }
+
+    private void require(int amount){
+        if(!ensure(amount)) throw error("Unexpected end of input");
+    }
+
+    /** Makes sure that at least the specified amount of bytes is buffered, reading more from the stream if needed. */
+    private boolean ensure(int amount){
+        if(limit - pos >= amount) return true;
+        if(input == null) return false;
+
+        int remaining = limit - pos;
+        if(amount > buffer.length){
+            byte[] next = new byte[Math.max(amount, buffer.length * 2)];
+            System.arraycopy(buffer, pos, next, 0, remaining);
+            buffer = next;
+        }else{
+            System.arraycopy(buffer, pos, buffer, 0, remaining);
+        }
+        pos = 0;
+        limit = remaining;
+
+        try{
+            while(limit < amount){
+                int read = input.read(buffer, limit, buffer.length - limit);
+                if(read == -1) return false;
+                limit += read;
+            }
+        }catch(IOException e){
+            throw new SerializationException("Error reading UBJSON input", e);
+        }
+        return true;
+    }
+}
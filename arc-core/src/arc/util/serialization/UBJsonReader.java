@@ -5,6 +5,7 @@ import arc.util.*;
 import arc.util.io.*;
 
 import java.io.*;
+import java.nio.*;
 
 /**
  * Lightweight UBJSON parser.<br>
@@ -103,6 +104,7 @@ public class UBJsonReader implements BaseJsonReader{
             size = parseSize(din, false, -1);
             if(size < 0) throw new ArcRuntimeException("Unrecognized data type");
             if(size == 0) return result;
+            if(typedSize(valueType) > 0) return parseTypedArray(din, result, valueType, size);
             type = valueType == 0 ? din.readByte() : valueType;
         }
         JsonValue prev = null;
@@ -125,6 +127,57 @@ public class UBJsonReader implements BaseJsonReader{
         return result;
     }
 
+    /** Reads the elements of a strongly typed numeric array in bulk, instead of one stream call per element. */
+    protected JsonValue parseTypedArray(final DataInputStream din, final JsonValue result, final byte type, final long size) throws IOException{
+        final int elementSize = typedSize(type);
+        final byte[] bytes = new byte[(int)Math.min(size * elementSize, Streams.defaultBufferSize / elementSize * elementSize)];
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        JsonValue prev = null;
+        for(long remaining = size; remaining > 0; ){
+            int amount = (int)Math.min(remaining, bytes.length / elementSize);
+            din.readFully(bytes, 0, amount * elementSize);
+            buffer.clear();
+            for(int i = 0; i < amount; i++){
+                final JsonValue val;
+                switch(type){
+                    case 'i': val = new JsonValue(buffer.get()); break;
+                    case 'U': val = new JsonValue(buffer.get() & 0xFF); break;
+                    case 'I': val = new JsonValue(buffer.getShort()); break;
+                    case 'l': val = new JsonValue(buffer.getInt()); break;
+                    case 'L': val = new JsonValue(buffer.getLong()); break;
+                    case 'd': val = new JsonValue(buffer.getFloat()); break;
+                    default: val = new JsonValue(buffer.getDouble()); break;
+                }
+                val.parent = result;
+                if(prev != null){
+                    val.prev = prev;
+                    prev.next = val;
+                    result.size++;
+                }else{
+                    result.child = val;
+                    result.size = 1;
+                }
+                prev = val;
+            }
+            remaining -= amount;
+        }
+        return result;
+    }
+
+    /** @return the size of a numeric element type in bytes, or 0 if the type is not a fixed size number. */
+    protected int typedSize(final byte type){
+        switch(type){
+            case 'i':
+            case 'U': return 1;
+            case 'I': return 2;
+            case 'l':
+            case 'd': return 4;
+            case 'L':
+            case 'D': return 8;
+            default: return 0;
+        }
+    }
+
     protected JsonValue parseObject(final DataInputStream din) throws IOException{
         JsonValue result = new JsonValue(JsonValue.ValueType.object);
         byte type = din.readByte();
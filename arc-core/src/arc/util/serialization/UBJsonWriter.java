@@ -2,12 +2,14 @@ package arc.util.serialization;
 
 import arc.struct.*;
 import arc.util.Strings;
+import arc.util.io.*;
 import arc.util.serialization.JsonWriter.*;
 
 import java.io.Closeable;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.*;
 
 /**
  * Builder style API for emitting UBJSON.
@@ -18,6 +20,7 @@ public class UBJsonWriter implements Closeable, BaseJsonWriter{
     private final Seq<JsonObject> stack = new Seq<>();
     private JsonObject current;
     private boolean named;
+    private ByteBuffer scratch;
 
     public UBJsonWriter(OutputStream out){
         if(!(out instanceof DataOutputStream)) out = new DataOutputStream(out);
@@ -223,14 +226,16 @@ public class UBJsonWriter implements Closeable, BaseJsonWriter{
      * @return this writer, for chaining
      */
     public UBJsonWriter value(byte[] values) throws IOException{
-        array();
-        out.writeByte('$');
-        out.writeByte('i');
-        out.writeByte('#');
-        value(values.length);
-        for(int i = 0, n = values.length; i < n; i++){
-            out.writeByte(values[i]);
-        }
+        return value(values, 0, values.length);
+    }
+
+    /**
+     * Appends a region of the array as an optimized array.
+     * @return this writer, for chaining
+     */
+    public UBJsonWriter value(byte[] values, int offset, int length) throws IOException{
+        typedArray('i', length);
+        out.write(values, offset, length);
         pop(true);
         return this;
     }
@@ -241,13 +246,21 @@ public class UBJsonWriter implements Closeable, BaseJsonWriter{
      * @return this writer, for chaining
      */
     public UBJsonWriter value(short[] values) throws IOException{
-        array();
-        out.writeByte('$');
-        out.writeByte('I');
-        out.writeByte('#');
-        value(values.length);
-        for(int i = 0, n = values.length; i < n; i++){
-            out.writeShort(values[i]);
+        return value(values, 0, values.length);
+    }
+
+    /**
+     * Appends a region of the array as an optimized array. The elements are converted in bulk through a buffer.
+     * @return this writer, for chaining
+     */
+    public UBJsonWriter value(short[] values, int offset, int length) throws IOException{
+        typedArray('I', length);
+        ShortBuffer view = scratch().asShortBuffer();
+        for(int i = 0; i < length; i += view.capacity()){
+            int amount = Math.min(length - i, view.capacity());
+            view.clear();
+            view.put(values, offset + i, amount);
+            out.write(scratch.array(), 0, amount * 2);
         }
         pop(true);
         return this;
@@ -259,13 +272,21 @@ public class UBJsonWriter implements Closeable, BaseJsonWriter{
      * @return this writer, for chaining
      */
     public UBJsonWriter value(int[] values) throws IOException{
-        array();
-        out.writeByte('$');
-        out.writeByte('l');
-        out.writeByte('#');
-        value(values.length);
-        for(int i = 0, n = values.length; i < n; i++){
-            out.writeInt(values[i]);
+        return value(values, 0, values.length);
+    }
+
+    /**
+     * Appends a region of the array as an optimized array. The elements are converted in bulk through a buffer.
+     * @return this writer, for chaining
+     */
+    public UBJsonWriter value(int[] values, int offset, int length) throws IOException{
+        typedArray('l', length);
+        IntBuffer view = scratch().asIntBuffer();
+        for(int i = 0; i < length; i += view.capacity()){
+            int amount = Math.min(length - i, view.capacity());
+            view.clear();
+            view.put(values, offset + i, amount);
+            out.write(scratch.array(), 0, amount * 4);
         }
         pop(true);
         return this;
@@ -277,55 +298,94 @@ public class UBJsonWriter implements Closeable, BaseJsonWriter{
      * @return this writer, for chaining
      */
     public UBJsonWriter value(long[] values) throws IOException{
-        array();
-        out.writeByte('$');
-        out.writeByte('L');
-        out.writeByte('#');
-        value(values.length);
-        for(int i = 0, n = values.length; i < n; i++){
-            out.writeLong(values[i]);
+        return value(values, 0, values.length);
+    }
+
+    /**
+     * Appends a region of the array as an optimized array. The elements are converted in bulk through a buffer.
+     * @return this writer, for chaining
+     */
+    public UBJsonWriter value(long[] values, int offset, int length) throws IOException{
+        typedArray('L', length);
+        LongBuffer view = scratch().asLongBuffer();
+        for(int i = 0; i < length; i += view.capacity()){
+            int amount = Math.min(length - i, view.capacity());
+            view.clear();
+            view.put(values, offset + i, amount);
+            out.write(scratch.array(), 0, amount * 8);
         }
         pop(true);
         return this;
     }
 
     /**
-     * Appends an optimized {@code float array} value to the stream. As an optimized array, the {@code float32} value type marker
-     * and element count are encoded once at the array marker instead of repeating the type marker for each element.
+     * Appends an optimized {@code float array} value to the stream. As an optimized array, the {@code float32} value type marker and
+     * element count are encoded once at the array marker instead of repeating the type marker for each element.
      * @return this writer, for chaining
      */
     public UBJsonWriter value(float[] values) throws IOException{
-        array();
-        out.writeByte('$');
-        out.writeByte('d');
-        out.writeByte('#');
-        value(values.length);
-        for(int i = 0, n = values.length; i < n; i++){
-            out.writeFloat(values[i]);
+        return value(values, 0, values.length);
+    }
+
+    /**
+     * Appends a region of the array as an optimized array. The elements are converted in bulk through a buffer.
+     * @return this writer, for chaining
+     */
+    public UBJsonWriter value(float[] values, int offset, int length) throws IOException{
+        typedArray('d', length);
+        FloatBuffer view = scratch().asFloatBuffer();
+        for(int i = 0; i < length; i += view.capacity()){
+            int amount = Math.min(length - i, view.capacity());
+            view.clear();
+            view.put(values, offset + i, amount);
+            out.write(scratch.array(), 0, amount * 4);
         }
         pop(true);
         return this;
     }
 
     /**
-     * Appends an optimized {@code double array} value to the stream. As an optimized array, the {@code float64} value type marker
-     * and element count are encoded once at the array marker instead of repeating the type marker for each element. element count
-     * are encoded once at the array marker instead of for each element.
+     * Appends an optimized {@code double array} value to the stream. As an optimized array, the {@code float64} value type marker and
+     * element count are encoded once at the array marker instead of repeating the type marker for each element.
      * @return this writer, for chaining
      */
     public UBJsonWriter value(double[] values) throws IOException{
-        array();
-        out.writeByte('$');
-        out.writeByte('D');
-        out.writeByte('#');
-        value(values.length);
-        for(int i = 0, n = values.length; i < n; i++){
-            out.writeDouble(values[i]);
+        return value(values, 0, values.length);
+    }
+
+    /**
+     * Appends a region of the array as an optimized array. The elements are converted in bulk through a buffer.
+     * @return this writer, for chaining
+     */
+    public UBJsonWriter value(double[] values, int offset, int length) throws IOException{
+        typedArray('D', length);
+        DoubleBuffer view = scratch().asDoubleBuffer();
+        for(int i = 0; i < length; i += view.capacity()){
+            int amount = Math.min(length - i, view.capacity());
+            view.clear();
+            view.put(values, offset + i, amount);
+            out.write(scratch.array(), 0, amount * 8);
         }
         pop(true);
         return this;
     }
 
+    /**
+     * Appends the items of an {@link IntSeq} as an optimized {@code int32} array.
+     * @return this writer, for chaining
+     */
+    public UBJsonWriter value(IntSeq values) throws IOException{
+        return value(values.items, 0, values.size);
+    }
+
+    /**
+     * Appends the items of a {@link FloatSeq} as an optimized {@code float32} array.
+     * @return this writer, for chaining
+     */
+    public UBJsonWriter value(FloatSeq values) throws IOException{
+        return value(values.items, 0, values.size);
+    }
+
     /**
      * Appends a {@code boolean array} value to the stream.
      * @return this writer, for chaining
@@ -345,13 +405,21 @@ public class UBJsonWriter implements Closeable, BaseJsonWriter{
      * @return this writer, for chaining
      */
     public UBJsonWriter value(char[] values) throws IOException{
-        array();
-        out.writeByte('$');
-        out.writeByte('C');
-        out.writeByte('#');
-        value(values.length);
-        for(int i = 0, n = values.length; i < n; i++){
-            out.writeChar(values[i]);
+        return value(values, 0, values.length);
+    }
+
+    /**
+     * Appends a region of the array as an optimized array. The elements are converted in bulk through a buffer.
+     * @return this writer, for chaining
+     */
+    public UBJsonWriter value(char[] values, int offset, int length) throws IOException{
+        typedArray('C', length);
+        CharBuffer view = scratch().asCharBuffer();
+        for(int i = 0; i < length; i += view.capacity()){
+            int amount = Math.min(length - i, view.capacity());
+            view.clear();
+            view.put(values, offset + i, amount);
+            out.write(scratch.array(), 0, amount * 2);
         }
         pop(true);
         return this;
@@ -607,6 +675,22 @@ public class UBJsonWriter implements Closeable, BaseJsonWriter{
         return name(name).value(value);
     }
 
+    /**
+     * Appends a named {@link IntSeq} value to the stream.
+     * @return this writer, for chaining
+     */
+    public UBJsonWriter set(String name, IntSeq value) throws IOException{
+        return name(name).value(value);
+    }
+
+    /**
+     * Appends a named {@link FloatSeq} value to the stream.
+     * @return this writer, for chaining
+     */
+    public UBJsonWriter set(String name, FloatSeq value) throws IOException{
+        return name(name).value(value);
+    }
+
     /**
      * Appends a named {@code boolean} array value to the stream.
      * @return this writer, for chaining
@@ -639,6 +723,22 @@ public class UBJsonWriter implements Closeable, BaseJsonWriter{
         return name(name).value();
     }
 
+    /** Begins an optimized array with the given element type and count. Must be closed with pop(true). */
+    private void typedArray(char type, int length) throws IOException{
+        array();
+        out.writeByte('$');
+        out.writeByte(type);
+        out.writeByte('#');
+        value(length);
+    }
+
+    /** @return a cleared scratch buffer, used for converting primitive arrays to bytes in bulk. */
+    private ByteBuffer scratch(){
+        if(scratch == null) scratch = ByteBuffer.allocate(Streams.defaultBufferSize);
+        scratch.clear();
+        return scratch;
+    }
+
     private void checkName(){
         if(current != null){
             if(!current.array){
@@ -0,0 +1,157 @@
+import arc.*;
+import arc.func.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class EventsTest{
+
+    @Before
+    public void clear(){
+        Events.clear();
+    }
+
+    @Test
+    public void priorities(){
+        IntSeq order = new IntSeq();
+        Events.on(TestEvent.class, e -> order.add(0));
+        Events.on(TestEvent.class, 10, e -> order.add(10));
+        Events.on(TestEvent.class, -5, e -> order.add(-5));
+        Events.on(TestEvent.class, e -> order.add(1));
+
+        Events.fire(new TestEvent());
+
+        assertEquals(IntSeq.with(10, 0, 1, -5), order);
+    }
+
+    @Test
+    public void cancellation(){
+        IntSeq order = new IntSeq();
+        Events.on(CancelEvent.class, 5, e -> {
+            order.add(5);
+            e.cancelled = true;
+        });
+        Events.on(CancelEvent.class, e -> order.add(0));
+
+        Events.fire(new CancelEvent());
+
+        assertEquals(IntSeq.with(5), order);
+    }
+
+    @Test
+    public void triggersAndRemoval(){
+        int[] count = {0};
+        Runnable listener = () -> count[0]++;
+        Cons<TestEvent> cons = e -> count[0] += 10;
+
+        Events.run(Trigger.a, listener);
+        Events.on(TestEvent.class, cons);
+
+        Events.fire(Trigger.a);
+        Events.fire(Trigger.b);
+        Events.fire(new TestEvent());
+        assertEquals(11, count[0]);
+
+        assertTrue(Events.remove(Trigger.a, listener));
+        assertTrue(Events.remove(TestEvent.class, cons));
+        assertFalse(Events.remove(TestEvent.class, cons));
+
+        Events.fire(Trigger.a);
+        Events.fire(new TestEvent());
+        assertEquals(11, count[0]);
+    }
+
+    @Test
+    public void slots(){
+        int slot = Events.slot(TestEvent.class);
+        assertEquals(slot, Events.slot(TestEvent.class));
+
+        int[] count = {0};
+        Events.on(TestEvent.class, e -> count[0]++);
+        Events.fire(slot, new TestEvent());
+        Events.clear();
+        Events.fire(slot, new TestEvent());
+
+        assertEquals(slot, Events.slot(TestEvent.class));
+        assertEquals(1, count[0]);
+    }
+
+    @Test
+    public void async() throws Exception{
+        CountDownLatch latch = new CountDownLatch(1);
+        Events.on(TestEvent.class, e -> latch.countDown());
+        Events.fireAsync(new TestEvent());
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void benchmark(){
+        int listenerCount = 4, fires = 5_000_000;
+        ObjectMap<Object, Seq<Cons<?>>> legacy = new ObjectMap<>();
+        int[] sink = {0};
+
+        for(int i = 0; i < listenerCount; i++){
+            Cons<TestEvent> cons = e -> sink[0]++;
+            Events.on(TestEvent.class, cons);
+            legacy.get(TestEvent.class, () -> new Seq<>(Cons.class)).add(cons);
+        }
+
+        TestEvent event = new TestEvent();
+        int slot = Events.slot(TestEvent.class);
+
+        for(int warmup = 0; warmup < 3; warmup++){
+            long legacyTime = 0, fireTime = 0, slotTime = 0;
+
+            long start = Time.nanos();
+            for(int i = 0; i < fires; i++) legacyFire(legacy, event.getClass(), event);
+            legacyTime += Time.timeSinceNanos(start);
+
+            start = Time.nanos();
+            for(int i = 0; i < fires; i++) Events.fire(event);
+            fireTime += Time.timeSinceNanos(start);
+
+            start = Time.nanos();
+            for(int i = 0; i < fires; i++) Events.fire(slot, event);
+            slotTime += Time.timeSinceNanos(start);
+
+            Log.info("[Events] legacy: @ns/fire | fire(T): @ns/fire | fire(slot): @ns/fire",
+                Strings.fixed(legacyTime / (float)fires, 2), Strings.fixed(fireTime / (float)fires, 2), Strings.fixed(slotTime / (float)fires, 2));
+        }
+
+        assertEquals(listenerCount * fires * 3 * 3, sink[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    static void legacyFire(ObjectMap<Object, Seq<Cons<?>>> events, Class<?> ctype, Object type){
+        Seq<Cons<?>> listeners = events.get(ctype);
+
+        if(listeners != null){
+            int len = listeners.size;
+            Cons[] items = listeners.items;
+            for(int i = 0; i < len; i++){
+                items[i].get(type);
+            }
+        }
+    }
+
+    enum Trigger{
+        a, b
+    }
+
+    static class TestEvent{
+    }
+
+    static class CancelEvent implements Events.Cancellable{
+        boolean cancelled;
+
+        @Override
+        public boolean isCancelled(){
+            return cancelled;
+        }
+    }
+}
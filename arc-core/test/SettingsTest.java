@@ -0,0 +1,344 @@
+import arc.*;
+import arc.files.*;
+import arc.util.*;
+import org.junit.*;
+
+import java.io.*;
+import java.nio.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class SettingsTest{
+    Fi directory;
+
+    @Before
+    public void setup() throws IOException{
+        directory = new Fi(java.nio.file.Files.createTempDirectory("settings").toFile());
+    }
+
+    @After
+    public void cleanup(){
+        directory.deleteDirectory();
+    }
+
+    Settings create(){
+        Settings settings = new Settings();
+        settings.setDataDirectory(directory);
+        settings.setJournaled(true);
+        settings.load();
+        return settings;
+    }
+
+    @Test
+    public void journalRoundTrip(){
+        Settings settings = create();
+        settings.put("a", 1);
+        settings.put("b", "text");
+        settings.put("c", new byte[]{1, 2, 3});
+        settings.forceSave();
+        long baseLength = settings.getSettingsFile().length();
+
+        settings.put("a", 2);
+        settings.put("d", 5L);
+        settings.remove("b");
+        settings.forceSave();
+        settings.put("e", 0.5f);
+        settings.forceSave();
+
+        assertEquals(baseLength, settings.getSettingsFile().length());
+        assertTrue(settings.getJournalFile().exists());
+
+        Settings loaded = create();
+        assertEquals(2, loaded.getInt("a", 0));
+        assertFalse(loaded.has("b"));
+        assertArrayEquals(new byte[]{1, 2, 3}, loaded.getBytes("c"));
+        assertEquals(5L, loaded.getLong("d", 0));
+        assertEquals(0.5f, loaded.getFloat("e", 0f), 0f);
+
+        loaded.clear();
+        loaded.put("f", true);
+        loaded.forceSave();
+
+        Settings cleared = create();
+        assertEquals(1, cleared.keySize());
+        assertTrue(cleared.getBool("f", false));
+    }
+
+    @Test
+    public void damagedJournal(){
+        Settings settings = create();
+        settings.put("a", 1);
+        settings.forceSave();
+        settings.put("a", 2);
+        settings.forceSave();
+        settings.put("a", 3);
+        settings.forceSave();
+
+        //simulate a torn write by cutting the last record short
+        Fi journal = settings.getJournalFile();
+        byte[] bytes = journal.readBytes();
+        journal.writeBytes(bytes, 0, bytes.length - 2, false);
+
+        Settings loaded = create();
+        assertEquals(2, loaded.getInt("a", 0));
+        //the damaged journal is merged into the settings file
+        assertFalse(loaded.getJournalFile().exists());
+
+        loaded.put("a", 4);
+        loaded.forceSave();
+        assertEquals(4, create().getInt("a", 0));
+    }
+
+    @Test
+    public void missingSettingsFile(){
+        Settings settings = create();
+        settings.put("a", 1);
+        settings.put("b", "text");
+        settings.forceSave();
+
+        //loading copies the settings file to the backup
+        settings = create();
+        settings.put("a", 2);
+        settings.forceSave();
+        assertTrue(settings.getJournalFile().exists());
+
+        //e.g. a failed full save deleted it before the journal was reset
+        settings.getSettingsFile().delete();
+
+        Settings loaded = create();
+        assertEquals(2, loaded.getInt("a", 0));
+        assertEquals("text", loaded.getString("b", null));
+        assertTrue(loaded.getSettingsFile().exists());
+
+        loaded.put("c", 3);
+        loaded.forceSave();
+        Settings reloaded = create();
+        assertEquals(2, reloaded.getInt("a", 0));
+        assertEquals("text", reloaded.getString("b", null));
+        assertEquals(3, reloaded.getInt("c", 0));
+    }
+
+    @Test
+    public void compaction(){
+        Settings settings = create();
+        settings.put("blob", new byte[100_000]);
+        settings.forceSave();
+
+        for(int i = 0; i < 3; i++){
+            byte[] blob = new byte[100_000];
+            blob[0] = (byte)i;
+            settings.put("blob", blob);
+            settings.put("count", i);
+            settings.forceSave();
+        }
+
+        //without compaction, the journal would hold all three blobs
+        long start = Time.millis();
+        while(settings.getJournalFile().length() >= 300_000 && Time.timeSinceMillis(start) < 5000){
+            Threads.sleep(10);
+        }
+
+        assertTrue(settings.getJournalFile().length() < 300_000);
+        Settings loaded = create();
+        assertEquals(2, loaded.getBytes("blob")[0]);
+        assertEquals(2, loaded.getInt("count", 0));
+    }
+
+    @Test
+    public void benchmark(){
+        Settings full = new Settings(), journaled = create();
+        full.setDataDirectory(directory.child("full"));
+        full.load();
+        directory.child("full").mkdirs();
+
+        for(Settings settings : new Settings[]{full, journaled}){
+            settings.put("blob", new byte[2_000_000]);
+            for(int i = 0; i < 1000; i++){
+                settings.put("key" + i, "value" + i);
+            }
+            settings.forceSave();
+        }
+
+        int saves = 50;
+        long[] time = new long[2];
+        Settings[] all = {full, journaled};
+        for(int s = 0; s < 2; s++){
+            for(int i = 0; i < saves; i++){
+                all[s].put("counter", i);
+                long start = Time.nanos();
+                all[s].forceSave();
+                time[s] += Time.timeSinceNanos(start);
+            }
+        }
+
+        Log.info("[Settings] 2MB store, one key changed per save: full rewrite @ms/save | journal @ms/save",
+            Strings.fixed(time[0] / 1000000f / saves, 3), Strings.fixed(time[1] / 1000000f / saves, 3));
+        assertEquals(saves - 1, create().getInt("counter", -1));
+    }
+
+    @Test
+    public void mappedRoundTrip(){
+        Settings settings = new Settings();
+        settings.setDataDirectory(directory);
+        settings.setMapped(true);
+        settings.load();
+        settings.put("a", 1);
+        settings.put("blob", new byte[]{4, 5, 6});
+        settings.putJson("json", new int[]{7, 8, 9});
+        settings.forceSave();
+
+        Settings loaded = new Settings();
+        loaded.setDataDirectory(directory);
+        loaded.setMapped(true);
+        loaded.load();
+
+        ByteBuffer buffer = loaded.getBuffer("blob");
+        assertEquals(3, buffer.remaining());
+        assertEquals(5, buffer.get(1));
+        assertArrayEquals(new int[]{7, 8, 9}, loaded.getJson("json", int[].class, () -> null));
+
+        //saving must not disturb values that are still backed by the mapped file
+        loaded.put("a", 2);
+        loaded.forceSave();
+        assertEquals(5, buffer.get(1));
+        assertArrayEquals(new byte[]{4, 5, 6}, loaded.getBytes("blob"));
+        assertFalse(loaded.getPendingSettingsFile().exists());
+
+        Settings reloaded = new Settings();
+        reloaded.setDataDirectory(directory);
+        reloaded.load();
+        assertEquals(2, reloaded.getInt("a", 0));
+        assertArrayEquals(new int[]{7, 8, 9}, reloaded.getJson("json", int[].class, () -> null));
+
+        //files can be converted back to the stream format
+        reloaded.saveValues();
+        Settings converted = new Settings();
+        converted.setDataDirectory(directory);
+        converted.load();
+        assertArrayEquals(new byte[]{4, 5, 6}, converted.getBytes("blob"));
+    }
+
+    @Test
+    public void saveDuringCompaction() throws Exception{
+        CountDownLatch started = new CountDownLatch(1), proceed = new CountDownLatch(1);
+        Thread main = Thread.currentThread();
+
+        Settings settings = new Settings(){
+            {
+                minCompactSize = 0;
+            }
+
+            @Override
+            protected void writeValue(DataOutputStream stream, Object value) throws IOException{
+                //pause the background compaction halfway through writing its file
+                if(Thread.currentThread() != main && started.getCount() > 0){
+                    started.countDown();
+                    try{
+                        proceed.await();
+                    }catch(InterruptedException ignored){
+                    }
+                }
+                super.writeValue(stream, value);
+            }
+        };
+        //full saves only go through a temporary file while the loaded settings file is mapped
+        Settings initial = new Settings();
+        initial.setDataDirectory(directory);
+        initial.setMapped(true);
+        initial.load();
+        for(int i = 0; i < 20; i++){
+            initial.put("key" + i, "value" + i);
+        }
+        initial.forceSave();
+
+        settings.setDataDirectory(directory);
+        settings.setJournaled(true);
+        settings.setMapped(true);
+        settings.load();
+
+        settings.put("blob", new byte[50_000]);
+        settings.forceSave();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        //a full save while the compaction is still writing
+        settings.put("a", 42);
+        settings.saveValues();
+        proceed.countDown();
+
+        long start = Time.millis();
+        while(settings.getDataDirectory().child("settings.bin.compact").exists() && Time.timeSinceMillis(start) < 5000){
+            Threads.sleep(10);
+        }
+        Threads.sleep(100);
+
+        Settings loaded = new Settings();
+        loaded.setDataDirectory(directory);
+        loaded.setJournaled(true);
+        loaded.setMapped(true);
+        loaded.load();
+        assertEquals(42, loaded.getInt("a", 0));
+        assertEquals(50_000, loaded.getBytes("blob").length);
+        assertEquals("value19", loaded.getString("key19", ""));
+    }
+
+    @Test
+    public void pendingSave(){
+        Settings settings = new Settings();
+        settings.setDataDirectory(directory);
+        settings.setMapped(true);
+        settings.load();
+        settings.put("a", 1);
+        settings.forceSave();
+        byte[] old = settings.getSettingsFile().readBytes();
+
+        settings.put("a", 2);
+        settings.forceSave();
+
+        //what a save leaves behind when the mapped settings file could not be replaced
+        settings.getSettingsFile().moveTo(settings.getPendingSettingsFile());
+        settings.getSettingsFile().writeBytes(old);
+
+        Settings loaded = new Settings();
+        loaded.setDataDirectory(directory);
+        loaded.load();
+        assertEquals(2, loaded.getInt("a", 0));
+        assertFalse(loaded.getPendingSettingsFile().exists());
+    }
+
+    @Test
+    public void startupBenchmark(){
+        int iterations = 10;
+        long[] time = new long[2];
+
+        for(int mode = 0; mode < 2; mode++){
+            Fi dir = directory.child("startup" + mode);
+            dir.mkdirs();
+
+            Settings settings = new Settings();
+            settings.setDataDirectory(dir);
+            settings.setMapped(mode == 1);
+            settings.load();
+            for(int i = 0; i < 32; i++){
+                settings.put("blob" + i, new byte[1_000_000]);
+            }
+            for(int i = 0; i < 500; i++){
+                settings.put("key" + i, i);
+            }
+            settings.forceSave();
+
+            for(int i = 0; i < iterations; i++){
+                long start = Time.nanos();
+                Settings loaded = new Settings();
+                loaded.setDataDirectory(dir);
+                loaded.load();
+                assertEquals(250, loaded.getInt("key250", 0));
+                assertEquals(1_000_000, loaded.getBytes("blob3").length);
+                time[mode] += Time.timeSinceNanos(start);
+            }
+        }
+
+        Log.info("[Settings] startup with 32MB of binary values, one read: stream format @ms | mapped format @ms",
+            Strings.fixed(time[0] / 1000000f / iterations, 2), Strings.fixed(time[1] / 1000000f / iterations, 2));
+    }
+}
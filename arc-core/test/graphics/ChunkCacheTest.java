@@ -0,0 +1,191 @@
+package graphics;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.mock.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class ChunkCacheTest{
+    static RecordingGL gl = new RecordingGL();
+
+    /** Number of sprites in each chunk of a 4x3 grid. */
+    int[] sprites = {1, 2, 0, 1, 3, 1, 1, 0, 2, 1, 1, 4};
+    IntSeq built = new IntSeq();
+    /** Chunk index that makes the renderer throw, or -1. */
+    int failing = -1;
+    TextureRegion region;
+    ChunkCache cache;
+
+    @BeforeClass
+    public static void init(){
+        ArcNativesLoader.load();
+        Core.app = new MockApplication();
+        Core.graphics = new MockGraphics();
+        Core.gl = Core.gl20 = gl;
+        Core.gl30 = null;
+    }
+
+    @Before
+    public void setup(){
+        region = new TextureRegion(Texture.createEmpty(null));
+        cache = new ChunkCache(4, 3, 32f, 8, (cx, cy) -> {
+            int index = cx + cy * 4;
+            built.add(index);
+            if(index == failing) throw new IllegalArgumentException("failed chunk");
+            for(int i = 0; i < sprites[index]; i++){
+                Draw.rect(region, cx * 32f + 4f * i, cy * 32f, 4f, 4f);
+            }
+        });
+        gl.clear();
+    }
+
+    @After
+    public void cleanup(){
+        cache.dispose();
+    }
+
+    @Test
+    public void dirtyRegions(){
+        assertEquals(12, cache.dirtyChunks());
+        cache.rebuildAll();
+        assertEquals(0, cache.dirtyChunks());
+        assertEquals(12, built.size);
+
+        built.clear();
+        //touches chunks (1, 0), (2, 0), (1, 1) and (2, 1)
+        cache.markDirty(40f, 10f, 40f, 30f);
+        cache.markDirty(1000f, 1000f);
+        cache.markChunk(1, 0);
+        assertEquals(4, cache.dirtyChunks());
+        assertTrue(cache.isDirty(2, 1));
+        assertFalse(cache.isDirty(0, 0));
+
+        cache.rebuildTime = Time.millisToNanos(1000);
+        cache.update();
+        assertEquals(IntSeq.with(1, 2, 5, 6), built);
+        assertEquals(0, cache.dirtyChunks());
+    }
+
+    @Test
+    public void budget(){
+        cache.maxRebuilds = 5;
+        cache.rebuildTime = Time.millisToNanos(1000);
+
+        cache.update();
+        assertEquals(5, cache.rebuilt);
+        cache.update();
+        cache.update();
+        assertEquals(2, cache.rebuilt);
+        assertEquals(IntSeq.range(0, 12), built);
+
+        cache.update();
+        assertEquals(0, cache.rebuilt);
+
+        //at least one chunk is rebuilt, even without any time
+        cache.rebuildTime = 0;
+        cache.markAll();
+        cache.update();
+        assertEquals(1, cache.rebuilt);
+    }
+
+    @Test
+    public void culling(){
+        cache.rebuildAll();
+
+        Camera camera = new Camera();
+        camera.position.set(48f, 48f);
+        camera.resize(20f, 20f);
+        cache.draw(camera);
+        assertEquals(1, cache.drawn);
+        assertEquals(IntSeq.with(sprites[5] * 6), gl.draws);
+
+        //spans chunks (0, 0) to (2, 1), of which (2, 0) is empty
+        gl.clear();
+        camera.position.set(40f, 30f);
+        camera.resize(60f, 20f);
+        cache.draw(camera);
+        assertEquals(5, cache.drawn);
+        assertEquals(5, gl.draws.size);
+
+        //grid is entirely off screen
+        camera.position.set(-100f, 48f);
+        cache.draw(camera);
+        assertEquals(0, cache.drawn);
+    }
+
+    @Test
+    public void visibleFirst(){
+        cache.rebuildAll();
+
+        Camera camera = new Camera();
+        camera.position.set(112f, 80f);
+        camera.resize(10f, 10f);
+        cache.draw(camera);
+
+        built.clear();
+        cache.maxRebuilds = 1;
+        cache.markAll();
+        cache.update();
+        assertEquals(IntSeq.with(11), built);
+        cache.update();
+        assertEquals(IntSeq.with(11, 0), built);
+    }
+
+    @Test
+    public void emptyChunks(){
+        sprites[2] = 0;
+        cache.rebuildAll();
+
+        Camera camera = new Camera();
+        camera.position.set(80f, 16f);
+        camera.resize(10f, 10f);
+        cache.draw(camera);
+        assertEquals(0, cache.drawn);
+
+        sprites[2] = 8;
+        cache.markDirty(80f, 16f);
+        cache.update();
+        cache.draw(camera);
+        assertEquals(1, cache.drawn);
+        assertEquals(IntSeq.with(8 * 6), gl.draws);
+    }
+
+    @Test
+    public void rendererError(){
+        cache.rebuildAll();
+        Batch batch = Core.batch;
+
+        failing = 5;
+        cache.markChunk(1, 1);
+        try{
+            cache.update();
+            fail();
+        }catch(IllegalArgumentException expected){
+        }
+        assertSame(batch, Core.batch);
+        assertTrue(cache.isDirty(1, 1));
+
+        //the chunk is dropped until it builds again
+        Camera camera = new Camera();
+        camera.position.set(48f, 48f);
+        camera.resize(20f, 20f);
+        cache.draw(camera);
+        assertEquals(0, cache.drawn);
+
+        failing = -1;
+        built.clear();
+        cache.update();
+        assertEquals(IntSeq.with(5), built);
+        assertEquals(0, cache.dirtyChunks());
+
+        gl.clear();
+        cache.draw(camera);
+        assertEquals(1, cache.drawn);
+        assertEquals(IntSeq.with(sprites[5] * 6), gl.draws);
+    }
+}
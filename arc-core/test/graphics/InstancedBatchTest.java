@@ -0,0 +1,136 @@
+package graphics;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.math.*;
+import arc.mock.*;
+import arc.struct.*;
+import arc.util.*;
+import graphics.SpriteBatchTest.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class InstancedBatchTest{
+    static RecordingGL gl = new RecordingGL();
+
+    Batch previous;
+    TextureRegion[] regions = new TextureRegion[2];
+    float[] quad = new float[SpriteBatch.SPRITE_SIZE];
+
+    @BeforeClass
+    public static void init(){
+        ArcNativesLoader.load();
+        Core.graphics = new MockGraphics();
+        Core.gl = Core.gl20 = gl;
+        Core.gl30 = null;
+    }
+
+    @Before
+    public void setup(){
+        previous = Core.batch;
+        for(int i = 0; i < regions.length; i++){
+            regions[i] = new TextureRegion(Texture.createEmpty(null));
+            regions[i].set(0.5f * i, 0.25f, 0.5f * i + 0.25f, 0.5f);
+        }
+    }
+
+    @After
+    public void cleanup(){
+        Core.batch = previous;
+    }
+
+    @Test
+    public void layout(){
+        float[] instance = {10f, 20f, 2f, 3f, 4f, 6f, 0f, Color.whiteFloatBits, Color.clearFloatBits, 0.1f, 0.2f, 0.3f, 0.4f};
+        float[] vertices = new float[SpriteBatch.SPRITE_SIZE];
+        InstancedBatch.expand(instance, 0, vertices, 0);
+
+        assertArrayEquals(new float[]{
+        10f, 20f, Color.whiteFloatBits, 0.1f, 0.2f, Color.clearFloatBits,
+        10f, 26f, Color.whiteFloatBits, 0.1f, 0.4f, Color.clearFloatBits,
+        14f, 26f, Color.whiteFloatBits, 0.3f, 0.4f, Color.clearFloatBits,
+        14f, 20f, Color.whiteFloatBits, 0.3f, 0.2f, Color.clearFloatBits,
+        }, vertices, 0.0001f);
+    }
+
+    @Test
+    public void matchesSpriteBatch(){
+        for(boolean sort : new boolean[]{false, true}){
+            RecordingBatch reference = new RecordingBatch();
+            RecordingInstances batch = new RecordingInstances();
+
+            draw(reference, sort, 500);
+            draw(batch, sort, 500);
+
+            float[] expected = reference.vertices.toArray(), instances = batch.instances.toArray();
+            assertEquals(500 * InstancedBatch.INSTANCE_SIZE, instances.length);
+
+            float[] actual = new float[expected.length];
+            for(int i = 0; i < 500; i++){
+                InstancedBatch.expand(instances, i * InstancedBatch.INSTANCE_SIZE, actual, i * SpriteBatch.SPRITE_SIZE);
+            }
+            //rotation uses exact trigonometry instead of lookup tables
+            assertArrayEquals(expected, actual, 0.05f);
+
+            reference.dispose();
+            batch.dispose();
+        }
+    }
+
+    @Test
+    public void keepsOrder(){
+        RecordingInstances batch = new RecordingInstances();
+        Core.batch = batch;
+
+        Draw.rect(regions[0], 0f, 0f, 1f, 1f);
+        Draw.rect(regions[0], 0f, 0f, 1f, 1f);
+        Draw.vert(regions[0].texture, quad, 0, quad.length);
+        Draw.rect(regions[0], 0f, 0f, 1f, 1f);
+        Draw.rect(regions[1], 0f, 0f, 1f, 1f);
+        Draw.flush();
+
+        //instance counts, with -1 for raw vertices
+        assertArrayEquals(new int[]{2, -1, 1, 1}, batch.events.toArray());
+        batch.dispose();
+    }
+
+    void draw(SpriteBatch batch, boolean sort, int sprites){
+        Core.batch = batch;
+        Draw.sort(sort);
+        for(int i = 0; i < sprites; i++){
+            Rand rand = new Rand(i);
+            Draw.z(i % 3);
+            Draw.color(rand.random(1f), rand.random(1f), rand.random(1f), 1f);
+            Draw.rect(regions[(i / 5) % regions.length], rand.random(1000f), rand.random(1000f), rand.random(1f, 40f), rand.random(1f, 40f), i % 2 == 0 ? 0f : rand.random(360f));
+        }
+        Draw.flush();
+        Draw.sort(false);
+        Draw.reset();
+    }
+
+    static class RecordingInstances extends InstancedBatch{
+        FloatSeq instances = new FloatSeq();
+        IntSeq events = new IntSeq();
+
+        RecordingInstances(){
+            super(1000);
+        }
+
+        @Override
+        protected void flushInstances(){
+            if(numInstances > 0){
+                instances.addAll(super.instances, 0, numInstances * INSTANCE_SIZE);
+                events.add(numInstances);
+            }
+            super.flushInstances();
+        }
+
+        @Override
+        protected void drawSuper(Texture texture, float[] spriteVertices, int offset, int count){
+            super.drawSuper(texture, spriteVertices, offset, count);
+            events.add(-1);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package graphics;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.mock.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class MultiTextureBatchTest{
+    static RecordingGL gl = new RecordingGL();
+
+    Batch previous;
+    TextureRegion[] regions = new TextureRegion[4];
+
+    @BeforeClass
+    public static void init(){
+        ArcNativesLoader.load();
+        Core.graphics = new MockGraphics();
+        Core.gl = Core.gl20 = gl;
+        Core.gl30 = null;
+    }
+
+    @Before
+    public void setup(){
+        previous = Core.batch;
+        for(int i = 0; i < regions.length; i++){
+            regions[i] = new TextureRegion(Texture.createEmpty(null));
+        }
+        gl.clear();
+    }
+
+    @After
+    public void cleanup(){
+        Core.batch = previous;
+    }
+
+    @Test
+    public void interleavedTextures(){
+        assertEquals(100, draw(new SpriteBatch(100), 100, false));
+        assertEquals(1, draw(new MultiTextureBatch(100, 4, null), 100, false));
+        assertEquals(6 * 100, gl.draws.first());
+    }
+
+    @Test
+    public void slotOverflow(){
+        //with fewer units than textures, every batch holds as many sprites as there are units
+        assertEquals(50, draw(new MultiTextureBatch(100, 2, null), 100, false));
+        assertEquals(34, draw(new MultiTextureBatch(100, 3, null), 100, false));
+    }
+
+    @Test
+    public void sorted(){
+        assertEquals(1, draw(new MultiTextureBatch(100, 4, null), 100, true));
+    }
+
+    @Test
+    public void capacity(){
+        assertEquals(3, draw(new MultiTextureBatch(10, 4, null), 25, false));
+        assertEquals(6 * 10, gl.draws.get(0));
+        assertEquals(6 * 10, gl.draws.get(1));
+        assertEquals(6 * 5, gl.draws.get(2));
+    }
+
+    /** @return the number of draw calls made for the sprites. */
+    int draw(SpriteBatch batch, int sprites, boolean sort){
+        gl.clear();
+        Core.batch = batch;
+        Draw.sort(sort);
+        for(int i = 0; i < sprites; i++){
+            Draw.z(i % 3);
+            Draw.rect(regions[i % regions.length], i, i, 1f, 1f);
+        }
+        Draw.flush();
+        Draw.sort(false);
+        batch.dispose();
+        return gl.draws.size;
+    }
+}
@@ -0,0 +1,105 @@
+package graphics;
+
+import arc.graphics.*;
+import arc.mock.*;
+import arc.struct.*;
+
+import java.nio.*;
+
+/** Mock GL that compiles every shader and records draw calls and buffer uploads. */
+public class RecordingGL extends MockGL20{
+    /** Index counts of draw calls. */
+    public IntSeq draws = new IntSeq();
+    /** Sizes of glBufferData calls for vertex buffers. */
+    public IntSeq allocations = new IntSeq();
+    /** Offsets of glBufferSubData calls for vertex buffers. */
+    public IntSeq uploads = new IntSeq();
+    /** Offsets of glVertexAttribPointer calls for location 0. */
+    public IntSeq pointers = new IntSeq();
+    /** Attributes reported as active in every program; their locations are their indices. */
+    public String[] attributes = {};
+
+    int handles;
+
+    public void clear(){
+        draws.clear();
+        allocations.clear();
+        uploads.clear();
+        pointers.clear();
+    }
+
+    @Override
+    public int glCreateShader(int type){
+        return ++handles;
+    }
+
+    @Override
+    public int glCreateProgram(){
+        return ++handles;
+    }
+
+    @Override
+    public int glGenBuffer(){
+        return ++handles;
+    }
+
+    @Override
+    public void glGetShaderiv(int shader, int pname, IntBuffer params){
+        if(pname == GL20.GL_COMPILE_STATUS) params.put(0, 1);
+    }
+
+    @Override
+    public void glGetProgramiv(int program, int pname, IntBuffer params){
+        if(pname == GL20.GL_LINK_STATUS) params.put(0, 1);
+        if(pname == GL20.GL_ACTIVE_ATTRIBUTES) params.put(0, attributes.length);
+        if(pname == GL20.GL_ACTIVE_UNIFORMS) params.put(0, 0);
+    }
+
+    @Override
+    public String glGetActiveAttrib(int program, int index, IntBuffer size, IntBuffer type){
+        return attributes[index];
+    }
+
+    @Override
+    public int glGetAttribLocation(int program, String name){
+        for(int i = 0; i < attributes.length; i++){
+            if(attributes[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public String glGetShaderInfoLog(int shader){
+        return "";
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program){
+        return "";
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage){
+        if(target == GL20.GL_ARRAY_BUFFER) allocations.add(size);
+    }
+
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data){
+        if(target == GL20.GL_ARRAY_BUFFER) uploads.add(offset);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int ptr){
+        if(indx == 0) pointers.add(ptr);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, Buffer indices){
+        draws.add(count);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int indices){
+        draws.add(count);
+    }
+}
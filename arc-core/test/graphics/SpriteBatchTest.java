@@ -0,0 +1,124 @@
+package graphics;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.math.*;
+import arc.mock.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class SpriteBatchTest{
+    static RecordingGL gl = new RecordingGL();
+
+    Batch previous;
+    TextureRegion[] regions = new TextureRegion[2];
+    float[] quad = new float[SpriteBatch.SPRITE_SIZE];
+
+    @BeforeClass
+    public static void init(){
+        ArcNativesLoader.load();
+        Core.graphics = new MockGraphics();
+        Core.gl = Core.gl20 = gl;
+        Core.gl30 = null;
+    }
+
+    @Before
+    public void setup(){
+        previous = Core.batch;
+        for(int i = 0; i < regions.length; i++){
+            regions[i] = new TextureRegion(Texture.createEmpty(null));
+            regions[i].set(0.25f * i, 0.5f, 0.25f * i + 0.125f, 0.75f);
+        }
+        for(int i = 0; i < quad.length; i++){
+            quad[i] = i;
+        }
+    }
+
+    @After
+    public void cleanup(){
+        Core.batch = previous;
+        Core.app = null;
+    }
+
+    @Test
+    public void serialGeneration(){
+        compare(1000, new RecordingBatch());
+    }
+
+    @Test
+    public void parallelGeneration(){
+        //a desktop application enables multithreaded sorting, and this many sprites are generated in parallel
+        Core.app = new MockApplication(){
+            @Override
+            public ApplicationType getType(){
+                return ApplicationType.desktop;
+            }
+        };
+        compare(20000, new RecordingBatch());
+    }
+
+    /** Draws sprites sorted by z, and checks that the vertices match drawing them unsorted in the sorted order. */
+    void compare(int sprites, RecordingBatch batch){
+        Core.batch = batch;
+
+        Draw.sort(true);
+        for(int i = 0; i < sprites; i++){
+            Draw.z(i % 3);
+            sprite(i);
+        }
+        //a request of plain vertices between the sprites
+        Draw.z(1);
+        Draw.vert(regions[0].texture, quad, 0, quad.length);
+        Draw.flush();
+        Draw.sort(false);
+        float[] sorted = batch.vertices.toArray();
+
+        batch.vertices.clear();
+        for(int z = 0; z < 3; z++){
+            for(int i = z; i < sprites; i += 3){
+                sprite(i);
+            }
+            if(z == 1) Draw.vert(regions[0].texture, quad, 0, quad.length);
+        }
+        Draw.flush();
+        float[] expected = batch.vertices.toArray();
+
+        Draw.reset();
+        batch.dispose();
+
+        assertEquals(sprites * SpriteBatch.SPRITE_SIZE + SpriteBatch.SPRITE_SIZE, expected.length);
+        assertArrayEquals(expected, sorted, 0f);
+    }
+
+    void sprite(int i){
+        Rand rand = new Rand(i);
+        Draw.color(rand.random(1f), rand.random(1f), rand.random(1f), 1f);
+        Draw.mixcol(Color.white, i % 5 == 0 ? 0.5f : 0f);
+        Draw.rect(regions[(i / 7) % regions.length], rand.random(1000f), rand.random(1000f), rand.random(1f, 40f), rand.random(1f, 40f), i % 4 == 0 ? 0f : rand.random(360f));
+    }
+
+    static class RecordingBatch extends SpriteBatch{
+        FloatSeq vertices = new FloatSeq();
+        float[] sprite = new float[SPRITE_SIZE];
+
+        RecordingBatch(){
+            super(1000);
+        }
+
+        @Override
+        protected void drawSuper(Texture texture, float[] spriteVertices, int offset, int count){
+            vertices.addAll(spriteVertices, offset, count);
+            super.drawSuper(texture, spriteVertices, offset, count);
+        }
+
+        @Override
+        protected void drawSuper(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float rotation){
+            constructVertices(sprite, 0, region, x, y, originX, originY, width, height, rotation);
+            drawSuper(region.texture, sprite, 0, SPRITE_SIZE);
+        }
+    }
+}
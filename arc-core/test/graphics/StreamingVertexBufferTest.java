@@ -0,0 +1,92 @@
+package graphics;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.gl.*;
+import arc.mock.*;
+import arc.util.*;
+import org.junit.*;
+
+import java.nio.*;
+
+import static org.junit.Assert.*;
+
+public class StreamingVertexBufferTest{
+    static RecordingGL gl = new RecordingGL();
+
+    Shader shader;
+
+    @BeforeClass
+    public static void init(){
+        ArcNativesLoader.load();
+        Core.graphics = new MockGraphics();
+        Core.gl = Core.gl20 = gl;
+        Core.gl30 = null;
+    }
+
+    @Before
+    public void setup(){
+        gl.attributes = new String[]{Shader.positionAttribute};
+        shader = new Shader("void main(){}", "void main(){}");
+        gl.clear();
+    }
+
+    @After
+    public void cleanup(){
+        shader.dispose();
+        gl.attributes = new String[]{};
+    }
+
+    @Test
+    public void cyclesRegions(){
+        //4 vertices of 8 bytes each, 3 regions
+        Mesh mesh = new Mesh(false, 3, 4, 6, VertexAttribute.position);
+        assertTrue(mesh.vertices instanceof StreamingVertexBuffer);
+        mesh.setIndices(new short[]{0, 1, 2, 2, 3, 0});
+
+        for(int i = 0; i < 5; i++){
+            draw(mesh, 4);
+        }
+
+        assertEquals(5, gl.draws.size);
+        //orphaned on the first draw and once all 3 regions were used
+        assertEquals(2, gl.allocations.size);
+        assertEquals(3 * 4 * 8, gl.allocations.first());
+        assertArrayEquals(new int[]{0, 32, 64, 0, 32}, gl.uploads.toArray());
+        assertArrayEquals(gl.uploads.toArray(), gl.pointers.toArray());
+        mesh.dispose();
+    }
+
+    @Test
+    public void partialUploads(){
+        Mesh mesh = new Mesh(false, 2, 4, 6, VertexAttribute.position);
+        mesh.setIndices(new short[]{0, 1, 2, 2, 3, 0});
+
+        //smaller uploads pack tighter than the region size
+        for(int i = 0; i < 4; i++){
+            draw(mesh, 2);
+        }
+        assertArrayEquals(new int[]{0, 16, 32, 48}, gl.uploads.toArray());
+        assertEquals(1, gl.allocations.size);
+
+        //drawing again without changing the vertices reuses the last upload
+        mesh.render(shader, Gl.triangles, 0, 3);
+        assertEquals(4, gl.uploads.size);
+        assertEquals(48, gl.pointers.peek());
+        mesh.dispose();
+    }
+
+    @Test
+    public void fallback(){
+        assertTrue(new Mesh(true, 3, 4, 6, VertexAttribute.position).vertices instanceof VertexArray);
+        assertTrue(new Mesh(false, 1, 4, 6, VertexAttribute.position).vertices instanceof VertexBufferObject);
+    }
+
+    void draw(Mesh mesh, int vertices){
+        FloatBuffer buffer = mesh.getVerticesBuffer();
+        buffer.position(0);
+        buffer.limit(vertices * 2);
+        mesh.render(shader, Gl.triangles, 0, 6);
+        buffer.limit(buffer.capacity());
+    }
+}
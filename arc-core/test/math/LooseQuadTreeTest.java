@@ -0,0 +1,108 @@
+package math;
+
+import arc.math.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class LooseQuadTreeTest{
+    static final float worldSize = 4096f;
+
+    @Test
+    public void matchesBruteForce(){
+        Rand rand = new Rand(2);
+        int count = 2000;
+        float[] x = new float[count], y = new float[count], size = new float[count];
+        LooseQuadTree tree = new LooseQuadTree(new Rect(0, 0, worldSize, worldSize));
+
+        for(int i = 0; i < count; i++){
+            x[i] = rand.random(-100f, worldSize + 100f);
+            y[i] = rand.random(-100f, worldSize + 100f);
+            size[i] = rand.chance(0.01) ? rand.random(1000f) : rand.random(1f, 20f);
+            tree.insert(i, x[i], y[i], size[i], size[i]);
+        }
+
+        IntSeq result = new IntSeq(), expected = new IntSeq();
+        for(int frame = 0; frame < 50; frame++){
+            for(int i = 0; i < count; i++){
+                if(i % 97 == frame % 97){
+                    tree.remove(i);
+                    continue;
+                }
+                x[i] += rand.range(30f);
+                y[i] += rand.range(30f);
+                tree.update(i, x[i], y[i], size[i], size[i]);
+            }
+
+            for(int q = 0; q < 20; q++){
+                float qx = rand.random(worldSize), qy = rand.random(worldSize), qw = rand.random(400f), qh = rand.random(400f);
+
+                result.clear();
+                expected.clear();
+                tree.intersect(qx, qy, qw, qh, result);
+                for(int i = 0; i < count; i++){
+                    if(tree.contains(i) && Tmp.r1.set(x[i], y[i], size[i], size[i]).overlaps(qx, qy, qw, qh)){
+                        expected.add(i);
+                    }
+                }
+
+                result.sort();
+                assertEquals(expected, result);
+                assertEquals(expected.size > 0, tree.any(qx, qy, qw, qh));
+            }
+        }
+
+        for(int i = 0; i < count; i++){
+            tree.remove(i);
+        }
+        assertEquals(0, tree.size());
+        assertEquals(1, tree.nodes());
+    }
+
+    @Test
+    public void benchmark(){
+        for(int count : new int[]{10_000, 100_000, 1_000_000}){
+            Rand rand = new Rand(3);
+            float[] pos = new float[count * 2];
+            for(int i = 0; i < pos.length; i++){
+                pos[i] = rand.random(worldSize);
+            }
+
+            IntQuadTree rebuilt = new IntQuadTree(new Rect(0, 0, worldSize, worldSize), (id, out) -> out.set(pos[id * 2], pos[id * 2 + 1], 8f, 8f));
+            LooseQuadTree loose = new LooseQuadTree(new Rect(0, 0, worldSize, worldSize), 10);
+            for(int i = 0; i < count; i++){
+                loose.insert(i, pos[i * 2], pos[i * 2 + 1], 8f, 8f);
+            }
+
+            int frames = count >= 1_000_000 ? 3 : 10;
+            long rebuildTime = 0, updateTime = 0;
+
+            for(int frame = 0; frame < frames; frame++){
+                for(int i = 0; i < pos.length; i++){
+                    pos[i] = Mathf.clamp(pos[i] + rand.range(2f), 0f, worldSize - 8f);
+                }
+
+                long start = Time.nanos();
+                rebuilt.clear();
+                for(int i = 0; i < count; i++){
+                    rebuilt.insert(i);
+                }
+                rebuildTime += Time.timeSinceNanos(start);
+
+                start = Time.nanos();
+                for(int i = 0; i < count; i++){
+                    loose.update(i, pos[i * 2], pos[i * 2 + 1], 8f, 8f);
+                }
+                updateTime += Time.timeSinceNanos(start);
+            }
+
+            Log.info("[LooseQuadTree] @ objects: IntQuadTree rebuild @ms/frame | LooseQuadTree update @ms/frame",
+                count, Strings.fixed(rebuildTime / 1000000f / frames, 2), Strings.fixed(updateTime / 1000000f / frames, 2));
+
+            assertEquals(count, loose.size());
+        }
+    }
+}
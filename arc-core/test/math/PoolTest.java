@@ -6,6 +6,8 @@ import arc.util.*;
 import arc.util.pooling.*;
 import org.junit.*;
 
+import static org.junit.Assert.*;
+
 public class PoolTest{
 
     @Test
@@ -46,6 +48,95 @@ public class PoolTest{
         Log.info("Total memory allocated: @ mb", Strings.fixed((post - start)/1024f/1024f, 1));
     }
 
+    @Test
+    public void concurrentStats() throws Exception{
+        int threads = 4, iterations = 200000;
+        ConcurrentPool<Object> pool = new ConcurrentPool<Object>(1000, 16){
+            @Override
+            protected Object newObject(){
+                return new Object();
+            }
+        };
+
+        Thread[] workers = new Thread[threads];
+        for(int t = 0; t < threads; t++){
+            workers[t] = new Thread(() -> {
+                Seq<Object> held = new Seq<>();
+                for(int i = 0; i < iterations; i++){
+                    held.add(pool.obtain());
+                    if(held.size > 40 || i % 3 == 0){
+                        pool.freeAll(held);
+                        held.clear();
+                    }
+                }
+                pool.freeAll(held);
+            });
+            workers[t].start();
+        }
+
+        for(Thread worker : workers){
+            worker.join();
+        }
+
+        assertEquals(threads * iterations, pool.getObtained());
+        assertEquals(threads * iterations, pool.getFreed());
+        assertTrue(pool.getMissed() < pool.getObtained() / 10);
+        assertEquals(pool.getMissed(), pool.getFree() + pool.getDropped());
+        assertTrue(pool.peak <= 1000);
+
+        pool.clear();
+        assertEquals(0, pool.getFree());
+    }
+
+    @Test
+    public void deadThreads() throws Exception{
+        ConcurrentPool<Object> pool = new ConcurrentPool<Object>(1000, 16){
+            @Override
+            protected Object newObject(){
+                return new Object();
+            }
+        };
+
+        for(int t = 0; t < 8; t++){
+            Thread worker = new Thread(() -> {
+                Seq<Object> held = new Seq<>();
+                for(int i = 0; i < 10; i++){
+                    held.add(pool.obtain());
+                }
+                pool.freeAll(held);
+            });
+            worker.start();
+            worker.join();
+        }
+
+        //objects cached by terminated threads are reclaimed instead of allocating new ones
+        assertEquals(10, pool.getMissed());
+        assertEquals(10, pool.getFree());
+
+        for(int i = 0; i < 10; i++){
+            pool.obtain();
+        }
+        assertEquals(10, pool.getMissed());
+        assertEquals(90, pool.getObtained());
+        assertEquals(80, pool.getFreed());
+        assertEquals(0, pool.getFree());
+    }
+
+    @Test
+    public void dropped(){
+        Pool<PoolTest> pool = Pools.get(PoolTest.class, PoolTest::new, 10);
+        Seq<PoolTest> list = new Seq<>();
+        for(int i = 0; i < 100; i++){
+            list.add(Pools.obtain(PoolTest.class, PoolTest::new));
+        }
+        Pools.freeAll(list);
+
+        assertEquals(100, pool.getMissed());
+        assertEquals(100, pool.getFreed());
+        assertEquals(100, pool.getFree() + pool.getDropped());
+        assertTrue(pool.getDropped() > 0);
+    }
+
     long memory(){
         return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
     }
@@ -0,0 +1,249 @@
+package math;
+
+import arc.math.*;
+import arc.math.geom.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class QuadTreeNearestTest{
+    static final float worldSize = 2048f;
+    static final int count = 5000, k = 8;
+
+    float[] pos = new float[count * 2];
+    Point[] points = new Point[count];
+
+    @Before
+    public void setup(){
+        Rand rand = new Rand(4);
+        for(int i = 0; i < count; i++){
+            pos[i * 2] = rand.random(worldSize);
+            pos[i * 2 + 1] = rand.random(worldSize);
+            points[i] = new Point(pos[i * 2], pos[i * 2 + 1]);
+        }
+    }
+
+    @Test
+    public void matchesBruteForce(){
+        QuadTree<Point> tree = new QuadTree<>(new Rect(0, 0, worldSize, worldSize));
+        IntQuadTree intTree = new IntQuadTree(new Rect(0, 0, worldSize, worldSize), (id, out) -> out.set(pos[id * 2], pos[id * 2 + 1], 0f, 0f));
+        for(int i = 0; i < count; i++){
+            tree.insert(points[i]);
+            intTree.insert(i);
+        }
+
+        Rand rand = new Rand(5);
+        Seq<Point> result = new Seq<>();
+        IntSeq intResult = new IntSeq();
+        for(int q = 0; q < 500; q++){
+            float x = rand.random(-100f, worldSize + 100f), y = rand.random(-100f, worldSize + 100f), max = rand.chance(0.5) ? Float.MAX_VALUE : rand.random(200f);
+            float[] expected = bruteForce(x, y, max);
+
+            result.clear();
+            intResult.clear();
+            tree.nearest(x, y, k, max, result);
+            intTree.nearest(x, y, k, max, intResult);
+
+            assertEquals(expected.length, result.size);
+            assertEquals(expected.length, intResult.size);
+            for(int i = 0; i < expected.length; i++){
+                assertEquals(expected[i], Mathf.dst2(x, y, result.get(i).x, result.get(i).y), 0.001f);
+                assertEquals(expected[i], dst2(intResult.get(i), x, y), 0.001f);
+            }
+
+            Point single = tree.nearest(x, y, max);
+            int singleId = intTree.nearest(x, y, max);
+            if(expected.length == 0){
+                assertNull(single);
+                assertEquals(-1, singleId);
+            }else{
+                assertEquals(expected[0], Mathf.dst2(x, y, single.x, single.y), 0.001f);
+                assertEquals(expected[0], dst2(singleId, x, y), 0.001f);
+            }
+        }
+    }
+
+    @Test
+    public void noResults(){
+        QuadTree<Point> tree = new QuadTree<>(new Rect(0, 0, worldSize, worldSize));
+        IntQuadTree intTree = new IntQuadTree(new Rect(0, 0, worldSize, worldSize), (id, out) -> out.set(pos[id * 2], pos[id * 2 + 1], 0f, 0f));
+        tree.insert(points[0]);
+        intTree.insert(0);
+
+        Seq<Point> result = new Seq<>();
+        IntSeq intResult = new IntSeq();
+        assertEquals(0, tree.nearest(0f, 0f, 0, Float.MAX_VALUE, result));
+        assertEquals(0, intTree.nearest(0f, 0f, 0, Float.MAX_VALUE, intResult));
+        assertEquals(0, result.size);
+        assertEquals(0, intResult.size);
+
+        tree.nearest(new float[]{0f, 0f}, 1, 0, Float.MAX_VALUE, false, result);
+        intTree.nearest(new float[]{0f, 0f}, 1, 0, Float.MAX_VALUE, false, intResult);
+        assertEquals(0, result.size);
+        assertEquals(0, intResult.size);
+    }
+
+    @Test
+    public void hitboxHook(){
+        //places every point mirrored on the x axis, for both insertion and queries
+        QuadTree<Point> tree = new MirroredTree(new Rect(0, 0, worldSize, worldSize));
+        for(int i = 0; i < count; i++){
+            tree.insert(points[i]);
+        }
+
+        Rand rand = new Rand(7);
+        int queries = 1000;
+        float[] positions = new float[queries * 2];
+        for(int i = 0; i < positions.length; i++){
+            positions[i] = rand.random(worldSize);
+        }
+
+        Seq<Point> single = new Seq<>(), parallel = new Seq<>();
+        tree.nearest(positions, queries, 1, Float.MAX_VALUE, true, parallel);
+        for(int q = 0; q < queries; q++){
+            float x = positions[q * 2], y = positions[q * 2 + 1];
+            float expected = Float.MAX_VALUE;
+            for(Point point : points){
+                expected = Math.min(expected, Mathf.dst2(x, y, worldSize - point.x, point.y));
+            }
+
+            single.clear();
+            tree.nearest(x, y, 1, Float.MAX_VALUE, single);
+            assertEquals(expected, Mathf.dst2(x, y, worldSize - single.first().x, single.first().y), 0.001f);
+            assertEquals(expected, Mathf.dst2(x, y, worldSize - parallel.get(q).x, parallel.get(q).y), 0.001f);
+        }
+    }
+
+    @Test
+    public void batch(){
+        QuadTree<Point> tree = new QuadTree<>(new Rect(0, 0, worldSize, worldSize));
+        IntQuadTree intTree = new IntQuadTree(new Rect(0, 0, worldSize, worldSize), (id, out) -> out.set(pos[id * 2], pos[id * 2 + 1], 0f, 0f));
+        for(int i = 0; i < count; i++){
+            tree.insert(points[i]);
+            intTree.insert(i);
+        }
+
+        Rand rand = new Rand(6);
+        int queries = 4000;
+        float max = 150f;
+        float[] positions = new float[queries * 2];
+        for(int i = 0; i < positions.length; i++){
+            positions[i] = rand.random(worldSize);
+        }
+
+        Seq<Point> serial = new Seq<>(), parallel = new Seq<>();
+        IntSeq intSerial = new IntSeq(), intParallel = new IntSeq();
+        tree.nearest(positions, queries, k, max, false, serial);
+        tree.nearest(positions, queries, k, max, true, parallel);
+        intTree.nearest(positions, queries, k, max, false, intSerial);
+        intTree.nearest(positions, queries, k, max, true, intParallel);
+
+        assertEquals(queries * k, serial.size);
+        assertEquals(queries * k, intParallel.size);
+        for(int q = 0; q < queries; q++){
+            float x = positions[q * 2], y = positions[q * 2 + 1];
+            float[] expected = bruteForce(x, y, max);
+            for(int i = 0; i < k; i++){
+                int index = q * k + i;
+                if(i >= expected.length){
+                    assertNull(serial.get(index));
+                    assertNull(parallel.get(index));
+                    assertEquals(-1, intSerial.get(index));
+                    assertEquals(-1, intParallel.get(index));
+                }else{
+                    assertEquals(expected[i], Mathf.dst2(x, y, serial.get(index).x, serial.get(index).y), 0.001f);
+                    assertEquals(expected[i], Mathf.dst2(x, y, parallel.get(index).x, parallel.get(index).y), 0.001f);
+                    assertEquals(expected[i], dst2(intSerial.get(index), x, y), 0.001f);
+                    assertEquals(expected[i], dst2(intParallel.get(index), x, y), 0.001f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void benchmark(){
+        IntQuadTree tree = new IntQuadTree(new Rect(0, 0, worldSize, worldSize), (id, out) -> out.set(pos[id * 2], pos[id * 2 + 1], 0f, 0f));
+        for(int i = 0; i < count; i++){
+            tree.insert(i);
+        }
+
+        Rand rand = new Rand(7);
+        int queries = 20000;
+        float[] positions = new float[queries * 2];
+        for(int i = 0; i < positions.length; i++){
+            positions[i] = rand.random(worldSize);
+        }
+
+        IntSeq out = new IntSeq(), found = new IntSeq();
+        for(int i = 0; i < 3; i++){
+            tree.nearest(positions, queries, k, 200f, false, out);
+            tree.nearest(positions, queries, k, 200f, true, out);
+        }
+
+        long start = Time.nanos();
+        for(int q = 0; q < queries; q++){
+            found.clear();
+            tree.intersect(positions[q * 2] - 200f, positions[q * 2 + 1] - 200f, 400f, 400f, found);
+        }
+        long rangeTime = Time.timeSinceNanos(start);
+
+        start = Time.nanos();
+        tree.nearest(positions, queries, k, 200f, false, out);
+        long serialTime = Time.timeSinceNanos(start);
+
+        start = Time.nanos();
+        tree.nearest(positions, queries, k, 200f, true, out);
+        long parallelTime = Time.timeSinceNanos(start);
+
+        Log.info("[QuadTree] @ queries, k=@: range query @ms | nearest @ms | parallel nearest @ms", queries, k,
+            Strings.fixed(rangeTime / 1000000f, 2), Strings.fixed(serialTime / 1000000f, 2), Strings.fixed(parallelTime / 1000000f, 2));
+    }
+
+    float[] bruteForce(float x, float y, float max){
+        FloatSeq dst = new FloatSeq();
+        for(int i = 0; i < count; i++){
+            float d = dst2(i, x, y);
+            if(d <= max * max) dst.add(d);
+        }
+        dst.sort();
+        dst.truncate(Math.min(dst.size, k));
+        return dst.toArray();
+    }
+
+    float dst2(int id, float x, float y){
+        return Mathf.dst2(x, y, pos[id * 2], pos[id * 2 + 1]);
+    }
+
+    static class MirroredTree extends QuadTree<Point>{
+        MirroredTree(Rect bounds){
+            super(bounds);
+        }
+
+        @Override
+        protected QuadTree<Point> newChild(Rect rect){
+            return new MirroredTree(rect);
+        }
+
+        @Override
+        protected void hitbox(Point point){
+            tmp.set(worldSize - point.x, point.y, 0f, 0f);
+        }
+    }
+
+    static class Point implements QuadTreeObject{
+        final float x, y;
+
+        Point(float x, float y){
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public void hitbox(Rect out){
+            out.set(x, y, 0f, 0f);
+        }
+    }
+}
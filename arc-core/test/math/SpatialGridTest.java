@@ -0,0 +1,69 @@
+package math;
+
+import arc.math.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class SpatialGridTest{
+
+    @Test
+    public void queriesMatchBruteForce(){
+        Rand rand = new Rand(4);
+        int count = 100000;
+        float[] xs = new float[count], ys = new float[count];
+        int[] ids = new int[count];
+        for(int i = 0; i < count; i++){
+            xs[i] = rand.random(-50f, 2050f);
+            ys[i] = rand.random(-50f, 2050f);
+            ids[i] = i * 3;
+        }
+
+        SpatialGrid serial = new SpatialGrid(0, 0, 2000f, 2000f, 32f), parallel = new SpatialGrid(0, 0, 2000f, 2000f, 32f);
+        serial.build(count, ids, xs, ys);
+        parallel.buildParallel(count, ids, xs, ys);
+
+        IntSeq result = new IntSeq(), expected = new IntSeq();
+        for(int q = 0; q < 200; q++){
+            float qx = rand.random(-100f, 2100f), qy = rand.random(-100f, 2100f), qw = rand.random(100f), qh = rand.random(100f), r = rand.random(80f);
+
+            for(SpatialGrid grid : new SpatialGrid[]{serial, parallel}){
+                result.clear();
+                expected.clear();
+                grid.intersect(qx, qy, qw, qh, result);
+                for(int i = 0; i < count; i++){
+                    if(xs[i] >= qx && xs[i] <= qx + qw && ys[i] >= qy && ys[i] <= qy + qh) expected.add(ids[i]);
+                }
+                result.sort();
+                assertEquals(expected, result);
+
+                result.clear();
+                expected.clear();
+                grid.within(qx, qy, r, result);
+                for(int i = 0; i < count; i++){
+                    if(Mathf.dst2(xs[i], ys[i], qx, qy) <= r * r) expected.add(ids[i]);
+                }
+                result.sort();
+                assertEquals(expected, result);
+
+                int k = 1 + rand.random(20);
+                result.clear();
+                assertEquals(k, grid.nearest(qx, qy, k, result));
+
+                float[] dst = new float[count];
+                for(int i = 0; i < count; i++){
+                    dst[i] = Mathf.dst2(xs[i], ys[i], qx, qy);
+                }
+                float[] sorted = dst.clone();
+                java.util.Arrays.sort(sorted);
+
+                for(int i = 0; i < k; i++){
+                    assertEquals(sorted[i], dst[result.get(i) / 3], 0f);
+                }
+                assertEquals(result.first(), grid.nearest(qx, qy));
+            }
+        }
+    }
+}
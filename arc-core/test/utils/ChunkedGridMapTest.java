@@ -0,0 +1,170 @@
+package utils;
+
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class ChunkedGridMapTest{
+
+    @Test
+    public void matchesGridMap(){
+        Rand rand = new Rand(8);
+        GridMap<Integer> reference = new GridMap<>();
+        ChunkedGridMap<Integer> map = new ChunkedGridMap<>();
+        IntChunkedGridMap ints = new IntChunkedGridMap();
+
+        for(int i = 0; i < 50000; i++){
+            int x = rand.random(-100, 100), y = rand.random(-100, 100);
+            if(rand.chance(0.3)){
+                reference.remove(x, y);
+                map.remove(x, y);
+                ints.remove(x, y);
+            }else{
+                int value = rand.random(-5, 5);
+                reference.put(x, y, value);
+                map.put(x, y, value);
+                ints.put(x, y, value);
+            }
+        }
+
+        assertEquals(reference.size(), map.size());
+        assertEquals(reference.size(), ints.size());
+        for(int x = -110; x <= 110; x++){
+            for(int y = -110; y <= 110; y++){
+                assertEquals(reference.get(x, y), map.get(x, y));
+                assertEquals(reference.containsKey(x, y), ints.containsKey(x, y));
+                assertEquals(reference.get(x, y, 99).intValue(), ints.get(x, y, 99));
+            }
+        }
+
+        int[] seen = {0, 0};
+        map.each(-20, -37, 50, 70, (x, y, value) -> {
+            assertTrue(x >= -20 && x < 30 && y >= -37 && y < 33);
+            assertEquals(reference.get(x, y), value);
+            seen[0]++;
+        });
+        ints.each(-20, -37, 50, 70, (x, y, value) -> seen[1]++);
+
+        int expected = 0;
+        for(int x = -20; x < 30; x++){
+            for(int y = -37; y < 33; y++){
+                if(reference.containsKey(x, y)) expected++;
+            }
+        }
+        assertEquals(expected, seen[0]);
+        assertEquals(expected, seen[1]);
+
+        int[] window = new int[50 * 70];
+        ints.read(-20, -37, 50, 70, 99, window);
+        for(int i = 0; i < window.length; i++){
+            assertEquals(reference.get(-20 + i % 50, -37 + i / 50, 99).intValue(), window[i]);
+        }
+
+        for(int x = -100; x <= 100; x++){
+            for(int y = -100; y <= 100; y++){
+                map.remove(x, y);
+                ints.remove(x, y);
+            }
+        }
+        assertEquals(0, map.size());
+        assertEquals(0, map.chunks());
+        assertEquals(0, ints.chunks());
+    }
+
+    @Test
+    public void floats(){
+        FloatChunkedGridMap map = new FloatChunkedGridMap();
+        map.put(-1, -1, 0f);
+        map.increment(-1, -1, 2.5f);
+        map.increment(40, 3, 1f);
+
+        assertTrue(map.containsKey(-1, -1));
+        assertFalse(map.containsKey(0, 0));
+        assertEquals(2.5f, map.get(-1, -1), 0f);
+        assertEquals(1f, map.get(40, 3), 0f);
+        assertEquals(-1f, map.get(5, 5, -1f), 0f);
+        assertEquals(2, map.chunks());
+        assertEquals(1f, map.remove(40, 3, 0f), 0f);
+        assertEquals(1, map.chunks());
+    }
+
+    @Test
+    public void benchmark(){
+        int size = 512, cells = size * size, lookups = 2_000_000;
+        Rand rand = new Rand(9);
+        int[] randomX = new int[lookups], randomY = new int[lookups];
+        for(int i = 0; i < lookups; i++){
+            randomX[i] = rand.random(size - 1);
+            randomY[i] = rand.random(size - 1);
+        }
+
+        GridMap<Integer> reference = new GridMap<>();
+        ChunkedGridMap<Integer> chunked = new ChunkedGridMap<>();
+        IntChunkedGridMap ints = new IntChunkedGridMap();
+        for(int x = 0; x < size; x++){
+            for(int y = 0; y < size; y++){
+                reference.put(x, y, x ^ y);
+                chunked.put(x, y, x ^ y);
+                ints.put(x, y, x ^ y);
+            }
+        }
+
+        long[] sum = new long[3];
+        long[] sequential = new long[3], random = new long[3];
+        for(int iteration = 0; iteration < 5; iteration++){
+            long start = Time.nanos();
+            for(int y = 0; y < size; y++){
+                for(int x = 0; x < size; x++){
+                    sum[0] += reference.get(x, y);
+                }
+            }
+            sequential[0] += Time.timeSinceNanos(start);
+
+            start = Time.nanos();
+            for(int y = 0; y < size; y++){
+                for(int x = 0; x < size; x++){
+                    sum[1] += chunked.get(x, y);
+                }
+            }
+            sequential[1] += Time.timeSinceNanos(start);
+
+            start = Time.nanos();
+            for(int y = 0; y < size; y++){
+                for(int x = 0; x < size; x++){
+                    sum[2] += ints.get(x, y);
+                }
+            }
+            sequential[2] += Time.timeSinceNanos(start);
+
+            start = Time.nanos();
+            for(int i = 0; i < lookups; i++){
+                sum[0] += reference.get(randomX[i], randomY[i]);
+            }
+            random[0] += Time.timeSinceNanos(start);
+
+            start = Time.nanos();
+            for(int i = 0; i < lookups; i++){
+                sum[1] += chunked.get(randomX[i], randomY[i]);
+            }
+            random[1] += Time.timeSinceNanos(start);
+
+            start = Time.nanos();
+            for(int i = 0; i < lookups; i++){
+                sum[2] += ints.get(randomX[i], randomY[i]);
+            }
+            random[2] += Time.timeSinceNanos(start);
+        }
+
+        String[] names = {"GridMap", "ChunkedGridMap", "IntChunkedGridMap"};
+        for(int i = 0; i < 3; i++){
+            Log.info("[GridMap] @: sequential @ns/cell | random @ns/lookup", names[i],
+                Strings.fixed(sequential[i] / 5f / cells, 2), Strings.fixed(random[i] / 5f / lookups, 2));
+        }
+
+        assertEquals(sum[0], sum[1]);
+        assertEquals(sum[0], sum[2]);
+    }
+}
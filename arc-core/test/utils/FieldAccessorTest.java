@@ -0,0 +1,250 @@
+package utils;
+
+import arc.struct.*;
+import arc.util.*;
+import arc.util.serialization.*;
+import org.junit.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+
+import static org.junit.Assert.*;
+
+public class FieldAccessorTest{
+
+    @Test
+    public void accessors() throws Exception{
+        for(FieldAccessor.Factory factory : new FieldAccessor.Factory[]{FieldAccessor.reflection, FieldAccessor.generated}){
+            Entity entity = new Entity();
+
+            FieldAccessor x = create(factory, Base.class, "x"), id = create(factory, Entity.class, "id"),
+            time = create(factory, Entity.class, "time"), speed = create(factory, Entity.class, "speed"),
+            active = create(factory, Entity.class, "active"), name = create(factory, Entity.class, "name");
+
+            x.setFloat(entity, 2.5f);
+            id.setInt(entity, 7);
+            time.setLong(entity, 1L << 40);
+            speed.setDouble(entity, 0.25);
+            active.setBoolean(entity, true);
+            name.set(entity, "e");
+
+            assertEquals(2.5f, entity.x, 0f);
+            assertEquals(7, entity.id);
+            assertEquals(1L << 40, entity.time);
+            assertEquals(0.25, entity.speed, 0);
+            assertTrue(entity.active);
+            assertEquals("e", entity.name);
+
+            assertEquals(2.5f, x.getFloat(entity), 0f);
+            assertEquals(7, id.getInt(entity));
+            assertEquals(7L, id.getLong(entity));
+            assertEquals(1L << 40, time.get(entity));
+            assertEquals("e", name.get(entity));
+            //mismatched primitive types convert through the boxed value
+            assertEquals(7f, id.getFloat(entity), 0f);
+            id.set(entity, 9);
+            assertEquals(9, entity.id);
+            active.set(entity, false);
+            assertEquals(false, active.get(entity));
+        }
+    }
+
+    @Test
+    public void generatedFallback() throws Exception{
+        Class reflect = create(FieldAccessor.reflection, Entity.class, "id").getClass();
+        assertNotSame(reflect, create(FieldAccessor.generated, Entity.class, "id").getClass());
+        //fields that are not public, or final, can only be accessed with reflection
+        assertSame(reflect, create(FieldAccessor.generated, Entity.class, "hidden").getClass());
+        assertSame(reflect, create(FieldAccessor.generated, Entity.class, "kind").getClass());
+
+        Entity entity = new Entity();
+        FieldAccessor hidden = create(FieldAccessor.generated, Entity.class, "hidden");
+        hidden.setInt(entity, 3);
+        assertEquals(3, hidden.getInt(entity));
+    }
+
+    @Test
+    public void sameOutput(){
+        Json reflect = new Json(), generated = new Json();
+        reflect.setAccessorFactory(FieldAccessor.reflection);
+        generated.setAccessorFactory(FieldAccessor.generated);
+
+        World world = createWorld(100);
+        String text = reflect.toJson(world);
+        assertEquals(text, generated.toJson(world));
+        assertEquals(text, reflect.toJson(generated.fromJson(World.class, text)));
+
+        generated.setStreamReads(true);
+        assertEquals(text, reflect.toJson(generated.fromJson(World.class, text)));
+    }
+
+    @Test
+    public void benchmark() throws Exception{
+        World world = createWorld(20000);
+        Json reflect = new Json(), generated = new Json();
+        reflect.setAccessorFactory(FieldAccessor.reflection);
+        generated.setAccessorFactory(FieldAccessor.generated);
+        String text = reflect.toJson(world);
+
+        Json[] all = {reflect, generated};
+        for(int i = 0; i < 5; i++){
+            for(Json json : all){
+                json.fromJson(World.class, json.toJson(world));
+            }
+        }
+
+        int iterations = 10;
+        long[] write = new long[2], read = new long[2];
+        for(int j = 0; j < 2; j++){
+            long start = Time.nanos();
+            for(int i = 0; i < iterations; i++) all[j].toJson(world);
+            write[j] = Time.timeSinceNanos(start);
+
+            start = Time.nanos();
+            for(int i = 0; i < iterations; i++) all[j].fromJson(World.class, text);
+            read[j] = Time.timeSinceNanos(start);
+        }
+
+        //field access alone, without parsing or writing
+        FieldAccessor[][] accessors = {
+            {create(FieldAccessor.reflection, Base.class, "x"), create(FieldAccessor.reflection, Entity.class, "id")},
+            {create(FieldAccessor.generated, Base.class, "x"), create(FieldAccessor.generated, Entity.class, "id")}
+        };
+        long[] access = new long[2];
+        float sum = 0;
+        for(int round = 0; round < 5; round++){
+            for(int j = 0; j < 2; j++){
+                long start = Time.nanos();
+                for(Entity entity : world.entities){
+                    accessors[j][0].setFloat(entity, accessors[j][0].getFloat(entity) + 1f);
+                    accessors[j][1].setInt(entity, accessors[j][1].getInt(entity) + 1);
+                    sum += entity.x;
+                }
+                long time = Time.timeSinceNanos(start);
+                access[j] = round == 0 ? time : Math.min(access[j], time);
+            }
+        }
+
+        Log.info("[Json] @ entities: reflection write @ms read @ms access @ns/entity | generated write @ms read @ms access @ns/entity", world.entities.size,
+            Strings.fixed(write[0] / 1000000f / iterations, 2), Strings.fixed(read[0] / 1000000f / iterations, 2), Strings.fixed(access[0] / (float)world.entities.size, 1),
+            Strings.fixed(write[1] / 1000000f / iterations, 2), Strings.fixed(read[1] / 1000000f / iterations, 2), Strings.fixed(access[1] / (float)world.entities.size, 1));
+        assertTrue(sum > 0);
+    }
+
+    @Test
+    public void customFactory(){
+        ObjectSet<String> created = new ObjectSet<>();
+        Json json = new Json(), custom = new Json();
+        custom.setAccessorFactory(field -> {
+            created.add(field.getName());
+            return FieldAccessor.reflection.create(field);
+        });
+
+        World world = createWorld(100);
+        String text = json.toJson(world);
+        assertEquals(text, custom.toJson(world));
+        assertEquals(text, json.toJson(custom.fromJson(World.class, text)));
+
+        custom.setStreamReads(true);
+        assertEquals(text, json.toJson(custom.fromJson(World.class, text)));
+        for(String name : new String[]{"entities", "x", "y", "id", "time", "speed", "active", "name"}){
+            assertTrue(created.contains(name));
+        }
+    }
+
+    @Test
+    public void primitiveWrites() throws Exception{
+        for(boolean quote : new boolean[]{false, true}){
+            StringWriter boxed = new StringWriter(), unboxed = new StringWriter();
+            JsonWriter a = new JsonWriter(boxed), b = new JsonWriter(unboxed);
+            a.setQuoteLongValues(quote);
+            b.setQuoteLongValues(quote);
+            a.array();
+            b.array();
+            for(int value : new int[]{0, -7, Integer.MAX_VALUE}){
+                a.value((Object)value);
+                b.value(value);
+            }
+            for(long value : new long[]{0, -1, Long.MAX_VALUE, Long.MIN_VALUE}){
+                a.value((Object)value);
+                b.value(value);
+            }
+            for(float value : new float[]{0f, -0f, 2f, 0.1f, -3.5f, 1e20f, 9.223372E18f, Float.NaN, Float.NEGATIVE_INFINITY}){
+                a.value((Object)value);
+                b.value(value);
+            }
+            for(double value : new double[]{0, -0.0, 2, 0.1, 1e300, Long.MAX_VALUE, Double.NaN}){
+                a.value((Object)value);
+                b.value(value);
+            }
+            a.value((Object)true);
+            b.value(true);
+            a.pop();
+            b.pop();
+            assertEquals(boxed.toString(), unboxed.toString());
+        }
+
+        Json json = new Json();
+        Values values = new Values();
+        values.count = 2;
+        values.visible = false;
+        values.scale = Float.NaN;
+        //fields equal to the defaults of a new instance are skipped
+        assertEquals("{count:2,scale:NaN,visible:false}", json.toJson(values));
+
+        StringWriter out = new StringWriter();
+        json.setWriter(new JsonWriter(out));
+        json.writeObjectStart();
+        json.writeField(values, "time", "t");
+        json.writeObjectEnd();
+        assertEquals("{t:0}", out.toString());
+    }
+
+    static FieldAccessor create(FieldAccessor.Factory factory, Class<?> type, String name) throws Exception{
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return factory.create(field);
+    }
+
+    static World createWorld(int count){
+        World world = new World();
+        for(int i = 0; i < count; i++){
+            Entity entity = new Entity();
+            entity.x = i * 0.5f;
+            entity.y = -i;
+            entity.id = i;
+            entity.time = i * 1000L;
+            entity.speed = i / 3.0;
+            entity.active = i % 2 == 0;
+            entity.name = "entity" + i;
+            world.entities.add(entity);
+        }
+        return world;
+    }
+
+    public static class Values{
+        public int count = 1;
+        public float scale = 1f;
+        public long time;
+        public double weight = 0.5;
+        public boolean visible = true;
+    }
+
+    public static class World{
+        public Seq<Entity> entities = new Seq<>();
+    }
+
+    public static class Base{
+        public float x, y;
+    }
+
+    public static class Entity extends Base{
+        public int id;
+        public long time;
+        public double speed;
+        public boolean active;
+        public String name;
+        private int hidden;
+        public final String kind = "entity";
+    }
+}
@@ -0,0 +1,239 @@
+package utils;
+
+import arc.files.*;
+import arc.Files.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.serialization.*;
+import arc.util.serialization.Json.*;
+import arc.util.serialization.JsonPullParser.*;
+import org.junit.*;
+
+import java.io.*;
+import java.lang.management.*;
+
+import static org.junit.Assert.*;
+
+public class JsonPullParserTest{
+
+    @Test
+    public void relaxedSyntax(){
+        JsonPullParser parser = new JsonPullParser(
+        "{\n" +
+        "  // comment\n" +
+        "  name: unquoted value\n" +
+        "  \"list\": [1, 2.5\n -3 /* block */ true, null, \"a\\nb\"],\n" +
+        "  nested: {a: {}, b: []},\n" +
+        "}");
+
+        parser.beginObject();
+        assertEquals("name", parser.nextName());
+        assertEquals("unquoted value", parser.nextString());
+        assertEquals("list", parser.nextName());
+        parser.beginArray();
+        assertEquals(1, parser.nextInt());
+        assertEquals(2.5f, parser.nextFloat(), 0f);
+        assertEquals(-3L, parser.nextLong());
+        assertTrue(parser.nextBoolean());
+        parser.nextNull();
+        assertEquals("a\nb", parser.nextString());
+        assertFalse(parser.hasNext());
+        parser.endArray();
+        assertEquals("nested", parser.nextName());
+        parser.skipValue();
+        parser.endObject();
+        assertEquals(Token.end, parser.nextToken());
+    }
+
+    @Test
+    public void treeMatchesJsonReader(){
+        String text = new Fi("generated.json", FileType.classpath).readString();
+        JsonValue expected = new JsonReader().parse(text);
+
+        assertEquals(expected.toJson(JsonWriter.OutputType.json), new JsonPullParser(text).readTree().toJson(JsonWriter.OutputType.json));
+        //a reader that returns one character at a time forces a refill at every position
+        assertEquals(expected.toJson(JsonWriter.OutputType.json), new JsonPullParser(new SlowReader(text)).readTree().toJson(JsonWriter.OutputType.json));
+    }
+
+    @Test
+    public void readValueMatchesTree(){
+        Json json = new Json();
+        json.setSerializer(Custom.class, new Serializer<Custom>(){
+            @Override
+            public void write(Json json, Custom object, Class knownType){
+                json.writeValue(object.value);
+            }
+
+            @Override
+            public Custom read(Json json, JsonValue jsonData, Class type){
+                Custom custom = new Custom();
+                custom.value = jsonData.asInt();
+                return custom;
+            }
+        });
+
+        Data data = new Data();
+        data.name = "root";
+        data.number = 12345678901L;
+        data.ints = new int[]{1, 2, 3};
+        data.floats = new float[]{0.1f, -2f};
+        data.strings = new String[]{"a", null, "c"};
+        data.mode = Mode.second;
+        data.custom = new Custom();
+        data.custom.value = 7;
+        data.map.put("x", 1);
+        data.map.put("y", 2);
+        data.set.add("unique");
+        data.polymorphic = new Child();
+        ((Child)data.polymorphic).extra = 3.5f;
+        for(int i = 0; i < 3; i++){
+            Data child = new Data();
+            child.name = "child" + i;
+            data.children.add(child);
+        }
+
+        String text = json.toJson(data);
+
+        json.setStreamReads(true);
+        Data streamed = json.fromJson(Data.class, text);
+        json.setStreamReads(false);
+        Data tree = json.fromJson(Data.class, text);
+
+        assertEquals(json.toJson(tree), json.toJson(streamed));
+        assertEquals(text, json.toJson(streamed));
+        assertEquals(Child.class, streamed.polymorphic.getClass());
+        assertEquals(7, streamed.custom.value);
+    }
+
+    @Test
+    public void lateTypeTag(){
+        String text = "{name: a, polymorphic: {extra: 2, class: \"" + Child.class.getName() + "\"}}";
+
+        Json json = new Json();
+        Data tree = json.fromJson(Data.class, text);
+        assertEquals(Child.class, tree.polymorphic.getClass());
+        assertEquals(2f, ((Child)tree.polymorphic).extra, 0f);
+
+        //streaming can't go back once the object was created, so it must not silently build the base type
+        json.setStreamReads(true);
+        try{
+            json.fromJson(Data.class, text);
+            fail();
+        }catch(SerializationException expected){
+        }
+
+        //a tag naming the class that is already being read is harmless
+        Child same = json.fromJson(Child.class, "{extra: 1, class: \"" + Child.class.getName() + "\"}");
+        assertEquals(1f, same.extra, 0f);
+    }
+
+    @Test
+    public void benchmark(){
+        String single = new Fi("generated.json", FileType.classpath).readString().trim();
+        //concatenate the array contents to get a larger document
+        String body = single.substring(1, single.length() - 1);
+        StringBuilder builder = new StringBuilder("[");
+        for(int i = 0; i < 80; i++){
+            if(i > 0) builder.append(',');
+            builder.append(body);
+        }
+        String text = builder.append(']').toString();
+
+        Json streaming = new Json(), tree = new Json();
+        streaming.setStreamReads(true);
+
+        for(int i = 0; i < 10; i++){
+            streaming.fromJson(Person[].class, text);
+            tree.fromJson(Person[].class, text);
+        }
+
+        int iterations = 20;
+        long[] time = new long[2], allocated = new long[2];
+        Json[] all = {tree, streaming};
+        for(int j = 0; j < 2; j++){
+            long bytes = allocatedBytes();
+            long start = Time.nanos();
+            for(int i = 0; i < iterations; i++){
+                all[j].fromJson(Person[].class, text);
+            }
+            time[j] = Time.timeSinceNanos(start);
+            allocated[j] = allocatedBytes() - bytes;
+        }
+
+        Log.info("[Json] @KB document: tree @ms, @MB allocated | streaming @ms, @MB allocated", text.length() / 1024,
+            Strings.fixed(time[0] / 1000000f / iterations, 2), Strings.fixed(allocated[0] / 1024f / 1024f / iterations, 2),
+            Strings.fixed(time[1] / 1000000f / iterations, 2), Strings.fixed(allocated[1] / 1024f / 1024f / iterations, 2));
+
+        Person[] a = streaming.fromJson(Person[].class, text), b = tree.fromJson(Person[].class, text);
+        assertEquals(b.length, a.length);
+        assertEquals(streaming.toJson(b), streaming.toJson(a));
+    }
+
+    static long allocatedBytes(){
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean ? ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    static class SlowReader extends Reader{
+        final String text;
+        int pos;
+
+        SlowReader(String text){
+            this.text = text;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length){
+            if(pos >= text.length()) return -1;
+            buffer[offset] = text.charAt(pos++);
+            return 1;
+        }
+
+        @Override
+        public void close(){
+        }
+    }
+
+    public enum Mode{
+        first, second
+    }
+
+    public static class Custom{
+        int value;
+    }
+
+    public static class Base{
+    }
+
+    public static class Child extends Base{
+        float extra;
+    }
+
+    public static class Data{
+        String name;
+        long number;
+        int[] ints;
+        float[] floats;
+        String[] strings;
+        Mode mode;
+        Custom custom;
+        Base polymorphic;
+        Seq<Data> children = new Seq<>();
+        ObjectMap<String, Integer> map = new ObjectMap<>();
+        ObjectSet<String> set = new ObjectSet<>();
+    }
+
+    public static class Person{
+        String _id, guid, balance, picture, eyeColor, name, gender, company, email, phone, address, about, registered, greeting, favoriteFruit;
+        int index, age;
+        boolean isActive;
+        double latitude, longitude;
+        String[] tags;
+        Seq<Friend> friends;
+    }
+
+    public static class Friend{
+        int id;
+        String name;
+    }
+}
@@ -141,4 +141,123 @@ public class JvalTest{
         }
         Log.info("Time taken to parse H-json: @ms", Time.elapsed());
     }
+
+    @Test
+    public void lazyMatchesEager(){
+        String[] docs = {
+            "{\nkey: [result, result2]\n}",
+            "[\nO, T,\n]",
+            "it: it,",
+            "name: always,",
+            "name: Molten Silver\ndescription: Imagine silver, but not solid at all.\ntemperature: 0.9\nviscosity: -8\nactive: true\nnone: null",
+            "[{a: hello\nb: world\n}, [1, 2, [3]], x y\n{b: c\nd: e\n}]",
+            "{\"quoted\\tname\": \"esc\\\"aped\", 'single': 'value', empty: '', list: [], obj: {}}",
+            "# comment\n/* block */ a: 1 // trailing\nb:\n  '''\n  multi\n    line\n  '''\nc: 10000000000000000000000",
+            "plain string",
+            "42",
+            new Fi("generated.json", FileType.classpath).readString()
+        };
+
+        for(String doc : docs){
+            assertEquals(Jval.read(doc).toString(Jformat.plain), Jval.readLazy(doc).toString(Jformat.plain));
+        }
+
+        Jval lazy = Jval.readLazy(docs[4]);
+        assertEquals(0.9f, lazy.getFloat("temperature", 0f), 0.0001f);
+        assertEquals(-8, lazy.getInt("viscosity", 0));
+        assertTrue(lazy.getBool("active", false));
+        assertTrue(lazy.get("none").isNull());
+        lazy.put("added", 1);
+        assertEquals(1, lazy.getInt("added", 0));
+    }
+
+    @Test
+    public void lazySharedBetweenThreads() throws Exception{
+        StringBuilder doc = new StringBuilder("{");
+        for(int i = 0; i < 200; i++){
+            doc.append("block").append(i).append(": {health: ").append(i).append(", name: \"b").append(i).append("\"}\n");
+        }
+        String text = doc.append("}").toString();
+
+        for(int round = 0; round < 20; round++){
+            Jval lazy = Jval.readLazy(text);
+            Thread[] threads = new Thread[4];
+            JsonMap[] seen = new JsonMap[threads.length];
+            boolean[] correct = new boolean[threads.length];
+
+            for(int t = 0; t < threads.length; t++){
+                int id = t;
+                threads[t] = new Thread(() -> {
+                    boolean ok = true;
+                    for(int i = 0; i < 200; i++){
+                        Jval block = lazy.get("block" + i);
+                        ok &= block.getInt("health", -1) == i && block.getString("name").equals("b" + i);
+                    }
+                    seen[id] = lazy.asObject();
+                    correct[id] = ok;
+                });
+            }
+            for(Thread thread : threads) thread.start();
+            for(Thread thread : threads) thread.join();
+
+            for(int t = 0; t < threads.length; t++){
+                assertTrue(correct[t]);
+                //every thread sees the same container instance
+                assertSame(seen[0], seen[t]);
+            }
+        }
+    }
+
+    @Test
+    public void lazyErrors(){
+        for(String doc : new String[]{"{a: 1", "[1, 2", "{a b: 1}", "{: 1}", "a: '''\nunterminated", "{a: 1}}"}){
+            String message = null;
+            try{
+                Jval.read(doc);
+            }catch(JsonParseException e){
+                message = e.getMessage();
+            }
+            assertNotNull("Eager parser accepted: " + doc, message);
+
+            try{
+                Jval.readLazy(doc);
+                fail("Expected parse error for: " + doc);
+            }catch(JsonParseException e){
+                assertEquals(message, e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkLazy(){
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < 20000; i++){
+            builder.append("block").append(i).append(": {\n  name: Block number ").append(i)
+            .append("\n  health: ").append(i * 10).append("\n  description: \"A fairly long description of block ").append(i).append(", which is never read.\"")
+            .append("\n  requirements: [copper/").append(i % 100).append(", lead/").append(i % 50).append("]\n  size: 2\n}\n");
+        }
+        String text = builder.toString();
+
+        for(int i = 0; i < 5; i++){
+            Jval.read(text);
+            Jval.readLazy(text).get("block5").getInt("health", 0);
+        }
+
+        int iterations = 10, sum = 0;
+        long start = Time.nanos();
+        for(int i = 0; i < iterations; i++){
+            sum += Jval.read(text).get("block100").getInt("health", 0);
+        }
+        long eager = Time.timeSinceNanos(start);
+
+        start = Time.nanos();
+        for(int i = 0; i < iterations; i++){
+            sum += Jval.readLazy(text).get("block100").getInt("health", 0);
+        }
+        long lazy = Time.timeSinceNanos(start);
+
+        assertEquals(1000 * iterations * 2, sum);
+        Log.info("[Jval] @KB document, one key read: eager @ms, lazy @ms", text.length() / 1024,
+            Strings.fixed(eager / 1000000f / iterations, 2), Strings.fixed(lazy / 1000000f / iterations, 2));
+    }
 }
@@ -0,0 +1,197 @@
+package utils;
+
+import arc.util.*;
+import arc.util.io.*;
+import org.junit.*;
+
+import java.io.*;
+import java.nio.*;
+
+import static org.junit.Assert.*;
+
+public class TaggedCodecTest{
+    static final String[] strings = {"", "ascii", "ümlaut", "中文字符", "emoji 😀", "lone \uD800 surrogate"};
+
+    @Test
+    public void primitives() throws Exception{
+        int[] ints = {0, 1, -1, 63, -64, 64, 127, 128, -129, 300, 16384, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        long[] longs = {0, 1, -1, 1L << 35, -(1L << 40), Long.MAX_VALUE, Long.MIN_VALUE};
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TaggedWrites[] writers = {new TaggedWrites(new DataOutputStream(bytes)), new ByteBufferTaggedWrites(8)};
+
+        for(TaggedWrites write : writers){
+            for(int i : ints){
+                write.v(i);
+                write.uv(i);
+            }
+            for(long l : longs){
+                write.vl(l);
+                write.uvl(l);
+            }
+            for(String s : strings){
+                write.utf(s);
+            }
+            write.utf(null);
+            write.f(1.5f);
+            write.d(-2.25);
+            write.str("modified utf");
+        }
+
+        ByteBuffer buffer = ((ByteBufferTaggedWrites)writers[1]).buffer;
+        buffer.flip();
+        byte[] streamBytes = bytes.toByteArray();
+        assertEquals(streamBytes.length, buffer.remaining());
+        byte[] bufferBytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bufferBytes);
+        assertArrayEquals(streamBytes, bufferBytes);
+
+        TaggedReads[] readers = {new TaggedReads(new DataInputStream(new ByteArrayInputStream(streamBytes))), new ByteBufferTaggedReads(buffer), new ByteBufferTaggedReads(ByteBuffer.allocateDirect(bufferBytes.length).put(bufferBytes).flip())};
+
+        for(TaggedReads read : readers){
+            for(int i : ints){
+                assertEquals(i, read.v());
+                assertEquals(i, read.uv());
+            }
+            for(long l : longs){
+                assertEquals(l, read.vl());
+                assertEquals(l, read.uvl());
+            }
+            for(String s : strings){
+                assertEquals(new String(s.getBytes(Strings.utf8), Strings.utf8), read.utf());
+            }
+            assertNull(read.utf());
+            assertEquals(1.5f, read.f(), 0f);
+            assertEquals(-2.25, read.d(), 0);
+            assertEquals("modified utf", read.str());
+        }
+    }
+
+    @Test
+    public void skipUnknownFields(){
+        ByteBufferTaggedWrites write = new ByteBufferTaggedWrites(64);
+        for(int i = 0; i < 3; i++){
+            //newer version of a struct: tags 3-7 are unknown to the reader below
+            write.v(1, i);
+            write.istr(3, "skipped" + (i % 2));
+            write.begin(4);
+            write.utf(1, "nested");
+            write.begin(2);
+            write.d(1, 5.0);
+            write.end();
+            write.istr(3, "nested string");
+            write.end();
+            write.l(5, 99L);
+            write.bytes(6, new byte[]{1, 2, 3});
+            write.vl(7, -1L);
+            write.istr(2, "name" + (i % 2));
+            write.f(8, 0.5f);
+            write.end();
+        }
+
+        write.buffer.flip();
+        ByteBufferTaggedReads read = new ByteBufferTaggedReads(write.buffer);
+        for(int i = 0; i < 3; i++){
+            int id = -1;
+            String name = null;
+            for(int tag; (tag = read.tag()) != 0;){
+                switch(tag){
+                    case 1: id = read.v(); break;
+                    case 2: name = read.istr(); break;
+                    default: read.skipField();
+                }
+            }
+            assertEquals(i, id);
+            assertEquals("name" + (i % 2), name);
+        }
+        assertFalse(write.buffer.hasRemaining());
+    }
+
+    @Test
+    public void fixedBufferOverflows(){
+        ByteBufferTaggedWrites write = new ByteBufferTaggedWrites(ByteBuffer.allocate(4));
+        write.i(1);
+        try{
+            write.b(1);
+            fail();
+        }catch(BufferOverflowException ignored){
+        }
+    }
+
+    @Test
+    public void benchmark() throws Exception{
+        int count = 20000, iterations = 20;
+        String[] types = {"copper-wall", "conveyor", "router", "mechanical-drill", "power-node"};
+
+        ByteArrayOutputStream fixedBytes = new ByteArrayOutputStream();
+        Writes fixed = new Writes(new DataOutputStream(fixedBytes));
+        ByteBufferTaggedWrites tagged = new ByteBufferTaggedWrites(1024);
+
+        long fixedTime = 0, taggedTime = 0;
+        for(int it = 0; it < iterations; it++){
+            fixedBytes.reset();
+            long start = Time.nanos();
+            for(int i = 0; i < count; i++){
+                fixed.i(i % 256);
+                fixed.i(i / 256);
+                fixed.s(i % 4);
+                fixed.str(types[i % types.length]);
+                fixed.f(i % 10 == 0 ? 1f : 0.5f);
+                fixed.l(i * 16L);
+            }
+            if(it >= iterations / 2) fixedTime += Time.timeSinceNanos(start);
+
+            tagged.buffer.clear();
+            tagged.resetStrings();
+            start = Time.nanos();
+            for(int i = 0; i < count; i++){
+                tagged.v(1, i % 256);
+                tagged.v(2, i / 256);
+                tagged.v(3, i % 4);
+                tagged.istr(4, types[i % types.length]);
+                tagged.f(5, i % 10 == 0 ? 1f : 0.5f);
+                tagged.vl(6, i * 16L);
+                tagged.end();
+            }
+            if(it >= iterations / 2) taggedTime += Time.timeSinceNanos(start);
+        }
+
+        byte[] fixedData = fixedBytes.toByteArray();
+        ByteBuffer taggedData = tagged.buffer;
+        taggedData.flip();
+
+        long fixedRead = 0, taggedRead = 0, sum = 0;
+        ByteBufferTaggedReads read = new ByteBufferTaggedReads(taggedData);
+        for(int it = 0; it < iterations; it++){
+            Reads fixedReads = new Reads(new DataInputStream(new ByteArrayInputStream(fixedData)));
+            long start = Time.nanos();
+            for(int i = 0; i < count; i++){
+                sum += fixedReads.i() + fixedReads.i() + fixedReads.s() + fixedReads.str().length() + (int)fixedReads.f() + fixedReads.l();
+            }
+            if(it >= iterations / 2) fixedRead += Time.timeSinceNanos(start);
+
+            taggedData.position(0);
+            read.resetStrings();
+            start = Time.nanos();
+            for(int i = 0; i < count; i++){
+                for(int tag; (tag = read.tag()) != 0;){
+                    switch(tag){
+                        case 1: case 2: case 3: sum -= read.v(); break;
+                        case 4: sum -= read.istr().length(); break;
+                        case 5: sum -= (int)read.f(); break;
+                        case 6: sum -= read.vl(); break;
+                        default: read.skipField();
+                    }
+                }
+            }
+            if(it >= iterations / 2) taggedRead += Time.timeSinceNanos(start);
+        }
+
+        assertEquals(0, sum);
+        int runs = iterations - iterations / 2;
+        Log.info("[Codec] @ records: fixed @KB write @ms read @ms | tagged @KB write @ms read @ms", count,
+            fixedData.length / 1024, Strings.fixed(fixedTime / 1000000f / runs, 2), Strings.fixed(fixedRead / 1000000f / runs, 2),
+            taggedData.limit() / 1024, Strings.fixed(taggedTime / 1000000f / runs, 2), Strings.fixed(taggedRead / 1000000f / runs, 2));
+        assertTrue(taggedData.limit() < fixedData.length * 3 / 4);
+    }
+}
@@ -0,0 +1,79 @@
+package utils;
+
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class TaskQueueTest{
+
+    @Test
+    public void multipleProducers() throws Exception{
+        int producers = 4, tasks = 100000;
+        TaskQueue queue = new TaskQueue();
+        int[] last = new int[producers];
+        int[] count = {0};
+
+        Thread[] threads = new Thread[producers];
+        for(int p = 0; p < producers; p++){
+            int id = p;
+            last[p] = -1;
+            threads[p] = new Thread(() -> {
+                for(int i = 0; i < tasks; i++){
+                    int value = i;
+                    queue.post(() -> {
+                        assertEquals("tasks from one producer must run in order", last[id] + 1, value);
+                        last[id] = value;
+                        count[0]++;
+                    });
+                }
+            });
+            threads[p].start();
+        }
+
+        while(count[0] < producers * tasks){
+            queue.run();
+        }
+
+        for(Thread thread : threads){
+            thread.join();
+        }
+
+        queue.run();
+        assertEquals(producers * tasks, count[0]);
+        assertEquals(0, queue.size());
+        assertEquals(producers * tasks, queue.totalRunCount());
+    }
+
+    @Test
+    public void deferredTasks(){
+        TaskQueue queue = new TaskQueue();
+        int[] count = {0};
+
+        queue.post(() -> queue.post(() -> count[0]++));
+        queue.run();
+        assertEquals(0, count[0]);
+        assertEquals(1, queue.size());
+        queue.run();
+        assertEquals(1, count[0]);
+    }
+
+    @Test
+    public void budget(){
+        TaskQueue queue = new TaskQueue();
+        queue.setBudget(Time.millisToNanos(5));
+
+        for(int i = 0; i < 20; i++){
+            queue.post(() -> Threads.sleep(1));
+        }
+
+        queue.run();
+        assertTrue(queue.lastRunCount() < 20);
+        assertEquals(20 - queue.lastRunCount(), queue.size());
+        assertEquals(20, queue.peakSize());
+
+        queue.setBudget(0);
+        queue.run();
+        assertEquals(0, queue.size());
+    }
+}
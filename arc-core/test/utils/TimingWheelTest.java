@@ -0,0 +1,90 @@
+package utils;
+
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.Time.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest{
+
+    @Test
+    public void matchesLinearScan(){
+        Rand rand = new Rand(1);
+        TimingWheel wheel = new TimingWheel();
+        Seq<DelayRun> handles = new Seq<>();
+        //reference implementation: a linear scan over absolute deadlines, NaN when cancelled or executed
+        Seq<Double> deadlines = new Seq<>();
+        double now = 0;
+        IntSeq fired = new IntSeq(), expected = new IntSeq();
+
+        for(int step = 0; step < 20000; step++){
+            for(int i = 0; i < 3; i++){
+                //mostly short delays, with some that span every level of the wheel
+                float delay = rand.chance(0.05) ? rand.random(200000f) : rand.random(100f);
+                int id = handles.size;
+                handles.add(wheel.schedule(delay, () -> fired.add(id)));
+                deadlines.add(now + delay);
+            }
+
+            if(rand.chance(0.3)){
+                int id = rand.random(handles.size - 1);
+                assertEquals(!deadlines.get(id).isNaN(), handles.get(id).cancel());
+                deadlines.set(id, Double.NaN);
+            }
+
+            float delta = step % 500 == 0 ? 60f : rand.random(0.1f, 3f);
+            now += delta;
+
+            for(int id = 0; id < deadlines.size; id++){
+                if(deadlines.get(id) <= now){
+                    expected.add(id);
+                    deadlines.set(id, Double.NaN);
+                }
+            }
+
+            fired.clear();
+            wheel.update(delta);
+
+            fired.sort();
+            expected.sort();
+            assertEquals("step " + step, expected, fired);
+            expected.clear();
+        }
+    }
+
+    @Test
+    public void scheduleOrderAndReentrancy(){
+        TimingWheel wheel = new TimingWheel();
+        IntSeq order = new IntSeq();
+
+        wheel.schedule(5f, () -> order.add(1));
+        wheel.schedule(5f, () -> order.add(2));
+        wheel.schedule(5f, () -> wheel.schedule(0f, () -> order.add(4)));
+        wheel.schedule(5f, () -> order.add(3));
+
+        wheel.update(4f);
+        assertEquals(0, order.size);
+        wheel.update(1f);
+        assertEquals(IntSeq.with(1, 2, 3), order);
+        wheel.update(0.01f);
+        assertEquals(IntSeq.with(1, 2, 3, 4), order);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void clear(){
+        TimingWheel wheel = new TimingWheel();
+        int[] count = {0};
+        DelayRun run = wheel.schedule(10f, () -> count[0]++);
+        wheel.schedule(10000f, () -> count[0]++);
+        wheel.clear();
+
+        assertFalse(run.scheduled());
+        assertFalse(run.cancel());
+        wheel.update(20000f);
+        assertEquals(0, count[0]);
+    }
+}
@@ -0,0 +1,174 @@
+package utils;
+
+import arc.struct.*;
+import arc.util.*;
+import arc.util.serialization.*;
+import arc.util.serialization.JsonPullParser.*;
+import org.junit.*;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+public class UBJsonTest{
+
+    static byte[] write(int floats) throws IOException{
+        float[] heights = new float[floats];
+        for(int i = 0; i < floats; i++) heights[i] = i * 0.25f - 100f;
+        IntSeq indices = new IntSeq();
+        for(int i = 0; i < 1000; i++) indices.add(i * 7 - 3000);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        UBJsonWriter writer = new UBJsonWriter(bytes);
+        writer.object();
+        writer.set("name", "mesh ümlaut");
+        writer.set("heights", heights);
+        writer.set("indices", indices);
+        writer.set("small", new byte[]{-1, 2, 3});
+        writer.set("shorts", new short[]{-300, 300});
+        writer.set("doubles", new double[]{1.5, -2.5});
+        writer.set("longs", new long[]{1L << 40, -5});
+        writer.set("chars", new char[]{'a', '\u20ac'});
+        writer.object("nested");
+        writer.set("flag", true);
+        writer.set("count", 12);
+        writer.set("none");
+        writer.pop();
+        writer.array("mixed");
+        writer.value(1).value("two").value(3.5f).value(false);
+        writer.pop();
+        writer.pop();
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void pullParser() throws IOException{
+        byte[] data = write(50000);
+
+        for(UBJsonPullParser parser : new UBJsonPullParser[]{new UBJsonPullParser(data), new UBJsonPullParser(new SlowInputStream(data))}){
+            parser.beginObject();
+            assertEquals("name", parser.nextName());
+            assertEquals("mesh ümlaut", parser.nextString());
+            assertEquals("heights", parser.nextName());
+            float[] heights = parser.nextFloatArray();
+            assertEquals(50000, heights.length);
+            for(int i = 0; i < heights.length; i++) assertEquals(i * 0.25f - 100f, heights[i], 0f);
+
+            assertEquals("indices", parser.nextName());
+            IntSeq indices = new IntSeq();
+            indices.add(42);
+            assertEquals(1000, parser.nextInts(indices));
+            assertEquals(1001, indices.size);
+            assertEquals(42, indices.get(0));
+            assertEquals(999 * 7 - 3000, indices.peek());
+
+            assertEquals("small", parser.nextName());
+            assertArrayEquals(new int[]{-1, 2, 3}, parser.nextIntArray());
+            assertEquals("shorts", parser.nextName());
+            FloatSeq shorts = new FloatSeq();
+            parser.nextFloats(shorts);
+            assertArrayEquals(new float[]{-300, 300}, shorts.toArray(), 0f);
+            assertEquals("doubles", parser.nextName());
+            assertArrayEquals(new float[]{1.5f, -2.5f}, parser.nextFloatArray(), 0f);
+            assertEquals("longs", parser.nextName());
+            parser.skipValue();
+            assertEquals("chars", parser.nextName());
+            assertArrayEquals(new int[]{'a', '\u20ac'}, parser.nextIntArray());
+
+            assertEquals("nested", parser.nextName());
+            parser.beginObject();
+            assertEquals("flag", parser.nextName());
+            assertTrue(parser.nextBoolean());
+            assertEquals("count", parser.nextName());
+            assertEquals(12, parser.nextInt());
+            assertEquals("none", parser.nextName());
+            parser.nextNull();
+            parser.endObject();
+
+            assertEquals("mixed", parser.nextName());
+            //untyped arrays fall back to reading element by element
+            parser.beginArray();
+            assertEquals(1, parser.nextInt());
+            assertEquals("two", parser.nextString());
+            assertEquals(3.5f, parser.nextFloat(), 0f);
+            assertFalse(parser.nextBoolean());
+            parser.endArray();
+
+            parser.endObject();
+            assertEquals(Token.end, parser.nextToken());
+        }
+    }
+
+    @Test
+    public void treeMatchesReader() throws IOException{
+        byte[] data = write(3000);
+        JsonValue reader = new UBJsonReader().parse(new ByteArrayInputStream(data));
+        JsonValue pull = new UBJsonPullParser(new SlowInputStream(data)).readTree();
+        assertEquals(reader.toJson(JsonWriter.OutputType.json), pull.toJson(JsonWriter.OutputType.json));
+        assertEquals(3000, reader.get("heights").size);
+        assertEquals(-100f, reader.get("heights").child.asFloat(), 0f);
+        assertEquals(999 * 7 - 3000, reader.get("indices").get(999).asInt());
+        assertEquals('\u20ac', pull.get("chars").get(1).asInt());
+    }
+
+    @Test
+    public void benchmark() throws IOException{
+        byte[] data = write(1 << 20);
+
+        for(int i = 0; i < 3; i++){
+            new UBJsonReader().parse(new ByteArrayInputStream(data));
+            new UBJsonPullParser(data).readTree();
+            readHeights(data);
+        }
+
+        int iterations = 5;
+        long start = Time.nanos();
+        for(int i = 0; i < iterations; i++){
+            assertEquals(1 << 20, new UBJsonReader().parse(new ByteArrayInputStream(data)).get("heights").size);
+        }
+        long dom = Time.timeSinceNanos(start);
+
+        start = Time.nanos();
+        for(int i = 0; i < iterations; i++){
+            assertEquals(1 << 20, readHeights(data).length);
+        }
+        long pull = Time.timeSinceNanos(start);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+        float[] heights = readHeights(data);
+        start = Time.nanos();
+        for(int i = 0; i < iterations; i++){
+            out.reset();
+            new UBJsonWriter(out).value(heights);
+        }
+        long write = Time.timeSinceNanos(start);
+
+        Log.info("[UBJson] @ floats: DOM read @ms, typed pull read @ms, typed write @ms", heights.length,
+            Strings.fixed(dom / 1000000f / iterations, 2), Strings.fixed(pull / 1000000f / iterations, 2), Strings.fixed(write / 1000000f / iterations, 2));
+    }
+
+    static float[] readHeights(byte[] data){
+        UBJsonPullParser parser = new UBJsonPullParser(new ByteArrayInputStream(data));
+        parser.beginObject();
+        while(parser.hasNext()){
+            if(parser.nextName().equals("heights")){
+                return parser.nextFloatArray();
+            }
+            parser.skipValue();
+        }
+        return null;
+    }
+
+    /** Returns at most 7 bytes per read, to test refilling in the middle of values. */
+    static class SlowInputStream extends ByteArrayInputStream{
+        SlowInputStream(byte[] data){
+            super(data);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len){
+            return super.read(b, off, Math.min(len, 7));
+        }
+    }
+}
@@ -5,6 +5,7 @@ import arc.func.*;
 import arc.mock.*;
 import arc.struct.*;
 import arc.util.*;
+import arc.util.serialization.*;
 
 /**
  * a headless implementation of an application primarily intended to be used in servers
@@ -32,6 +33,7 @@ public class HeadlessApplication implements Application{
         addListener(listener);
         this.exceptionHandler = exceptionHandler;
         
+        Json.defaultAccessorFactory = FieldAccessor.generated;
         Core.settings = new Settings();
         Core.app = this;
         Core.files = new MockFiles();
@@ -14,6 +14,8 @@ import arc.util.ArcNativesLoader
 import arc.util.ArcRuntimeException
 import arc.util.Log
 import arc.util.OS
+import arc.util.serialization.FieldAccessor
+import arc.util.serialization.Json
 import org.lwjgl.glfw.GLFW
 import arc.backend.lwjgl3.Lwjgl3ApplicationConfiguration.GLAngleBackend.*
 import org.lwjgl.glfw.GLFWErrorCallback
@@ -87,6 +89,7 @@ class Lwjgl3Application @JvmOverloads constructor(
         if (config.title == null) config.title = listener.javaClass.simpleName
 
         Core.app = this
+        Json.defaultAccessorFactory = FieldAccessor.generated
         Core.settings = Settings()
         if (!config.disableAudio) {
             try {
@@ -9,6 +9,7 @@ import arc.math.geom.*;
 import arc.scene.ui.*;
 import arc.struct.*;
 import arc.util.*;
+import arc.util.serialization.*;
 
 import java.io.*;
 import java.net.*;
@@ -35,6 +36,8 @@ public class SdlApplication implements Application{
         init();
 
         Core.app = this;
+        //desktop JVMs can load generated classes, which access fields without reflection
+        Json.defaultAccessorFactory = FieldAccessor.generated;
         Core.files = new SdlFiles();
         Core.graphics = this.graphics = new SdlGraphics(this);
         Core.input = this.input = new SdlInput();
@@ -36,9 +36,9 @@ public class Client extends Connection implements EndPoint{
     private Prov<DatagramPacket> discoveryPacket = () -> new DatagramPacket(new byte[256], 256);
 
     /**
-     * @param writeBufferSize One buffer of this size is allocated. Objects are serialized
-     * to the write buffer where the bytes are queued until they can
-     * be written to the TCP socket.
+     * @param writeBufferSize The maximum number of bytes queued for the connection.
+     * Objects are serialized into a per-thread buffer of this size, then the bytes are
+     * queued in pooled direct buffers until they can be written to the TCP socket.
      * <p>
      * Normally the socket is writable and the bytes are written
      * immediately. If the socket cannot be written to and enough
@@ -78,6 +78,23 @@ public class Client extends Connection implements EndPoint{
         this.discoveryPacket = discoveryPacket;
     }
 
+    /**
+     * Switches TCP to fragmented framing: frames get varint length headers,
+     * and objects larger than the fragment size are sent in fragments that
+     * small objects can be sent in between, then reassembled on the other
+     * end. Objects may then be larger than the write and object buffers, up
+     * to maxMessageSize. A large object can be overtaken by objects sent after
+     * it, but large objects arrive in the order they were sent. Large objects
+     * are queued separately from the write buffer, up to four times
+     * maxMessageSize; sending more closes the connection, like overflowing
+     * the write buffer does. Both ends must use the same setting. Must be set before connecting.
+     * @param fragmentSize At most the object buffer size. Zero disables
+     * fragmented framing, which is the default.
+     */
+    public void setFragmentation(int fragmentSize, int maxMessageSize){
+        tcp.setFragmentation(fragmentSize, maxMessageSize);
+    }
+
     /**
      * Opens a TCP only client.
      * @see #connect(int, InetAddress, int, int)
@@ -292,6 +309,8 @@ public class Client extends Connection implements EndPoint{
                                 Object object = udp.readObject();
                                 if(object == null)
                                     continue;
+                                stats.udpIn(udp.lastReadLength);
+                                stats.received(object, false, udp.lastReadNanos);
                                 notifyReceived(object);
                             }
                         }
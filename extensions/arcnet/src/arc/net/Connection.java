@@ -30,12 +30,16 @@ public class Connection{
     volatile boolean isConnected;
     volatile ArcNetException lastProtocolError;
     private Object arbitraryData;
+    final NetStats stats = new NetStats();
+    /** The selector thread of the server that owns this connection, if any. */
+    Server.Worker worker;
 
     protected Connection(){
+        stats.queued = () -> tcp == null ? 0 : tcp.queuedBytes;
     }
 
     void initialize(NetSerializer serialization, int writeBufferSize, int objectBufferSize){
-        tcp = new TcpConnection(serialization, writeBufferSize,
+        tcp = new TcpConnection(this, serialization, writeBufferSize,
         objectBufferSize);
     }
 
@@ -97,7 +101,12 @@ public class Connection{
         try{
             if(address == null) throw new SocketException("Connection is closed.");
 
-            return udp.send(object, address);
+            int length = udp.send(object, address);
+            if(length > 0){
+                stats.udpOut(length);
+                stats.sent(object, false);
+            }
+            return length;
         }catch(IOException | ArcNetException ex){
             close(DcReason.error);
             ArcNet.handleError(ex);
@@ -233,6 +242,20 @@ public class Connection{
         }
     }
 
+    void notifyCongested(){
+        NetListener[] listeners = this.listeners;
+        for(NetListener listener : listeners){
+            listener.congested(this);
+        }
+    }
+
+    void notifyDrained(){
+        NetListener[] listeners = this.listeners;
+        for(NetListener listener : listeners){
+            listener.drained(this);
+        }
+    }
+
     void notifyReceived(Object object){
         if(object instanceof Ping){
             Ping ping = (Ping)object;
@@ -299,14 +322,33 @@ public class Connection{
      * socket, if any.
      */
     public int getTcpWriteBufferSize(){
-        return tcp.writeBuffer.position();
+        return tcp.queuedBytes;
+    }
+
+    /**
+     * Returns the live traffic counters of this connection. Use
+     * {@link NetStats#snapshot()} to read them from any thread.
+     */
+    public NetStats getStats(){
+        return stats;
     }
 
     /**
      * @see #setIdleThreshold(float)
      */
     public boolean isIdle(){
-        return tcp.writeBuffer.position() / (float)tcp.writeBuffer.capacity() < tcp.idleThreshold;
+        return tcp.queuedBytes / (float)tcp.writeBufferSize < tcp.idleThreshold;
+    }
+
+    /**
+     * If more than the specified number of bytes are waiting to be written to
+     * the TCP socket, {@link NetListener#congested(Connection)} is called.
+     * Once the queue falls to half of the threshold,
+     * {@link NetListener#drained(Connection)} is called. Defaults to half of
+     * the write buffer size.
+     */
+    public void setBackpressureThreshold(int bytes){
+        tcp.backpressureThreshold = bytes;
     }
 
     /**
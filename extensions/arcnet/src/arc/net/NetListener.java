@@ -43,6 +43,25 @@ public interface NetListener{
     default void idle(Connection connection){
     }
 
+    /**
+     * Called when more data is queued for the TCP socket than the
+     * {@link Connection#setBackpressureThreshold(int) backpressure threshold},
+     * usually because the remote end is not reading fast enough. Non-essential
+     * sends can be held back until {@link #drained(Connection)} is called.
+     * There is no guarantee as to what thread will invoke this method.
+     */
+    default void congested(Connection connection){
+    }
+
+    /**
+     * Called when the queued TCP data of a connection that was
+     * {@link #congested(Connection) congested} falls to half of the
+     * backpressure threshold. There is no guarantee as to what thread will
+     * invoke this method.
+     */
+    default void drained(Connection connection){
+    }
+
     /**
      * Wraps a listener and queues notifications as {@link Runnable runnables}.
      * This allows the runnables to be processed on a different thread,
@@ -73,6 +92,14 @@ public interface NetListener{
             queue(() -> listener.idle(connection));
         }
 
+        public void congested(final Connection connection){
+            queue(() -> listener.congested(connection));
+        }
+
+        public void drained(final Connection connection){
+            queue(() -> listener.drained(connection));
+        }
+
         abstract protected void queue(Runnable runnable);
     }
 
@@ -0,0 +1,191 @@
+package arc.net;
+
+import arc.func.*;
+import arc.struct.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Traffic counters of a {@link Connection}, or of all connections of a {@link Server}.
+ * The network threads update them without locking; {@link #snapshot()} copies them and may be called from any thread.
+ * Server totals are only added up from the connections when a snapshot is taken, so counting stays per connection.
+ */
+public class NetStats{
+    private static final NetStats[] none = {};
+
+    /** Provides the counters of other connections that are added to these ones in snapshots. Called while holding {@link #lock}. */
+    Prov<NetStats[]> children = () -> none;
+    /** Held while a snapshot reads the counters, so that it does not overlap with changes to the children. */
+    Object lock = this;
+    /** Provides the number of bytes that are currently waiting to be written. */
+    Intp queued = () -> 0;
+
+    final LongAdder
+        tcpBytesIn = new LongAdder(), tcpBytesOut = new LongAdder(),
+        tcpObjectsIn = new LongAdder(), tcpObjectsOut = new LongAdder(),
+        udpBytesIn = new LongAdder(), udpBytesOut = new LongAdder(),
+        udpObjectsIn = new LongAdder(), udpObjectsOut = new LongAdder(),
+        writeStalls = new LongAdder(), deserializeNanos = new LongAdder();
+    final ConcurrentHashMap<Class<?>, TypeCounter> types = new ConcurrentHashMap<>();
+
+    /** @return a copy of the current counters. Counters are not all read at the same instant. */
+    public Snapshot snapshot(){
+        return new Snapshot(this);
+    }
+
+    void tcpIn(int bytes){
+        tcpBytesIn.add(bytes);
+    }
+
+    void tcpOut(long bytes){
+        tcpBytesOut.add(bytes);
+    }
+
+    void udpIn(int bytes){
+        udpBytesIn.add(bytes);
+    }
+
+    void udpOut(int bytes){
+        udpBytesOut.add(bytes);
+    }
+
+    /** Counts a write that could not hand all queued bytes to the socket. */
+    void stall(){
+        writeStalls.increment();
+    }
+
+    void received(Object object, boolean tcp, long nanos){
+        (tcp ? tcpObjectsIn : udpObjectsIn).increment();
+        deserializeNanos.add(nanos);
+        type(object.getClass()).received.increment();
+    }
+
+    void sent(Object object, boolean tcp){
+        (tcp ? tcpObjectsOut : udpObjectsOut).increment();
+        type(object.getClass()).sent.increment();
+    }
+
+    /** Adds the current counters of another connection to these, such as when a server connection is closed. */
+    void add(NetStats other){
+        tcpBytesIn.add(other.tcpBytesIn.sum());
+        tcpBytesOut.add(other.tcpBytesOut.sum());
+        tcpObjectsIn.add(other.tcpObjectsIn.sum());
+        tcpObjectsOut.add(other.tcpObjectsOut.sum());
+        udpBytesIn.add(other.udpBytesIn.sum());
+        udpBytesOut.add(other.udpBytesOut.sum());
+        udpObjectsIn.add(other.udpObjectsIn.sum());
+        udpObjectsOut.add(other.udpObjectsOut.sum());
+        writeStalls.add(other.writeStalls.sum());
+        deserializeNanos.add(other.deserializeNanos.sum());
+        for(Map.Entry<Class<?>, TypeCounter> entry : other.types.entrySet()){
+            TypeCounter counter = type(entry.getKey());
+            counter.received.add(entry.getValue().received.sum());
+            counter.sent.add(entry.getValue().sent.sum());
+        }
+    }
+
+    private TypeCounter type(Class<?> type){
+        TypeCounter counter = types.get(type);
+        if(counter == null){
+            TypeCounter created = new TypeCounter();
+            counter = types.putIfAbsent(type, created);
+            if(counter == null) counter = created;
+        }
+        return counter;
+    }
+
+    static class TypeCounter{
+        final LongAdder received = new LongAdder(), sent = new LongAdder();
+    }
+
+    /** Copy of the counters. Rates can be calculated from two snapshots of the same counters. */
+    public static class Snapshot{
+        /** {@link System#nanoTime()} when the snapshot was taken. */
+        public final long time;
+        public final long tcpBytesIn, tcpBytesOut, tcpObjectsIn, tcpObjectsOut;
+        public final long udpBytesIn, udpBytesOut, udpObjectsIn, udpObjectsOut;
+        /** Number of times the socket accepted only part of the queued bytes. */
+        public final long writeStalls;
+        /** Total time spent deserializing received objects. */
+        public final long deserializeNanos;
+        /** Bytes waiting to be written to the socket when the snapshot was taken. */
+        public final int queuedBytes;
+        /** Number of received objects by type. */
+        public final ObjectMap<Class<?>, Long> received = new ObjectMap<>();
+        /** Number of sent objects by type. */
+        public final ObjectMap<Class<?>, Long> sent = new ObjectMap<>();
+
+        Snapshot(NetStats stats){
+            time = System.nanoTime();
+            queuedBytes = stats.queued.get();
+
+            synchronized(stats.lock){
+                NetStats[] children = stats.children.get();
+                NetStats[] all = new NetStats[children.length + 1];
+                all[0] = stats;
+                System.arraycopy(children, 0, all, 1, children.length);
+
+                tcpBytesIn = sum(all, s -> s.tcpBytesIn);
+                tcpBytesOut = sum(all, s -> s.tcpBytesOut);
+                tcpObjectsIn = sum(all, s -> s.tcpObjectsIn);
+                tcpObjectsOut = sum(all, s -> s.tcpObjectsOut);
+                udpBytesIn = sum(all, s -> s.udpBytesIn);
+                udpBytesOut = sum(all, s -> s.udpBytesOut);
+                udpObjectsIn = sum(all, s -> s.udpObjectsIn);
+                udpObjectsOut = sum(all, s -> s.udpObjectsOut);
+                writeStalls = sum(all, s -> s.writeStalls);
+                deserializeNanos = sum(all, s -> s.deserializeNanos);
+                for(NetStats other : all){
+                    for(Map.Entry<Class<?>, TypeCounter> entry : other.types.entrySet()){
+                        received.put(entry.getKey(), received.get(entry.getKey(), 0L) + entry.getValue().received.sum());
+                        sent.put(entry.getKey(), sent.get(entry.getKey(), 0L) + entry.getValue().sent.sum());
+                    }
+                }
+            }
+        }
+
+        private static long sum(NetStats[] all, Func<NetStats, LongAdder> counter){
+            long total = 0;
+            for(NetStats stats : all){
+                total += counter.get(stats).sum();
+            }
+            return total;
+        }
+
+        /** @return seconds between the two snapshots. */
+        public float seconds(Snapshot previous){
+            return Math.max(time - previous.time, 1) / 1000000000f;
+        }
+
+        /** @return TCP and UDP bytes received per second since the previous snapshot. */
+        public float bytesInPerSecond(Snapshot previous){
+            return (tcpBytesIn + udpBytesIn - previous.tcpBytesIn - previous.udpBytesIn) / seconds(previous);
+        }
+
+        /** @return TCP and UDP bytes sent per second since the previous snapshot. */
+        public float bytesOutPerSecond(Snapshot previous){
+            return (tcpBytesOut + udpBytesOut - previous.tcpBytesOut - previous.udpBytesOut) / seconds(previous);
+        }
+
+        /** @return received objects per second by type since the previous snapshot. */
+        public ObjectFloatMap<Class<?>> receivedPerSecond(Snapshot previous){
+            return perSecond(received, previous.received, seconds(previous));
+        }
+
+        /** @return sent objects per second by type since the previous snapshot. */
+        public ObjectFloatMap<Class<?>> sentPerSecond(Snapshot previous){
+            return perSecond(sent, previous.sent, seconds(previous));
+        }
+
+        private static ObjectFloatMap<Class<?>> perSecond(ObjectMap<Class<?>, Long> current, ObjectMap<Class<?>, Long> previous, float seconds){
+            ObjectFloatMap<Class<?>> result = new ObjectFloatMap<>();
+            for(ObjectMap.Entry<Class<?>, Long> entry : current){
+                long delta = entry.value - previous.get(entry.key, 0L);
+                if(delta > 0) result.put(entry.key, delta / seconds);
+            }
+            return result;
+        }
+    }
+}
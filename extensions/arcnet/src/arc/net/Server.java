@@ -10,10 +10,14 @@ import java.net.*;
 import java.nio.*;
 import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * Manages TCP and optionally UDP connections from many {@linkplain Client
- * Clients}.
+ * Clients}. By default everything runs on the update thread; see
+ * {@link #setSelectorThreads(int)} and {@link #setDispatchExecutor(Executor)}
+ * to spread the work over multiple cores.
  * @author Nathan Sweet <misc@n4te.com>
  */
 public class Server implements EndPoint{
@@ -23,7 +27,7 @@ public class Server implements EndPoint{
     private int emptySelects;
     private ServerSocketChannel serverChannel;
     private UdpConnection udp;
-    private Connection[] connections = {};
+    private volatile Connection[] connections = {};
     private ObjectMap<InetSocketAddress, Connection> udpAddressToConnection = new ObjectMap<>();
     private IntMap<Connection> pendingConnections = new IntMap<>();
     NetListener[] listeners = {};
@@ -36,6 +40,12 @@ public class Server implements EndPoint{
     protected DiscoveryReceiver discoveryReceiver;
     protected ServerDiscoveryHandler discoveryHandler;
     private ServerConnectFilter connectFilter;
+    private int selectorThreads;
+    private int fragmentSize, maxMessageSize;
+    private volatile Worker[] workers = {};
+    private @Nullable Executor dispatchExecutor;
+    private final Object connectionLock = new Object();
+    private final NetStats stats = new NetStats();
 
     private NetListener dispatchListener = new NetListener(){
         public void connected(Connection connection){
@@ -62,12 +72,24 @@ public class Server implements EndPoint{
             for(int i = 0, n = listeners.length; i < n; i++)
                 listeners[i].idle(connection);
         }
+
+        public void congested(Connection connection){
+            NetListener[] listeners = Server.this.listeners;
+            for(int i = 0, n = listeners.length; i < n; i++)
+                listeners[i].congested(connection);
+        }
+
+        public void drained(Connection connection){
+            NetListener[] listeners = Server.this.listeners;
+            for(int i = 0, n = listeners.length; i < n; i++)
+                listeners[i].drained(connection);
+        }
     };
 
     /**
-     * @param writeBufferSize One buffer of this size is allocated for each connected
-     * client. Objects are serialized to the write buffer where the
-     * bytes are queued until they can be written to the TCP socket.
+     * @param writeBufferSize The maximum number of bytes queued for each connected
+     * client. Objects are serialized into a per-thread buffer of this size, then the
+     * bytes are queued in pooled direct buffers until they can be written to the TCP socket.
      * <p>
      * Normally the socket is writable and the bytes are written
      * immediately. If the socket cannot be written to and enough
@@ -95,6 +117,24 @@ public class Server implements EndPoint{
 
         this.discoveryHandler = (address, handler) -> handler.respond(ByteBuffer.allocate(0));
 
+        // Closing connections are folded into the totals under the same lock, so they are never counted twice.
+        stats.lock = connectionLock;
+        stats.children = () -> {
+            NetStats[] children = new NetStats[connections.length + pendingConnections.size];
+            int i = 0;
+            for(Connection connection : connections)
+                children[i++] = connection.stats;
+            for(Connection connection : pendingConnections.values())
+                children[i++] = connection.stats;
+            return children;
+        };
+        stats.queued = () -> {
+            int queued = 0;
+            for(Connection connection : connections)
+                queued += connection.tcp.queuedBytes;
+            return queued;
+        };
+
         try{
             selector = Selector.open();
         }catch(IOException ex){
@@ -123,6 +163,51 @@ public class Server implements EndPoint{
         return connectFilter;
     }
 
+    /**
+     * Switches TCP to fragmented framing: frames get varint length headers,
+     * and objects larger than the fragment size are sent in fragments that
+     * small objects can be sent in between, then reassembled on the other
+     * end. Objects may then be larger than the write and object buffers, up
+     * to maxMessageSize. A large object can be overtaken by objects sent after
+     * it, but large objects arrive in the order they were sent. Large objects
+     * are queued separately from the write buffer, up to four times
+     * maxMessageSize; sending more closes the connection, like overflowing
+     * the write buffer does. Both ends must use the same setting. Only applies to connections accepted afterwards.
+     * @param fragmentSize At most the object buffer size. Zero disables
+     * fragmented framing, which is the default.
+     */
+    public void setFragmentation(int fragmentSize, int maxMessageSize){
+        if(fragmentSize > objectBufferSize)
+            throw new IllegalArgumentException("fragmentSize cannot be larger than the object buffer size: " + fragmentSize);
+        if(fragmentSize > 0 && maxMessageSize < fragmentSize)
+            throw new IllegalArgumentException("maxMessageSize cannot be smaller than fragmentSize.");
+        this.fragmentSize = fragmentSize;
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * Sets the number of additional threads that read from and write to TCP
+     * sockets. Connections are assigned to the thread with the fewest
+     * connections when they are accepted; accepting and UDP stay on the update
+     * thread. All events of a connection are fired on the thread that owns it,
+     * so they stay in order, but listeners will be called from several threads
+     * at once. Zero, the default, handles everything on the update thread.
+     * Takes effect on the next {@link #bind(InetSocketAddress, InetSocketAddress)}.
+     */
+    public void setSelectorThreads(int threads){
+        if(threads < 0) throw new IllegalArgumentException("threads cannot be negative.");
+        selectorThreads = threads;
+    }
+
+    /**
+     * If set, server listeners are invoked on this executor instead of the
+     * network threads. Events of one connection are still delivered one at a
+     * time and in order. Only applies to connections accepted afterwards.
+     */
+    public void setDispatchExecutor(@Nullable Executor executor){
+        dispatchExecutor = executor;
+    }
+
     /**
      * Opens a TCP only server.
      * @throws IOException if the server could not be opened.
@@ -164,6 +249,13 @@ public class Server implements EndPoint{
                     discoveryReceiver = new DiscoveryReceiver(multicastPort);
                     discoveryReceiver.start();
                 }
+
+                Worker[] workers = new Worker[selectorThreads];
+                for(int i = 0; i < workers.length; i++){
+                    workers[i] = new Worker();
+                    workers[i].start("Server Selector " + i);
+                }
+                this.workers = workers;
             }catch(IOException ex){
                 close();
                 throw ex;
@@ -208,8 +300,9 @@ public class Server implements EndPoint{
             Set<SelectionKey> keys = selector.selectedKeys();
             synchronized(keys){
                 UdpConnection udp = this.udp;
+                boolean owner = workers.length == 0;
                 for(Iterator<SelectionKey> iter = keys.iterator(); iter.hasNext();){
-                    keepAlive();
+                    if(owner) keepAlive();
                     SelectionKey selectionKey = iter.next();
                     iter.remove();
                     Connection fromConnection = (Connection)selectionKey.attachment();
@@ -218,30 +311,7 @@ public class Server implements EndPoint{
 
                         if(fromConnection != null){ // Must be a TCP read or
                             // write operation.
-                            if(udp != null && fromConnection.udpRemoteAddress == null){
-                                fromConnection.close(DcReason.error);
-                                continue;
-                            }
-                            if((ops & SelectionKey.OP_READ) == SelectionKey.OP_READ){
-                                try{
-                                    while(true){
-                                        Object object = fromConnection.tcp.readObject();
-                                        if(object == null)
-                                            break;
-                                        fromConnection.notifyReceived(object);
-                                    }
-                                }catch(IOException | ArcNetException ex){
-                                    ArcNet.handleError(new ArcNetException("Error reading TCP from connection: " + fromConnection, ex));
-                                    fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
-                                }
-                            }
-                            if((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE){
-                                try{
-                                    fromConnection.tcp.writeOperation();
-                                }catch(IOException ex){
-                                    fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
-                                }
-                            }
+                            tcpOperation(fromConnection, ops);
                             continue;
                         }
 
@@ -274,7 +344,9 @@ public class Server implements EndPoint{
                         if(fromAddress == null)
                             continue;
 
-                        fromConnection = udpAddressToConnection.get(fromAddress);
+                        synchronized(connectionLock){
+                            fromConnection = udpAddressToConnection.get(fromAddress);
+                        }
 
                         Object object;
                         try{
@@ -284,21 +356,36 @@ public class Server implements EndPoint{
                             continue;
                         }
 
+                        NetStats stats = fromConnection != null ? fromConnection.stats : this.stats;
+                        stats.udpIn(udp.lastReadLength);
+                        stats.received(object, false, udp.lastReadNanos);
+
                         if(object instanceof FrameworkMessage){
                             if(object instanceof RegisterUDP){
                                 // Store the fromAddress on the connection and
                                 // reply over TCP with a RegisterUDP to indicate
                                 // success.
                                 int fromConnectionID = ((RegisterUDP)object).connectionID;
-                                Connection connection = pendingConnections
-                                .remove(fromConnectionID);
-                                if(connection != null){
-                                    if(connection.udpRemoteAddress != null) continue;
-                                    connection.udpRemoteAddress = fromAddress;
-                                    addConnection(connection);
-                                    connection.sendTCP(new RegisterUDP());
-                                    connection.notifyConnected();
-                                    continue;
+                                Connection connection;
+                                boolean registered = false;
+                                synchronized(connectionLock){
+                                    connection = pendingConnections.remove(fromConnectionID);
+                                    // Moved in one step, so that stats snapshots always see the connection.
+                                    if(connection != null && connection.udpRemoteAddress == null){
+                                        connection.udpRemoteAddress = fromAddress;
+                                        addConnection(connection);
+                                        registered = true;
+                                    }
+                                }
+                                if(registered){
+                                    Runnable event = () -> {
+                                        connection.sendTCP(new RegisterUDP());
+                                        connection.notifyConnected();
+                                    };
+                                    if(connection.worker != null)
+                                        connection.worker.post(event);
+                                    else
+                                        event.run();
                                 }
                                 continue;
                             }
@@ -312,7 +399,10 @@ public class Server implements EndPoint{
                         }
 
                         if(fromConnection != null){
-                            fromConnection.notifyReceived(object);
+                            if(fromConnection.worker != null)
+                                fromConnection.worker.received(fromConnection, object);
+                            else
+                                fromConnection.notifyReceived(object);
                             continue;
                         }
                     }catch(CancelledKeyException ex){
@@ -324,8 +414,42 @@ public class Server implements EndPoint{
                 }
             }
         }
-        long time = System.currentTimeMillis();
-        Connection[] connections = this.connections;
+        if(workers.length == 0){
+            Connection[] connections = this.connections;
+            checkConnections(connections, System.currentTimeMillis());
+            notifyIdle(connections);
+        }
+    }
+
+    private void tcpOperation(Connection fromConnection, int ops){
+        if(udp != null && fromConnection.udpRemoteAddress == null){
+            fromConnection.close(DcReason.error);
+            return;
+        }
+        if((ops & SelectionKey.OP_READ) == SelectionKey.OP_READ){
+            try{
+                while(true){
+                    Object object = fromConnection.tcp.readObject();
+                    if(object == null)
+                        break;
+                    fromConnection.notifyReceived(object);
+                }
+            }catch(IOException | ArcNetException ex){
+                ArcNet.handleError(new ArcNetException("Error reading TCP from connection: " + fromConnection, ex));
+                fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
+            }
+        }
+        if((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE){
+            try{
+                fromConnection.tcp.writeOperation();
+            }catch(IOException ex){
+                fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
+            }
+        }
+    }
+
+    /** Handles timeouts and keep alives. */
+    private static void checkConnections(Connection[] connections, long time){
         for(int i = 0, n = connections.length; i < n; i++){
             Connection connection = connections[i];
             if(connection.tcp.isTimedOut(time)){
@@ -334,6 +458,12 @@ public class Server implements EndPoint{
                 if(connection.tcp.needsKeepAlive(time))
                     connection.sendTCP(FrameworkMessage.keepAlive);
             }
+        }
+    }
+
+    private static void notifyIdle(Connection[] connections){
+        for(int i = 0, n = connections.length; i < n; i++){
+            Connection connection = connections[i];
             if(connection.isIdle())
                 connection.notifyIdle();
         }
@@ -384,23 +514,55 @@ public class Server implements EndPoint{
         Connection connection = newConnection();
         connection.initialize(serializer,
         writeBufferSize, objectBufferSize);
+        connection.tcp.setFragmentation(fragmentSize, maxMessageSize);
         connection.endPoint = this;
         UdpConnection udp = this.udp;
         if(udp != null)
             connection.udp = udp;
+
+        Worker[] workers = this.workers;
+        if(workers.length == 0){
+            registerConnection(connection, socketChannel, selector);
+            return;
+        }
+
+        Worker worker = workers[0];
+        for(Worker other : workers){
+            if(other.load.get() < worker.load.get())
+                worker = other;
+        }
+        Worker target = worker;
+        target.load.incrementAndGet();
+        connection.worker = target;
+        if(!target.post(() -> registerConnection(connection, socketChannel, target.selector))){
+            target.load.decrementAndGet();
+            try{
+                socketChannel.close();
+            }catch(IOException ignored){
+            }
+        }
+    }
+
+    private void registerConnection(Connection connection, SocketChannel socketChannel, Selector selector){
+        UdpConnection udp = this.udp;
         try{
             SelectionKey selectionKey = connection.tcp.accept(selector, socketChannel);
             selectionKey.attach(connection);
+            if(connection.worker != null)
+                connection.worker.add(connection);
 
-            int id = generateId();
-            connection.id = id;
             connection.setConnected(true);
-            connection.addListener(dispatchListener);
-
-            if(udp == null)
-                addConnection(connection);
-            else
-                pendingConnections.put(id, connection);
+            connection.addListener(dispatchExecutor == null ? dispatchListener : new OrderedDispatch(dispatchExecutor));
+
+            int id;
+            synchronized(connectionLock){
+                id = generateId();
+                connection.id = id;
+                if(udp == null)
+                    addConnection(connection);
+                else
+                    pendingConnections.put(id, connection);
+            }
 
             RegisterTCP registerConnection = new RegisterTCP();
             registerConnection.connectionID = id;
@@ -410,6 +572,9 @@ public class Server implements EndPoint{
                 connection.notifyConnected();
         }catch(IOException ex){
             connection.close(DcReason.error);
+            //never connected, so there is no disconnect event to release the worker
+            if(connection.worker != null && !connection.worker.remove(connection))
+                connection.worker.load.decrementAndGet();
         }
     }
 
@@ -431,25 +596,37 @@ public class Server implements EndPoint{
     }
 
     private void addConnection(Connection connection){
-        Connection[] newConnections = new Connection[connections.length + 1];
-        newConnections[0] = connection;
-        System.arraycopy(connections, 0, newConnections, 1, connections.length);
-        connections = newConnections;
-
-        if(connection.udpRemoteAddress != null){
-            udpAddressToConnection.put(connection.udpRemoteAddress, connection);
+        synchronized(connectionLock){
+            Connection[] newConnections = new Connection[connections.length + 1];
+            newConnections[0] = connection;
+            System.arraycopy(connections, 0, newConnections, 1, connections.length);
+            connections = newConnections;
+
+            if(connection.udpRemoteAddress != null){
+                udpAddressToConnection.put(connection.udpRemoteAddress, connection);
+            }
         }
     }
 
     void removeConnection(Connection connection){
-        ArrayList<Connection> temp = new ArrayList<>(Arrays.asList(connections));
-        temp.remove(connection);
-        connections = temp.toArray(new Connection[0]);
-
-        pendingConnections.remove(connection.id);
-        if(connection.udpRemoteAddress != null){
-            udpAddressToConnection.remove(connection.udpRemoteAddress);
+        synchronized(connectionLock){
+            ArrayList<Connection> temp = new ArrayList<>(Arrays.asList(connections));
+            boolean removed = temp.remove(connection);
+            connections = temp.toArray(new Connection[0]);
+
+            if(pendingConnections.get(connection.id) == connection){
+                pendingConnections.remove(connection.id);
+                removed = true;
+            }
+            // Keep the traffic of closed connections in the server totals.
+            if(removed)
+                stats.add(connection.stats);
+            if(connection.udpRemoteAddress != null){
+                udpAddressToConnection.remove(connection.udpRemoteAddress);
+            }
         }
+        if(connection.worker != null)
+            connection.worker.remove(connection);
     }
 
     // BOZO - Provide mechanism for sending to multiple clients without
@@ -560,6 +737,11 @@ public class Server implements EndPoint{
             connections[i].close(DcReason.closed);
         this.connections = new Connection[0];
 
+        Worker[] workers = this.workers;
+        for(Worker worker : workers)
+            worker.stop();
+        this.workers = new Worker[0];
+
         ServerSocketChannel serverChannel = this.serverChannel;
         if(serverChannel != null){
             try{
@@ -604,6 +786,14 @@ public class Server implements EndPoint{
         return updateThread;
     }
 
+    /**
+     * Returns the traffic counters of all connections combined, including
+     * connections that have been closed since.
+     */
+    public NetStats getStats(){
+        return stats;
+    }
+
     /**
      * Returns the current connections. The array returned should not be
      * modified.
@@ -612,6 +802,253 @@ public class Server implements EndPoint{
         return connections;
     }
 
+    /** Reads and writes the TCP sockets of the connections that are assigned to it, on its own thread. */
+    class Worker implements Runnable{
+        /** Milliseconds between timeout and keep alive checks. */
+        static final int checkInterval = 100;
+
+        final Selector selector;
+        /** Tasks to run, and UDP objects received for a connection, stored as the connection followed by the object. */
+        private final ArrayDeque<Object> tasks = new ArrayDeque<>();
+        private volatile boolean running = true;
+        /** Number of connections assigned to this worker that have not been removed yet, used to balance new connections. */
+        final AtomicInteger load = new AtomicInteger();
+        /** Connections registered with this worker's selector. Copied on write. */
+        private volatile Connection[] connections = {};
+        private int emptySelects;
+        private long nextCheck;
+
+        Worker() throws IOException{
+            selector = Selector.open();
+        }
+
+        void start(String name){
+            Threads.daemon(name, this);
+        }
+
+        /**
+         * Runs the task on this worker's thread before its next select.
+         * @return false if the worker was stopped and the task will never run.
+         */
+        boolean post(Runnable task){
+            synchronized(tasks){
+                if(!running)
+                    return false;
+                boolean wake = tasks.isEmpty();
+                tasks.add(task);
+                //the worker drains all tasks before selecting, so only the first one needs a wakeup
+                if(!wake) return true;
+            }
+            selector.wakeup();
+            return true;
+        }
+
+        /** Fires the received event for an object that arrived over UDP on this worker's thread. */
+        void received(Connection connection, Object object){
+            synchronized(tasks){
+                if(!running)
+                    return;
+                boolean wake = tasks.isEmpty();
+                tasks.add(connection);
+                tasks.add(object);
+                if(!wake) return;
+            }
+            selector.wakeup();
+        }
+
+        void add(Connection connection){
+            synchronized(this){
+                Connection[] connections = this.connections;
+                Connection[] newConnections = Arrays.copyOf(connections, connections.length + 1);
+                newConnections[connections.length] = connection;
+                this.connections = newConnections;
+            }
+        }
+
+        /** @return whether the connection was registered with this worker. */
+        boolean remove(Connection connection){
+            synchronized(this){
+                Connection[] connections = this.connections;
+                for(int i = 0; i < connections.length; i++){
+                    if(connections[i] == connection){
+                        Connection[] newConnections = new Connection[connections.length - 1];
+                        System.arraycopy(connections, 0, newConnections, 0, i);
+                        System.arraycopy(connections, i + 1, newConnections, i, newConnections.length - i);
+                        this.connections = newConnections;
+                        load.decrementAndGet();
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+
+        void stop(){
+            synchronized(tasks){
+                running = false;
+            }
+            selector.wakeup();
+        }
+
+        public void run(){
+            try{
+                while(running){
+                    update(250);
+                }
+            }catch(IOException ex){
+                ArcNet.handleError(ex);
+            }finally{
+                runTasks();
+                for(SelectionKey key : new ArrayList<>(selector.keys())){
+                    if(key.attachment() instanceof Connection){
+                        ((Connection)key.attachment()).close(DcReason.closed);
+                    }else{
+                        try{
+                            key.channel().close();
+                        }catch(IOException ignored){
+                        }
+                    }
+                }
+                try{
+                    selector.close();
+                }catch(IOException ignored){
+                }
+            }
+        }
+
+        private void update(int timeout) throws IOException{
+            runTasks();
+
+            long startTime = System.currentTimeMillis();
+            int select = selector.select(timeout);
+            if(select == 0){
+                // Wakeups for posted tasks also return 0, so only count selects that had nothing to do.
+                if(!hasTasks() && ++emptySelects == 100){
+                    emptySelects = 0;
+                    long elapsedTime = System.currentTimeMillis() - startTime;
+                    try{
+                        if(elapsedTime < 25) Thread.sleep(25 - elapsedTime);
+                    }catch(InterruptedException ignored){
+                    }
+                }
+            }else{
+                emptySelects = 0;
+                Set<SelectionKey> keys = selector.selectedKeys();
+                for(Iterator<SelectionKey> iter = keys.iterator(); iter.hasNext();){
+                    SelectionKey selectionKey = iter.next();
+                    iter.remove();
+                    Connection fromConnection = (Connection)selectionKey.attachment();
+                    try{
+                        tcpOperation(fromConnection, selectionKey.readyOps());
+                    }catch(CancelledKeyException ex){
+                        fromConnection.close(DcReason.error);
+                    }
+                }
+            }
+
+            runTasks();
+
+            Connection[] connections = this.connections;
+            long time = System.currentTimeMillis();
+            if(time >= nextCheck){
+                nextCheck = time + checkInterval;
+                checkConnections(connections, time);
+            }
+            notifyIdle(connections);
+        }
+
+        private boolean hasTasks(){
+            synchronized(tasks){
+                return !tasks.isEmpty();
+            }
+        }
+
+        private void runTasks(){
+            while(true){
+                Object task, object = null;
+                synchronized(tasks){
+                    task = tasks.poll();
+                    if(task instanceof Connection)
+                        object = tasks.poll();
+                }
+                if(task == null)
+                    return;
+                if(task instanceof Connection){
+                    ((Connection)task).notifyReceived(object);
+                }else{
+                    ((Runnable)task).run();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forwards the events of one connection to the server listeners on the
+     * dispatch executor, one at a time and in the order they happened.
+     */
+    class OrderedDispatch extends NetListener.QueuedListener{
+        private final Executor executor;
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        private boolean running, idleQueued;
+
+        OrderedDispatch(Executor executor){
+            super(dispatchListener);
+            this.executor = executor;
+        }
+
+        @Override
+        public void disconnected(Connection connection, DcReason reason){
+            // Stop sending to the connection right away instead of when the event is processed.
+            removeConnection(connection);
+            super.disconnected(connection, reason);
+        }
+
+        @Override
+        public void idle(Connection connection){
+            // Idle fires on every update, so don't queue it again while one is still pending.
+            synchronized(queue){
+                if(idleQueued)
+                    return;
+                idleQueued = true;
+            }
+            queue(() -> {
+                synchronized(queue){
+                    idleQueued = false;
+                }
+                listener.idle(connection);
+            });
+        }
+
+        @Override
+        protected void queue(Runnable runnable){
+            synchronized(queue){
+                queue.add(runnable);
+                if(running)
+                    return;
+                running = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        private void drain(){
+            while(true){
+                Runnable next;
+                synchronized(queue){
+                    next = queue.poll();
+                    if(next == null){
+                        running = false;
+                        return;
+                    }
+                }
+                try{
+                    next.run();
+                }catch(Throwable t){
+                    ArcNet.handleError(t);
+                }
+            }
+        }
+    }
+
     //I don't care about deprecation here, as the socket system methods won't be removed
     //it really doesn't matter if the multicast works or not
     @SuppressWarnings("deprecation")
@@ -0,0 +1,151 @@
+package arc.net;
+
+import arc.util.*;
+
+import java.nio.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * Decodes snapshots written by a {@link SnapshotEncoder}. After a successful {@link #decode(ByteBuffer)}, {@link #sequence()}
+ * should be sent back to the encoder as an acknowledgement, and the state is available through {@link #state()} and {@link #length()}.
+ */
+public class SnapshotDecoder implements Disposable{
+    private final Inflater inflater = new Inflater();
+    private final byte[][] history;
+    private final int[] historyLengths, historySequences;
+    private byte[] input = {}, delta = {};
+    private int sequence, slot;
+    private boolean disposed;
+
+    /** Number of deltas that were dropped because their baseline was not known. */
+    public int missingBaselines;
+    /** Largest state size in bytes that is accepted. The size is read from the network, so it must be bounded before allocating. */
+    public int maxLength = 1024 * 1024;
+
+    public SnapshotDecoder(){
+        this(32);
+    }
+
+    /** @param history How many received snapshots are kept as baselines. Should match the encoder. */
+    public SnapshotDecoder(int history){
+        if(history < 2) throw new IllegalArgumentException("history must be at least 2.");
+        this.history = new byte[history][];
+        historyLengths = new int[history];
+        historySequences = new int[history];
+    }
+
+    /**
+     * Reads one snapshot from the buffer. The whole snapshot is always consumed.
+     * @return false if the snapshot is older than the last decoded one, or is a delta against a baseline that was never received.
+     * @throws ArcNetException if the data is malformed, or the state is larger than {@link #maxLength}.
+     */
+    public boolean decode(ByteBuffer in){
+        int sequence = readVarint(in);
+        int distance = readVarint(in);
+        int length = readVarint(in);
+        boolean compressed = in.get() != 0;
+        int payloadLength = compressed ? readVarint(in) : length;
+        if(length < 0 || length > maxLength) throw new ArcNetException("Snapshot state of " + length + " bytes exceeds the maximum of " + maxLength + ".");
+        if(payloadLength < 0 || payloadLength > in.remaining()) throw new ArcNetException("Snapshot is truncated.");
+
+        int base = distance == 0 ? 0 : sequence - distance;
+        boolean hasBase = base == 0 || (base > 0 && historySequences[base % history.length] == base);
+        if(sequence <= this.sequence || !hasBase){
+            if(!hasBase) missingBaselines++;
+            in.position(in.position() + payloadLength);
+            return false;
+        }
+
+        if(input.length < payloadLength) input = new byte[payloadLength];
+        in.get(input, 0, payloadLength);
+        if(delta.length < length) delta = new byte[length];
+        if(compressed){
+            inflater.reset();
+            inflater.setInput(input, 0, payloadLength);
+            try{
+                int count = 0;
+                while(count < length && !inflater.finished()){
+                    int read = inflater.inflate(delta, count, length - count);
+                    if(read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    count += read;
+                }
+                if(count != length) throw new ArcNetException("Snapshot decompressed to " + count + " bytes instead of " + length + ".");
+            }catch(DataFormatException e){
+                throw new ArcNetException("Malformed snapshot data.", e);
+            }
+        }else{
+            System.arraycopy(input, 0, delta, 0, length);
+        }
+
+        // Apply the baseline before storing, as the new snapshot may take the baseline's slot.
+        if(base != 0){
+            byte[] baseState = history[base % history.length];
+            for(int i = 0, n = Math.min(length, historyLengths[base % history.length]); i < n; i++){
+                delta[i] ^= baseState[i];
+            }
+        }
+
+        int slot = sequence % history.length;
+        if(history[slot] == null || history[slot].length < length) history[slot] = new byte[length];
+        System.arraycopy(delta, 0, history[slot], 0, length);
+        historyLengths[slot] = length;
+        historySequences[slot] = sequence;
+
+        this.sequence = sequence;
+        this.slot = slot;
+        return true;
+    }
+
+    /** @return the sequence number of the last decoded snapshot, which should be acknowledged. */
+    public int sequence(){
+        return sequence;
+    }
+
+    /** @return the array holding the last decoded state. It is also used as a baseline, so it must not be modified. */
+    public byte[] state(){
+        return history[slot];
+    }
+
+    /** @return the length of the last decoded state. */
+    public int length(){
+        return historyLengths[slot];
+    }
+
+    /** Forgets all received snapshots, e.g. after reconnecting. */
+    public void reset(){
+        sequence = 0;
+        Arrays.fill(historySequences, 0);
+    }
+
+    @Override
+    public void dispose(){
+        if(!disposed){
+            inflater.end();
+            disposed = true;
+        }
+    }
+
+    @Override
+    public boolean isDisposed(){
+        return disposed;
+    }
+
+    static void writeVarint(ByteBuffer buffer, int value){
+        while((value & ~0x7F) != 0){
+            buffer.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+
+    static int readVarint(ByteBuffer buffer){
+        int result = 0;
+        for(int shift = 0; shift < 35; shift += 7){
+            int b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) return result;
+        }
+        throw new ArcNetException("Malformed snapshot header.");
+    }
+}
@@ -0,0 +1,122 @@
+package arc.net;
+
+import arc.util.*;
+
+import java.nio.*;
+import java.util.zip.*;
+
+/**
+ * Encodes serialized state snapshots for one client as deltas against the last snapshot that client acknowledged.
+ * Each snapshot is XORed with the acknowledged baseline, which turns unchanged bytes into zeros, and then deflated.
+ * When no acknowledged baseline is still known (nothing was acknowledged yet, or acknowledgements were lost for longer than the history),
+ * a keyframe is sent instead, so packet loss never stalls the stream.
+ * <p>
+ * Typical usage: the server encodes the serialized state into a packet for every client, the client decodes it with a
+ * {@link SnapshotDecoder} and sends {@link SnapshotDecoder#sequence()} back, and the server passes that to {@link #acknowledge(int)}.
+ */
+public class SnapshotEncoder implements Disposable{
+    private final Deflater deflater;
+    private final byte[][] history;
+    private final int[] historyLengths, historySequences;
+    private byte[] delta = {}, compressed = {};
+    private int sequence, acknowledged;
+    private boolean disposed;
+
+    /** Number of keyframes that were sent. */
+    public int keyframes;
+
+    public SnapshotEncoder(){
+        this(32, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param history How many sent snapshots are kept as possible baselines. Acknowledgements for older snapshots are ignored.
+     * @param level Deflater compression level.
+     */
+    public SnapshotEncoder(int history, int level){
+        if(history < 2) throw new IllegalArgumentException("history must be at least 2.");
+        this.history = new byte[history][];
+        historyLengths = new int[history];
+        historySequences = new int[history];
+        deflater = new Deflater(level);
+    }
+
+    /**
+     * Writes the first length bytes of the state to the buffer, as a delta or a keyframe.
+     * @return the sequence number of the snapshot.
+     */
+    public int encode(byte[] state, int length, ByteBuffer out){
+        int sequence = ++this.sequence;
+        int slot = sequence % history.length;
+
+        // Find the baseline before its slot can be overwritten.
+        int base = acknowledged > 0 && sequence - acknowledged < history.length && historySequences[acknowledged % history.length] == acknowledged ? acknowledged : 0;
+        byte[] baseState = base == 0 ? null : history[base % history.length];
+        int baseLength = base == 0 ? 0 : historyLengths[base % history.length];
+        if(base == 0) keyframes++;
+
+        if(delta.length < length) delta = new byte[length];
+        System.arraycopy(state, 0, delta, 0, length);
+        for(int i = 0, n = Math.min(length, baseLength); i < n; i++){
+            delta[i] ^= baseState[i];
+        }
+
+        if(history[slot] == null || history[slot].length < length) history[slot] = new byte[length];
+        System.arraycopy(state, 0, history[slot], 0, length);
+        historyLengths[slot] = length;
+        historySequences[slot] = sequence;
+
+        deflater.reset();
+        deflater.setInput(delta, 0, length);
+        deflater.finish();
+        int bound = length + length / 1000 + 64;
+        if(compressed.length < bound) compressed = new byte[bound];
+        int compressedLength = 0;
+        while(!deflater.finished() && compressedLength < length){
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+
+        boolean useCompressed = deflater.finished() && compressedLength < length;
+        SnapshotDecoder.writeVarint(out, sequence);
+        SnapshotDecoder.writeVarint(out, base == 0 ? 0 : sequence - base);
+        SnapshotDecoder.writeVarint(out, length);
+        out.put((byte)(useCompressed ? 1 : 0));
+        if(useCompressed){
+            SnapshotDecoder.writeVarint(out, compressedLength);
+            out.put(compressed, 0, compressedLength);
+        }else{
+            out.put(delta, 0, length);
+        }
+        return sequence;
+    }
+
+    /** Marks a snapshot as received by the client, making it a candidate baseline. Older acknowledgements are ignored. */
+    public void acknowledge(int sequence){
+        if(sequence > acknowledged && sequence <= this.sequence){
+            acknowledged = sequence;
+        }
+    }
+
+    /** Forgets the acknowledged baseline, so that the next snapshot is a keyframe. */
+    public void reset(){
+        acknowledged = 0;
+    }
+
+    /** @return the sequence number of the last encoded snapshot. */
+    public int sequence(){
+        return sequence;
+    }
+
+    @Override
+    public void dispose(){
+        if(!disposed){
+            deflater.end();
+            disposed = true;
+        }
+    }
+
+    @Override
+    public boolean isDisposed(){
+        return disposed;
+    }
+}
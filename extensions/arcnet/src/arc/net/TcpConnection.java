@@ -5,37 +5,87 @@ package arc.net;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.*;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
+import java.util.*;
 
 /**
  * @author Nathan Sweet <misc@n4te.com>
  */
 class TcpConnection{
+    /** Size of the direct buffers that queued writes are stored in. */
+    static final int segmentSize = 16 * 1024;
+    /** Maximum number of free segments kept around for reuse, shared by all connections. */
+    static final int maxPooledSegments = 256;
+
+    /** Frame kinds of fragmented framing: a whole object, the first fragment of a large object followed by its size, or a later fragment. */
+    static final int frameWhole = 0, frameFirst = 1, frameNext = 2;
+    /** Room reserved in front of serialized objects for a varint frame header. */
+    static final int maxHeaderSize = 5;
+    /** Large object buffers are only pooled up to this size, and only this many of them. */
+    static final int maxPooledMessageSize = 4 * 1024 * 1024, maxPooledMessages = 8;
+    /** Large objects that have not been fragmented yet may take up at most this many times the maximum message size. */
+    static final int maxQueuedMessages = 4;
+
+    private static final ArrayDeque<ByteBuffer> segmentPool = new ArrayDeque<>();
+    private static final ArrayDeque<ByteBuffer> messagePool = new ArrayDeque<>();
+    private static final ThreadLocal<ByteBuffer> scratchBuffer = new ThreadLocal<>();
+
     SocketChannel socketChannel;
     int keepAliveMillis = 8000;
-    final ByteBuffer readBuffer, writeBuffer;
+    final ByteBuffer readBuffer;
+    final int writeBufferSize;
     int timeoutMillis = 12000;
     float idleThreshold = 0.1f;
+    int backpressureThreshold;
+    /** If positive, frames have varint headers and objects larger than this are sent in fragments of this size. */
+    int fragmentSize;
+    /** The largest object that can be sent or received with fragmented framing. */
+    int maxMessageSize;
 
+    final Connection connection;
     final NetSerializer serialization;
-    private SelectionKey selectionKey;
+    private volatile SelectionKey selectionKey;
     private volatile long lastWriteTime, lastReadTime;
     private int currentObjectLength;
     private final Object writeLock = new Object();
 
-    public TcpConnection(NetSerializer serialization, int writeBufferSize, int objectBufferSize){
+    /** Queued segments, oldest first. Each one is ready for reading, with its limit at the end of the queued data. */
+    private ByteBuffer[] segments = new ByteBuffer[8];
+    private int segmentCount;
+    /** Number of bytes that have been queued but not yet written to the socket. */
+    volatile int queuedBytes;
+    private boolean congested;
+
+    /** Large objects waiting to be fragmented, oldest first. */
+    private final ArrayDeque<ByteBuffer> largeQueue = new ArrayDeque<>();
+    private final ByteBuffer frameHeader = ByteBuffer.allocate(maxHeaderSize * 2);
+    /** Number of queued bytes that are in {@link #largeQueue} and not in segments yet. */
+    private int largeBytes;
+    private boolean fragmentStarted;
+    /** Kind of the frame whose payload is being read. */
+    private int currentFrame;
+    /** Fragmented object that is being reassembled, or null. */
+    private ByteBuffer assembly;
+
+    public TcpConnection(Connection connection, NetSerializer serialization, int writeBufferSize, int objectBufferSize){
+        this.connection = connection;
         this.serialization = serialization;
-        writeBuffer = ByteBuffer.allocate(writeBufferSize);
+        this.writeBufferSize = writeBufferSize;
+        backpressureThreshold = writeBufferSize / 2;
         readBuffer = ByteBuffer.allocate(objectBufferSize);
         readBuffer.flip();
     }
 
     public SelectionKey accept(Selector selector, SocketChannel socketChannel) throws IOException{
-        writeBuffer.clear();
+        synchronized(writeLock){
+            clearQueue();
+        }
         readBuffer.clear();
         readBuffer.flip();
         currentObjectLength = 0;
+        assembly = null;
         try{
             this.socketChannel = socketChannel;
             socketChannel.configureBlocking(false);
@@ -56,10 +106,13 @@ class TcpConnection{
 
     public void connect(Selector selector, SocketAddress remoteAddress, int timeout) throws IOException{
         close();
-        writeBuffer.clear();
+        synchronized(writeLock){
+            clearQueue();
+        }
         readBuffer.clear();
         readBuffer.flip();
         currentObjectLength = 0;
+        assembly = null;
         try{
             SocketChannel socketChannel = selector.provider().openSocketChannel();
             Socket socket = socketChannel.socket();
@@ -86,16 +139,14 @@ class TcpConnection{
         if(socketChannel == null)
             throw new SocketException("Connection is closed.");
 
+        if(fragmentSize > 0)
+            return readFramed(socketChannel);
+
         if(currentObjectLength == 0){
             // Read the length of the next object from the socket.
             int lengthLength = serialization.getLengthLength();
             if(readBuffer.remaining() < lengthLength){
-                readBuffer.compact();
-                int bytesRead = socketChannel.read(readBuffer);
-                readBuffer.flip();
-                if(bytesRead == -1)
-                    throw new SocketException("Connection is closed.");
-                lastReadTime = System.currentTimeMillis();
+                fill(socketChannel);
 
                 if(readBuffer.remaining() < lengthLength)
                     return null;
@@ -114,93 +165,388 @@ class TcpConnection{
         int length = currentObjectLength;
         if(readBuffer.remaining() < length){
             // Fill the tcpInputStream.
-            readBuffer.compact();
-            int bytesRead = socketChannel.read(readBuffer);
-            readBuffer.flip();
-            if(bytesRead == -1)
-                throw new SocketException("Connection is closed.");
-            lastReadTime = System.currentTimeMillis();
+            fill(socketChannel);
 
             if(readBuffer.remaining() < length)
                 return null;
         }
         currentObjectLength = 0;
 
-        int startPosition = readBuffer.position();
-        int oldLimit = readBuffer.limit();
-        readBuffer.limit(startPosition + length);
+        return deserialize(readBuffer, length);
+    }
+
+    /** Reads frames with varint headers, reassembling fragmented objects. */
+    private Object readFramed(SocketChannel socketChannel) throws IOException{
+        while(true){
+            if(currentObjectLength == 0){
+                int start = readBuffer.position();
+                int header = readVarint(), total = 0;
+                if(header != -1 && (header & 3) == frameFirst){
+                    total = readVarint();
+                    if(total == -1)
+                        header = -1;
+                }
+                if(header == -1){
+                    // Incomplete header, try again once more bytes are available.
+                    readBuffer.position(start);
+                    if(fill(socketChannel) == 0)
+                        return null;
+                    continue;
+                }
+
+                int kind = header & 3, length = header >>> 2;
+                if(length <= 0 || kind > frameNext)
+                    throw new ArcNetException("Invalid frame header: " + header);
+                if(length > readBuffer.capacity())
+                    throw new ArcNetException("Unable to read frame larger than read buffer: " + length);
+
+                if(kind == frameFirst){
+                    if(assembly != null)
+                        throw new ArcNetException("Fragmented object started before the previous one was complete.");
+                    if(total > maxMessageSize)
+                        throw new ArcNetException("Unable to read object larger than the maximum message size: " + total);
+                    assembly = obtainMessage(total);
+                    assembly.limit(total);
+                }
+                if(kind != frameWhole && (assembly == null || length > assembly.remaining()))
+                    throw new ArcNetException("Unexpected fragment of " + length + " bytes.");
+
+                currentObjectLength = length;
+                currentFrame = kind;
+            }
+
+            int length = currentObjectLength;
+            if(readBuffer.remaining() < length){
+                fill(socketChannel);
+
+                if(readBuffer.remaining() < length)
+                    return null;
+            }
+            currentObjectLength = 0;
+
+            if(currentFrame == frameWhole)
+                return deserialize(readBuffer, length);
+
+            int oldLimit = readBuffer.limit();
+            readBuffer.limit(readBuffer.position() + length);
+            assembly.put(readBuffer);
+            readBuffer.limit(oldLimit);
+
+            if(!assembly.hasRemaining()){
+                ByteBuffer message = assembly;
+                assembly = null;
+                message.flip();
+                try{
+                    return deserialize(message, message.limit());
+                }finally{
+                    freeMessage(message);
+                }
+            }
+        }
+    }
+
+    /** Compacts the read buffer and reads from the socket once. */
+    private int fill(SocketChannel socketChannel) throws IOException{
+        readBuffer.compact();
+        int bytesRead = socketChannel.read(readBuffer);
+        readBuffer.flip();
+        if(bytesRead == -1)
+            throw new SocketException("Connection is closed.");
+        lastReadTime = System.currentTimeMillis();
+        connection.stats.tcpIn(bytesRead);
+        return bytesRead;
+    }
+
+    private Object deserialize(ByteBuffer buffer, int length){
+        int startPosition = buffer.position();
+        int oldLimit = buffer.limit();
+        buffer.limit(startPosition + length);
+        long start = System.nanoTime();
         Object object;
         try{
-            object = serialization.read(readBuffer);
+            object = serialization.read(buffer);
         }catch(Exception ex){
             throw new ArcNetException("Error during deserialization.", ex);
         }
+        connection.stats.received(object, true, System.nanoTime() - start);
 
-        readBuffer.limit(oldLimit);
-        if(readBuffer.position() - startPosition != length)
+        buffer.limit(oldLimit);
+        if(buffer.position() - startPosition != length)
             throw new ArcNetException("Incorrect number of bytes ("
-            + (startPosition + length - readBuffer.position())
+            + (startPosition + length - buffer.position())
             + " remaining) used to deserialize object: " + object);
 
         return object;
     }
 
+    /** @return the varint at the read buffer's position, or -1 if it is incomplete. */
+    private int readVarint(){
+        int result = 0;
+        for(int shift = 0; shift < 35; shift += 7){
+            if(!readBuffer.hasRemaining())
+                return -1;
+            int b = readBuffer.get();
+            if(shift == 28 && (b & 0xF8) != 0)
+                throw new ArcNetException("Malformed frame header.");
+            result |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return result;
+        }
+        throw new ArcNetException("Malformed frame header.");
+    }
+
+    private static void writeVarint(ByteBuffer buffer, int value){
+        while((value & ~0x7F) != 0){
+            buffer.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+
+    private static int varintSize(int value){
+        int size = 1;
+        while((value & ~0x7F) != 0){
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
     public void writeOperation() throws IOException{
+        boolean drained;
         synchronized(writeLock){
             if(writeToSocket()){
                 // Write successful, clear OP_WRITE.
                 selectionKey.interestOps(SelectionKey.OP_READ);
             }
             lastWriteTime = System.currentTimeMillis();
+            drained = checkDrained();
         }
+        if(drained) connection.notifyDrained();
     }
 
+    /** Writes as many queued segments as the socket accepts with a single gathering write per pass. */
     private boolean writeToSocket() throws IOException{
         SocketChannel socketChannel = this.socketChannel;
         if(socketChannel == null)
             throw new SocketException("Connection is closed.");
 
-        ByteBuffer buffer = writeBuffer;
-        buffer.flip();
-        while(buffer.hasRemaining()){
-            if(socketChannel.write(buffer) == 0)
+        while(true){
+            // Only feed fragments of large objects when less than a fragment is waiting, so small objects can get in between.
+            if(!largeQueue.isEmpty() && queuedBytes - largeBytes < fragmentSize)
+                queueFragment();
+            if(segmentCount == 0)
+                break;
+
+            long written = socketChannel.write(segments, 0, segmentCount);
+            queuedBytes -= written;
+            connection.stats.tcpOut(written);
+
+            int done = 0;
+            while(done < segmentCount && !segments[done].hasRemaining()){
+                free(segments[done]);
+                done++;
+            }
+            if(done > 0){
+                System.arraycopy(segments, done, segments, 0, segmentCount - done);
+                Arrays.fill(segments, segmentCount - done, segmentCount, null);
+                segmentCount -= done;
+            }
+
+            if(written == 0){
+                connection.stats.stall();
                 break;
+            }
+        }
+
+        return segmentCount == 0 && largeQueue.isEmpty();
+    }
+
+    /** Moves the next fragment of the oldest large object into the segment queue. */
+    private void queueFragment(){
+        ByteBuffer message = largeQueue.peek();
+        int count = Math.min(message.remaining(), fragmentSize);
+
+        frameHeader.clear();
+        if(!fragmentStarted){
+            writeVarint(frameHeader, count << 2 | frameFirst);
+            writeVarint(frameHeader, message.remaining());
+        }else{
+            writeVarint(frameHeader, count << 2 | frameNext);
+        }
+        frameHeader.flip();
+
+        largeBytes -= count;
+        queuedBytes -= count;
+        queue(frameHeader);
+
+        int oldLimit = message.limit();
+        message.limit(message.position() + count);
+        queue(message);
+        message.limit(oldLimit);
+
+        fragmentStarted = message.hasRemaining();
+        if(!fragmentStarted){
+            largeQueue.poll();
+            freeMessage(message);
+        }
+    }
+
+    /** Appends the remaining bytes of the buffer to the tail of the segment queue. */
+    private void queue(ByteBuffer data){
+        while(data.hasRemaining()){
+            ByteBuffer tail = segmentCount == 0 ? null : segments[segmentCount - 1];
+            if(tail == null || tail.limit() == tail.capacity()){
+                tail = obtain();
+                if(segmentCount == segments.length)
+                    segments = Arrays.copyOf(segments, segmentCount * 2);
+                segments[segmentCount++] = tail;
+            }
+
+            // Segments are kept ready for reading, so temporarily move the window past the queued bytes.
+            int start = tail.position(), end = tail.limit();
+            int count = Math.min(data.remaining(), tail.capacity() - end);
+            int dataLimit = data.limit();
+            data.limit(data.position() + count);
+            tail.limit(end + count);
+            tail.position(end);
+            tail.put(data);
+            tail.position(start);
+            data.limit(dataLimit);
+            queuedBytes += count;
+        }
+    }
+
+    /** @return whether the queue fell far enough below the backpressure threshold to report it drained. */
+    private boolean checkDrained(){
+        if(congested && queuedBytes <= backpressureThreshold / 2){
+            congested = false;
+            return true;
+        }
+        return false;
+    }
+
+    private void clearQueue(){
+        for(int i = 0; i < segmentCount; i++){
+            free(segments[i]);
+            segments[i] = null;
+        }
+        segmentCount = 0;
+        for(ByteBuffer message : largeQueue)
+            freeMessage(message);
+        largeQueue.clear();
+        largeBytes = 0;
+        fragmentStarted = false;
+        queuedBytes = 0;
+        congested = false;
+    }
+
+    private static ByteBuffer obtain(){
+        ByteBuffer buffer;
+        synchronized(segmentPool){
+            buffer = segmentPool.poll();
+        }
+        if(buffer == null)
+            buffer = ByteBuffer.allocateDirect(segmentSize);
+        buffer.clear();
+        buffer.limit(0);
+        return buffer;
+    }
+
+    private static void free(ByteBuffer buffer){
+        synchronized(segmentPool){
+            if(segmentPool.size() < maxPooledSegments)
+                segmentPool.add(buffer);
         }
-        buffer.compact();
+    }
 
-        return buffer.position() == 0;
+    /** @return a cleared heap buffer with at least the given capacity, reused from earlier large objects if possible. */
+    private static ByteBuffer obtainMessage(int capacity){
+        synchronized(messagePool){
+            for(Iterator<ByteBuffer> iter = messagePool.iterator(); iter.hasNext();){
+                ByteBuffer buffer = iter.next();
+                if(buffer.capacity() >= capacity){
+                    iter.remove();
+                    buffer.clear();
+                    return buffer;
+                }
+            }
+        }
+        return ByteBuffer.allocate(capacity);
+    }
+
+    private static void freeMessage(ByteBuffer buffer){
+        if(buffer.capacity() > maxPooledMessageSize)
+            return;
+        synchronized(messagePool){
+            if(messagePool.size() < maxPooledMessages)
+                messagePool.add(buffer);
+        }
+    }
+
+    /** @return a cleared serialization buffer for the current thread, with at least the given capacity. */
+    private static ByteBuffer scratch(int capacity){
+        ByteBuffer buffer = scratchBuffer.get();
+        if(buffer == null || buffer.capacity() < capacity){
+            buffer = ByteBuffer.allocate(capacity);
+            scratchBuffer.set(buffer);
+        }
+        buffer.clear();
+        buffer.limit(capacity);
+        return buffer;
     }
 
     /**
-     * This method is thread safe.
+     * This method is thread safe. The object is serialized before the write lock is taken,
+     * so concurrent senders only contend for the time it takes to queue the bytes.
      */
     public int send(Object object) throws IOException{
         SocketChannel socketChannel = this.socketChannel;
         if(socketChannel == null)
             throw new SocketException("Connection is closed.");
-        synchronized(writeLock){
 
-            int start = writeBuffer.position();
-            int lengthLength = serialization.getLengthLength();
+        ByteBuffer buffer;
+        boolean large = false;
+        if(fragmentSize > 0){
+            buffer = serializeFramed(object);
+            large = buffer.remaining() > fragmentSize;
+            if(large && buffer == scratchBuffer.get()){
+                // The scratch buffer is reused by the next send on this thread, so large objects need their own copy.
+                ByteBuffer copy = obtainMessage(buffer.remaining());
+                copy.put(buffer);
+                copy.flip();
+                buffer = copy;
+            }else if(!large){
+                prependHeader(buffer, buffer.remaining() << 2 | frameWhole);
+            }
+        }else{
+            buffer = serialize(object);
+        }
+        int length = buffer.remaining();
 
-            try{
-                // Leave room for length.
-                writeBuffer.position(writeBuffer.position() + lengthLength);
+        boolean congestedNow = false, drained;
+        synchronized(writeLock){
+            boolean wasEmpty = segmentCount == 0 && largeQueue.isEmpty();
+            if(large){
+                if(largeBytes + (long)length > (long)maxMessageSize * maxQueuedMessages){
+                    freeMessage(buffer);
+                    throw new ArcNetException("Large object queue is full (" + largeBytes + " bytes), unable to send object of type: " + object.getClass().getName());
+                }
+                largeQueue.add(buffer);
+                largeBytes += length;
+                queuedBytes += length;
+            }else{
+                // Large objects are limited by a multiple of the maximum message size instead.
+                if(queuedBytes - largeBytes + length > writeBufferSize)
+                    throw new ArcNetException("Write queue is full (" + queuedBytes + " bytes), unable to send object of type: " + object.getClass().getName());
 
-                // Write data.
-                serialization.write(writeBuffer, object);
-            }catch(Throwable ex){
-                throw new ArcNetException("Error serializing object of type: " + object.getClass().getName(), ex);
+                queue(buffer);
+                if(buffer != scratchBuffer.get())
+                    freeMessage(buffer);
             }
-            int end = writeBuffer.position();
-
-            // Write data length.
-            writeBuffer.position(start);
-            serialization.writeLength(writeBuffer, end - lengthLength - start);
-            writeBuffer.position(end);
 
             // Write to socket if no data was queued.
-            if(start == 0 && !writeToSocket()){
+            if(wasEmpty && !writeToSocket()){
                 // A partial write, set OP_WRITE to be notified when more
                 // writing can occur.
                 selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
@@ -209,13 +555,98 @@ class TcpConnection{
                 selectionKey.selector().wakeup();
             }
 
+            if(!congested && queuedBytes > backpressureThreshold){
+                congested = congestedNow = true;
+            }
+            drained = checkDrained();
+
             lastWriteTime = System.currentTimeMillis();
-            return end - start;
         }
+
+        connection.stats.sent(object, true);
+        if(congestedNow) connection.notifyCongested();
+        if(drained) connection.notifyDrained();
+        return length;
+    }
+
+    private ByteBuffer serialize(Object object){
+        ByteBuffer buffer = scratch(writeBufferSize);
+        int lengthLength = serialization.getLengthLength();
+
+        try{
+            // Leave room for length.
+            buffer.position(lengthLength);
+
+            // Write data.
+            serialization.write(buffer, object);
+        }catch(Throwable ex){
+            throw new ArcNetException("Error serializing object of type: " + object.getClass().getName(), ex);
+        }
+        int length = buffer.position();
+
+        // Write data length.
+        buffer.position(0);
+        serialization.writeLength(buffer, length - lengthLength);
+        buffer.position(0);
+        buffer.limit(length);
+        return buffer;
+    }
+
+    /**
+     * Serializes the object after {@link #maxHeaderSize} reserved bytes. Objects that overflow the write buffer
+     * are serialized again into larger pooled buffers, up to the maximum message size.
+     * @return a buffer with the serialized bytes between its position and limit.
+     */
+    private ByteBuffer serializeFramed(Object object){
+        int capacity = writeBufferSize;
+        ByteBuffer buffer = scratch(capacity);
+        while(true){
+            try{
+                buffer.position(maxHeaderSize);
+                serialization.write(buffer, object);
+                break;
+            }catch(BufferOverflowException ex){
+                if(buffer != scratchBuffer.get())
+                    freeMessage(buffer);
+                if(capacity >= maxMessageSize + maxHeaderSize)
+                    throw new ArcNetException("Object of type " + object.getClass().getName() + " is larger than the maximum message size: " + maxMessageSize);
+                capacity = (int)Math.min(capacity * 2L, maxMessageSize + maxHeaderSize);
+                buffer = obtainMessage(capacity);
+                buffer.limit(capacity);
+            }catch(Throwable ex){
+                throw new ArcNetException("Error serializing object of type: " + object.getClass().getName(), ex);
+            }
+        }
+
+        buffer.limit(buffer.position());
+        buffer.position(maxHeaderSize);
+        if(buffer.remaining() > maxMessageSize)
+            throw new ArcNetException("Object of type " + object.getClass().getName() + " is larger than the maximum message size: " + maxMessageSize);
+        return buffer;
+    }
+
+    /** Writes a varint header into the reserved room right before the buffer's position, and moves the position to its start. */
+    private static void prependHeader(ByteBuffer buffer, int header){
+        int start = buffer.position() - varintSize(header);
+        buffer.position(start);
+        writeVarint(buffer, header);
+        buffer.position(start);
+    }
+
+    void setFragmentation(int fragmentSize, int maxMessageSize){
+        if(fragmentSize > 0 && fragmentSize > readBuffer.capacity())
+            throw new IllegalArgumentException("fragmentSize cannot be larger than the object buffer size: " + fragmentSize);
+        if(fragmentSize > 0 && maxMessageSize < fragmentSize)
+            throw new IllegalArgumentException("maxMessageSize cannot be smaller than fragmentSize.");
+        this.fragmentSize = fragmentSize;
+        this.maxMessageSize = maxMessageSize;
     }
 
     public void close(){
         try{
+            synchronized(writeLock){
+                clearQueue();
+            }
             if(socketChannel != null){
                 socketChannel.close();
                 socketChannel = null;
@@ -226,6 +657,11 @@ class TcpConnection{
         }
     }
 
+    boolean isRegistered(Selector selector){
+        SelectionKey selectionKey = this.selectionKey;
+        return selectionKey != null && selectionKey.selector() == selector;
+    }
+
     public boolean needsKeepAlive(long time){
         return socketChannel != null && keepAliveMillis > 0 && time - lastWriteTime > keepAliveMillis;
     }
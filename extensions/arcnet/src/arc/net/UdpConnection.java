@@ -19,6 +19,9 @@ class UdpConnection{
     private SelectionKey selectionKey;
     private final Object writeLock = new Object();
     private long lastCommunicationTime;
+    /** Size and deserialization time of the last datagram returned by {@link #readObject()}. */
+    int lastReadLength;
+    long lastReadNanos;
 
     public UdpConnection(NetSerializer serialization, int bufferSize){
         this.serialization = serialization;
@@ -78,9 +81,12 @@ class UdpConnection{
 
     public Object readObject(){
         readBuffer.flip();
+        lastReadLength = readBuffer.limit();
+        long start = System.nanoTime();
         try{
             try{
                 Object object = serialization.read(readBuffer);
+                lastReadNanos = System.nanoTime() - start;
                 if(readBuffer.hasRemaining())
                     throw new ArcNetException("Incorrect number of bytes ("
                     + readBuffer.remaining()
@@ -0,0 +1,156 @@
+package net;
+
+import arc.net.*;
+import arc.struct.*;
+import org.junit.*;
+
+import java.nio.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class DispatchTest{
+    static final int clients = 3, messages = 10;
+
+    /** Events of each connection as seen on the dispatch executor: sequence numbers of received arrays, or -1 for idle. */
+    ObjectMap<Connection, IntSeq> events = new ObjectMap<>();
+    /** Received arrays and idle events as fired on the network threads. */
+    AtomicInteger rawReceived = new AtomicInteger(), rawIdle = new AtomicInteger();
+    AtomicBoolean overlapped = new AtomicBoolean();
+    ObjectSet<Connection> busy = new ObjectSet<>();
+
+    @Test
+    public void orderedAndCoalesced() throws Exception{
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CountDownLatch gate = new CountDownLatch(1);
+        //holds back every event until the gate opens, so that idle events pile up on the network threads
+        Executor executor = task -> pool.execute(() -> {
+            try{
+                gate.await();
+            }catch(InterruptedException ignored){
+            }
+            task.run();
+        });
+
+        NetListener raw = new NetListener(){
+            @Override
+            public void received(Connection connection, Object object){
+                if(object instanceof byte[]) rawReceived.incrementAndGet();
+            }
+
+            @Override
+            public void idle(Connection connection){
+                rawIdle.incrementAndGet();
+            }
+        };
+
+        Server server = new Server(4096, 2048, new TestSerializer()){
+            @Override
+            protected Connection newConnection(){
+                Connection connection = super.newConnection();
+                connection.addListener(raw);
+                return connection;
+            }
+        };
+        server.setSelectorThreads(2);
+        server.setDispatchExecutor(executor);
+        server.addListener(new NetListener(){
+            @Override
+            public void received(Connection connection, Object object){
+                if(object instanceof byte[]) record(connection, ByteBuffer.wrap((byte[])object).getInt());
+            }
+
+            @Override
+            public void idle(Connection connection){
+                record(connection, -1);
+            }
+        });
+
+        Client[] clientList = new Client[clients];
+        try{
+            server.bind(54555);
+            server.start();
+
+            for(int i = 0; i < clients; i++){
+                clientList[i] = new Client(4096, 2048, new TestSerializer());
+                clientList[i].start();
+                clientList[i].connect(5000, "127.0.0.1", 54555);
+            }
+
+            for(int m = 0; m < messages; m++){
+                for(Client client : clientList){
+                    client.sendTCP(FramingTest.payload(m, 16));
+                }
+                Thread.sleep(20);
+            }
+
+            long end = System.currentTimeMillis() + 5000;
+            while((rawReceived.get() < clients * messages || rawIdle.get() < clients * messages) && System.currentTimeMillis() < end){
+                Thread.sleep(10);
+            }
+            assertTrue(rawIdle.get() >= clients * messages);
+            gate.countDown();
+
+            while(received() < clients * messages && System.currentTimeMillis() < end){
+                Thread.sleep(10);
+            }
+
+            assertFalse("Events of one connection overlapped.", overlapped.get());
+            synchronized(events){
+                assertEquals(clients, events.size);
+                for(IntSeq list : events.values()){
+                    IntSeq sequence = new IntSeq();
+                    int idles = 0;
+                    for(int i = 0; i < list.size; i++){
+                        int event = list.get(i);
+                        if(event >= 0){
+                            sequence.add(event);
+                        }else if(sequence.size < messages){
+                            idles++;
+                        }
+                    }
+                    assertEquals(IntSeq.range(0, messages), sequence);
+                    //everything up to the last message was queued while the gate was closed, which holds at most one idle event
+                    assertTrue("Idle events were not coalesced: " + idles, idles <= 1);
+                }
+            }
+        }finally{
+            gate.countDown();
+            for(Client client : clientList){
+                if(client == null) continue;
+                client.stop();
+                client.getUpdateThread().join(1000);
+                client.dispose();
+            }
+            server.stop();
+            server.getUpdateThread().join(1000);
+            server.dispose();
+            pool.shutdown();
+        }
+    }
+
+    void record(Connection connection, int event){
+        synchronized(events){
+            if(!busy.add(connection)) overlapped.set(true);
+        }
+        //give overlapping events of the same connection a chance to show up
+        Thread.yield();
+        synchronized(events){
+            busy.remove(connection);
+            events.get(connection, IntSeq::new).add(event);
+        }
+    }
+
+    int received(){
+        synchronized(events){
+            int count = 0;
+            for(IntSeq list : events.values()){
+                for(int i = 0; i < list.size; i++){
+                    if(list.get(i) >= 0) count++;
+                }
+            }
+            return count;
+        }
+    }
+}
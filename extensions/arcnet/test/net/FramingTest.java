@@ -0,0 +1,319 @@
+package net;
+
+import arc.net.*;
+import arc.struct.*;
+import org.junit.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class FramingTest{
+    static final int fragmentSize = 256;
+
+    Server server;
+    Client client;
+    /** Sequence numbers of the byte arrays received by the server, in order. */
+    IntSeq small = new IntSeq(), large = new IntSeq();
+
+    @Before
+    public void setup(){
+        server = new Server(4096, 2048, new TestSerializer());
+        server.setFragmentation(fragmentSize, 64 * 1024);
+        server.addListener(new NetListener(){
+            @Override
+            public void received(Connection connection, Object object){
+                if(object instanceof byte[]){
+                    byte[] bytes = (byte[])object;
+                    int seq = check(bytes);
+                    synchronized(FramingTest.this){
+                        (bytes.length > fragmentSize ? large : small).add(seq);
+                        FramingTest.this.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    @After
+    public void cleanup() throws Exception{
+        if(client != null){
+            client.stop();
+            client.getUpdateThread().join(1000);
+            client.dispose();
+        }
+        server.stop();
+        if(server.getUpdateThread() != null) server.getUpdateThread().join(1000);
+        server.dispose();
+    }
+
+    @Test
+    public void interleaved() throws Exception{
+        server.setSelectorThreads(2);
+        server.bind(54551);
+        server.start();
+
+        client = new Client(4096, 2048, new TestSerializer());
+        client.setFragmentation(fragmentSize, 64 * 1024);
+        client.start();
+        client.connect(5000, "127.0.0.1", 54551);
+
+        for(int i = 0; i < 20; i++){
+            client.sendTCP(payload(i, 1000 + i * 100));
+            client.sendTCP(payload(i, 16 + i));
+        }
+
+        await(20, 20);
+        assertEquals(IntSeq.range(0, 20), small);
+        assertEquals(IntSeq.range(0, 20), large);
+    }
+
+    @Test
+    public void splitHeaders() throws Exception{
+        server.bind(54552);
+        server.start();
+
+        try(Socket socket = new Socket("127.0.0.1", 54552)){
+            OutputStream out = socket.getOutputStream();
+
+            //a whole frame with a two byte header, split after its first byte
+            byte[] whole = frame(0, serialize(payload(0, 100)), -1);
+            write(out, whole, 0, 1);
+            write(out, whole, 1, whole.length - 1);
+
+            //a fragmented object, split inside its header and inside the total size that follows it
+            byte[] object = serialize(payload(1, 400));
+            byte[] first = frame(1, Arrays.copyOf(object, fragmentSize), object.length);
+            byte[] next = frame(2, Arrays.copyOfRange(object, fragmentSize, object.length), -1);
+            write(out, first, 0, 1);
+            write(out, first, 1, 2);
+            write(out, first, 3, first.length - 3);
+
+            //a whole frame sent between the fragments, with the next header split too
+            byte[] between = frame(0, serialize(payload(2, 40)), -1);
+            byte[] joined = new byte[between.length + 1];
+            System.arraycopy(between, 0, joined, 0, between.length);
+            joined[between.length] = next[0];
+            write(out, joined, 0, joined.length);
+            write(out, next, 1, next.length - 1);
+
+            await(2, 1);
+            assertEquals(IntSeq.with(0, 2), small);
+            assertEquals(IntSeq.with(1), large);
+        }
+    }
+
+    @Test
+    public void largeQueueLimit() throws Exception{
+        Connection[] connected = {null};
+        server.addListener(new NetListener(){
+            @Override
+            public void connected(Connection connection){
+                synchronized(connected){
+                    connected[0] = connection;
+                    connected.notifyAll();
+                }
+            }
+        });
+        server.bind(54553);
+        server.start();
+
+        //a peer that never reads, so everything sent to it stays queued
+        try(Socket socket = new Socket()){
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("127.0.0.1", 54553));
+
+            Connection connection;
+            synchronized(connected){
+                long end = System.currentTimeMillis() + 5000;
+                while(connected[0] == null && System.currentTimeMillis() < end) connected.wait(100);
+                connection = connected[0];
+            }
+            assertNotNull(connection);
+
+            byte[] bytes = payload(0, 60 * 1024);
+            for(int i = 0; i < 2000 && connection.isConnected(); i++){
+                connection.sendTCP(bytes);
+            }
+            assertFalse(connection.isConnected());
+        }
+    }
+
+    @Test
+    public void backpressure() throws Exception{
+        int threshold = 32 * 1024;
+        Connection[] connected = {null};
+        int[] congested = {0}, drained = {0};
+        int[] queuedAtCongested = {0}, queuedAtDrained = {0};
+        server.addListener(new NetListener(){
+            @Override
+            public void connected(Connection connection){
+                connection.setBackpressureThreshold(threshold);
+                synchronized(connected){
+                    connected[0] = connection;
+                    connected.notifyAll();
+                }
+            }
+
+            @Override
+            public void congested(Connection connection){
+                synchronized(connected){
+                    congested[0]++;
+                    queuedAtCongested[0] = connection.getTcpWriteBufferSize();
+                }
+            }
+
+            @Override
+            public void drained(Connection connection){
+                synchronized(connected){
+                    drained[0]++;
+                    queuedAtDrained[0] = connection.getTcpWriteBufferSize();
+                    connected.notifyAll();
+                }
+            }
+        });
+        server.bind(54557);
+        server.start();
+
+        //a peer that stops reading until the server reports congestion
+        try(Socket socket = new Socket()){
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("127.0.0.1", 54557));
+
+            Connection connection;
+            synchronized(connected){
+                long end = System.currentTimeMillis() + 5000;
+                while(connected[0] == null && System.currentTimeMillis() < end) connected.wait(100);
+                connection = connected[0];
+            }
+            assertNotNull(connection);
+
+            //large objects are sent in fragments, with small objects in between
+            IntSeq sentLarge = new IntSeq(), sentSmall = new IntSeq();
+            for(int i = 0; i < 4000; i++){
+                synchronized(connected){
+                    if(congested[0] > 0) break;
+                }
+                connection.sendTCP(payload(i, 8 * 1024 + i % 100));
+                sentLarge.add(i);
+                if(i % 4 == 0){
+                    connection.sendTCP(payload(i, 16));
+                    sentSmall.add(i);
+                }
+            }
+            assertTrue(connection.isConnected());
+            synchronized(connected){
+                assertEquals(1, congested[0]);
+                assertTrue(queuedAtCongested[0] > threshold);
+                assertEquals(0, drained[0]);
+            }
+
+            //resume reading everything that was sent
+            IntSeq readLarge = new IntSeq(), readSmall = new IntSeq();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ByteBuffer assembly = null;
+            while(readLarge.size < sentLarge.size || readSmall.size < sentSmall.size){
+                int header = readVarint(in), kind = header & 3, length = header >>> 2;
+                if(kind == 1) assembly = ByteBuffer.allocate(readVarint(in));
+
+                byte[] data = new byte[length];
+                in.readFully(data);
+                Object object;
+                if(kind == 0){
+                    object = new TestSerializer().read(ByteBuffer.wrap(data));
+                }else{
+                    assembly.put(data);
+                    if(assembly.hasRemaining()) continue;
+                    assembly.flip();
+                    object = new TestSerializer().read(assembly);
+                    assembly = null;
+                }
+
+                if(object instanceof byte[]){
+                    byte[] bytes = (byte[])object;
+                    (bytes.length > fragmentSize ? readLarge : readSmall).add(check(bytes));
+                }
+            }
+            assertEquals(sentLarge, readLarge);
+            assertEquals(sentSmall, readSmall);
+
+            synchronized(connected){
+                long end = System.currentTimeMillis() + 5000;
+                while(drained[0] == 0 && System.currentTimeMillis() < end) connected.wait(100);
+                assertEquals(1, drained[0]);
+                assertEquals(1, congested[0]);
+                assertTrue(queuedAtDrained[0] <= threshold / 2);
+            }
+            //the socket took only part of the queue at times, so the queue was written with partial gathering writes
+            assertTrue(connection.getStats().snapshot().writeStalls > 0);
+        }
+    }
+
+    static int readVarint(DataInputStream in) throws IOException{
+        int result = 0;
+        for(int shift = 0; ; shift += 7){
+            int b = in.readUnsignedByte();
+            result |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) return result;
+        }
+    }
+
+    /** Waits until the server has received this many small and large objects. */
+    synchronized void await(int smallCount, int largeCount) throws InterruptedException{
+        long end = System.currentTimeMillis() + 5000;
+        while((small.size < smallCount || large.size < largeCount) && System.currentTimeMillis() < end){
+            wait(100);
+        }
+    }
+
+    static void write(OutputStream out, byte[] bytes, int offset, int length) throws Exception{
+        out.write(bytes, offset, length);
+        out.flush();
+        //give the server time to read the partial data on its own
+        Thread.sleep(50);
+    }
+
+    static byte[] serialize(Object object){
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        new TestSerializer().write(buffer, object);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /** Builds a frame of fragmented framing, with the total size of the object after the header of a first fragment. */
+    static byte[] frame(int kind, byte[] data, int total){
+        ByteBuffer buffer = ByteBuffer.allocate(data.length + 10);
+        writeVarint(buffer, data.length << 2 | kind);
+        if(total >= 0) writeVarint(buffer, total);
+        buffer.put(data);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    static void writeVarint(ByteBuffer buffer, int value){
+        while((value & ~0x7F) != 0){
+            buffer.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+
+    static byte[] payload(int seq, int size){
+        byte[] bytes = new byte[size];
+        ByteBuffer.wrap(bytes).putInt(seq);
+        for(int i = 4; i < size; i++){
+            bytes[i] = (byte)(seq * 31 + i);
+        }
+        return bytes;
+    }
+
+    /** @return the sequence number of the payload, after checking its contents. */
+    static int check(byte[] bytes){
+        int seq = ByteBuffer.wrap(bytes).getInt();
+        for(int i = 4; i < bytes.length; i++){
+            if(bytes[i] != (byte)(seq * 31 + i)) throw new AssertionError("Corrupted payload " + seq + " at " + i);
+        }
+        return seq;
+    }
+}
@@ -0,0 +1,129 @@
+package net;
+
+import arc.net.*;
+import org.junit.*;
+
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class NetStatsTest{
+
+    @Test
+    public void serverTotals() throws Exception{
+        Server server = new Server(4096, 2048, new TestSerializer());
+        Client client = new Client(4096, 2048, new TestSerializer());
+        int[] disconnects = {0};
+        server.addListener(new NetListener(){
+            @Override
+            public void disconnected(Connection connection, DcReason reason){
+                synchronized(disconnects){
+                    disconnects[0]++;
+                    disconnects.notifyAll();
+                }
+            }
+        });
+
+        try{
+            server.bind(54554);
+            server.start();
+            client.start();
+            client.connect(5000, "127.0.0.1", 54554);
+
+            for(int i = 0; i < 10; i++){
+                client.sendTCP(new byte[100]);
+            }
+
+            long end = System.currentTimeMillis() + 5000;
+            while(server.getStats().snapshot().received.get(byte[].class, 0L) < 10 && System.currentTimeMillis() < end){
+                Thread.sleep(10);
+            }
+
+            NetStats.Snapshot open = server.getStats().snapshot();
+            assertEquals(10L, (long)open.received.get(byte[].class, 0L));
+            assertEquals(open.tcpBytesIn, server.getConnections()[0].getStats().snapshot().tcpBytesIn);
+
+            client.close();
+            synchronized(disconnects){
+                while(disconnects[0] == 0 && System.currentTimeMillis() < end) disconnects.wait(100);
+            }
+            assertEquals(0, server.getConnections().length);
+
+            //counters of the closed connection stay in the totals
+            NetStats.Snapshot closed = server.getStats().snapshot();
+            assertEquals(10L, (long)closed.received.get(byte[].class, 0L));
+            assertEquals(open.tcpBytesIn, closed.tcpBytesIn);
+        }finally{
+            client.stop();
+            client.getUpdateThread().join(1000);
+            client.dispose();
+            server.stop();
+            server.getUpdateThread().join(1000);
+            server.dispose();
+        }
+    }
+
+    @Test
+    public void snapshotsWhileClosing() throws Exception{
+        Server server = new Server(4096, 2048, new TestSerializer());
+        server.setSelectorThreads(2);
+        Client[] clients = new Client[6];
+        AtomicBoolean running = new AtomicBoolean(true), decreased = new AtomicBoolean();
+
+        //totals must never go down, even while connections are folded into the server counters
+        Thread snapshots = new Thread(() -> {
+            long last = 0;
+            while(running.get()){
+                long received = server.getStats().snapshot().received.get(byte[].class, 0L);
+                if(received < last) decreased.set(true);
+                last = received;
+            }
+        });
+
+        try{
+            server.bind(54556);
+            server.start();
+            for(int i = 0; i < clients.length; i++){
+                clients[i] = new Client(4096, 2048, new TestSerializer());
+                clients[i].start();
+                clients[i].connect(5000, "127.0.0.1", 54556);
+            }
+            snapshots.start();
+
+            for(Client client : clients){
+                for(int i = 0; i < 50; i++){
+                    client.sendTCP(new byte[100]);
+                }
+            }
+            long end = System.currentTimeMillis() + 5000;
+            while(server.getStats().snapshot().received.get(byte[].class, 0L) < clients.length * 50 && System.currentTimeMillis() < end){
+                Thread.sleep(10);
+            }
+
+            for(Client client : clients){
+                client.close();
+                Thread.sleep(20);
+            }
+            while(server.getConnections().length > 0 && System.currentTimeMillis() < end){
+                Thread.sleep(10);
+            }
+
+            running.set(false);
+            snapshots.join();
+            assertFalse("Server totals went down between snapshots.", decreased.get());
+            assertEquals(0, server.getConnections().length);
+            assertEquals(clients.length * 50L, (long)server.getStats().snapshot().received.get(byte[].class, 0L));
+        }finally{
+            running.set(false);
+            for(Client client : clients){
+                if(client == null) continue;
+                client.stop();
+                client.getUpdateThread().join(1000);
+                client.dispose();
+            }
+            server.stop();
+            server.getUpdateThread().join(1000);
+            server.dispose();
+        }
+    }
+}
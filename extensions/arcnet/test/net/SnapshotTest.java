@@ -0,0 +1,111 @@
+package net;
+
+import arc.net.*;
+import org.junit.*;
+
+import java.nio.*;
+import java.util.*;
+import java.util.zip.*;
+
+import static org.junit.Assert.*;
+
+public class SnapshotTest{
+    SnapshotEncoder encoder = new SnapshotEncoder(4, Deflater.BEST_SPEED);
+    SnapshotDecoder decoder = new SnapshotDecoder(4);
+    byte[] state = new byte[300];
+    Random random = new Random(7);
+
+    @After
+    public void cleanup(){
+        encoder.dispose();
+        decoder.dispose();
+    }
+
+    @Test
+    public void inOrder(){
+        for(int i = 0; i < 20; i++){
+            assertTrue(decode(encode()));
+            assertDecoded();
+            encoder.acknowledge(decoder.sequence());
+        }
+        assertEquals(1, encoder.keyframes);
+    }
+
+    @Test
+    public void lostPackets(){
+        for(int i = 0; i < 30; i++){
+            ByteBuffer packet = encode();
+            if(i % 3 == 1) continue;
+
+            assertTrue(decode(packet));
+            assertDecoded();
+            encoder.acknowledge(decoder.sequence());
+        }
+        assertEquals(1, encoder.keyframes);
+        assertEquals(0, decoder.missingBaselines);
+    }
+
+    @Test
+    public void lostAcks(){
+        decode(encode());
+        encoder.acknowledge(decoder.sequence());
+
+        //acknowledgements stop arriving for longer than the history, so the baseline is dropped for keyframes
+        for(int i = 0; i < 10; i++){
+            assertTrue(decode(encode()));
+            assertDecoded();
+        }
+        assertTrue(encoder.keyframes > 1);
+        assertEquals(0, decoder.missingBaselines);
+
+        encoder.acknowledge(decoder.sequence());
+        int keyframes = encoder.keyframes;
+        assertTrue(decode(encode()));
+        assertDecoded();
+        assertEquals(keyframes, encoder.keyframes);
+    }
+
+    @Test
+    public void staleAndOutOfOrder(){
+        ByteBuffer first = encode();
+        ByteBuffer second = encode();
+        ByteBuffer third = encode();
+        byte[] expected = state.clone();
+
+        assertTrue(decode(first));
+        assertTrue(decode(third));
+        assertFalse(decode(second));
+        assertFalse(decode(first));
+        assertEquals(3, decoder.sequence());
+        assertArrayEquals(expected, Arrays.copyOf(decoder.state(), decoder.length()));
+    }
+
+    @Test(expected = ArcNetException.class)
+    public void maxLength(){
+        decoder.maxLength = state.length - 1;
+        decode(encode());
+    }
+
+    /** Changes a few bytes of the state and encodes it. */
+    ByteBuffer encode(){
+        for(int i = 0; i < 5; i++){
+            state[random.nextInt(state.length)] = (byte)random.nextInt();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(state.length * 2);
+        encoder.encode(state, state.length, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    boolean decode(ByteBuffer buffer){
+        buffer.rewind();
+        boolean result = decoder.decode(buffer);
+        assertFalse(buffer.hasRemaining());
+        return result;
+    }
+
+    void assertDecoded(){
+        assertEquals(state.length, decoder.length());
+        assertArrayEquals(state, Arrays.copyOf(decoder.state(), decoder.length()));
+    }
+}
@@ -0,0 +1,54 @@
+package net;
+
+import arc.net.*;
+import arc.net.FrameworkMessage.*;
+
+import java.nio.*;
+
+/** Serializes byte arrays and the framework messages used over TCP. */
+public class TestSerializer implements NetSerializer{
+
+    @Override
+    public void write(ByteBuffer buffer, Object object){
+        if(object instanceof byte[]){
+            byte[] bytes = (byte[])object;
+            buffer.put((byte)0);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }else if(object instanceof RegisterTCP){
+            buffer.put((byte)1);
+            buffer.putInt(((RegisterTCP)object).connectionID);
+        }else if(object instanceof KeepAlive){
+            buffer.put((byte)2);
+        }else if(object instanceof Ping){
+            buffer.put((byte)3);
+            buffer.putInt(((Ping)object).id);
+            buffer.put((byte)(((Ping)object).isReply ? 1 : 0));
+        }else{
+            throw new IllegalArgumentException("Unknown object: " + object);
+        }
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer){
+        switch(buffer.get()){
+            case 0:
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                return bytes;
+            case 1:
+                RegisterTCP register = new RegisterTCP();
+                register.connectionID = buffer.getInt();
+                return register;
+            case 2:
+                return FrameworkMessage.keepAlive;
+            case 3:
+                Ping ping = new Ping();
+                ping.id = buffer.getInt();
+                ping.isReply = buffer.get() == 1;
+                return ping;
+            default:
+                throw new IllegalArgumentException("Unknown type.");
+        }
+    }
+}